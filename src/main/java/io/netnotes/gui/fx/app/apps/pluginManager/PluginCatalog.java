@@ -0,0 +1,211 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import io.netnotes.engine.crypto.HashServices;
+import io.netnotes.engine.plugins.OSGiPluginInformation;
+import io.netnotes.engine.plugins.OSGiUpdateLoader;
+
+/**
+ * Versioned local snapshot of the available plugins catalog.
+ *
+ * The catalog is fetched once and reused by install, uninstall, enable and
+ * disable, which only change the local registry. get() returns the snapshot
+ * while it is younger than the max age and revalidates it otherwise;
+ * revalidate() always asks the source.
+ *
+ * Revalidation passes the snapshot's validator (an ETag-like fingerprint)
+ * to the Source. A source that can answer conditionally returns
+ * Fetch.notModified(); otherwise an identical fingerprint is treated the
+ * same way. Either way the version only increases when the catalog content
+ * changed, so callers can skip work for an unchanged catalog.
+ *
+ * Sources are pluggable: fromUpdateLoader() for the GitHub catalog,
+ * fixed() for offline use and tests.
+ */
+public class PluginCatalog {
+    public static final long DEFAULT_MAX_AGE_MS = 5 * 60 * 1000;
+
+    /**
+     * Fetches the catalog, given the current validator (null if none)
+     */
+    @FunctionalInterface
+    public interface Source {
+        CompletableFuture<Fetch> fetch(String validator);
+    }
+
+    /**
+     * Result of a Source fetch
+     */
+    public static class Fetch {
+        final boolean notModified;
+        final String validator;
+        final List<OSGiPluginInformation> plugins;
+
+        private Fetch(boolean notModified, String validator, List<OSGiPluginInformation> plugins) {
+            this.notModified = notModified;
+            this.validator = validator;
+            this.plugins = plugins;
+        }
+
+        public static Fetch notModified(String validator) {
+            return new Fetch(true, validator, null);
+        }
+
+        public static Fetch of(String validator, List<OSGiPluginInformation> plugins) {
+            return new Fetch(false, validator, plugins);
+        }
+    }
+
+    /**
+     * Immutable catalog version
+     */
+    public static class Snapshot {
+        private final long m_version;
+        private final List<OSGiPluginInformation> m_plugins;
+        private final String m_validator;
+        private final long m_fetchedAt;
+
+        Snapshot(long version, List<OSGiPluginInformation> plugins, String validator, long fetchedAt) {
+            m_version = version;
+            m_plugins = plugins;
+            m_validator = validator;
+            m_fetchedAt = fetchedAt;
+        }
+
+        public long getVersion() { return m_version; }
+        public List<OSGiPluginInformation> getPlugins() { return m_plugins; }
+        public String getValidator() { return m_validator; }
+        public long getFetchedAt() { return m_fetchedAt; }
+    }
+
+    private final Source m_source;
+    private long m_maxAgeMs = DEFAULT_MAX_AGE_MS;
+
+    private volatile Snapshot m_snapshot = new Snapshot(0, Collections.emptyList(), null, 0);
+    private CompletableFuture<Snapshot> m_pending = null;
+
+    public PluginCatalog(Source source) {
+        m_source = source;
+    }
+
+    // ========== Access ==========
+
+    /**
+     * Current snapshot; version 0 until the first fetch completes
+     */
+    public Snapshot getSnapshot() {
+        return m_snapshot;
+    }
+
+    public boolean isLoaded() {
+        return m_snapshot.getVersion() > 0;
+    }
+
+    /**
+     * Snapshot, revalidated first if missing or older than the max age
+     */
+    public CompletableFuture<Snapshot> get() {
+        Snapshot snapshot = m_snapshot;
+        if (snapshot.getVersion() > 0 && System.currentTimeMillis() - snapshot.getFetchedAt() < m_maxAgeMs) {
+            return CompletableFuture.completedFuture(snapshot);
+        }
+        return revalidate();
+    }
+
+    /**
+     * Ask the source for changes; concurrent calls share one fetch
+     */
+    public synchronized CompletableFuture<Snapshot> revalidate() {
+        if (m_pending != null) {
+            return m_pending;
+        }
+
+        Snapshot current = m_snapshot;
+        CompletableFuture<Snapshot> pending = m_source.fetch(current.getValidator())
+            .thenApply(this::apply);
+        m_pending = pending;
+        pending.whenComplete((_, _) -> clearPending(pending));
+        return pending;
+    }
+
+    public void setMaxAge(long maxAgeMs) {
+        m_maxAgeMs = maxAgeMs;
+    }
+
+    /**
+     * Mark the snapshot stale so the next get() revalidates
+     */
+    public void invalidate() {
+        Snapshot snapshot = m_snapshot;
+        m_snapshot = new Snapshot(snapshot.getVersion(), snapshot.getPlugins(), snapshot.getValidator(), 0);
+    }
+
+    private synchronized Snapshot apply(Fetch fetch) {
+        Snapshot current = m_snapshot;
+        long now = System.currentTimeMillis();
+
+        boolean unchanged = current.getVersion() > 0 && (fetch.notModified ||
+            (fetch.validator != null && fetch.validator.equals(current.getValidator())));
+
+        m_snapshot = unchanged
+            ? new Snapshot(current.getVersion(), current.getPlugins(), current.getValidator(), now)
+            : new Snapshot(current.getVersion() + 1,
+                Collections.unmodifiableList(new ArrayList<>(fetch.plugins)), fetch.validator, now);
+        return m_snapshot;
+    }
+
+    private synchronized void clearPending(CompletableFuture<Snapshot> pending) {
+        if (m_pending == pending) {
+            m_pending = null;
+        }
+    }
+
+    // ========== Sources ==========
+
+    /**
+     * Catalog from the update loader. The loader has no conditional
+     * request, so the download is compared by fingerprint.
+     */
+    public static Source fromUpdateLoader(OSGiUpdateLoader updateLoader) {
+        return validator -> updateLoader.loadAvailableApps().thenApply(plugins -> {
+            String fingerprint = fingerprint(plugins);
+            return fingerprint.equals(validator) ? Fetch.notModified(fingerprint) : Fetch.of(fingerprint, plugins);
+        });
+    }
+
+    /**
+     * Fixed catalog (offline use and tests)
+     */
+    public static Source fixed(List<OSGiPluginInformation> plugins) {
+        List<OSGiPluginInformation> copy = new ArrayList<>(plugins);
+        String fingerprint = fingerprint(copy);
+        return validator -> CompletableFuture.completedFuture(
+            fingerprint.equals(validator) ? Fetch.notModified(fingerprint) : Fetch.of(fingerprint, copy));
+    }
+
+    // ========== Fingerprints ==========
+
+    /**
+     * Fingerprint of a whole catalog
+     */
+    public static String fingerprint(List<OSGiPluginInformation> plugins) {
+        StringBuilder sb = new StringBuilder();
+        for (OSGiPluginInformation plugin : plugins) {
+            sb.append(describe(plugin)).append('\n');
+        }
+        return HashServices.digestToUrlSafeString(sb.toString().getBytes(StandardCharsets.UTF_8), 16);
+    }
+
+    /**
+     * Displayed catalog fields of one plugin, for change detection
+     */
+    static String describe(OSGiPluginInformation plugin) {
+        return plugin.getName() + '\u0000' + plugin.getDescription() + '\u0000' + plugin.getCategory() +
+            '\u0000' + plugin.getBranch() + '\u0000' + plugin.getIconUrl() + '\u0000' + plugin.getSmallIconUrl();
+    }
+}
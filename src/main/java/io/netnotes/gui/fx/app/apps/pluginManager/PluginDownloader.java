@@ -0,0 +1,549 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+
+import io.netnotes.engine.crypto.HashServices;
+
+/**
+ * Resumable, verified plugin downloads.
+ *
+ * The file is fetched in fixed-size chunks with HTTP Range requests into a
+ * partial file in the download directory. Each chunk is hashed (Blake2b)
+ * as it arrives, written, flushed, and then recorded with its hash in a
+ * sidecar properties file. An interrupted download resumes after the last
+ * recorded chunk; the recorded chunks are re-hashed against the sidecar
+ * first, and a mismatch resumes from the first bad chunk.
+ *
+ * The sidecar also keeps the server's validator (ETag or Last-Modified),
+ * which is sent as If-Range: if the file changed on the server, the
+ * download restarts instead of mixing versions.
+ *
+ * The download digest is the Blake2b hash of the chunk hashes in order, so
+ * it is known once the last chunk arrives without reading the file again.
+ * The whole file is also hashed with SHA-256 as the chunks are verified, and
+ * the download only completes if it matches the reference digest the caller
+ * took from the release metadata ("sha256:<hex>", as GitHub publishes for
+ * release assets).
+ *
+ * Servers without Range support (or without a Content-Length) are read as
+ * a single stream, still hashed per chunk, but cannot resume.
+ */
+public class PluginDownloader {
+    public static final int DEFAULT_CHUNK_SIZE = 1024 * 1024;
+    public static final int HASH_LENGTH = 32;
+    public static final int MAX_ATTEMPTS = 3;
+    public static final String SHA256_PREFIX = "sha256:";
+
+    private static final int CONNECT_TIMEOUT_MS = 15000;
+    private static final int READ_TIMEOUT_MS = 30000;
+    private static final String PART_EXTENSION = ".part";
+    private static final String SIDECAR_EXTENSION = ".part.properties";
+
+    /**
+     * Download progress, reported after each chunk
+     */
+    public static class Progress {
+        private final long m_bytesDone;
+        private final long m_totalBytes;
+        private final int m_chunksDone;
+        private final int m_chunkCount;
+        private final boolean m_resumed;
+
+        Progress(long bytesDone, long totalBytes, int chunksDone, int chunkCount, boolean resumed) {
+            m_bytesDone = bytesDone;
+            m_totalBytes = totalBytes;
+            m_chunksDone = chunksDone;
+            m_chunkCount = chunkCount;
+            m_resumed = resumed;
+        }
+
+        public long getBytesDone() { return m_bytesDone; }
+        /** -1 if unknown */
+        public long getTotalBytes() { return m_totalBytes; }
+        public int getChunksDone() { return m_chunksDone; }
+        /** -1 if unknown */
+        public int getChunkCount() { return m_chunkCount; }
+        /** True if this download continued an earlier partial file */
+        public boolean isResumed() { return m_resumed; }
+
+        /**
+         * @return 0..1, or -1 if the size is unknown
+         */
+        public double getFraction() {
+            return m_totalBytes > 0 ? (double) m_bytesDone / m_totalBytes : -1;
+        }
+    }
+
+    /**
+     * A completed, verified download
+     */
+    public static class Result {
+        private final Path m_file;
+        private final long m_size;
+        private final String m_digest;
+        private final String m_fileDigest;
+
+        Result(Path file, long size, String digest, String fileDigest) {
+            m_file = file;
+            m_size = size;
+            m_digest = digest;
+            m_fileDigest = fileDigest;
+        }
+
+        public Path getFile() { return m_file; }
+        public long getSize() { return m_size; }
+        /** Url-safe Blake2b digest of the chunk hashes */
+        public String getDigest() { return m_digest; }
+        /** SHA-256 of the file, "sha256:<hex>", as checked against the reference digest */
+        public String getFileDigest() { return m_fileDigest; }
+
+        public InputStream openStream() throws IOException {
+            return Files.newInputStream(m_file);
+        }
+
+        /**
+         * Remove the downloaded file and its sidecar
+         */
+        public void delete() {
+            try {
+                Files.deleteIfExists(m_file);
+                Files.deleteIfExists(sidecarFor(m_file));
+            } catch (IOException e) {
+                System.err.println("PluginDownloader: could not delete " + m_file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private final Path m_directory;
+    private final Executor m_executor;
+    private final int m_chunkSize;
+    private final Map<String, CompletableFuture<Result>> m_active = new ConcurrentHashMap<>();
+
+    public PluginDownloader(Path directory, Executor executor) {
+        this(directory, executor, DEFAULT_CHUNK_SIZE);
+    }
+
+    public PluginDownloader(Path directory, Executor executor, int chunkSize) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        m_directory = directory;
+        m_executor = executor;
+        m_chunkSize = chunkSize;
+    }
+
+    // ========== Download ==========
+
+    /**
+     * Download `url`, resuming a partial download of the same file.
+     * Concurrent calls for the same url share one download.
+     *
+     * @param expectedDigest reference SHA-256 from the release metadata, "sha256:<hex>"
+     * @param listener progress events, called on the download thread; may be null
+     */
+    public CompletableFuture<Result> download(String url, String expectedDigest, Consumer<Progress> listener) {
+        if (expectedDigest == null || !expectedDigest.regionMatches(true, 0, SHA256_PREFIX, 0, SHA256_PREFIX.length())) {
+            throw new IllegalArgumentException("Expected a " + SHA256_PREFIX + "<hex> reference digest for " + url +
+                ", got " + expectedDigest);
+        }
+
+        CompletableFuture<Result> active = m_active.get(url);
+        if (active != null) {
+            return active;
+        }
+
+        CompletableFuture<Result> future = new CompletableFuture<>();
+        active = m_active.putIfAbsent(url, future);
+        if (active != null) {
+            return active;
+        }
+
+        m_executor.execute(() -> {
+            Result result = null;
+            Throwable error = null;
+            try {
+                result = new Transfer(url, listener, future).run(expectedDigest);
+            } catch (Throwable e) {
+                error = e;
+            }
+            // Leave m_active first so a retry from a callback starts a new download
+            m_active.remove(url, future);
+            if (error != null) {
+                future.completeExceptionally(error);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * Remove any partial download of `url`
+     */
+    public void discard(String url) {
+        Path part = partFor(url);
+        try {
+            Files.deleteIfExists(part);
+            Files.deleteIfExists(sidecarFor(part));
+        } catch (IOException e) {
+            System.err.println("PluginDownloader: could not discard " + part + ": " + e.getMessage());
+        }
+    }
+
+    public int getChunkSize() {
+        return m_chunkSize;
+    }
+
+    private Path partFor(String url) {
+        return m_directory.resolve(
+            HashServices.digestToUrlSafeString(url.getBytes(StandardCharsets.UTF_8), 16) + PART_EXTENSION);
+    }
+
+    private static Path sidecarFor(Path part) {
+        String name = part.getFileName().toString();
+        return part.resolveSibling(name.substring(0, name.length() - PART_EXTENSION.length()) + SIDECAR_EXTENSION);
+    }
+
+    // ========== Transfer ==========
+
+    /**
+     * State of one download
+     */
+    private class Transfer {
+        private final String m_url;
+        private final Consumer<Progress> m_listener;
+        private final CompletableFuture<Result> m_future;
+        private final Path m_part;
+        private final Path m_sidecar;
+        private final List<byte[]> m_chunkHashes = new ArrayList<>();
+        private final MessageDigest m_fileDigest = newSha256(); // over the chunks in m_chunkHashes
+
+        private long m_totalBytes = -1;
+        private String m_validator = null;
+        private boolean m_resumed = false;
+
+        Transfer(String url, Consumer<Progress> listener, CompletableFuture<Result> future) {
+            m_url = url;
+            m_listener = listener;
+            m_future = future;
+            m_part = partFor(url);
+            m_sidecar = sidecarFor(m_part);
+        }
+
+        Result run(String expectedDigest) throws IOException {
+            Files.createDirectories(m_directory);
+
+            boolean ranged = probe();
+            if (ranged) {
+                resume();
+                downloadRanges();
+            } else {
+                discard(m_url);
+                downloadStream();
+            }
+
+            String digest = digest();
+            String fileDigest = SHA256_PREFIX + HexFormat.of().formatHex(m_fileDigest.digest());
+            long size = Files.size(m_part);
+            if ((m_totalBytes >= 0 && size != m_totalBytes) || !expectedDigest.equalsIgnoreCase(fileDigest)) {
+                discard(m_url);
+                throw new IOException("Download verification failed for " + m_url +
+                    " (size " + size + ", " + fileDigest + ", expected " + expectedDigest + ")");
+            }
+            return new Result(m_part, size, digest, fileDigest);
+        }
+
+        /**
+         * HEAD request for size, validator and Range support
+         * @return true if the file can be fetched in ranges
+         */
+        private boolean probe() throws IOException {
+            HttpURLConnection connection = open("HEAD");
+            try {
+                if (connection.getResponseCode() / 100 != 2) {
+                    return false;
+                }
+                m_totalBytes = connection.getContentLengthLong();
+                m_validator = validatorOf(connection);
+                return m_totalBytes > 0 && "bytes".equalsIgnoreCase(connection.getHeaderField("Accept-Ranges"));
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        /**
+         * Keep the recorded chunks of a matching partial download whose data still hashes the same
+         */
+        private void resume() throws IOException {
+            Properties record = readSidecar();
+            if (record == null ||
+                !m_url.equals(record.getProperty("url")) ||
+                m_validator == null || !m_validator.equals(record.getProperty("validator")) ||
+                m_totalBytes != parseLong(record.getProperty("size")) ||
+                m_chunkSize != parseLong(record.getProperty("chunkSize"))
+            ) {
+                discard(m_url);
+                return;
+            }
+
+            int recorded = (int) parseLong(record.getProperty("chunks"));
+            try (RandomAccessFile file = new RandomAccessFile(m_part.toFile(), "r")) {
+                for (int i = 0; i < recorded; i++) {
+                    String hash = record.getProperty("hash." + i);
+                    int length = chunkLength(i);
+                    if (hash == null || file.length() < chunkOffset(i) + length) break;
+
+                    byte[] data = new byte[length];
+                    file.seek(chunkOffset(i));
+                    file.readFully(data);
+                    byte[] chunkHash = HashServices.digestBytesToBytes(data, HASH_LENGTH);
+                    if (!hash.equals(encode(chunkHash))) break;
+
+                    m_chunkHashes.add(chunkHash);
+                    m_fileDigest.update(data);
+                }
+            } catch (IOException e) {
+                m_chunkHashes.clear();
+                m_fileDigest.reset();
+            }
+            m_resumed = !m_chunkHashes.isEmpty();
+        }
+
+        private void downloadRanges() throws IOException {
+            int chunkCount = (int) ((m_totalBytes + m_chunkSize - 1) / m_chunkSize);
+            report(chunkCount);
+
+            try (RandomAccessFile file = new RandomAccessFile(m_part.toFile(), "rw")) {
+                if (!m_resumed) {
+                    file.setLength(0);
+                }
+                while (m_chunkHashes.size() < chunkCount) {
+                    checkCancelled();
+                    int index = m_chunkHashes.size();
+                    byte[] data = fetchChunk(index);
+                    if (data == null) {
+                        // Changed on the server; start over without ranges
+                        file.close();
+                        m_chunkHashes.clear();
+                        m_fileDigest.reset();
+                        m_resumed = false;
+                        discard(m_url);
+                        downloadStream();
+                        return;
+                    }
+
+                    byte[] chunkHash = HashServices.digestBytesToBytes(data, HASH_LENGTH);
+                    file.seek(chunkOffset(index));
+                    file.write(data);
+                    file.getChannel().force(false);
+
+                    m_chunkHashes.add(chunkHash);
+                    m_fileDigest.update(data);
+                    writeSidecar();
+                    report(chunkCount);
+                }
+                file.setLength(m_totalBytes);
+            }
+        }
+
+        /**
+         * Fetch one chunk, retrying up to MAX_ATTEMPTS
+         * @return the chunk, or null if the server no longer serves the recorded version
+         */
+        private byte[] fetchChunk(int index) throws IOException {
+            long start = chunkOffset(index);
+            int length = chunkLength(index);
+            IOException lastError = null;
+
+            for (int attempt = 0; attempt < MAX_ATTEMPTS; attempt++) {
+                HttpURLConnection connection = open("GET");
+                try {
+                    connection.setRequestProperty("Range", "bytes=" + start + "-" + (start + length - 1));
+                    if (m_validator != null) {
+                        connection.setRequestProperty("If-Range", m_validator);
+                    }
+                    int status = connection.getResponseCode();
+                    if (status == HttpURLConnection.HTTP_OK) {
+                        return null;
+                    }
+                    if (status != HttpURLConnection.HTTP_PARTIAL) {
+                        throw new IOException("Unexpected status " + status + " for range of " + m_url);
+                    }
+                    try (InputStream in = connection.getInputStream()) {
+                        byte[] data = in.readNBytes(length);
+                        if (data.length != length) {
+                            throw new IOException("Short chunk " + index + ": " + data.length + " of " + length);
+                        }
+                        return data;
+                    }
+                } catch (IOException e) {
+                    lastError = e;
+                } finally {
+                    connection.disconnect();
+                }
+            }
+            throw lastError;
+        }
+
+        /**
+         * Single GET, hashed in chunks as it is written
+         */
+        private void downloadStream() throws IOException {
+            HttpURLConnection connection = open("GET");
+            try {
+                int status = connection.getResponseCode();
+                if (status / 100 != 2) {
+                    throw new IOException("Unexpected status " + status + " for " + m_url);
+                }
+                m_totalBytes = connection.getContentLengthLong();
+                int chunkCount = m_totalBytes > 0 ? (int) ((m_totalBytes + m_chunkSize - 1) / m_chunkSize) : -1;
+                report(chunkCount);
+
+                try (InputStream in = connection.getInputStream();
+                     OutputStream out = Files.newOutputStream(m_part)) {
+                    byte[] data;
+                    while ((data = in.readNBytes(m_chunkSize)).length > 0) {
+                        checkCancelled();
+                        m_chunkHashes.add(HashServices.digestBytesToBytes(data, HASH_LENGTH));
+                        m_fileDigest.update(data);
+                        out.write(data);
+                        report(chunkCount);
+                    }
+                }
+            } finally {
+                connection.disconnect();
+            }
+        }
+
+        // ========== Helpers ==========
+
+        private HttpURLConnection open(String method) throws IOException {
+            HttpURLConnection connection = (HttpURLConnection) URI.create(m_url).toURL().openConnection();
+            connection.setRequestMethod(method);
+            connection.setConnectTimeout(CONNECT_TIMEOUT_MS);
+            connection.setReadTimeout(READ_TIMEOUT_MS);
+            // Identity encoding keeps byte ranges meaningful
+            connection.setRequestProperty("Accept-Encoding", "identity");
+            return connection;
+        }
+
+        private long chunkOffset(int index) {
+            return (long) index * m_chunkSize;
+        }
+
+        private int chunkLength(int index) {
+            return (int) Math.min(m_chunkSize, m_totalBytes - chunkOffset(index));
+        }
+
+        private String digest() {
+            byte[] hashes = new byte[m_chunkHashes.size() * HASH_LENGTH];
+            for (int i = 0; i < m_chunkHashes.size(); i++) {
+                System.arraycopy(m_chunkHashes.get(i), 0, hashes, i * HASH_LENGTH, HASH_LENGTH);
+            }
+            return HashServices.digestToUrlSafeString(hashes, HASH_LENGTH);
+        }
+
+        private void report(int chunkCount) {
+            if (m_listener == null) return;
+
+            long bytesDone = m_totalBytes > 0
+                ? Math.min(m_totalBytes, chunkOffset(m_chunkHashes.size()))
+                : chunkOffset(m_chunkHashes.size());
+            try {
+                m_listener.accept(new Progress(bytesDone, m_totalBytes, m_chunkHashes.size(), chunkCount, m_resumed));
+            } catch (Exception e) {
+                System.err.println("PluginDownloader: progress listener failed: " + e.getMessage());
+            }
+        }
+
+        private void checkCancelled() throws IOException {
+            if (m_future.isDone()) {
+                throw new IOException("Download cancelled: " + m_url);
+            }
+        }
+
+        private Properties readSidecar() {
+            if (!Files.isRegularFile(m_sidecar) || !Files.isRegularFile(m_part)) {
+                return null;
+            }
+            Properties record = new Properties();
+            try (InputStream in = Files.newInputStream(m_sidecar)) {
+                record.load(in);
+                return record;
+            } catch (IOException e) {
+                return null;
+            }
+        }
+
+        /**
+         * Rewrite the sidecar atomically so it never lists an unwritten chunk
+         */
+        private void writeSidecar() throws IOException {
+            Properties record = new Properties();
+            record.setProperty("url", m_url);
+            record.setProperty("validator", m_validator != null ? m_validator : "");
+            record.setProperty("size", Long.toString(m_totalBytes));
+            record.setProperty("chunkSize", Integer.toString(m_chunkSize));
+            record.setProperty("chunks", Integer.toString(m_chunkHashes.size()));
+            for (int i = 0; i < m_chunkHashes.size(); i++) {
+                record.setProperty("hash." + i, encode(m_chunkHashes.get(i)));
+            }
+
+            Path tmp = m_sidecar.resolveSibling(m_sidecar.getFileName() + ".tmp");
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                record.store(out, null);
+            }
+            Files.move(tmp, m_sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    private static String validatorOf(HttpURLConnection connection) {
+        String etag = connection.getHeaderField("ETag");
+        // Weak validators are not allowed in If-Range
+        if (etag != null && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return connection.getHeaderField("Last-Modified");
+    }
+
+    private static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+
+    private static String encode(byte[] hash) {
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(hash);
+    }
+
+    private static long parseLong(String value) {
+        try {
+            return value != null ? Long.parseLong(value) : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
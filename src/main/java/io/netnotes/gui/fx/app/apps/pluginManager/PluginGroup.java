@@ -1,26 +1,18 @@
 package io.netnotes.gui.fx.app.apps.pluginManager;
 
-import java.io.IOException;
-import java.io.PipedInputStream;
-import java.io.PipedOutputStream;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.CompletionException;
 import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
 
-import io.netnotes.engine.AppDataInterface;
-import io.netnotes.engine.noteBytes.NoteBytesObject;
-import io.netnotes.engine.noteBytes.NoteStringArrayReadOnly;
-import io.netnotes.engine.noteFiles.NoteFile;
+import io.netnotes.engine.noteBytes.NoteBytesArray;
 import io.netnotes.engine.plugins.OSGiPluginInformation;
 import io.netnotes.engine.plugins.OSGiPluginMetaData;
 import io.netnotes.engine.plugins.OSGiPluginRelease;
 import io.netnotes.engine.plugins.OSGiPluginReleaseFetcher;
 import io.netnotes.engine.utils.github.GitHubAPI;
 import io.netnotes.engine.utils.github.GitHubInfo;
-import io.netnotes.engine.utils.streams.StreamUtils;
-import io.netnotes.engine.utils.streams.UrlStreamHelpers;
 import javafx.scene.image.Image;
 
 /**
@@ -30,12 +22,13 @@ import javafx.scene.image.Image;
 public class PluginGroup {
     private final String m_appName;
     private final OSGiPluginInformation m_pluginInfo;
-    private final List<OSGiPluginMetaData> m_installedVersions;
+    // Replaced, never mutated, so readers on other threads see a consistent list
+    private volatile List<OSGiPluginMetaData> m_installedVersions;
+    private List<String> m_versionState = new ArrayList<>();
+    private volatile int m_revision = 0;
     
-    // Cached resources (lazy-loaded)
-    private CompletableFuture<Image> m_smallIcon;
-    private CompletableFuture<Image> m_fullIcon;
-    private CompletableFuture<String> m_readme;
+    // Icons and README are cached by PluginIconCache and PluginReadmeCache
+    private Consumer<String> m_onReadmeLoaded = null;
     
     public PluginGroup(String appName, OSGiPluginInformation pluginInfo) {
         m_appName = appName;
@@ -46,12 +39,41 @@ public class PluginGroup {
     /**
      * Add an installed version to this group.
      */
-    public void addVersion(OSGiPluginMetaData metadata) {
+    public synchronized void addVersion(OSGiPluginMetaData metadata) {
         if (!m_installedVersions.contains(metadata)) {
-            m_installedVersions.add(metadata);
+            List<OSGiPluginMetaData> versions = new ArrayList<>(m_installedVersions);
+            versions.add(metadata);
+            setVersions(versions);
         }
     }
     
+    /**
+     * Replace the installed versions.
+     * @return true if the versions or their enabled states changed
+     */
+    public synchronized boolean setVersions(List<OSGiPluginMetaData> versions) {
+        List<String> state = new ArrayList<>(versions.size());
+        for (OSGiPluginMetaData metadata : versions) {
+            state.add(metadata.getPluginId() + (metadata.isEnabled() ? ":enabled" : ""));
+        }
+        
+        m_installedVersions = new ArrayList<>(versions);
+        if (state.equals(m_versionState)) {
+            return false;
+        }
+        m_versionState = state;
+        m_revision++;
+        return true;
+    }
+    
+    /**
+     * Incremented whenever the installed versions change, so views can
+     * tell a changed group from the same instance.
+     */
+    public int getRevision() {
+        return m_revision;
+    }
+    
     /**
      * Get all installed versions of this plugin.
      */
@@ -92,137 +114,58 @@ public class PluginGroup {
     }
     
     /**
-     * Get the small icon, loading from cache or downloading if necessary.
-     */
-    public CompletableFuture<Image> getSmallIcon(AppDataInterface appData, ExecutorService execService) {
-        if (m_smallIcon == null) {
-            m_smallIcon = loadImage(
-                m_pluginInfo.getSmallIconUrl(),
-                m_pluginInfo.getSmallImageNotePath(),
-                appData,
-                execService
-            );
-        }
-        return m_smallIcon;
-    }
-    
-    /**
-     * Get the full icon, loading from cache or downloading if necessary.
-     */
-    public CompletableFuture<Image> getFullIcon(AppDataInterface appData, ExecutorService execService) {
-        if (m_fullIcon == null) {
-            m_fullIcon = loadImage(
-                m_pluginInfo.getIconUrl(),
-                m_pluginInfo.getImageNotePath(),
-                appData,
-                execService
-            );
-        }
-        return m_fullIcon;
-    }
-    
-    /**
-     * Load an image from cache or download if not cached.
+     * Get the small icon, decoded at card size.
      */
-    private CompletableFuture<Image> loadImage(
-        String imageUrl,
-        NoteStringArrayReadOnly notePath,
-        AppDataInterface appData,
-        ExecutorService execService
-    ) {
-        return appData.getNoteFile(notePath).thenCompose(noteFile -> {
-            if (noteFile.isFile()) {
-                // Image is cached, read from NoteFile
-                return readImageFromNoteFile(noteFile, execService);
-            } else {
-                // Image not cached, download and cache
-                return downloadAndCacheImage(imageUrl, noteFile, execService);
-            }
-        });
+    public CompletableFuture<Image> getSmallIcon(PluginIconCache iconCache) {
+        return iconCache.get(m_pluginInfo.getSmallIconUrl(), PluginIconCache.CARD_ICON_SIZE);
     }
     
     /**
-     * Download an image from URL, cache it to NoteFile, and return it for display.
+     * Get the full icon, decoded at details size.
      */
-    private CompletableFuture<Image> downloadAndCacheImage(
-        String imageUrl,
-        NoteFile noteFile,
-        ExecutorService execService
-    ) {
-        PipedOutputStream cacheStream = new PipedOutputStream();
-        PipedOutputStream displayStream = new PipedOutputStream();
-        
-        // Download and duplicate stream to both cache and display
-        CompletableFuture<Void> downloadFuture = 
-            UrlStreamHelpers.duplicateUrlStream(imageUrl, cacheStream, displayStream, null, execService);
-        
-        // Write one stream to NoteFile for caching
-        CompletableFuture<NoteBytesObject> writeFuture = 
-            noteFile.writeOnly(cacheStream);
-        
-        // Read other stream to create Image for display
-        CompletableFuture<Image> imageFuture = 
-            readImageStream(displayStream, execService);
-        
-        // Wait for all operations to complete
-        return CompletableFuture.allOf(downloadFuture, writeFuture, imageFuture)
-            .thenCompose(_ -> imageFuture);
+    public CompletableFuture<Image> getFullIcon(PluginIconCache iconCache) {
+        return iconCache.get(m_pluginInfo.getIconUrl(), PluginIconCache.DETAIL_ICON_SIZE);
     }
     
     /**
-     * Read an image from a cached NoteFile.
+     * Get the README for this plugin, fetched on demand and cached by PluginReadmeCache.
      */
-    private CompletableFuture<Image> readImageFromNoteFile(NoteFile noteFile, ExecutorService execService) {
-        PipedOutputStream outputStream = new PipedOutputStream();
-        
-        CompletableFuture<NoteBytesObject> readFuture = noteFile.readOnly(outputStream);
-        CompletableFuture<Image> imageFuture = readImageStream(outputStream, execService);
-        
-        return CompletableFuture.allOf(readFuture, imageFuture)
-            .thenCompose(_ -> imageFuture);
+    public CompletableFuture<String> getReadme(PluginReadmeCache readmeCache) {
+        CompletableFuture<String> readme = readmeCache.getReadme(getReadmeUrl());
+        Consumer<String> onLoaded = m_onReadmeLoaded;
+        if (onLoaded != null) {
+            readme.thenAccept(onLoaded);
+        }
+        return readme;
     }
     
     /**
-     * Read an Image from a PipedOutputStream.
+     * Get the parsed README segments for display.
      */
-    private CompletableFuture<Image> readImageStream(PipedOutputStream outputStream, ExecutorService execService) {
-        return CompletableFuture.supplyAsync(() -> {
-            try (PipedInputStream inputStream = new PipedInputStream(outputStream, StreamUtils.PIPE_BUFFER_SIZE)) {
-                return new Image(inputStream);
-            } catch (IOException e) {
-                throw new CompletionException("Failed to read image stream", e);
-            }
-        }, execService);
+    public CompletableFuture<NoteBytesArray> getReadmeSegments(PluginReadmeCache readmeCache) {
+        return readmeCache.getSegments(getReadmeUrl(), m_onReadmeLoaded);
     }
     
     /**
-     * Get the README for this plugin, fetching from GitHub if not cached.
-     * Note: README is NOT persisted, only cached in memory.
+     * Set a callback for README text once loaded (used for search indexing).
      */
-    public CompletableFuture<String> getReadme(ExecutorService execService) {
-        if (m_readme == null) {
-            m_readme = fetchReadme(execService);
-        }
-        return m_readme;
+    public void setOnReadmeLoaded(Consumer<String> onReadmeLoaded) {
+        m_onReadmeLoaded = onReadmeLoaded;
     }
     
     /**
-     * Fetch README.md from the GitHub repository.
+     * URL of README.md in the GitHub repository.
      */
-    private CompletableFuture<String> fetchReadme(ExecutorService execService) {
+    public String getReadmeUrl() {
         GitHubInfo githubInfo = m_pluginInfo.getGitHubJar().getGitHubInfo();
-        String readmeUrl = GitHubAPI.getUrlUserContentPath(githubInfo, m_pluginInfo.getBranch(), GitHubAPI.README_FILE);
-        
-        return UrlStreamHelpers.getUrlContentAsString(readmeUrl, execService);
+        return GitHubAPI.getUrlUserContentPath(githubInfo, m_pluginInfo.getBranch(), GitHubAPI.README_FILE);
     }
     
     /**
      * Clear cached resources (for refresh operations).
      */
-    public void clearCache() {
-        m_smallIcon = null;
-        m_fullIcon = null;
-        m_readme = null;
+    public void clearCache(PluginReadmeCache readmeCache) {
+        readmeCache.invalidate(getReadmeUrl());
     }
     
     /**
@@ -1,9 +1,16 @@
 package io.netnotes.gui.fx.app.apps.pluginManager;
 
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import io.netnotes.engine.plugins.OSGiPluginInformation;
@@ -14,50 +21,160 @@ import io.netnotes.engine.plugins.OSGiPluginRegistry;
  * Manages the grouped view of plugins for the UI.
  * Creates PluginGroup instances from the flat registry structure,
  * grouping multiple versions of the same plugin together.
+ *
+ * Rebuilds are diffs: groups whose catalog entry and installed versions
+ * are unchanged are kept (with their cached icons and README), and change
+ * listeners receive the names of added, removed and changed groups.
+ * Installed/enabled counts are maintained as groups change.
  */
 public class PluginGroupManager {
+    private static final int STATE_INSTALLED = 1;
+    private static final int STATE_ENABLED = 2;
+
     private final Map<String, PluginGroup> m_groups;
+    private final PluginSearchIndex m_searchIndex;
+    
+    // Counted state of each group (STATE_* bits), guarded by this
+    private final Map<String, Integer> m_countedStates = new HashMap<>();
+    private volatile int m_installedCount = 0;
+    private volatile int m_enabledCount = 0;
+    
+    private final List<Consumer<RegistryDiff>> m_changeListeners = new CopyOnWriteArrayList<>();
+    
+    /**
+     * Names of the groups changed by one buildFromRegistry() call
+     */
+    public static class RegistryDiff {
+        public final Set<String> added = new HashSet<>();
+        public final Set<String> removed = new HashSet<>();
+        public final Set<String> changed = new HashSet<>();
+        
+        public boolean isEmpty() {
+            return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+        }
+        
+        @Override
+        public String toString() {
+            return "RegistryDiff[added=" + added.size() + ", removed=" + removed.size() +
+                ", changed=" + changed.size() + "]";
+        }
+    }
     
     public PluginGroupManager() {
         m_groups = new ConcurrentHashMap<>();
+        m_searchIndex = new PluginSearchIndex();
     }
     
     /**
-     * Build the grouped view from the registry and available plugins list.
+     * Update the grouped view from the registry and available plugins list.
      * This should be called whenever the registry or available apps list changes.
+     * Only groups that differ are replaced or updated.
      * 
      * @param registry The plugin registry containing installed plugins
      * @param availablePlugins List of all available plugins
+     * @return the groups that changed
      */
-    public void buildFromRegistry(
+    public RegistryDiff buildFromRegistry(
         OSGiPluginRegistry registry,
         List<OSGiPluginInformation> availablePlugins
     ) {
-        m_groups.clear();
+        RegistryDiff diff = new RegistryDiff();
         
-        // Create groups from available plugins
-        for (OSGiPluginInformation pluginInfo : availablePlugins) {
-            String appName = pluginInfo.getName();
-            if (!m_groups.containsKey(appName)) {
-                m_groups.put(appName, new PluginGroup(appName, pluginInfo));
+        synchronized (this) {
+            // First catalog entry per app name
+            Map<String, OSGiPluginInformation> available = new LinkedHashMap<>();
+            for (OSGiPluginInformation pluginInfo : availablePlugins) {
+                available.putIfAbsent(pluginInfo.getName(), pluginInfo);
+            }
+            
+            // Installed versions by app name
+            Map<String, List<OSGiPluginMetaData>> installed = new HashMap<>();
+            for (OSGiPluginMetaData metadata : registry.getAllPlugins()) {
+                String appName = metadata.getName();
+                if (available.containsKey(appName)) {
+                    installed.computeIfAbsent(appName, _ -> new ArrayList<>()).add(metadata);
+                } else {
+                    // Plugin is installed but not in available list
+                    // This could happen if the plugin was removed from the available list
+                    System.out.println("Warning: Installed plugin '" + appName + 
+                        "' not found in available plugins list");
+                }
+            }
+            
+            // Groups no longer in the catalog
+            List<String> removed = new ArrayList<>();
+            for (String appName : m_groups.keySet()) {
+                if (!available.containsKey(appName)) {
+                    removed.add(appName);
+                }
+            }
+            for (String appName : removed) {
+                m_groups.remove(appName);
+                m_searchIndex.remove(appName);
+                uncount(appName);
+                diff.removed.add(appName);
+            }
+            
+            for (Map.Entry<String, OSGiPluginInformation> entry : available.entrySet()) {
+                String appName = entry.getKey();
+                OSGiPluginInformation pluginInfo = entry.getValue();
+                List<OSGiPluginMetaData> versions = installed.getOrDefault(appName, Collections.emptyList());
+                PluginGroup group = m_groups.get(appName);
+                
+                if (group == null || !isSameCatalogEntry(group.getPluginInfo(), pluginInfo)) {
+                    // New or changed catalog entry: new group
+                    boolean existed = group != null;
+                    group = new PluginGroup(appName, pluginInfo);
+                    group.setOnReadmeLoaded(readme -> m_searchIndex.setReadme(appName, readme));
+                    group.setVersions(versions);
+                    m_groups.put(appName, group);
+                    m_searchIndex.put(appName, pluginInfo.getName(), pluginInfo.getDescription());
+                    (existed ? diff.changed : diff.added).add(appName);
+                } else if (group.setVersions(versions)) {
+                    diff.changed.add(appName);
+                } else {
+                    continue;
+                }
+                uncount(appName);
+                count(group);
             }
         }
         
-        // Add installed versions to their respective groups
-        for (OSGiPluginMetaData metadata : registry.getAllPlugins()) {
-            String appName = metadata.getName();
-            PluginGroup group = m_groups.get(appName);
-            
-            if (group != null) {
-                group.addVersion(metadata);
-            } else {
-                // Plugin is installed but not in available list
-                // This could happen if the plugin was removed from the available list
-                // Create a group for it anyway so it shows in installed tab
-                System.out.println("Warning: Installed plugin '" + appName + 
-                    "' not found in available plugins list");
+        if (!diff.isEmpty()) {
+            for (Consumer<RegistryDiff> listener : m_changeListeners) {
+                listener.accept(diff);
             }
         }
+        return diff;
+    }
+    
+    private static boolean isSameCatalogEntry(OSGiPluginInformation a, OSGiPluginInformation b) {
+        return a == b || PluginCatalog.describe(a).equals(PluginCatalog.describe(b));
+    }
+    
+    private void count(PluginGroup group) {
+        int state = (group.hasInstalledVersions() ? STATE_INSTALLED : 0) | (group.isEnabled() ? STATE_ENABLED : 0);
+        m_countedStates.put(group.getAppName(), state);
+        if ((state & STATE_INSTALLED) != 0) m_installedCount++;
+        if ((state & STATE_ENABLED) != 0) m_enabledCount++;
+    }
+    
+    private void uncount(String appName) {
+        Integer state = m_countedStates.remove(appName);
+        if (state == null) return;
+        if ((state & STATE_INSTALLED) != 0) m_installedCount--;
+        if ((state & STATE_ENABLED) != 0) m_enabledCount--;
+    }
+    
+    /**
+     * Listen for group changes. Called on the thread that ran buildFromRegistry().
+     */
+    public void addChangeListener(Consumer<RegistryDiff> listener) {
+        m_changeListeners.add(listener);
+    }
+    
+    public void removeChangeListener(Consumer<RegistryDiff> listener) {
+        m_changeListeners.remove(listener);
     }
     
     /**
@@ -92,6 +209,13 @@ public class PluginGroupManager {
         return m_groups.get(appName);
     }
     
+    /**
+     * Get the search index over group names, descriptions and loaded READMEs.
+     */
+    public PluginSearchIndex getSearchIndex() {
+        return m_searchIndex;
+    }
+    
     /**
      * Check if a plugin is installed.
      */
@@ -111,24 +235,24 @@ public class PluginGroupManager {
      * Get the number of installed plugins.
      */
     public int getInstalledCount() {
-        return (int) m_groups.values().stream()
-            .filter(PluginGroup::hasInstalledVersions)
-            .count();
+        return m_installedCount;
     }
     
     /**
      * Get the number of enabled plugins.
      */
     public int getEnabledCount() {
-        return (int) m_groups.values().stream()
-            .filter(PluginGroup::isEnabled)
-            .count();
+        return m_enabledCount;
     }
     
     /**
      * Clear all groups.
      */
-    public void clear() {
+    public synchronized void clear() {
         m_groups.clear();
+        m_searchIndex.clear();
+        m_countedStates.clear();
+        m_installedCount = 0;
+        m_enabledCount = 0;
     }
 }
\ No newline at end of file
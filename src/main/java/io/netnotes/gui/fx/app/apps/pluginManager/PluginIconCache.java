@@ -0,0 +1,215 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import java.io.ByteArrayInputStream;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+
+import io.netnotes.engine.AppDataInterface;
+import io.netnotes.engine.utils.streams.UrlStreamHelpers;
+import io.netnotes.gui.fx.utils.CacheRegistry;
+import io.netnotes.gui.fx.utils.ContentAddressedStore;
+import javafx.scene.image.Image;
+
+/**
+ * Plugin icon cache shared by all plugin groups.
+ *
+ * Icons are stored on disk content-addressed (ContentAddressedStore): the
+ * app data holds one NoteFile per distinct image and an index mapping icon
+ * URLs to hashes. Groups sharing an icon, or different URLs serving the
+ * same bytes, share one file.
+ *
+ * Images are decoded at the size they are displayed (JavaFX decodes with
+ * subsampling when given a requested size), so a card never holds a full
+ * size icon. Decoded images are kept per URL and size.
+ *
+ * Concurrent requests share work at both levels: one download or disk read
+ * per URL, one decode per URL and size.
+ *
+ * Both tiers are LRU: decoded images are bounded by MAX_MEMORY_BYTES and
+ * registered with CacheRegistry; the disk tier is bounded by MAX_DISK_BYTES
+ * and deletes an image file once no URL in the index refers to it.
+ */
+public class PluginIconCache {
+    public static final int CARD_ICON_SIZE = 48;
+    public static final int DETAIL_ICON_SIZE = 64;
+    public static final long MAX_MEMORY_BYTES = 16L * 1024 * 1024;
+    public static final long MAX_DISK_BYTES = 32L * 1024 * 1024;
+    private static final String CACHE_DIRECTORY = "icon-cache";
+
+    // Caches of all instances, registered as one CacheRegistry entry
+    private static final CacheRegistry.Members<PluginIconCache> CACHES = new CacheRegistry.Members<>();
+    private static final CacheRegistry.CacheGauges GAUGES = CacheRegistry.register("PluginIconCache", 30,
+        () -> CACHES.sum(PluginIconCache::getMemoryBytes),
+        () -> CACHES.sum(PluginIconCache::getImageCount),
+        _ -> {
+            long[] freed = { 0 };
+            CACHES.forEach(cache -> freed[0] += cache.clearMemory());
+            return freed[0];
+        });
+
+    private final ExecutorService m_execService;
+    private final ContentAddressedStore m_store;
+
+    private final Map<String, CompletableFuture<Image>> m_decoding = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<byte[]>> m_fetching = new ConcurrentHashMap<>();
+
+    // Memory tier, keyed by size:url; guarded by this
+    private final Map<String, Image> m_images = new LinkedHashMap<>(16, 0.75f, true);
+    private long m_memoryBytes = 0;
+
+    public PluginIconCache(AppDataInterface appData, ExecutorService execService) {
+        m_execService = execService;
+        m_store = new ContentAddressedStore(appData, execService, CACHE_DIRECTORY, MAX_DISK_BYTES);
+        CACHES.add(this);
+    }
+
+    // ========== Access ==========
+
+    /**
+     * Icon at `url`, decoded to fit `size` x `size`
+     */
+    public CompletableFuture<Image> get(String url, int size) {
+        if (url == null || url.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Empty icon url"));
+        }
+
+        String key = size + ":" + url;
+        Image image = getImage(key);
+        if (image != null) {
+            GAUGES.recordHit();
+            return CompletableFuture.completedFuture(image);
+        }
+        GAUGES.recordMiss();
+
+        CompletableFuture<Image> pending = m_decoding.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<Image> future = new CompletableFuture<>();
+        pending = m_decoding.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        fetchBytes(url)
+            .thenApplyAsync(bytes -> decode(bytes, size), m_execService)
+            .whenComplete((decoded, error) -> {
+                m_decoding.remove(key, future);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    putImage(key, decoded);
+                    future.complete(decoded);
+                }
+            });
+        return future;
+    }
+
+    private static Image decode(byte[] bytes, int size) {
+        Image image = new Image(new ByteArrayInputStream(bytes), size, size, true, true);
+        if (image.isError()) {
+            throw new CompletionException("Failed to decode icon", image.getException());
+        }
+        return image;
+    }
+
+    /**
+     * Icon bytes from disk, or downloaded and stored; one fetch per url at a time
+     */
+    private CompletableFuture<byte[]> fetchBytes(String url) {
+        CompletableFuture<byte[]> pending = m_fetching.get(url);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<byte[]> future = new CompletableFuture<>();
+        pending = m_fetching.putIfAbsent(url, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        // A missing or unreadable file falls back to the network
+        m_store.read(url)
+            .thenCompose(bytes -> bytes != null ? CompletableFuture.completedFuture(bytes) : download(url))
+            .whenComplete((bytes, error) -> {
+                m_fetching.remove(url, future);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(bytes);
+                }
+            });
+        return future;
+    }
+
+    private CompletableFuture<byte[]> download(String url) {
+        return UrlStreamHelpers.getUrlBytes(url, m_execService).thenApply(bytes -> {
+            m_store.store(url, bytes).exceptionally(e -> {
+                System.err.println("PluginIconCache: could not store icon " + url + ": " + e.getMessage());
+                return null;
+            });
+            return bytes;
+        });
+    }
+
+    // ========== Memory Tier ==========
+
+    private synchronized Image getImage(String key) {
+        return m_images.get(key);
+    }
+
+    private synchronized void putImage(String key, Image image) {
+        Image previous = m_images.put(key, image);
+        if (previous != null) {
+            m_memoryBytes -= imageBytes(previous);
+        }
+        m_memoryBytes += imageBytes(image);
+
+        Iterator<Map.Entry<String, Image>> it = m_images.entrySet().iterator();
+        while (m_memoryBytes > MAX_MEMORY_BYTES && it.hasNext()) {
+            Map.Entry<String, Image> eldest = it.next();
+            if (eldest.getKey().equals(key)) continue;
+            m_memoryBytes -= imageBytes(eldest.getValue());
+            it.remove();
+            GAUGES.recordEviction();
+        }
+    }
+
+    private static long imageBytes(Image image) {
+        return (long) image.getWidth() * (long) image.getHeight() * 4;
+    }
+
+    /**
+     * Drop decoded images; they are decoded again from disk on next use
+     * @return bytes released
+     */
+    public synchronized long clearMemory() {
+        long released = m_memoryBytes;
+        GAUGES.recordEvictions(m_images.size());
+        m_images.clear();
+        m_memoryBytes = 0;
+        return released;
+    }
+
+    public synchronized long getMemoryBytes() {
+        return m_memoryBytes;
+    }
+
+    public synchronized int getImageCount() {
+        return m_images.size();
+    }
+
+    // ========== Disk Tier ==========
+
+    public long getDiskBytes() {
+        return m_store.getBytes();
+    }
+
+    public int getEntryCount() {
+        return m_store.getEntryCount();
+    }
+}
@@ -1,10 +1,17 @@
 package io.netnotes.gui.fx.app.apps.pluginManager;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.io.PipedOutputStream;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import io.netnotes.engine.AppDataInterface;
 import io.netnotes.engine.noteBytes.NoteBytes;
@@ -18,16 +25,23 @@ import io.netnotes.engine.plugins.OSGiPluginRegistry;
 import io.netnotes.engine.plugins.OSGiPluginRelease;
 import io.netnotes.engine.plugins.OSGiUpdateLoader;
 import io.netnotes.engine.utils.github.GitHubInfo;
-import io.netnotes.engine.utils.streams.StreamUtils.StreamProgressTracker;
 import io.netnotes.engine.utils.streams.UrlStreamHelpers;
+import io.netnotes.gui.fx.components.layout.ImageFetchPipeline;
 import io.netnotes.gui.fx.display.FxResourceFactory;
 import io.netnotes.gui.fx.display.contentManager.AppBox;
 import io.netnotes.gui.fx.display.contentManager.AppManagerInterface;
 import io.netnotes.gui.fx.display.contentManager.IApp;
 import io.netnotes.gui.fx.display.contentManager.SideBarButton;
+import io.netnotes.gui.fx.utils.ContentAddressedStore;
 import io.netnotes.gui.fx.utils.TaskUtils;
 import javafx.scene.image.Image;
 
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.JsonParseException;
+
 /**
  * Plugin Manager - Manages plugin metadata, downloads, and persistence.
  * Does NOT handle OSGi bundle loading - only manages the plugin registry and downloads.
@@ -35,6 +49,12 @@ import javafx.scene.image.Image;
 public class PluginManager implements IApp {
     
     private static final String APP_NAME = "Plugin Manager";
+    // Partial downloads live outside the NoteFiles until they are complete and verified
+    private static final Path DOWNLOAD_DIRECTORY =
+        FxResourceFactory.CACHE_DIRECTORY.toPath().resolve("plugin-downloads");
+    private static final String GITHUB_API_URL = "https://api.github.com";
+    private static final String IMAGE_CACHE_DIRECTORY = "image-cache";
+    private static final long MAX_IMAGE_DISK_BYTES = 64L * 1024 * 1024;
     private final NoteBytesReadOnly m_appId;
     
     private AppDataInterface m_appData;
@@ -48,7 +68,12 @@ public class PluginManager implements IApp {
     // Plugin management components
     private OSGiPluginRegistry m_pluginRegistry;
     private OSGiUpdateLoader m_updateLoader;
+    private PluginCatalog m_catalog;
     private PluginGroupManager m_groupManager;
+    private PluginDownloader m_downloader;
+    private PluginIconCache m_iconCache;
+    private PluginReadmeCache m_readmeCache;
+    private ImageFetchPipeline m_imagePipeline;
 
     public PluginManager() {
         m_appId = new NoteBytesReadOnly(new NoteBytes("PluginManager"));
@@ -75,7 +100,16 @@ public class PluginManager implements IApp {
         m_tabManager = tabManagerInterface;
         m_pluginRegistry = new OSGiPluginRegistry(m_appData.getExecService());
         m_updateLoader = new OSGiUpdateLoader(m_gitHubInfo, "plugins.json", m_appData.getExecService());
+        m_catalog = new PluginCatalog(PluginCatalog.fromUpdateLoader(m_updateLoader));
         m_groupManager = new PluginGroupManager();
+        m_downloader = new PluginDownloader(DOWNLOAD_DIRECTORY, TaskUtils.getVirtualExecutor());
+        m_iconCache = new PluginIconCache(m_appData, TaskUtils.getVirtualExecutor());
+        m_readmeCache = new PluginReadmeCache(m_appData, TaskUtils.getVirtualExecutor());
+        m_imagePipeline = new ImageFetchPipeline(ImageFetchPipeline.DEFAULT_MAX_CONCURRENT);
+        // READMEs are remote content: never let them read local files
+        m_imagePipeline.setResolver("file", null);
+        m_imagePipeline.setStore(new ContentAddressedStore(m_appData, TaskUtils.getVirtualExecutor(),
+            IMAGE_CACHE_DIRECTORY, MAX_IMAGE_DISK_BYTES));
  
         // Initialize registry
         m_appData.getNoteFile(OSGiPluginRegistry.PLUGINS_REGISTRY_PATH).thenAccept(noteFile ->
@@ -103,6 +137,27 @@ public class PluginManager implements IApp {
         return m_appData;
     }
     
+    /**
+     * Icon cache shared by all plugin groups.
+     */
+    public PluginIconCache getIconCache() {
+        return m_iconCache;
+    }
+    
+    /**
+     * Image pipeline for README images, persisting remote images to app data.
+     */
+    public ImageFetchPipeline getImagePipeline() {
+        return m_imagePipeline;
+    }
+    
+    /**
+     * README cache shared by all plugin groups.
+     */
+    public PluginReadmeCache getReadmeCache() {
+        return m_readmeCache;
+    }
+    
     /**
      * Open or focus the main Plugin Manager tab.
      */
@@ -146,68 +201,173 @@ public class PluginManager implements IApp {
     }
     
     /**
-     * Load available plugins from GitHub and update the group manager.
+     * Get the available plugins catalog.
+     */
+    public PluginCatalog getCatalog() {
+        return m_catalog;
+    }
+    
+    /**
+     * Load available plugins and update the group manager.
+     * Uses the catalog snapshot unless it is older than the catalog max age.
      */
     public CompletableFuture<List<OSGiPluginInformation>> loadAvailablePlugins() {
-        return m_updateLoader.loadAvailableApps()
-            .thenApply(availableApps -> {
-                m_groupManager.buildFromRegistry(m_pluginRegistry, availableApps);
-                System.out.println("Loaded " + availableApps.size() + " available plugins");
-                return availableApps;
-            });
+        return updateGroups(m_catalog.get());
+    }
+    
+    /**
+     * Revalidate the catalog with GitHub and update the group manager.
+     */
+    public CompletableFuture<List<OSGiPluginInformation>> refreshAvailablePlugins() {
+        return updateGroups(m_catalog.revalidate());
+    }
+    
+    private CompletableFuture<List<OSGiPluginInformation>> updateGroups(
+        CompletableFuture<PluginCatalog.Snapshot> snapshotFuture
+    ) {
+        return snapshotFuture.thenApply(snapshot -> {
+            List<OSGiPluginInformation> availableApps = snapshot.getPlugins();
+            PluginGroupManager.RegistryDiff diff = m_groupManager.buildFromRegistry(m_pluginRegistry, availableApps);
+            System.out.println("Loaded " + availableApps.size() + " available plugins (catalog v" +
+                snapshot.getVersion() + ", " + diff + ")");
+            return availableApps;
+        });
+    }
+    
+    /**
+     * Re-group after a registry change; the catalog itself is unchanged.
+     */
+    private void updateGroupsFromRegistry() {
+        loadAvailablePlugins().exceptionally(error -> {
+            System.err.println("Error updating plugin groups: " + error.getMessage());
+            return null;
+        });
     }
     
     /**
      * Install a plugin from a GitHub release.
      * Downloads the JAR to a NoteFile and registers it in the plugin registry.
+     * An interrupted download resumes on the next install of the same release.
+     *
+     * @param progressListener download progress, called off the FX thread; may be null
      */
     public CompletableFuture<OSGiPluginMetaData> installPlugin(
         OSGiPluginRelease release, 
         boolean enabled, 
-        StreamProgressTracker tracker
+        Consumer<PluginDownloader.Progress> progressListener
     ) {
         System.out.println("Starting installation of: " + release.getPluginInfo().getName() + 
             " version " + release.getTagName());
      
      
-        return release.getPluginNoteFile(m_appData).thenCompose(noteFile -> {
-                return downloadToNoteFile(release.getDownloadUrl(), noteFile, tracker)
+        // The reference digest comes first: nothing is downloaded that cannot be verified
+        return fetchPublishedDigest(release)
+            .thenCompose(expectedDigest -> release.getPluginNoteFile(m_appData).thenCompose(noteFile -> {
+                return downloadToNoteFile(release.getDownloadUrl(), expectedDigest, noteFile, progressListener)
                     .thenApply(_ -> {
                         // Create metadata and register
                         OSGiPluginMetaData metadata = new OSGiPluginMetaData(release, enabled);
                         return metadata;
                     });
-            })
+            }))
             .thenCompose(metadata -> 
                 m_pluginRegistry.registerPlugin(metadata)
                     .thenApply(_ -> metadata)
             )
             .thenApply(metadata -> {
                 // Update group manager
-                m_updateLoader.loadAvailableApps()
-                    .thenAccept(apps -> m_groupManager.buildFromRegistry(m_pluginRegistry, apps));
+                updateGroupsFromRegistry();
                 return metadata;
             });
     }
     
     /**
      * Download a file from URL to a NoteFile.
+     * The file is downloaded and verified in chunks first, then copied into
+     * the NoteFile; the partial file is kept for resuming if the download fails.
      */
     private CompletableFuture<NoteBytesObject> downloadToNoteFile(
         String downloadUrl, 
+        String expectedDigest,
         NoteFile noteFile,
-        StreamProgressTracker progressTracker
+        Consumer<PluginDownloader.Progress> progressListener
     ) {
-        PipedOutputStream outputStream = new PipedOutputStream();
-        
-        CompletableFuture<Void> downloadFuture = UrlStreamHelpers.transferUrlStream(
-            downloadUrl, outputStream, progressTracker, TaskUtils.getVirtualExecutor()
-        );
+        return m_downloader.download(downloadUrl, expectedDigest, progressListener).thenCompose(result -> {
+            PipedOutputStream outputStream = new PipedOutputStream();
+            
+            CompletableFuture<NoteBytesObject> writeFuture = noteFile.writeOnly(outputStream);
+            
+            CompletableFuture<Void> copyFuture = CompletableFuture.runAsync(() -> {
+                try (InputStream inputStream = result.openStream(); outputStream) {
+                    inputStream.transferTo(outputStream);
+                } catch (IOException e) {
+                    throw new CompletionException(e);
+                }
+            }, TaskUtils.getVirtualExecutor());
+            
+            return CompletableFuture.allOf(copyFuture, writeFuture)
+                .thenCompose(_ -> writeFuture)
+                .thenApply(written -> {
+                    result.delete();
+                    return written;
+                });
+        });
+    }
+    
+    /**
+     * Reference SHA-256 of a release asset, read from the GitHub release
+     * metadata. Fails if the release does not publish one, so an unverified
+     * jar is never installed.
+     */
+    private CompletableFuture<String> fetchPublishedDigest(OSGiPluginRelease release) {
+        OSGiPluginInformation pluginInfo = release.getPluginInfo();
+        if (pluginInfo.getGitHubJar() == null) {
+            return CompletableFuture.failedFuture(new IOException(
+                "No GitHub release metadata for " + pluginInfo.getName() + "; cannot verify the download"));
+        }
         
-        CompletableFuture<NoteBytesObject> writeFuture = noteFile.writeOnly(outputStream);
+        GitHubInfo ghInfo = pluginInfo.getGitHubJar().getGitHubInfo();
+        String releaseUrl = GITHUB_API_URL + "/repos/" + ghInfo.getUser() + "/" + ghInfo.getProject() +
+            "/releases/tags/" + URLEncoder.encode(release.getTagName(), StandardCharsets.UTF_8);
         
-        return CompletableFuture.allOf(downloadFuture, writeFuture)
-            .thenCompose(v -> writeFuture);
+        return UrlStreamHelpers.getUrlContentAsString(releaseUrl, TaskUtils.getVirtualExecutor())
+            .thenApply(json -> {
+                String digest = findAssetDigest(json, release.getDownloadUrl());
+                if (digest == null) {
+                    throw new CompletionException(new IOException(
+                        "Release " + release.getTagName() + " publishes no digest for " + release.getDownloadUrl()));
+                }
+                return digest;
+            });
+    }
+    
+    /**
+     * The "digest" of the asset whose browser_download_url is `downloadUrl`
+     * in a GitHub release JSON document, or null if there is none
+     */
+    static String findAssetDigest(String releaseJson, String downloadUrl) {
+        try {
+            JsonElement root = JsonParser.parseString(releaseJson);
+            if (!root.isJsonObject() || !root.getAsJsonObject().has("assets")) {
+                return null;
+            }
+            JsonArray assets = root.getAsJsonObject().getAsJsonArray("assets");
+            for (JsonElement element : assets) {
+                if (!element.isJsonObject()) continue;
+                JsonObject asset = element.getAsJsonObject();
+                JsonElement url = asset.get("browser_download_url");
+                JsonElement digest = asset.get("digest");
+                if (url != null && url.isJsonPrimitive() && downloadUrl.equals(url.getAsString()) &&
+                    digest != null && digest.isJsonPrimitive()) {
+                    String value = digest.getAsString();
+                    return value.regionMatches(true, 0, PluginDownloader.SHA256_PREFIX, 0,
+                        PluginDownloader.SHA256_PREFIX.length()) ? value : null;
+                }
+            }
+        } catch (JsonParseException | IllegalStateException e) {
+            System.err.println("PluginManager: could not read release metadata: " + e.getMessage());
+        }
+        return null;
     }
     
     /**
@@ -228,8 +388,7 @@ public class PluginManager implements IApp {
             .thenCompose(_ -> m_appData.deleteNoteFilePath(metadata.getPluginNotePath(), false, null))
             .thenRun(() -> {
                 // Update group manager
-                m_updateLoader.loadAvailableApps()
-                    .thenAccept(apps -> m_groupManager.buildFromRegistry(m_pluginRegistry, apps));
+                updateGroupsFromRegistry();
                 System.out.println("Plugin uninstalled: " + pluginId);
             });
     }
@@ -242,8 +401,7 @@ public class PluginManager implements IApp {
         return m_pluginRegistry.setPluginEnabled(pluginId, true)
             .thenRun(() -> {
                 // Update group manager
-                m_updateLoader.loadAvailableApps()
-                    .thenAccept(apps -> m_groupManager.buildFromRegistry(m_pluginRegistry, apps));
+                updateGroupsFromRegistry();
                 System.out.println("Plugin enabled: " + pluginId);
             });
     }
@@ -255,8 +413,7 @@ public class PluginManager implements IApp {
         return m_pluginRegistry.setPluginEnabled(pluginId, false)
             .thenRun(() -> {
                 // Update group manager
-                m_updateLoader.loadAvailableApps()
-                    .thenAccept(apps -> m_groupManager.buildFromRegistry(m_pluginRegistry, apps));
+                updateGroupsFromRegistry();
                 System.out.println("Plugin disabled: " + pluginId);
             });
     }
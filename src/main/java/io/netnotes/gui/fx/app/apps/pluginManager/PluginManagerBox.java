@@ -1,7 +1,13 @@
 package io.netnotes.gui.fx.app.apps.pluginManager;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import io.netnotes.engine.noteBytes.NoteBytesReadOnly;
@@ -10,14 +16,15 @@ import io.netnotes.engine.plugins.OSGiPluginMetaData;
 import io.netnotes.engine.plugins.OSGiPluginRelease;
 import io.netnotes.engine.plugins.OSGiPluginReleaseFetcher;
 import io.netnotes.engine.utils.github.GitHubInfo;
+import io.netnotes.gui.fx.components.layout.LayoutArea;
 import io.netnotes.gui.fx.display.FxResourceFactory;
 import io.netnotes.gui.fx.display.contentManager.AppBox;
 import io.netnotes.gui.fx.display.control.layout.DeferredLayoutManager;
 import io.netnotes.gui.fx.display.control.layout.LayoutData;
 import io.netnotes.gui.fx.display.control.layout.ScrollPaneHelper;
 import io.netnotes.gui.fx.utils.TaskUtils;
+import javafx.animation.PauseTransition;
 import javafx.application.Platform;
-import javafx.beans.binding.DoubleExpression;
 import javafx.beans.property.DoubleProperty;
 import javafx.beans.property.SimpleDoubleProperty;
 import javafx.geometry.Insets;
@@ -26,15 +33,18 @@ import javafx.scene.control.Button;
 import javafx.scene.control.ButtonType;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.Label;
-import javafx.scene.control.ScrollPane;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.Tab;
 import javafx.scene.control.TabPane;
+import javafx.scene.image.Image;
 import javafx.scene.image.ImageView;
 import javafx.scene.layout.HBox;
 import javafx.scene.layout.Priority;
 import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.stage.Stage;
+import javafx.util.Duration;
 
 /**
  * Plugin Manager UI with tabs for Browse and Installed plugins.
@@ -43,6 +53,12 @@ class PluginManagerBox extends AppBox {
 
     public static final NoteBytesReadOnly ID = new NoteBytesReadOnly("PluginManager-Main");
     
+    // Space below the header taken by the tab headers and status bar
+    private static final double LIST_HEIGHT_OFFSET = 120;
+    private static final long SEARCH_DEBOUNCE_MS = 150;
+    private static final int README_HEIGHT = 300;
+    private static final String FILTER_SEQUENCE_KEY = "pluginFilterSequence";
+    
     private final GitHubInfo m_gitHubInfo;
     private final Stage m_stage;
     private final DoubleProperty m_contentWidth;
@@ -57,21 +73,23 @@ class PluginManagerBox extends AppBox {
     // Search/filter components
     private javafx.scene.control.TextField m_searchField;
     private javafx.scene.control.ComboBox<String> m_categoryFilter;
+    private final PauseTransition m_searchDebounce = new PauseTransition(Duration.millis(SEARCH_DEBOUNCE_MS));
     
     // Browse tab components
-    private ScrollPane m_browseScrollPane;
-    private VBox m_browseListBox;
-    private ScrollPaneHelper m_browseScrollHelper;
+    private ListView<PluginGroup> m_browseListView;
     
     // Installed tab components
-    private ScrollPane m_installedScrollPane;
-    private VBox m_installedListBox;
-    private ScrollPaneHelper m_installedScrollHelper;
+    private ListView<PluginGroup> m_installedListView;
     
     private OSGiPluginReleaseFetcher m_releasesFetcher;
     
+    // App names with an install in flight; FX thread only, read by the cards on bind
+    private final Set<String> m_installing = new HashSet<>();
+    
     // Reference to plugin manager for operations
     private PluginManager m_pluginManager;
+    private final Consumer<PluginGroupManager.RegistryDiff> m_groupChangeListener =
+        diff -> Platform.runLater(() -> applyGroupChanges(diff));
     
     public PluginManagerBox(Stage stage, GitHubInfo gitHubInfo) {
         super(ID, "Plugin Manager");
@@ -132,18 +150,23 @@ class PluginManagerBox extends AppBox {
         // Listen for content dimension changes
         m_contentWidth.addListener((_, _, _) -> {
             DeferredLayoutManager.markDirty(m_mainContainer);
-            if (m_browseScrollHelper != null) m_browseScrollHelper.refresh();
-            if (m_installedScrollHelper != null) m_installedScrollHelper.refresh();
+            markListsDirty();
         });
         
         m_contentHeight.addListener((_, _, _) -> {
             DeferredLayoutManager.markDirty(m_mainContainer);
-            if (m_browseScrollHelper != null) m_browseScrollHelper.refresh();
-            if (m_installedScrollHelper != null) m_installedScrollHelper.refresh();
+            markListsDirty();
         });
         
+        m_headerBox.heightProperty().addListener((_, _, _) -> markListsDirty());
+        
+        // Patch cards of groups changed by installs, uninstalls and catalog updates
+        if (m_pluginManager != null) {
+            m_pluginManager.getGroupManager().addChangeListener(m_groupChangeListener);
+        }
+        
         // Load available apps
-        loadAvailablePlugins();
+        loadAvailablePlugins(false);
         
         // Load installed plugins when tab is selected
         m_tabPane.getSelectionModel().selectedItemProperty().addListener((_, _, newTab) -> {
@@ -169,7 +192,8 @@ class PluginManagerBox extends AppBox {
         m_searchField.setPrefWidth(200);
         m_searchField.setStyle("-fx-background-color: #3c3c3c; -fx-text-fill: #ffffff; " +
                                "-fx-prompt-text-fill: #888888; -fx-padding: 8px; -fx-background-radius: 5px;");
-        m_searchField.textProperty().addListener((_, _, _) -> applyFilters());
+        m_searchDebounce.setOnFinished(_ -> applyFilters());
+        m_searchField.textProperty().addListener((_, _, _) -> m_searchDebounce.playFromStart());
         
         // Category filter
         m_categoryFilter = new javafx.scene.control.ComboBox<>();
@@ -183,7 +207,7 @@ class PluginManagerBox extends AppBox {
                                 "-fx-padding: 8px 15px; -fx-background-radius: 5px;");
         m_refreshButton.setOnAction(_ -> {
             if (m_tabPane.getSelectionModel().getSelectedItem().getText().equals("Browse")) {
-                loadAvailablePlugins();
+                loadAvailablePlugins(true);
             } else {
                 refreshInstalledPlugins();
             }
@@ -196,54 +220,65 @@ class PluginManagerBox extends AppBox {
     private VBox createBrowseTab() {
         VBox container = new VBox(10);
         
-        m_browseListBox = new VBox(10);
-        m_browseListBox.setPadding(new Insets(10));
-        
-        m_browseScrollPane = new ScrollPane(m_browseListBox);
-        m_browseScrollPane.setFitToWidth(true);
-        m_browseScrollPane.setStyle("-fx-background: #1e1e1e; -fx-background-color: #1e1e1e;");
-        VBox.setVgrow(m_browseScrollPane, Priority.ALWAYS);
-        
-        DoubleExpression[] heightOffsets = {
-            m_headerBox.heightProperty(),
-            new SimpleDoubleProperty(120)
-        };
-        
-        m_browseScrollHelper = new ScrollPaneHelper(
-            m_stage, m_browseScrollPane, m_browseListBox, 
-            m_contentWidth, m_contentHeight, null, heightOffsets
-        );
+        m_browseListView = createListView(createEmptyLabel("No plugins match your filters"));
+        m_browseListView.setCellFactory(_ -> new BrowsePluginCell());
         
-        container.getChildren().add(m_browseScrollPane);
+        container.getChildren().add(m_browseListView);
         return container;
     }
     
     private VBox createInstalledTab() {
         VBox container = new VBox(10);
         
-        m_installedListBox = new VBox(10);
-        m_installedListBox.setPadding(new Insets(10));
+        m_installedListView = createListView(createEmptyLabel("No plugins installed"));
+        m_installedListView.setCellFactory(_ -> new InstalledPluginCell());
         
-        m_installedScrollPane = new ScrollPane(m_installedListBox);
-        m_installedScrollPane.setFitToWidth(true);
-        m_installedScrollPane.setStyle("-fx-background: #1e1e1e; -fx-background-color: #1e1e1e;");
-        VBox.setVgrow(m_installedScrollPane, Priority.ALWAYS);
-        
-        DoubleExpression[] heightOffsets = {
-            m_headerBox.heightProperty(),
-            new SimpleDoubleProperty(120)
-        };
-        
-        m_installedScrollHelper = new ScrollPaneHelper(
-            m_stage, m_installedScrollPane, m_installedListBox,
-            m_contentWidth, m_contentHeight, null, heightOffsets
-        );
-        
-        container.getChildren().add(m_installedScrollPane);
+        container.getChildren().add(m_installedListView);
         return container;
     }
     
-    private void loadAvailablePlugins() {
+    /**
+     * Virtualized card list: only visible cards have nodes, and cells are
+     * rebound to other groups as the list scrolls. Sized like the
+     * ScrollPaneHelper viewports it replaces.
+     */
+    private ListView<PluginGroup> createListView(Label placeholder) {
+        ListView<PluginGroup> listView = new ListView<>();
+        listView.setPlaceholder(placeholder);
+        listView.setFocusTraversable(false);
+        listView.setStyle("-fx-background-color: #1e1e1e; -fx-control-inner-background: #1e1e1e; " +
+                          "-fx-background-insets: 0; -fx-padding: 5px;");
+        VBox.setVgrow(listView, Priority.ALWAYS);
+        
+        DeferredLayoutManager.register(m_stage, listView, _ -> {
+            double width = m_contentWidth.get() - ScrollPaneHelper.VIEWPORT_WIDTH_OFFSET;
+            double height = m_contentHeight.get() - m_headerBox.getHeight() - LIST_HEIGHT_OFFSET
+                - ScrollPaneHelper.VIEWPORT_HEIGHT_OFFSET;
+            
+            return new LayoutData.Builder()
+                .width(Math.max(0, width))
+                .height(Math.max(0, height))
+                .build();
+        });
+        return listView;
+    }
+    
+    private Label createEmptyLabel(String text) {
+        Label emptyLabel = new Label(text);
+        emptyLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 16px;");
+        return emptyLabel;
+    }
+    
+    private void markListsDirty() {
+        if (m_browseListView != null) DeferredLayoutManager.markDirty(m_browseListView);
+        if (m_installedListView != null) DeferredLayoutManager.markDirty(m_installedListView);
+    }
+    
+    /**
+     * @param revalidate check the catalog for updates instead of using the
+     *                   snapshot while it is fresh
+     */
+    private void loadAvailablePlugins(boolean revalidate) {
         if (m_pluginManager == null) {
             m_statusLabel.setText("Plugin manager not initialized");
             return;
@@ -251,10 +286,10 @@ class PluginManagerBox extends AppBox {
         
         m_statusLabel.setText("Loading available plugins...");
         m_statusLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 12px;");
-        m_browseListBox.getChildren().clear();
+        m_browseListView.getItems().clear();
         m_refreshButton.setDisable(true);
         
-        m_pluginManager.loadAvailablePlugins()
+        (revalidate ? m_pluginManager.refreshAvailablePlugins() : m_pluginManager.loadAvailablePlugins())
             .thenAccept(apps -> {
                 Platform.runLater(() -> {
                     displayBrowsePlugins();
@@ -273,137 +308,284 @@ class PluginManagerBox extends AppBox {
     }
     
     private void displayBrowsePlugins() {
-        m_browseListBox.getChildren().clear();
-        
-        List<PluginGroup> groups = m_pluginManager.getGroupManager().getBrowseGroups();
-        List<PluginGroup> filteredGroups = applyFilterToGroups(groups);
-        
-        for (PluginGroup group : filteredGroups) {
-            VBox appCard = createBrowseAppCard(group);
-            m_browseListBox.getChildren().add(appCard);
-        }
-        
-        if (filteredGroups.isEmpty()) {
-            Label emptyLabel = new Label("No plugins match your filters");
-            emptyLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 16px;");
-            m_browseListBox.getChildren().add(emptyLabel);
-        }
+        showFiltered(m_browseListView, m_pluginManager.getGroupManager().getBrowseGroups());
     }
     
     private void applyFilters() {
         if (m_tabPane.getSelectionModel().getSelectedItem().getText().equals("Browse")) {
             displayBrowsePlugins();
         } else {
-            displayInstalledPlugins(
-                applyFilterToGroups(m_pluginManager.getGroupManager().getInstalledGroups())
-            );
+            showFiltered(m_installedListView, m_pluginManager.getGroupManager().getInstalledGroups());
         }
     }
     
-    private List<PluginGroup> applyFilterToGroups(List<PluginGroup> groups) {
-        String searchText = m_searchField.getText().toLowerCase().trim();
+    /**
+     * Filter off the FX thread and show the result, unless a newer
+     * filter for the same list has been started since
+     */
+    private void showFiltered(ListView<PluginGroup> listView, List<PluginGroup> groups) {
+        Object sequence = new Object();
+        listView.getProperties().put(FILTER_SEQUENCE_KEY, sequence);
+        
+        applyFilterToGroups(groups)
+            .thenAccept(filtered -> Platform.runLater(() -> {
+                if (listView.getProperties().get(FILTER_SEQUENCE_KEY) == sequence) {
+                    listView.getItems().setAll(filtered);
+                }
+            }))
+            .exceptionally(e -> {
+                System.err.println("Plugin search failed: " + e.getMessage());
+                return null;
+            });
+    }
+    
+    /**
+     * Update the lists for changed groups. Changed groups are replaced in
+     * place, so only their cells are rebound; the filter is re-run only
+     * when a list's membership can change.
+     */
+    private void applyGroupChanges(PluginGroupManager.RegistryDiff diff) {
+        PluginGroupManager groupManager = m_pluginManager.getGroupManager();
+        
+        if (!diff.added.isEmpty() || !diff.removed.isEmpty()) {
+            displayBrowsePlugins();
+        } else {
+            patchItems(m_browseListView, diff, groupManager);
+        }
+        
+        // Installed list membership follows hasInstalledVersions()
+        boolean membershipChanged = !diff.added.isEmpty() || !diff.removed.isEmpty();
+        if (!membershipChanged) {
+            for (String appName : diff.changed) {
+                PluginGroup group = groupManager.getGroup(appName);
+                boolean listed = containsGroup(m_installedListView, appName);
+                if (group == null || group.hasInstalledVersions() != listed) {
+                    membershipChanged = true;
+                    break;
+                }
+            }
+        }
+        if (membershipChanged) {
+            showFiltered(m_installedListView, groupManager.getInstalledGroups());
+        } else {
+            patchItems(m_installedListView, diff, groupManager);
+        }
+    }
+    
+    private static void patchItems(ListView<PluginGroup> listView, PluginGroupManager.RegistryDiff diff,
+        PluginGroupManager groupManager
+    ) {
+        List<PluginGroup> items = listView.getItems();
+        for (int i = 0; i < items.size(); i++) {
+            String appName = items.get(i).getAppName();
+            if (diff.changed.contains(appName)) {
+                PluginGroup group = groupManager.getGroup(appName);
+                if (group != null) {
+                    items.set(i, group);
+                }
+            }
+        }
+    }
+    
+    private static boolean containsGroup(ListView<PluginGroup> listView, String appName) {
+        for (PluginGroup group : listView.getItems()) {
+            if (group.getAppName().equals(appName)) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    /**
+     * Apply the search text and category filter. With search text, groups
+     * are ranked by the search index; otherwise their order is kept.
+     */
+    private CompletableFuture<List<PluginGroup>> applyFilterToGroups(List<PluginGroup> groups) {
+        String searchText = m_searchField.getText().trim();
         String category = m_categoryFilter.getValue();
         
-        return groups.stream()
-            .filter(group -> {
-                // Apply search filter
-                if (!searchText.isEmpty()) {
-                    String name = group.getAppName().toLowerCase();
-                    String desc = group.getPluginInfo().getDescription().toLowerCase();
-                    if (!name.contains(searchText) && !desc.contains(searchText)) {
-                        return false;
-                    }
+        if (searchText.isEmpty()) {
+            return CompletableFuture.completedFuture(filterCategory(groups, category));
+        }
+        
+        PluginSearchIndex searchIndex = m_pluginManager.getGroupManager().getSearchIndex();
+        return searchIndex.searchAsync(searchText, TaskUtils.getVirtualExecutor())
+            .thenApply(rankedNames -> {
+                Map<String, PluginGroup> groupsByName = new HashMap<>();
+                for (PluginGroup group : groups) {
+                    groupsByName.put(group.getAppName(), group);
                 }
                 
-                // Apply category filter
-                if (!"All Categories".equals(category)) {
-                    if (!category.equals(group.getPluginInfo().getCategory())) {
-                        return false;
+                List<PluginGroup> ranked = new ArrayList<>();
+                for (String name : rankedNames) {
+                    PluginGroup group = groupsByName.get(name);
+                    if (group != null) {
+                        ranked.add(group);
                     }
                 }
-                
-                return true;
-            })
+                return filterCategory(ranked, category);
+            });
+    }
+    
+    private static List<PluginGroup> filterCategory(List<PluginGroup> groups, String category) {
+        if ("All Categories".equals(category)) {
+            return groups;
+        }
+        return groups.stream()
+            .filter(group -> category.equals(group.getPluginInfo().getCategory()))
             .collect(Collectors.toList());
     }
     
-    private VBox createBrowseAppCard(PluginGroup group) {
+    /**
+     * Start loading a group's small icon into a recycled cell's view.
+     * The image is only applied if the cell is still bound to the group.
+     */
+    private void bindIcon(ListCell<PluginGroup> cell, ImageView iconView, PluginGroup group) {
+        CompletableFuture<Image> iconFuture = group.getSmallIcon(m_pluginManager.getIconCache());
+        if (iconFuture.isDone() && !iconFuture.isCompletedExceptionally()) {
+            iconView.setImage(iconFuture.getNow(null));
+            return;
+        }
+        
+        iconView.setImage(null);
+        iconFuture
+            .thenAccept(image -> Platform.runLater(() -> {
+                if (cell.getItem() == group) {
+                    iconView.setImage(image);
+                }
+            }))
+            .exceptionally(e -> {
+                System.err.println("Failed to load icon for " + group.getAppName() + ": " + e.getMessage());
+                return null;
+            });
+    }
+    
+    private static VBox createCardBox() {
         VBox card = new VBox(10);
         card.setPadding(new Insets(15));
         card.setStyle("-fx-background-color: #2b2b2b; -fx-background-radius: 8px; " +
                      "-fx-border-color: #3c3c3c; -fx-border-width: 1px; -fx-border-radius: 8px;");
-        
-        HBox topBox = new HBox(15);
-        topBox.setAlignment(Pos.CENTER_LEFT);
-        
-        // Placeholder for app icon (will be loaded asynchronously)
+        return card;
+    }
+    
+    private static ImageView createIconView() {
         ImageView iconView = new ImageView();
         iconView.setFitWidth(48);
         iconView.setFitHeight(48);
         iconView.setPreserveRatio(true);
-        topBox.getChildren().add(iconView);
-        
-        // Load small icon asynchronously
-        group.getSmallIcon(m_pluginManager.getAppData(), TaskUtils.getVirtualExecutor())
-            .thenAccept(image -> Platform.runLater(() -> iconView.setImage(image)))
-            .exceptionally(e -> {
-                System.err.println("Failed to load icon for " + group.getAppName() + ": " + e.getMessage());
-                return null;
-            });
-        
-        // App info
-        VBox infoBox = new VBox(5);
-        HBox.setHgrow(infoBox, Priority.ALWAYS);
-        
-        OSGiPluginInformation pluginInfo = group.getPluginInfo();
-        
-        Label nameLabel = new Label(pluginInfo.getName());
-        nameLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
-        
-        Label descLabel = new Label(pluginInfo.getDescription());
-        descLabel.setStyle("-fx-text-fill: #cccccc; -fx-font-size: 13px;");
-        descLabel.setWrapText(true);
-        
-        infoBox.getChildren().addAll(nameLabel, descLabel);
-        
-        // Action buttons
-        VBox actionBox = new VBox(5);
-        actionBox.setAlignment(Pos.CENTER_RIGHT);
-        
-        Button viewDetailsBtn = new Button("View Details");
-        viewDetailsBtn.setStyle("-fx-background-color: #4a90e2; -fx-text-fill: #ffffff; " +
-                                "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
-        viewDetailsBtn.setOnAction(_ -> showPluginDetails(group));
-        
-        Button installBtn = new Button("Install");
-        installBtn.setStyle("-fx-background-color: #5cb85c; -fx-text-fill: #ffffff; " +
-                                 "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+        return iconView;
+    }
+    
+    /**
+     * Base for plugin card cells: the card is built once per cell and
+     * rebound in updateItem.
+     */
+    private abstract class PluginCardCell extends ListCell<PluginGroup> {
+        protected final VBox m_card = createCardBox();
+        private int m_boundRevision = -1;
         
-        // Check if already installed
-        if (group.hasInstalledVersions()) {
-            installBtn.setText("Installed");
-            installBtn.setDisable(true);
-            installBtn.setStyle("-fx-background-color: #666666; -fx-text-fill: #ffffff; " +
-                               "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+        PluginCardCell() {
+            setStyle("-fx-background-color: transparent; -fx-padding: 5px;");
         }
         
-        installBtn.setOnAction(_ -> installPlugin(group, installBtn));
-        
-        actionBox.getChildren().addAll(viewDetailsBtn, installBtn);
+        @Override
+        protected void updateItem(PluginGroup group, boolean empty) {
+            super.updateItem(group, empty);
+            setText(null);
+            
+            if (empty || group == null) {
+                setGraphic(null);
+                return;
+            }
+            
+            bind(group);
+            m_boundRevision = group.getRevision();
+            setGraphic(m_card);
+        }
         
-        topBox.getChildren().addAll(infoBox, actionBox);
+        /**
+         * A group patched in place (same instance, new revision) is rebound too
+         */
+        @Override
+        protected boolean isItemChanged(PluginGroup oldItem, PluginGroup newItem) {
+            return oldItem != newItem || (newItem != null && newItem.getRevision() != m_boundRevision);
+        }
         
-        // GitHub source info
-        if (pluginInfo.getGitHubJar() != null) {
-            GitHubInfo ghInfo = pluginInfo.getGitHubJar().getGitHubInfo();
-            Label ghLabel = new Label("Source: " + ghInfo.getUser() + "/" + ghInfo.getProject());
-            ghLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 11px;");
-            card.getChildren().addAll(topBox, ghLabel);
-        } else {
-            card.getChildren().add(topBox);
+        protected abstract void bind(PluginGroup group);
+    }
+    
+    private class BrowsePluginCell extends PluginCardCell {
+        private final ImageView m_iconView = createIconView();
+        private final Label m_nameLabel = new Label();
+        private final Label m_descLabel = new Label();
+        private final Button m_installBtn = new Button();
+        private final HBox m_topBox = new HBox(15);
+        private final Label m_ghLabel = new Label();
+        
+        BrowsePluginCell() {
+            m_topBox.setAlignment(Pos.CENTER_LEFT);
+            
+            VBox infoBox = new VBox(5);
+            HBox.setHgrow(infoBox, Priority.ALWAYS);
+            
+            m_nameLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
+            m_descLabel.setStyle("-fx-text-fill: #cccccc; -fx-font-size: 13px;");
+            m_descLabel.setWrapText(true);
+            infoBox.getChildren().addAll(m_nameLabel, m_descLabel);
+            
+            // Action buttons
+            VBox actionBox = new VBox(5);
+            actionBox.setAlignment(Pos.CENTER_RIGHT);
+            
+            Button viewDetailsBtn = new Button("View Details");
+            viewDetailsBtn.setStyle("-fx-background-color: #4a90e2; -fx-text-fill: #ffffff; " +
+                                    "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            viewDetailsBtn.setOnAction(_ -> showPluginDetails(getItem()));
+            
+            m_installBtn.setOnAction(_ -> installPlugin(getItem()));
+            
+            actionBox.getChildren().addAll(viewDetailsBtn, m_installBtn);
+            m_topBox.getChildren().addAll(m_iconView, infoBox, actionBox);
+            
+            m_ghLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 11px;");
         }
         
-        return card;
+        @Override
+        protected void bind(PluginGroup group) {
+            OSGiPluginInformation pluginInfo = group.getPluginInfo();
+            
+            m_nameLabel.setText(pluginInfo.getName());
+            m_descLabel.setText(pluginInfo.getDescription());
+            
+            // Check if already installed or installing
+            if (m_installing.contains(group.getAppName())) {
+                m_installBtn.setText("Installing...");
+                m_installBtn.setDisable(true);
+                m_installBtn.setStyle("-fx-background-color: #666666; -fx-text-fill: #ffffff; " +
+                                     "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            } else if (group.hasInstalledVersions()) {
+                m_installBtn.setText("Installed");
+                m_installBtn.setDisable(true);
+                m_installBtn.setStyle("-fx-background-color: #666666; -fx-text-fill: #ffffff; " +
+                                     "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            } else {
+                m_installBtn.setText("Install");
+                m_installBtn.setDisable(false);
+                m_installBtn.setStyle("-fx-background-color: #5cb85c; -fx-text-fill: #ffffff; " +
+                                     "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            }
+            
+            // GitHub source info
+            if (pluginInfo.getGitHubJar() != null) {
+                GitHubInfo ghInfo = pluginInfo.getGitHubJar().getGitHubInfo();
+                m_ghLabel.setText("Source: " + ghInfo.getUser() + "/" + ghInfo.getProject());
+                m_card.getChildren().setAll(m_topBox, m_ghLabel);
+            } else {
+                m_card.getChildren().setAll(m_topBox);
+            }
+            
+            bindIcon(this, m_iconView, group);
+        }
     }
     
     private void refreshInstalledPlugins() {
@@ -413,7 +595,7 @@ class PluginManagerBox extends AppBox {
         }
         
         m_statusLabel.setText("Loading installed plugins...");
-        m_installedListBox.getChildren().clear();
+        m_installedListView.getItems().clear();
         
         CompletableFuture.runAsync(() -> {
             List<PluginGroup> groups = m_pluginManager.getGroupManager().getInstalledGroups();
@@ -425,93 +607,73 @@ class PluginManagerBox extends AppBox {
     }
     
     private void displayInstalledPlugins(List<PluginGroup> groups) {
-        m_installedListBox.getChildren().clear();
-        
-        if (groups.isEmpty()) {
-            Label emptyLabel = new Label("No plugins installed");
-            emptyLabel.setStyle("-fx-text-fill: #888888; -fx-font-size: 16px;");
-            m_installedListBox.getChildren().add(emptyLabel);
-            return;
-        }
-        
-        for (PluginGroup group : groups) {
-            VBox pluginCard = createInstalledPluginCard(group);
-            m_installedListBox.getChildren().add(pluginCard);
-        }
+        m_installedListView.getItems().setAll(groups);
     }
     
-    private VBox createInstalledPluginCard(PluginGroup group) {
-        VBox card = new VBox(10);
-        card.setPadding(new Insets(15));
-        card.setStyle("-fx-background-color: #2b2b2b; -fx-background-radius: 8px; " +
-                     "-fx-border-color: #3c3c3c; -fx-border-width: 1px; -fx-border-radius: 8px;");
-        
-        HBox topBox = new HBox(15);
-        topBox.setAlignment(Pos.CENTER_LEFT);
-        
-        // Plugin icon
-        ImageView iconView = new ImageView();
-        iconView.setFitWidth(48);
-        iconView.setFitHeight(48);
-        iconView.setPreserveRatio(true);
-        topBox.getChildren().add(iconView);
-        
-        // Load icon asynchronously
-        group.getSmallIcon(m_pluginManager.getAppData(), TaskUtils.getVirtualExecutor())
-            .thenAccept(image -> Platform.runLater(() -> iconView.setImage(image)))
-            .exceptionally(e -> null);
-        
-        // Plugin info
-        VBox infoBox = new VBox(5);
-        HBox.setHgrow(infoBox, Priority.ALWAYS);
-        
-        Label nameLabel = new Label(group.getAppName());
-        nameLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
-        
-        // Show installed versions
-        List<OSGiPluginMetaData> versions = group.getInstalledVersions();
-        OSGiPluginMetaData enabledVersion = group.getEnabledVersion();
+    private class InstalledPluginCell extends PluginCardCell {
+        private final ImageView m_iconView = createIconView();
+        private final Label m_nameLabel = new Label();
+        private final Label m_versionLabel = new Label();
+        private final Label m_stateLabel = new Label();
+        
+        InstalledPluginCell() {
+            HBox topBox = new HBox(15);
+            topBox.setAlignment(Pos.CENTER_LEFT);
+            
+            // Plugin info
+            VBox infoBox = new VBox(5);
+            HBox.setHgrow(infoBox, Priority.ALWAYS);
+            
+            m_nameLabel.setStyle("-fx-font-size: 18px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
+            m_versionLabel.setStyle("-fx-text-fill: #cccccc; -fx-font-size: 13px;");
+            m_versionLabel.setWrapText(true);
+            infoBox.getChildren().addAll(m_nameLabel, m_versionLabel, m_stateLabel);
+            
+            // Action buttons
+            VBox actionBox = new VBox(5);
+            actionBox.setAlignment(Pos.CENTER_RIGHT);
+            
+            Button manageBtn = new Button("Manage Versions");
+            manageBtn.setStyle("-fx-background-color: #4a90e2; -fx-text-fill: #ffffff; " +
+                              "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            manageBtn.setOnAction(_ -> showVersionManager(getItem()));
+            
+            Button uninstallBtn = new Button("Uninstall All");
+            uninstallBtn.setStyle("-fx-background-color: #d9534f; -fx-text-fill: #ffffff; " +
+                                 "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
+            uninstallBtn.setOnAction(_ -> uninstallAllVersions(getItem()));
+            
+            actionBox.getChildren().addAll(manageBtn, uninstallBtn);
+            
+            topBox.getChildren().addAll(m_iconView, infoBox, actionBox);
+            m_card.getChildren().add(topBox);
+        }
         
-        StringBuilder versionsText = new StringBuilder("Installed versions: ");
-        for (int i = 0; i < versions.size(); i++) {
-            OSGiPluginMetaData v = versions.get(i);
-            if (i > 0) versionsText.append(", ");
-            versionsText.append(v.getRelease().getTagName());
-            if (v.equals(enabledVersion)) {
-                versionsText.append(" (enabled)");
+        @Override
+        protected void bind(PluginGroup group) {
+            m_nameLabel.setText(group.getAppName());
+            
+            // Show installed versions
+            List<OSGiPluginMetaData> versions = group.getInstalledVersions();
+            OSGiPluginMetaData enabledVersion = group.getEnabledVersion();
+            
+            StringBuilder versionsText = new StringBuilder("Installed versions: ");
+            for (int i = 0; i < versions.size(); i++) {
+                OSGiPluginMetaData v = versions.get(i);
+                if (i > 0) versionsText.append(", ");
+                versionsText.append(v.getRelease().getTagName());
+                if (v.equals(enabledVersion)) {
+                    versionsText.append(" (enabled)");
+                }
             }
+            m_versionLabel.setText(versionsText.toString());
+            
+            m_stateLabel.setText("Status: " + (enabledVersion != null ? "Enabled" : "Disabled"));
+            m_stateLabel.setStyle("-fx-text-fill: " + 
+                (enabledVersion != null ? "#5cb85c" : "#888888") + "; -fx-font-size: 12px;");
+            
+            bindIcon(this, m_iconView, group);
         }
-        
-        Label versionLabel = new Label(versionsText.toString());
-        versionLabel.setStyle("-fx-text-fill: #cccccc; -fx-font-size: 13px;");
-        versionLabel.setWrapText(true);
-        
-        Label statusLabel = new Label("Status: " + (enabledVersion != null ? "Enabled" : "Disabled"));
-        statusLabel.setStyle("-fx-text-fill: " + 
-            (enabledVersion != null ? "#5cb85c" : "#888888") + "; -fx-font-size: 12px;");
-        
-        infoBox.getChildren().addAll(nameLabel, versionLabel, statusLabel);
-        
-        // Action buttons
-        VBox actionBox = new VBox(5);
-        actionBox.setAlignment(Pos.CENTER_RIGHT);
-        
-        Button manageBtn = new Button("Manage Versions");
-        manageBtn.setStyle("-fx-background-color: #4a90e2; -fx-text-fill: #ffffff; " +
-                          "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
-        manageBtn.setOnAction(_ -> showVersionManager(group));
-        
-        Button uninstallBtn = new Button("Uninstall All");
-        uninstallBtn.setStyle("-fx-background-color: #d9534f; -fx-text-fill: #ffffff; " +
-                             "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
-        uninstallBtn.setOnAction(_ -> uninstallAllVersions(group));
-        
-        actionBox.getChildren().addAll(manageBtn, uninstallBtn);
-        
-        topBox.getChildren().addAll(infoBox, actionBox);
-        card.getChildren().add(topBox);
-        
-        return card;
     }
     
     private void showPluginDetails(PluginGroup group) {
@@ -539,7 +701,7 @@ class PluginManagerBox extends AppBox {
         headerBox.getChildren().add(iconView);
         
         // Load full icon
-        group.getFullIcon(m_pluginManager.getAppData(), TaskUtils.getVirtualExecutor())
+        group.getFullIcon(m_pluginManager.getIconCache())
             .thenAccept(image -> Platform.runLater(() -> iconView.setImage(image)))
             .exceptionally(e -> null);
         
@@ -555,6 +717,31 @@ class PluginManagerBox extends AppBox {
         headerBox.getChildren().add(titleBox);
         content.getChildren().add(headerBox);
         
+        // README, fetched and parsed once, then served from the README cache
+        Label readmeLabel = new Label("README");
+        readmeLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
+        
+        LayoutArea readmeArea = new LayoutArea(560, README_HEIGHT);
+        readmeArea.setPrefHeight(README_HEIGHT);
+        readmeArea.setHBarPolicy(LayoutArea.ScrollBarPolicy.NEVER);
+        if (m_pluginManager != null) {
+            readmeArea.getLayoutCanvas().setImagePipeline(m_pluginManager.getImagePipeline());
+        }
+        content.getChildren().addAll(readmeLabel, readmeArea);
+        
+        group.getReadmeSegments(m_pluginManager.getReadmeCache())
+            .thenAccept(segments -> Platform.runLater(() ->
+                readmeArea.getLayoutCanvas().setSegments(segments, true)))
+            .exceptionally(error -> {
+                Platform.runLater(() -> {
+                    Label readmeErrorLabel = new Label("README unavailable");
+                    readmeErrorLabel.setStyle("-fx-text-fill: #888888;");
+                    content.getChildren().set(content.getChildren().indexOf(readmeArea), readmeErrorLabel);
+                });
+                return null;
+            });
+        dialog.setOnHidden(_ -> readmeArea.shutdown());
+        
         // Releases section
         Label releasesLabel = new Label("Available Releases");
         releasesLabel.setStyle("-fx-font-size: 16px; -fx-text-fill: #ffffff; -fx-font-weight: bold;");
@@ -630,8 +817,19 @@ class PluginManagerBox extends AppBox {
         Button installBtn = new Button(isInstalled ? "Installed" : "Install");
         installBtn.setStyle("-fx-background-color: " + (isInstalled ? "#666666" : "#5cb85c") + 
                             "; -fx-text-fill: #ffffff; -fx-padding: 5px 15px; -fx-background-radius: 5px;");
-        installBtn.setDisable(isInstalled);
-        installBtn.setOnAction(_ -> installRelease(release, installBtn));
+        installBtn.setDisable(isInstalled || m_installing.contains(group.getAppName()));
+        installBtn.setOnAction(_ -> {
+            installBtn.setDisable(true);
+            installRelease(release).thenAccept(installed -> {
+                if (installed) {
+                    installBtn.setText("Installed");
+                    installBtn.setStyle("-fx-background-color: #666666; -fx-text-fill: #ffffff; " +
+                                        "-fx-padding: 5px 15px; -fx-background-radius: 5px;");
+                } else {
+                    installBtn.setDisable(m_installing.contains(group.getAppName()));
+                }
+            });
+        });
         
         box.getChildren().addAll(infoBox, installBtn);
         return box;
@@ -677,7 +875,6 @@ class PluginManagerBox extends AppBox {
                 enableBtn.setOnAction(_ -> {
                     enableVersion(metadata);
                     dialog.close();
-                    refreshInstalledPlugins();
                 });
                 buttonBox.getChildren().add(enableBtn);
             } else {
@@ -687,7 +884,6 @@ class PluginManagerBox extends AppBox {
                 disableBtn.setOnAction(_ -> {
                     disableVersion(metadata);
                     dialog.close();
-                    refreshInstalledPlugins();
                 });
                 buttonBox.getChildren().add(disableBtn);
             }
@@ -698,7 +894,6 @@ class PluginManagerBox extends AppBox {
             uninstallBtn.setOnAction(_ -> {
                 uninstallVersion(metadata);
                 dialog.close();
-                refreshInstalledPlugins();
             });
             buttonBox.getChildren().add(uninstallBtn);
             
@@ -712,21 +907,33 @@ class PluginManagerBox extends AppBox {
         dialog.show();
     }
     
-    private void installPlugin(PluginGroup group, Button installBtn) {
-        m_statusLabel.setText("Fetching latest release for " + group.getAppName() + "...");
+    /**
+     * Install the latest release of a group. The in-flight state is kept per
+     * app name so recycled cards never hold on to a button across the callback.
+     */
+    private void installPlugin(PluginGroup group) {
+        if (m_pluginManager == null) {
+            m_statusLabel.setText("Plugin manager not initialized");
+            m_statusLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-size: 12px;");
+            return;
+        }
+        
+        String appName = group.getAppName();
+        if (!m_installing.add(appName)) return;
+        refreshInstallState();
+        
+        m_statusLabel.setText("Fetching latest release for " + appName + "...");
         m_statusLabel.setStyle("-fx-text-fill: #4a90e2; -fx-font-size: 12px;");
-        installBtn.setDisable(true);
         
         m_releasesFetcher.fetchReleasesForApp(false, group.getPluginInfo())
             .thenAccept(releases -> {
                 Platform.runLater(() -> {
                     if (!releases.isEmpty()) {
-                        OSGiPluginRelease latestRelease = releases.get(0);
-                        installRelease(latestRelease, installBtn);
+                        startInstall(appName, releases.get(0));
                     } else {
-                        m_statusLabel.setText("No releases found for " + group.getAppName());
+                        m_statusLabel.setText("No releases found for " + appName);
                         m_statusLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-size: 12px;");
-                        installBtn.setDisable(false);
+                        finishInstall(appName);
                     }
                 });
             })
@@ -734,47 +941,76 @@ class PluginManagerBox extends AppBox {
                 Platform.runLater(() -> {
                     m_statusLabel.setText("Error: " + error.getMessage());
                     m_statusLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-size: 12px;");
-                    installBtn.setDisable(false);
+                    finishInstall(appName);
                 });
                 return null;
             });
     }
     
-    private void installRelease(OSGiPluginRelease release, Button installBtn) {
+    /**
+     * Install a specific release. Completes on the FX thread with true when
+     * installed, false if it failed or the app already has an install running.
+     */
+    private CompletableFuture<Boolean> installRelease(OSGiPluginRelease release) {
         if (m_pluginManager == null) {
             m_statusLabel.setText("Plugin manager not initialized");
             m_statusLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-size: 12px;");
-            return;
+            return CompletableFuture.completedFuture(false);
         }
         
-        m_statusLabel.setText("Installing " + release.getPluginInfo().getName() + 
-                             " version " + release.getTagName() + "...");
+        String appName = release.getPluginInfo().getName();
+        if (!m_installing.add(appName)) return CompletableFuture.completedFuture(false);
+        refreshInstallState();
+        
+        return startInstall(appName, release);
+    }
+    
+    /** Runs the install for an app already marked in m_installing. */
+    private CompletableFuture<Boolean> startInstall(String appName, OSGiPluginRelease release) {
+        CompletableFuture<Boolean> result = new CompletableFuture<>();
+        
+        String installText = "Installing " + appName + " version " + release.getTagName();
+        m_statusLabel.setText(installText + "...");
         m_statusLabel.setStyle("-fx-text-fill: #4a90e2; -fx-font-size: 12px;");
-        installBtn.setDisable(true);
         
-        m_pluginManager.installPlugin(release, true, null)
+        m_pluginManager.installPlugin(release, true, progress -> {
+                double fraction = progress.getFraction();
+                if (fraction < 0) return;
+                String text = installText + (progress.isResumed() ? " (resumed) " : " ") +
+                    (int) (fraction * 100) + "%";
+                Platform.runLater(() -> m_statusLabel.setText(text));
+            })
             .thenAccept(metadata -> {
                 Platform.runLater(() -> {
                     m_statusLabel.setText("Successfully installed " + 
                         metadata.getName() + " version " + metadata.getRelease().getTagName());
                     m_statusLabel.setStyle("-fx-text-fill: #5cb85c; -fx-font-size: 12px;");
-                    
-                    installBtn.setText("Installed");
-                    installBtn.setStyle("-fx-background-color: #666666; -fx-text-fill: #ffffff; " +
-                                       "-fx-padding: 6px 12px; -fx-background-radius: 5px;");
-                    
-                    // Refresh both tabs
-                    loadAvailablePlugins();
+                    finishInstall(appName);
+                    result.complete(true);
                 });
             })
             .exceptionally(error -> {
                 Platform.runLater(() -> {
                     m_statusLabel.setText("Installation failed: " + error.getMessage());
                     m_statusLabel.setStyle("-fx-text-fill: #ff6666; -fx-font-size: 12px;");
-                    installBtn.setDisable(false);
+                    finishInstall(appName);
+                    result.complete(false);
                 });
                 return null;
             });
+        return result;
+    }
+    
+    private void finishInstall(String appName) {
+        m_installing.remove(appName);
+        refreshInstallState();
+    }
+    
+    /** Rebinds the visible browse cards so they pick up m_installing. */
+    private void refreshInstallState() {
+        if (m_browseListView != null) {
+            m_browseListView.refresh();
+        }
     }
     
     private void enableVersion(OSGiPluginMetaData metadata) {
@@ -863,8 +1099,6 @@ class PluginManagerBox extends AppBox {
                 Platform.runLater(() -> {
                     m_statusLabel.setText("All versions uninstalled successfully");
                     m_statusLabel.setStyle("-fx-text-fill: #5cb85c; -fx-font-size: 12px;");
-                    refreshInstalledPlugins();
-                    loadAvailablePlugins();
                 });
             })
             .exceptionally(error -> {
@@ -885,6 +1119,10 @@ class PluginManagerBox extends AppBox {
     
     @Override
     public CompletableFuture<Void> shutdown() {
+        m_searchDebounce.stop();
+        if (m_pluginManager != null) {
+            m_pluginManager.getGroupManager().removeChangeListener(m_groupChangeListener);
+        }
         return CompletableFuture.completedFuture(null);
     }
 }
\ No newline at end of file
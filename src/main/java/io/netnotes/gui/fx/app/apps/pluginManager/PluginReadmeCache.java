@@ -0,0 +1,393 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.function.Consumer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import io.netnotes.engine.AppDataInterface;
+import io.netnotes.engine.crypto.HashServices;
+import io.netnotes.engine.noteBytes.NoteBytes;
+import io.netnotes.engine.noteBytes.NoteBytesArray;
+import io.netnotes.engine.noteBytes.NoteBytesObject;
+import io.netnotes.engine.noteBytes.NoteIntegerArray;
+import io.netnotes.engine.noteBytes.NoteString;
+import io.netnotes.engine.noteBytes.NoteStringArrayReadOnly;
+import io.netnotes.engine.noteBytes.collections.NoteBytesPair;
+import io.netnotes.engine.noteFiles.NoteFile;
+import io.netnotes.engine.utils.streams.StreamUtils;
+import io.netnotes.engine.utils.streams.UrlStreamHelpers;
+import io.netnotes.gui.fx.components.layout.MarkdownToSegmentBuilder;
+import io.netnotes.gui.fx.utils.CacheRegistry;
+
+/**
+ * README cache for plugin details.
+ *
+ * READMEs are fetched only when a details view asks for one, and are
+ * stored gzip-compressed in the app data (readme-cache/<url hash>) with
+ * their fetch time. A stored README younger than MAX_AGE_MS is used without
+ * a request; an older one is refetched, and kept if the refetch fails.
+ *
+ * README text is not kept in memory. What is kept is the parsed Markdown
+ * segment tree, keyed by the hash of the README text, plus a small url ->
+ * hash map, so reopening a details view skips the fetch, the disk read and
+ * the parse. Parsed trees are LRU-bounded by MAX_PARSED and registered with
+ * CacheRegistry.
+ */
+public class PluginReadmeCache {
+    public static final long MAX_AGE_MS = 24L * 60 * 60 * 1000;
+    public static final int MAX_PARSED = 16;
+    private static final int HASH_LENGTH = 16;
+    private static final long BYTES_PER_CHAR = 4; // rough estimate for CacheRegistry
+    private static final String CACHE_DIRECTORY = "readme-cache";
+
+    // Caches of all instances, registered as one CacheRegistry entry
+    private static final CacheRegistry.Members<PluginReadmeCache> CACHES = new CacheRegistry.Members<>();
+    private static final CacheRegistry.CacheGauges GAUGES = CacheRegistry.register("PluginReadmeCache", 20,
+        () -> CACHES.sum(PluginReadmeCache::getParsedBytes),
+        () -> CACHES.sum(PluginReadmeCache::getParsedCount),
+        _ -> {
+            long[] freed = { 0 };
+            CACHES.forEach(cache -> freed[0] += cache.clearParsed());
+            return freed[0];
+        });
+
+    private final AppDataInterface m_appData;
+    private final ExecutorService m_execService;
+    private final Map<String, CompletableFuture<Readme>> m_inFlight = new ConcurrentHashMap<>();
+
+    // Guarded by this
+    private final Map<String, Readme> m_hashByUrl = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Parsed> m_parsedByHash = new LinkedHashMap<>(16, 0.75f, true);
+    private long m_parsedBytes = 0;
+
+    public PluginReadmeCache(AppDataInterface appData, ExecutorService execService) {
+        m_appData = appData;
+        m_execService = execService;
+        CACHES.add(this);
+    }
+
+    // ========== Access ==========
+
+    /**
+     * README text, from the local cache when fresh
+     */
+    public CompletableFuture<String> getReadme(String url) {
+        return load(url).thenApply(readme -> readme.text);
+    }
+
+    /**
+     * Parsed README segments. Each call returns its own copy of the tree
+     * (segment objects, child arrays and text included), so the caller's
+     * canvas can modify it. Relative image sources are resolved against `url`.
+     *
+     * @param onTextLoaded called with the README text when it had to be loaded; may be null
+     */
+    public CompletableFuture<NoteBytesArray> getSegments(String url, Consumer<String> onTextLoaded) {
+        NoteBytesArray cached = getParsedForUrl(url);
+        if (cached != null) {
+            GAUGES.recordHit();
+            return CompletableFuture.completedFuture(cached);
+        }
+        GAUGES.recordMiss();
+        URI base = baseOf(url);
+
+        return load(url).thenApplyAsync(readme -> {
+            if (onTextLoaded != null) {
+                onTextLoaded.accept(readme.text);
+            }
+            NoteBytesArray segments = getParsed(readme.hash);
+            if (segments == null) {
+                segments = MarkdownToSegmentBuilder.buildFromMarkdown(readme.text);
+                putParsed(readme.hash, segments, readme.text.length());
+            }
+            return copyOf(segments, base);
+        }, m_execService);
+    }
+
+    /**
+     * Forget the url -> README mapping so the next request reads the disk cache again
+     */
+    public synchronized void invalidate(String url) {
+        m_hashByUrl.remove(url);
+    }
+
+    // ========== Loading ==========
+
+    /**
+     * Fresh README from disk or network; concurrent calls share one load
+     */
+    private CompletableFuture<Readme> load(String url) {
+        CompletableFuture<Readme> pending = m_inFlight.get(url);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<Readme> future = new CompletableFuture<>();
+        pending = m_inFlight.putIfAbsent(url, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        m_appData.getNoteFile(pathOf(url))
+            .thenCompose(noteFile -> noteFile.isFile()
+                ? readStored(noteFile).exceptionally(e -> null)
+                : CompletableFuture.completedFuture(null))
+            .thenCompose(stored -> {
+                if (stored != null && System.currentTimeMillis() - stored.fetchedAt < MAX_AGE_MS) {
+                    return CompletableFuture.completedFuture(stored);
+                }
+                return download(url).exceptionallyCompose(e -> {
+                    if (stored != null) {
+                        return CompletableFuture.completedFuture(stored);
+                    }
+                    return CompletableFuture.failedFuture(e);
+                });
+            })
+            .whenComplete((readme, error) -> {
+                m_inFlight.remove(url, future);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    remember(url, readme);
+                    future.complete(readme);
+                }
+            });
+        return future;
+    }
+
+    private CompletableFuture<Readme> download(String url) {
+        return UrlStreamHelpers.getUrlContentAsString(url, m_execService).thenApply(text -> {
+            Readme readme = new Readme(text, System.currentTimeMillis());
+            store(url, readme).exceptionally(e -> {
+                System.err.println("PluginReadmeCache: could not store README " + url + ": " + e.getMessage());
+                return null;
+            });
+            return readme;
+        });
+    }
+
+    // ========== Parsed Segments ==========
+
+    private synchronized void remember(String url, Readme readme) {
+        // Text is dropped; only the hash and age are kept
+        m_hashByUrl.put(url, new Readme(null, readme.hash, readme.fetchedAt));
+        while (m_hashByUrl.size() > MAX_PARSED * 4) {
+            Iterator<String> it = m_hashByUrl.keySet().iterator();
+            it.next();
+            it.remove();
+        }
+    }
+
+    private synchronized NoteBytesArray getParsedForUrl(String url) {
+        Readme known = m_hashByUrl.get(url);
+        if (known == null || System.currentTimeMillis() - known.fetchedAt >= MAX_AGE_MS) {
+            return null;
+        }
+        Parsed parsed = m_parsedByHash.get(known.hash);
+        return parsed != null ? copyOf(parsed.segments, baseOf(url)) : null;
+    }
+
+    private synchronized NoteBytesArray getParsed(String hash) {
+        Parsed parsed = m_parsedByHash.get(hash);
+        return parsed != null ? parsed.segments : null;
+    }
+
+    private synchronized void putParsed(String hash, NoteBytesArray segments, int textLength) {
+        Parsed parsed = new Parsed(segments, textLength * BYTES_PER_CHAR);
+        Parsed previous = m_parsedByHash.put(hash, parsed);
+        if (previous != null) {
+            m_parsedBytes -= previous.bytes;
+        }
+        m_parsedBytes += parsed.bytes;
+
+        Iterator<Parsed> it = m_parsedByHash.values().iterator();
+        while (m_parsedByHash.size() > MAX_PARSED && it.hasNext()) {
+            m_parsedBytes -= it.next().bytes;
+            it.remove();
+            GAUGES.recordEviction();
+        }
+    }
+
+    /**
+     * Drop parsed READMEs; they are parsed again from the disk cache on next use
+     * @return estimated bytes released
+     */
+    public synchronized long clearParsed() {
+        long released = m_parsedBytes;
+        GAUGES.recordEvictions(m_parsedByHash.size());
+        m_parsedByHash.clear();
+        m_parsedBytes = 0;
+        return released;
+    }
+
+    public synchronized long getParsedBytes() {
+        return m_parsedBytes;
+    }
+
+    public synchronized int getParsedCount() {
+        return m_parsedByHash.size();
+    }
+
+    /**
+     * Deep copy of a segment tree: SegmentNode drops entries from child
+     * arrays and canvases edit segment data and text in place.
+     * Image sources ("src") are resolved against `base` when it is set.
+     */
+    private static NoteBytesArray copyOf(NoteBytesArray segments, URI base) {
+        NoteBytesArray copy = new NoteBytesArray();
+        for (int i = 0; i < segments.size(); i++) {
+            copy.add(copyOf(segments.get(i), base));
+        }
+        return copy;
+    }
+
+    private static NoteBytes copyOf(NoteBytes value, URI base) {
+        if (value instanceof NoteBytesArray) {
+            return copyOf((NoteBytesArray) value, base);
+        }
+        if (value instanceof NoteBytesObject) {
+            NoteBytesObject copy = new NoteBytesObject();
+            for (NoteBytesPair pair : ((NoteBytesObject) value).getAsList()) {
+                String key = pair.getKey().getAsString();
+                copy.add(key, key.equals("src") && base != null
+                    ? new NoteString(resolve(base, pair.getValue().getAsString()))
+                    : copyOf(pair.getValue(), base));
+            }
+            return copy;
+        }
+        if (value instanceof NoteIntegerArray) {
+            return new NoteIntegerArray(value.get().clone());
+        }
+        // Other values are replaced, not modified, by segments
+        return value;
+    }
+
+    /**
+     * The README's URL as a base for relative links, or null if it is not one
+     */
+    private static URI baseOf(String url) {
+        try {
+            URI uri = new URI(url);
+            return uri.isAbsolute() ? uri : null;
+        } catch (URISyntaxException e) {
+            return null;
+        }
+    }
+
+    private static String resolve(URI base, String src) {
+        try {
+            URI uri = new URI(src);
+            return uri.isAbsolute() ? src : base.resolve(uri).toString();
+        } catch (URISyntaxException | IllegalArgumentException e) {
+            return src; // Left as is; the pipeline rejects what it cannot fetch
+        }
+    }
+
+    // ========== Storage ==========
+
+    /**
+     * Fetch time, then the gzip-compressed UTF-8 text
+     */
+    private CompletableFuture<NoteBytesObject> store(String url, Readme readme) {
+        byte[] bytes;
+        try {
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(buffer);
+            out.writeLong(readme.fetchedAt);
+            try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+                gzip.write(readme.text.getBytes(StandardCharsets.UTF_8));
+            }
+            bytes = buffer.toByteArray();
+        } catch (IOException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+
+        return m_appData.getNoteFile(pathOf(url)).thenCompose(noteFile -> {
+            PipedOutputStream outputStream = new PipedOutputStream();
+
+            CompletableFuture<NoteBytesObject> writeFuture = noteFile.writeOnly(outputStream);
+            CompletableFuture<Void> copyFuture = CompletableFuture.runAsync(() -> {
+                try (outputStream) {
+                    outputStream.write(bytes);
+                } catch (IOException e) {
+                    throw new CompletionException("Failed to write README", e);
+                }
+            }, m_execService);
+
+            return CompletableFuture.allOf(copyFuture, writeFuture)
+                .thenCompose(_ -> writeFuture);
+        });
+    }
+
+    private CompletableFuture<Readme> readStored(NoteFile noteFile) {
+        PipedOutputStream outputStream = new PipedOutputStream();
+
+        CompletableFuture<NoteBytesObject> readFuture = noteFile.readOnly(outputStream);
+        CompletableFuture<Readme> readmeFuture = CompletableFuture.supplyAsync(() -> {
+            try (DataInputStream in = new DataInputStream(
+                new PipedInputStream(outputStream, StreamUtils.PIPE_BUFFER_SIZE))
+            ) {
+                long fetchedAt = in.readLong();
+                byte[] compressed = in.readAllBytes();
+                try (GZIPInputStream gzip = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+                    return new Readme(new String(gzip.readAllBytes(), StandardCharsets.UTF_8), fetchedAt);
+                }
+            } catch (IOException e) {
+                throw new CompletionException("Failed to read cached README", e);
+            }
+        }, m_execService);
+
+        return CompletableFuture.allOf(readFuture, readmeFuture)
+            .thenCompose(_ -> readmeFuture);
+    }
+
+    private static NoteStringArrayReadOnly pathOf(String url) {
+        String name = HashServices.digestToUrlSafeString(url.getBytes(StandardCharsets.UTF_8), HASH_LENGTH);
+        return new NoteStringArrayReadOnly(new NoteBytes(CACHE_DIRECTORY), new NoteBytes(name));
+    }
+
+    // ========== Internal Types ==========
+
+    private static class Readme {
+        final String text;
+        final String hash;
+        final long fetchedAt;
+
+        Readme(String text, long fetchedAt) {
+            this(text, HashServices.digestToUrlSafeString(text.getBytes(StandardCharsets.UTF_8), HASH_LENGTH),
+                fetchedAt);
+        }
+
+        Readme(String text, String hash, long fetchedAt) {
+            this.text = text;
+            this.hash = hash;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    private static class Parsed {
+        final NoteBytesArray segments;
+        final long bytes;
+
+        Parsed(NoteBytesArray segments, long bytes) {
+            this.segments = segments;
+            this.bytes = bytes;
+        }
+    }
+}
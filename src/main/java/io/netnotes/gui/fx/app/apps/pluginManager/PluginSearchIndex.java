@@ -0,0 +1,369 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * In-memory fuzzy search over plugin groups.
+ *
+ * Each group (keyed by app name) is indexed by the trigrams of its name,
+ * description and, once loaded, README text. Words are padded with spaces
+ * so word starts and ends form their own trigrams. A posting keeps the
+ * highest field weight a document has for the trigram.
+ *
+ * A document matches when at least MIN_MATCH of the query's trigrams hit
+ * it, so small typos still match. Scores are the summed weights, scaled to
+ * 0..1, plus boosts for exact, prefix and substring name matches. Queries
+ * shorter than a trigram scan names and descriptions directly.
+ *
+ * Updates are incremental: put() re-indexes a document only when its text
+ * changed, and remove() touches only the postings of that document.
+ * Thread-safe; queries can run off the FX thread with searchAsync().
+ */
+public class PluginSearchIndex {
+    public static final float NAME_WEIGHT = 4;
+    public static final float DESCRIPTION_WEIGHT = 2;
+    public static final float README_WEIGHT = 1;
+    public static final float MIN_MATCH = 0.6f;
+    public static final int MAX_README_CHARS = 32 * 1024;
+
+    private static final int MIN_TRIGRAM_QUERY = 3;
+
+    private final Map<String, Doc> m_docs = new HashMap<>();
+    private final List<Doc> m_docsById = new ArrayList<>();
+    private final ArrayDeque<Integer> m_freeIds = new ArrayDeque<>();
+    private final Map<Long, Posting> m_postings = new HashMap<>();
+
+    // ========== Updates ==========
+
+    /**
+     * Index or update a group; unchanged text is not re-indexed
+     */
+    public synchronized void put(String key, String name, String description) {
+        Doc doc = m_docs.get(key);
+        String normName = normalize(name);
+        String normDesc = normalize(description);
+
+        if (doc != null) {
+            if (doc.normName.equals(normName) && doc.normDescription.equals(normDesc)) {
+                return;
+            }
+            unindex(doc);
+        } else {
+            doc = new Doc(key, allocateId());
+            m_docs.put(key, doc);
+            setDoc(doc);
+        }
+
+        doc.normName = normName;
+        doc.normDescription = normDesc;
+        index(doc);
+    }
+
+    /**
+     * Add README text to an indexed group (truncated to MAX_README_CHARS)
+     */
+    public synchronized void setReadme(String key, String readme) {
+        Doc doc = m_docs.get(key);
+        if (doc == null) return;
+
+        String normReadme = normalize(readme != null && readme.length() > MAX_README_CHARS
+            ? readme.substring(0, MAX_README_CHARS) : readme);
+        if (doc.normReadme.equals(normReadme)) return;
+
+        unindex(doc);
+        doc.normReadme = normReadme;
+        index(doc);
+    }
+
+    public synchronized void remove(String key) {
+        Doc doc = m_docs.remove(key);
+        if (doc == null) return;
+
+        unindex(doc);
+        m_docsById.set(doc.id, null);
+        m_freeIds.push(doc.id);
+    }
+
+    /**
+     * Remove every group whose key is not in `keys`
+     */
+    public synchronized void retainAll(Collection<String> keys) {
+        Set<String> keep = keys instanceof Set ? (Set<String>) keys : new HashSet<>(keys);
+        List<String> stale = new ArrayList<>();
+        for (String key : m_docs.keySet()) {
+            if (!keep.contains(key)) {
+                stale.add(key);
+            }
+        }
+        for (String key : stale) {
+            remove(key);
+        }
+    }
+
+    public synchronized void clear() {
+        m_docs.clear();
+        m_docsById.clear();
+        m_freeIds.clear();
+        m_postings.clear();
+    }
+
+    public synchronized int size() {
+        return m_docs.size();
+    }
+
+    // ========== Queries ==========
+
+    /**
+     * Run search() on `executor`
+     */
+    public CompletableFuture<List<String>> searchAsync(String query, Executor executor) {
+        return CompletableFuture.supplyAsync(() -> search(query), executor);
+    }
+
+    /**
+     * @return matching keys, best first; empty for a blank query
+     */
+    public synchronized List<String> search(String query) {
+        String normQuery = normalize(query);
+        if (normQuery.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<Match> matches = normQuery.length() < MIN_TRIGRAM_QUERY
+            ? scanShortQuery(normQuery)
+            : matchTrigrams(normQuery);
+
+        matches.sort((a, b) -> {
+            int cmp = Float.compare(b.score, a.score);
+            return cmp != 0 ? cmp : a.doc.normName.compareTo(b.doc.normName);
+        });
+
+        List<String> keys = new ArrayList<>(matches.size());
+        for (Match match : matches) {
+            keys.add(match.doc.key);
+        }
+        return keys;
+    }
+
+    private List<Match> matchTrigrams(String normQuery) {
+        Map<Long, Float> queryTrigrams = new HashMap<>();
+        addTrigrams(normQuery, 1, queryTrigrams);
+
+        int size = m_docsById.size();
+        float[] scores = new float[size];
+        int[] hits = new int[size];
+
+        for (Long trigram : queryTrigrams.keySet()) {
+            Posting posting = m_postings.get(trigram);
+            if (posting == null) continue;
+            for (int i = 0; i < posting.size; i++) {
+                scores[posting.docs[i]] += posting.weights[i];
+                hits[posting.docs[i]]++;
+            }
+        }
+
+        int queryCount = queryTrigrams.size();
+        int minHits = Math.max(1, (int) Math.ceil(queryCount * MIN_MATCH));
+        float maxScore = queryCount * NAME_WEIGHT;
+        String[] queryWords = normQuery.split(" ");
+
+        List<Match> matches = new ArrayList<>();
+        for (int id = 0; id < size; id++) {
+            if (hits[id] < minHits) continue;
+            Doc doc = m_docsById.get(id);
+            if (doc == null) continue;
+            matches.add(new Match(doc, scores[id] / maxScore + boost(doc, normQuery, queryWords)));
+        }
+        return matches;
+    }
+
+    private List<Match> scanShortQuery(String normQuery) {
+        String[] queryWords = { normQuery };
+        List<Match> matches = new ArrayList<>();
+        for (Doc doc : m_docs.values()) {
+            if (doc.normName.contains(normQuery) || doc.normDescription.contains(normQuery)) {
+                matches.add(new Match(doc, boost(doc, normQuery, queryWords)));
+            }
+        }
+        return matches;
+    }
+
+    /**
+     * Bonus for whole-query and word-prefix matches
+     */
+    private static float boost(Doc doc, String normQuery, String[] queryWords) {
+        float boost = 0;
+        String name = doc.normName;
+
+        if (name.equals(normQuery)) {
+            boost += 3;
+        } else if (name.startsWith(normQuery)) {
+            boost += 2;
+        } else if (name.contains(normQuery)) {
+            boost += 1;
+        }
+
+        if (doc.normDescription.contains(normQuery)) {
+            boost += 0.5f;
+        }
+
+        // Query words that start a name word
+        int prefixWords = 0;
+        for (String word : queryWords) {
+            if (name.startsWith(word) || name.contains(" " + word)) {
+                prefixWords++;
+            }
+        }
+        boost += (float) prefixWords / queryWords.length;
+
+        return boost;
+    }
+
+    // ========== Indexing ==========
+
+    private void index(Doc doc) {
+        Map<Long, Float> trigrams = new HashMap<>();
+        addTrigrams(doc.normReadme, README_WEIGHT, trigrams);
+        addTrigrams(doc.normDescription, DESCRIPTION_WEIGHT, trigrams);
+        addTrigrams(doc.normName, NAME_WEIGHT, trigrams);
+
+        long[] keys = new long[trigrams.size()];
+        int i = 0;
+        for (Map.Entry<Long, Float> entry : trigrams.entrySet()) {
+            keys[i++] = entry.getKey();
+            m_postings.computeIfAbsent(entry.getKey(), _ -> new Posting()).add(doc.id, entry.getValue());
+        }
+        doc.trigrams = keys;
+    }
+
+    private void unindex(Doc doc) {
+        for (long trigram : doc.trigrams) {
+            Posting posting = m_postings.get(trigram);
+            if (posting != null && posting.remove(doc.id) && posting.size == 0) {
+                m_postings.remove(trigram);
+            }
+        }
+        doc.trigrams = new long[0];
+    }
+
+    private int allocateId() {
+        Integer id = m_freeIds.poll();
+        return id != null ? id : m_docsById.size();
+    }
+
+    private void setDoc(Doc doc) {
+        if (doc.id == m_docsById.size()) {
+            m_docsById.add(doc);
+        } else {
+            m_docsById.set(doc.id, doc);
+        }
+    }
+
+    /**
+     * Add the padded-word trigrams of normalized text, keeping the highest weight
+     */
+    private static void addTrigrams(String normText, float weight, Map<Long, Float> out) {
+        if (normText.isEmpty()) return;
+
+        for (String word : normText.split(" ")) {
+            String padded = " " + word + " ";
+            for (int i = 0; i + 3 <= padded.length(); i++) {
+                long trigram = (long) padded.charAt(i) << 32 | (long) padded.charAt(i + 1) << 16 | padded.charAt(i + 2);
+                out.merge(trigram, weight, Math::max);
+            }
+        }
+    }
+
+    /**
+     * Lowercase letters and digits, other characters collapsed to single spaces
+     */
+    static String normalize(String text) {
+        if (text == null || text.isEmpty()) return "";
+
+        StringBuilder sb = new StringBuilder(text.length());
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isLetterOrDigit(c)) {
+                sb.append(Character.toLowerCase(c));
+                space = false;
+            } else if (!space) {
+                sb.append(' ');
+                space = true;
+            }
+        }
+        int length = sb.length();
+        if (length > 0 && sb.charAt(length - 1) == ' ') {
+            sb.setLength(length - 1);
+        }
+        return sb.toString();
+    }
+
+    // ========== Internal Types ==========
+
+    private static class Doc {
+        final String key;
+        final int id;
+        String normName = "";
+        String normDescription = "";
+        String normReadme = "";
+        long[] trigrams = new long[0];
+
+        Doc(String key, int id) {
+            this.key = key;
+            this.id = id;
+        }
+    }
+
+    /**
+     * Documents containing one trigram, with their field weight
+     */
+    private static class Posting {
+        int[] docs = new int[4];
+        float[] weights = new float[4];
+        int size = 0;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+
+        boolean remove(int doc) {
+            for (int i = 0; i < size; i++) {
+                if (docs[i] == doc) {
+                    size--;
+                    docs[i] = docs[size];
+                    weights[i] = weights[size];
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    private static class Match {
+        final Doc doc;
+        final float score;
+
+        Match(Doc doc, float score) {
+            this.doc = doc;
+            this.score = score;
+        }
+    }
+}
@@ -7,7 +7,9 @@ import javafx.scene.image.PixelWriter;
 
 import io.netnotes.engine.noteBytes.NoteBytes;
 import io.netnotes.gui.fx.components.images.effects.ImageEffects;
+import io.netnotes.gui.fx.display.control.FrameRateMonitor;
 import io.netnotes.gui.fx.utils.TaskUtils;
+import io.netnotes.gui.fx.utils.TraceRecorder;
 import io.netnotes.gui.fx.components.images.scaling.ScalingUtils;
 import io.netnotes.gui.fx.components.images.scaling.ScalingUtils.ScalingAlgorithm;
 
@@ -113,17 +115,29 @@ public abstract class BufferedCanvasView extends Canvas {
         final ArrayList<ImageEffects> effects = new ArrayList<>(m_effects);
         Runnable newTask = () -> {
             try {
+                long start = System.nanoTime();
                 BufferedImage baseImage = generateBaseImage();
                 if (baseImage == null) {
                     TaskUtils.noDelay(_ -> clearCanvas());
                     return;
                 }
 
-                for (ImageEffects effect : effects) {
-                    effect.applyEffect(baseImage);
+                FrameRateMonitor monitor = FrameRateMonitor.getInstance();
+                long rendered = System.nanoTime();
+                monitor.record(FrameRateMonitor.Source.RENDER, (rendered - start) / 1_000_000.0);
+
+                if (!effects.isEmpty()) {
+                    for (int i = 0; i < effects.size(); i++) {
+                        long span = TraceRecorder.begin();
+                        effects.get(i).applyEffect(baseImage);
+                        TraceRecorder.end(TraceRecorder.CANVAS_EFFECT, span, i);
+                    }
+                    monitor.record(FrameRateMonitor.Source.EFFECTS, (System.nanoTime() - rendered) / 1_000_000.0);
                 }
 
+                long span = TraceRecorder.begin();
                 BufferedImage finalImage = applyScaling(baseImage);
+                TraceRecorder.end(TraceRecorder.CANVAS_SCALING, span);
                 TaskUtils.fxDelay(_ -> drawToCanvas(finalImage));
 
             } catch (Exception e) {
@@ -273,10 +287,15 @@ public abstract class BufferedCanvasView extends Canvas {
         }
         
         // Direct pixel transfer
+        long span = TraceRecorder.begin();
+        long start = System.nanoTime();
         PixelWriter pw = m_gc.getPixelWriter();
         int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
         pw.setPixels(0, 0, width, height, 
             PixelFormat.getIntArgbInstance(), pixels, 0, width);
+        FrameRateMonitor.getInstance().record(FrameRateMonitor.Source.CANVAS_UPLOAD,
+            (System.nanoTime() - start) / 1_000_000.0);
+        TraceRecorder.end(TraceRecorder.CANVAS_UPLOAD, span, (long) width * height);
     }
     
     /**
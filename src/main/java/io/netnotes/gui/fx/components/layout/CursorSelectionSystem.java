@@ -1,8 +1,5 @@
 package io.netnotes.gui.fx.components.layout;
 
-import io.netnotes.engine.noteBytes.NoteBytes;
-import io.netnotes.engine.noteBytes.NoteBytesArray;
-import io.netnotes.engine.noteBytes.NoteBytesObject;
 import io.netnotes.engine.noteBytes.NoteIntegerArray;
 
 import java.util.ArrayList;
@@ -156,15 +153,15 @@ public class CursorSelectionSystem {
      * OPTIMIZED: Caches segment offsets to avoid O(n) traversals on every operation
      */
     public static class CursorNavigator {
-        private NoteBytesArray rootSegments;
+        private SegmentNode rootNode;
         
         // NEW: Cached data to avoid O(n) traversals
         private Map<List<Integer>, Integer> m_segmentOffsets; // path -> global start offset
         private int m_totalContentLength;
         private boolean m_cacheDirty;
         
-        public CursorNavigator(NoteBytesArray rootSegments) {
-            this.rootSegments = rootSegments;
+        public CursorNavigator(SegmentNode rootNode) {
+            this.rootNode = rootNode;
             this.m_segmentOffsets = new java.util.HashMap<>();
             this.m_cacheDirty = true;
             rebuildCache();
@@ -179,20 +176,17 @@ public class CursorSelectionSystem {
             m_segmentOffsets.clear();
             m_totalContentLength = 0;
             
-            rebuildCacheRecursive(rootSegments, new ArrayList<>(), 0);
+            m_totalContentLength = rebuildCacheRecursive(rootNode, new ArrayList<>(), 0);
             m_cacheDirty = false;
         }
         
         private int rebuildCacheRecursive(
-            NoteBytesArray segments,
+            SegmentNode parent,
             List<Integer> currentPath,
             int currentOffset
         ) {
-            for (int i = 0; i < segments.size(); i++) {
-                NoteBytes item = segments.get(i);
-                if (!(item instanceof NoteBytesObject)) continue;
-                
-                LayoutSegment segment = new LayoutSegment((NoteBytesObject) item);
+            for (int i = 0; i < parent.getChildCount(); i++) {
+                SegmentNode segment = parent.getChild(i);
                 
                 // Skip display:none
                 if (segment.getLayout().display == LayoutSegment.Display.NONE) {
@@ -208,7 +202,7 @@ public class CursorSelectionSystem {
                 if (segment.isContainer() && segment.hasChildren()) {
                     // Recurse into children
                     currentOffset = rebuildCacheRecursive(
-                        segment.getChildren(),
+                        segment,
                         segmentPath,
                         currentOffset
                     );
@@ -314,37 +308,15 @@ public class CursorSelectionSystem {
          * Get segment at the given cursor position
          */
         public LayoutSegment getSegmentAt(CursorPosition position) {
-            List<Integer> path = position.getSegmentPath();
-            NoteBytesArray current = rootSegments;
-            
-            for (int i = 0; i < path.size(); i++) {
-                int index = path.get(i);
-                
-                if (index < 0 || index >= current.size()) {
-                    return null;
-                }
-                
-                NoteBytes item = current.get(index);
-                if (!(item instanceof NoteBytesObject)) {
-                    return null;
-                }
-                
-                LayoutSegment segment = new LayoutSegment((NoteBytesObject) item);
-                
-                // Last element in path - this is our segment
-                if (i == path.size() - 1) {
-                    return segment;
-                }
-                
-                // Not last - traverse into children
-                if (!segment.isContainer()) {
-                    return null; // Path goes deeper but segment has no children
-                }
-                
-                current = segment.getChildren();
-            }
-            
-            return null;
+            SegmentNode node = getNodeAt(position);
+            return node != null ? node.getSegment() : null;
+        }
+        
+        /**
+         * Get the parsed node at the given cursor position
+         */
+        public SegmentNode getNodeAt(CursorPosition position) {
+            return getNodeAtPath(position.getSegmentPath());
         }
         
         /**
@@ -373,7 +345,7 @@ public class CursorSelectionSystem {
                 
                 if (startOffset <= targetOffset && startOffset > bestOffset) {
                     // Get segment to check its length
-                    LayoutSegment seg = getSegmentAtPath(entry.getKey());
+                    SegmentNode seg = getNodeAtPath(entry.getKey());
                     if (seg != null) {
                         int segmentEnd = startOffset + seg.getContentLength();
                         
@@ -396,34 +368,28 @@ public class CursorSelectionSystem {
         }
         
         /**
-         * Helper: Get segment by path
+         * Helper: Get node by path
          */
-        private LayoutSegment getSegmentAtPath(List<Integer> path) {
-            NoteBytesArray current = rootSegments;
+        private SegmentNode getNodeAtPath(List<Integer> path) {
+            SegmentNode current = rootNode;
             
             for (int i = 0; i < path.size(); i++) {
                 int index = path.get(i);
                 
-                if (index < 0 || index >= current.size()) {
+                SegmentNode child = current.getChild(index);
+                if (child == null) {
                     return null;
                 }
                 
-                NoteBytes item = current.get(index);
-                if (!(item instanceof NoteBytesObject)) {
-                    return null;
-                }
-                
-                LayoutSegment segment = new LayoutSegment((NoteBytesObject) item);
-                
                 if (i == path.size() - 1) {
-                    return segment;
+                    return child;
                 }
                 
-                if (!segment.isContainer()) {
-                    return null;
+                if (!child.isContainer()) {
+                    return null; // Path goes deeper but segment has no children
                 }
                 
-                current = segment.getChildren();
+                current = child;
             }
             
             return null;
@@ -453,7 +419,7 @@ public class CursorSelectionSystem {
          * Move cursor forward by one position
          */
         public CursorPosition moveForward(CursorPosition current) {
-            LayoutSegment segment = getSegmentAt(current);
+            SegmentNode segment = getNodeAt(current);
             if (segment == null) return current;
             
             int contentLength = segment.getContentLength();
@@ -505,7 +471,7 @@ public class CursorSelectionSystem {
             
             while (searchOffset <= m_totalContentLength) {
                 CursorPosition candidate = globalOffsetToPosition(searchOffset);
-                LayoutSegment segment = getSegmentAt(candidate);
+                SegmentNode segment = getNodeAt(candidate);
                 
                 if (segment != null && 
                     segment.getInteraction().focusable &&
@@ -525,7 +491,7 @@ public class CursorSelectionSystem {
             searchOffset = 0;
             while (searchOffset < current.getGlobalOffset()) {
                 CursorPosition candidate = globalOffsetToPosition(searchOffset);
-                LayoutSegment segment = getSegmentAt(candidate);
+                SegmentNode segment = getNodeAt(candidate);
                 
                 if (segment != null && 
                     segment.getInteraction().focusable &&
@@ -556,7 +522,7 @@ public class CursorSelectionSystem {
             
             while (searchOffset >= 0) {
                 CursorPosition candidate = globalOffsetToPosition(searchOffset);
-                LayoutSegment segment = getSegmentAt(candidate);
+                SegmentNode segment = getNodeAt(candidate);
                 
                 if (segment != null && 
                     segment.getInteraction().focusable &&
@@ -571,7 +537,7 @@ public class CursorSelectionSystem {
             searchOffset = m_totalContentLength;
             while (searchOffset > current.getGlobalOffset()) {
                 CursorPosition candidate = globalOffsetToPosition(searchOffset);
-                LayoutSegment segment = getSegmentAt(candidate);
+                SegmentNode segment = getNodeAt(candidate);
                 
                 if (segment != null && 
                     segment.getInteraction().focusable &&
@@ -612,40 +578,11 @@ public class CursorSelectionSystem {
          * Get total content length of all segments
          * OPTIMIZED: Returns cached value instead of O(n) traversal
          */
-        public int getTotalContentLength(NoteBytesArray segments) {
-            if (segments == rootSegments) {
-                if (m_cacheDirty) {
-                    rebuildCache();
-                }
-                return m_totalContentLength;
-            }
-            
-            // For non-root segments, fall back to calculation
-            return getTotalContentLengthRecursive(segments);
-        }
-        
-        private int getTotalContentLengthRecursive(NoteBytesArray segments) {
-            int total = 0;
-            
-            for (int i = 0; i < segments.size(); i++) {
-                NoteBytes item = segments.get(i);
-                if (!(item instanceof NoteBytesObject)) continue;
-                
-                LayoutSegment segment = new LayoutSegment((NoteBytesObject) item);
-                
-                // Skip display:none
-                if (segment.getLayout().display == LayoutSegment.Display.NONE) {
-                    continue;
-                }
-                
-                if (segment.isContainer() && segment.hasChildren()) {
-                    total += getTotalContentLengthRecursive(segment.getChildren());
-                } else {
-                    total += segment.getContentLength();
-                }
+        public int getTotalContentLength() {
+            if (m_cacheDirty) {
+                rebuildCache();
             }
-            
-            return total;
+            return m_totalContentLength;
         }
         
         /**
@@ -657,39 +594,37 @@ public class CursorSelectionSystem {
             int endGlobal = normalized.getEnd().getGlobalOffset();
             
             StringBuilder result = new StringBuilder();
-            getTextInRangeRecursive(rootSegments, startGlobal, endGlobal, result, 0);
+            getTextInRangeRecursive(rootNode, startGlobal, endGlobal, result, 0);
             
             return result.toString();
         }
         
         private int getTextInRangeRecursive(
-            NoteBytesArray segments,
+            SegmentNode parent,
             int startGlobal,
             int endGlobal,
             StringBuilder result,
             int currentOffset
         ) {
-            for (int i = 0; i < segments.size(); i++) {
-                NoteBytes item = segments.get(i);
-                if (!(item instanceof NoteBytesObject)) continue;
-                
-                LayoutSegment segment = new LayoutSegment((NoteBytesObject) item);
+            for (int i = 0; i < parent.getChildCount(); i++) {
+                SegmentNode node = parent.getChild(i);
+                LayoutSegment segment = node.getSegment();
                 
                 // Skip display:none
                 if (segment.getLayout().display == LayoutSegment.Display.NONE) {
                     continue;
                 }
                 
-                if (segment.isContainer() && segment.hasChildren()) {
+                if (node.isContainer() && node.hasChildren()) {
                     currentOffset = getTextInRangeRecursive(
-                        segment.getChildren(),
+                        node,
                         startGlobal,
                         endGlobal,
                         result,
                         currentOffset
                     );
                 } else {
-                    int contentLength = segment.getContentLength();
+                    int contentLength = node.getContentLength();
                     int segmentEnd = currentOffset + contentLength;
                     
                     // Check if this segment overlaps selection
@@ -733,11 +668,12 @@ public class CursorSelectionSystem {
             
             // For now, we'll handle simple case: same segment
             if (start.getSegmentPath().equals(end.getSegmentPath())) {
-                LayoutSegment segment = getSegmentAt(start);
-                if (segment != null && segment.getType() == LayoutSegment.SegmentType.TEXT) {
-                    NoteIntegerArray text = segment.getTextContent();
+                SegmentNode node = getNodeAt(start);
+                if (node != null && node.getType() == LayoutSegment.SegmentType.TEXT) {
+                    NoteIntegerArray text = node.getSegment().getTextContent();
                     if (text != null) {
                         text.delete(start.getLocalOffset(), end.getLocalOffset());
+                        node.markDirty();
                         
                         // Update cache
                         int deletedLength = end.getLocalOffset() - start.getLocalOffset();
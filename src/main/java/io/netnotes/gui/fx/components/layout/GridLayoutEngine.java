@@ -1,13 +1,13 @@
 package io.netnotes.gui.fx.components.layout;
 
-import io.netnotes.engine.noteBytes.NoteBytes;
-import io.netnotes.engine.noteBytes.NoteBytesArray;
-import io.netnotes.engine.noteBytes.NoteBytesObject;
+import io.netnotes.engine.crypto.HashServices;
 
 import java.awt.Insets;
 import java.awt.Rectangle;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Grid Layout Engine - Handles row/column layout with flexible sizing
@@ -39,6 +39,13 @@ public class GridLayoutEngine {
         public int getEnd() {
             return start + size;
         }
+        
+        public ComputedTrack copy() {
+            ComputedTrack track = new ComputedTrack(start, size);
+            track.contentSize = contentSize;
+            track.isResizable = isResizable;
+            return track;
+        }
     }
     
     /**
@@ -50,11 +57,50 @@ public class GridLayoutEngine {
         public int totalWidth;
         public int totalHeight;
         public List<Rectangle> cellBounds; // Bounds for each child
+        public List<LayoutEngine.MeasuredSize> measuredChildren; // Inputs kept for incremental updates
+        public int childCount;
         
         public GridLayoutResult() {
             this.rows = new ArrayList<>();
             this.columns = new ArrayList<>();
             this.cellBounds = new ArrayList<>();
+            this.measuredChildren = new ArrayList<>();
+        }
+    }
+    
+    /**
+     * Memoized track solutions, keyed by
+     * (grid properties hash, children measured-size hash, available size, padding).
+     * The measured-size hash only spreads entries; a hit is used only if its
+     * stored measured sizes match the children exactly.
+     * Results handed out are shared: callers must copy cell bounds before mutating.
+     */
+    public static class TrackCache {
+        private final Map<String, GridLayoutResult> m_entries;
+        
+        public TrackCache(int maxEntries) {
+            m_entries = new LinkedHashMap<>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, GridLayoutResult> eldest) {
+                    return size() > maxEntries;
+                }
+            };
+        }
+        
+        GridLayoutResult get(String key) {
+            return m_entries.get(key);
+        }
+        
+        void put(String key, GridLayoutResult result) {
+            m_entries.put(key, result);
+        }
+        
+        public void clear() {
+            m_entries.clear();
+        }
+        
+        public int size() {
+            return m_entries.size();
         }
     }
     
@@ -62,29 +108,43 @@ public class GridLayoutEngine {
      * Compute grid layout
      */
     public static GridLayoutResult computeLayout(
-        LayoutSegment segment,
-        NoteBytesArray children,
+        SegmentNode node,
         int containerWidth,
         int containerHeight,
         GridLayoutProperties gridProps
+    ) {
+        return computeLayout(node, containerWidth, containerHeight, gridProps, null);
+    }
+    
+    /**
+     * Compute grid layout, reusing a memoized track solution when the grid
+     * properties, measured children and available size are unchanged
+     */
+    public static GridLayoutResult computeLayout(
+        SegmentNode node,
+        int containerWidth,
+        int containerHeight,
+        GridLayoutProperties gridProps,
+        TrackCache cache
     ) {
         GridLayoutResult result = new GridLayoutResult();
         
-        if (children == null || children.size() == 0) {
+        if (!node.hasChildren()) {
             return result;
         }
         
         // Deflate by padding
-        Insets padding = segment.getLayout().padding;
+        Insets padding = node.getLayout().padding;
         int availableWidth = containerWidth - padding.left - padding.right;
         int availableHeight = containerHeight - padding.top - padding.bottom;
         
-        // Determine grid dimensions
+        // Determine grid dimensions (auto-fill columns expand to the available width)
+        List<GridLayoutProperties.TrackSize> columnDefs = gridProps.resolveColumns(availableWidth);
         int numRows = gridProps.rows.isEmpty() ? 1 : gridProps.rows.size();
-        int numCols = gridProps.columns.isEmpty() ? 1 : gridProps.columns.size();
+        int numCols = columnDefs.isEmpty() ? 1 : columnDefs.size();
         
         // Auto-expand grid if needed based on child count
-        int childCount = children.size();
+        int childCount = node.getChildCount();
         if (gridProps.direction.isRow()) {
             // Row layout: expand columns as needed
             if (gridProps.overflow == GridLayoutProperties.Overflow.WRAP) {
@@ -101,9 +161,21 @@ public class GridLayoutEngine {
         
         // Measure children to determine content sizes
         List<LayoutEngine.MeasuredSize> measuredChildren = measureChildren(
-            children, availableWidth, availableHeight
+            node, availableWidth, availableHeight
         );
         
+        String cacheKey = null;
+        if (cache != null) {
+            cacheKey = cacheKey(gridProps, measuredChildren, availableWidth, availableHeight, padding);
+            GridLayoutResult cached = cache.get(cacheKey);
+            if (cached != null && sameMeasuredSizes(cached.measuredChildren, measuredChildren)) {
+                return cached;
+            }
+        }
+        
+        result.measuredChildren = measuredChildren;
+        result.childCount = childCount;
+        
         // Compute track sizes
         result.rows = computeTracks(
             gridProps.rows,
@@ -118,7 +190,7 @@ public class GridLayoutEngine {
         );
         
         result.columns = computeTracks(
-            gridProps.columns,
+            columnDefs,
             numCols,
             availableWidth,
             gridProps.gap.getColumnGap(),
@@ -136,12 +208,92 @@ public class GridLayoutEngine {
         // Position children in grid
         positionChildren(
             result,
-            children,
+            childCount,
             measuredChildren,
             gridProps,
             padding
         );
         
+        if (cache != null) {
+            cache.put(cacheKey, result);
+        }
+        
+        return result;
+    }
+    
+    private static String cacheKey(
+        GridLayoutProperties gridProps,
+        List<LayoutEngine.MeasuredSize> measured,
+        int availableWidth,
+        int availableHeight,
+        Insets padding
+    ) {
+        int measuredHash = 1;
+        for (LayoutEngine.MeasuredSize size : measured) {
+            measuredHash = 31 * measuredHash + size.width;
+            measuredHash = 31 * measuredHash + size.height;
+        }
+        
+        return HashServices.digestToUrlSafeString(gridProps.toNoteBytesObject().get(), 16)
+            + "_" + measured.size() + ":" + measuredHash
+            + "_" + availableWidth + "x" + availableHeight
+            + "_" + padding.left + "," + padding.top;
+    }
+    
+    private static boolean sameMeasuredSizes(
+        List<LayoutEngine.MeasuredSize> a,
+        List<LayoutEngine.MeasuredSize> b
+    ) {
+        if (a.size() != b.size()) return false;
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i).width != b.get(i).width || a.get(i).height != b.get(i).height) {
+                return false;
+            }
+        }
+        return true;
+    }
+    
+    /**
+     * Fast incremental update for an interactive track drag.
+     * Resizes one track, shifts the tracks after it and re-positions cells
+     * through positionChildren, without re-measuring or re-solving tracks.
+     * The base result is not modified.
+     */
+    public static GridLayoutResult resizeTrack(
+        GridLayoutResult base,
+        boolean isRow,
+        int trackIndex,
+        int newSize,
+        GridLayoutProperties gridProps,
+        Insets padding
+    ) {
+        GridLayoutResult result = new GridLayoutResult();
+        result.measuredChildren = base.measuredChildren;
+        result.childCount = base.childCount;
+        
+        for (ComputedTrack track : base.rows) result.rows.add(track.copy());
+        for (ComputedTrack track : base.columns) result.columns.add(track.copy());
+        
+        List<ComputedTrack> tracks = isRow ? result.rows : result.columns;
+        if (trackIndex >= 0 && trackIndex < tracks.size()) {
+            int delta = newSize - tracks.get(trackIndex).size;
+            tracks.get(trackIndex).size = newSize;
+            for (int i = trackIndex + 1; i < tracks.size(); i++) {
+                tracks.get(i).start += delta;
+            }
+        }
+        
+        result.totalWidth = calculateTotalSize(result.columns, gridProps.gap.getColumnGap());
+        result.totalHeight = calculateTotalSize(result.rows, gridProps.gap.getRowGap());
+        
+        positionChildren(
+            result,
+            result.childCount,
+            result.measuredChildren,
+            gridProps,
+            padding
+        );
+        
         return result;
     }
     
@@ -149,7 +301,7 @@ public class GridLayoutEngine {
      * Measure all children
      */
     private static List<LayoutEngine.MeasuredSize> measureChildren(
-        NoteBytesArray children,
+        SegmentNode node,
         int availableWidth,
         int availableHeight
     ) {
@@ -159,14 +311,8 @@ public class GridLayoutEngine {
             availableHeight
         );
         
-        for (int i = 0; i < children.size(); i++) {
-            NoteBytes item = children.get(i);
-            if (!(item instanceof NoteBytesObject)) {
-                measured.add(new LayoutEngine.MeasuredSize(0, 0));
-                continue;
-            }
-            
-            LayoutSegment child = new LayoutSegment((NoteBytesObject) item);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            LayoutSegment child = node.getChild(i).getSegment();
             LayoutEngine.MeasuredSize size = measureSegment(child, constraints);
             measured.add(size);
         }
@@ -272,7 +418,8 @@ public class GridLayoutEngine {
                 case AUTO:
                 case MIN_CONTENT:
                 case MAX_CONTENT:
-                    track.size = track.contentSize;
+                    // Content size, clamped by minmax() bounds if any
+                    track.size = def.resolve(availableSpace, remainingSpace, track.contentSize);
                     remainingSpace -= track.size;
                     break;
             }
@@ -329,7 +476,7 @@ public class GridLayoutEngine {
      */
     private static void positionChildren(
         GridLayoutResult result,
-        NoteBytesArray children,
+        int childCount,
         List<LayoutEngine.MeasuredSize> measured,
         GridLayoutProperties gridProps,
         Insets padding
@@ -337,10 +484,7 @@ public class GridLayoutEngine {
         int numCols = result.columns.size();
         int numRows = result.rows.size();
         
-        for (int i = 0; i < children.size(); i++) {
-            NoteBytes item = children.get(i);
-            if (!(item instanceof NoteBytesObject)) continue;
-            
+        for (int i = 0; i < childCount; i++) {
             // Determine cell position
             int row, col;
             if (gridProps.direction.isRow()) {
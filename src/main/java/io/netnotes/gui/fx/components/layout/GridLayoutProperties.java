@@ -338,6 +338,11 @@ public class GridLayoutProperties {
     public List<TrackSize> rows = new ArrayList<>();
     public List<TrackSize> columns = new ArrayList<>();
     
+    // repeat(auto-fill, ...) range within columns, repeated to fit the width at layout time
+    private static final int MAX_AUTO_FILL_TRACKS = 256;
+    public int autoFillIndex = -1;
+    public int autoFillLength = 0;
+    
     // Whether tracks (rows/columns) can be resized by user
     public boolean resizableRows = false;
     public boolean resizableColumns = false;
@@ -345,6 +350,63 @@ public class GridLayoutProperties {
     // Minimum size for resizable tracks
     public int minTrackSize = 20;
     
+    // ========== Auto-fill ==========
+    
+    /**
+     * Column definitions for a given content width.
+     * Without an auto-fill range this is `columns` itself; otherwise the range
+     * is repeated as many times as fit (at least once), sizing each repeated
+     * track by its fixed size or minimum. A range with no definite size
+     * (e.g. repeat(auto-fill, 1fr)) is used once.
+     */
+    public List<TrackSize> resolveColumns(int availableWidth) {
+        if (autoFillIndex < 0 || autoFillLength <= 0 || autoFillIndex + autoFillLength > columns.size()) {
+            return columns;
+        }
+        
+        int columnGap = gap.getColumnGap();
+        double repeatSize = 0;
+        for (int i = autoFillIndex; i < autoFillIndex + autoFillLength; i++) {
+            double size = definiteSize(columns.get(i));
+            if (size <= 0) {
+                return columns;
+            }
+            repeatSize += size;
+        }
+        
+        double fixedSize = 0;
+        int otherCount = columns.size() - autoFillLength;
+        for (int i = 0; i < columns.size(); i++) {
+            if (i < autoFillIndex || i >= autoFillIndex + autoFillLength) {
+                fixedSize += Math.max(0, definiteSize(columns.get(i)));
+            }
+        }
+        
+        // fixed + n * repeat + gaps between all (otherCount + n * length) tracks <= width
+        double space = availableWidth - fixedSize - columnGap * (otherCount - 1.0);
+        int repetitions = (int) Math.floor(space / (repeatSize + (double) columnGap * autoFillLength));
+        repetitions = Math.max(1, Math.min(repetitions, MAX_AUTO_FILL_TRACKS / autoFillLength));
+        
+        List<TrackSize> resolved = new ArrayList<>(otherCount + repetitions * autoFillLength);
+        resolved.addAll(columns.subList(0, autoFillIndex));
+        List<TrackSize> range = columns.subList(autoFillIndex, autoFillIndex + autoFillLength);
+        for (int i = 0; i < repetitions; i++) {
+            resolved.addAll(range);
+        }
+        resolved.addAll(columns.subList(autoFillIndex + autoFillLength, columns.size()));
+        return resolved;
+    }
+    
+    /**
+     * Fixed size or minimum of a track, 0 if it has none
+     */
+    private static double definiteSize(TrackSize track) {
+        if (track.getUnit() == TrackSize.Unit.PX) {
+            return track.getValue();
+        }
+        return track.getMinSize();
+    }
+    
     // ========== Serialization ==========
     
     public static GridLayoutProperties fromNoteBytesObject(NoteBytesObject nbo) {
@@ -413,6 +475,14 @@ public class GridLayoutProperties {
             props.resizableColumns = resizeColsNb.getAsBoolean();
         }
         
+        // Auto-fill range
+        NoteBytes autoFillIndexNb = nbo.get("autoFillIndex") != null ? nbo.get("autoFillIndex").getValue() : null;
+        NoteBytes autoFillLengthNb = nbo.get("autoFillLength") != null ? nbo.get("autoFillLength").getValue() : null;
+        if (autoFillIndexNb != null && autoFillLengthNb != null) {
+            props.autoFillIndex = autoFillIndexNb.getAsInt();
+            props.autoFillLength = autoFillLengthNb.getAsInt();
+        }
+        
         // Min track size
         NoteBytes minTrackNb = nbo.get("minTrackSize") != null ? nbo.get("minTrackSize").getValue() : null;
         if (minTrackNb != null) {
@@ -452,6 +522,12 @@ public class GridLayoutProperties {
             nbo.add("columns", colsArray);
         }
         
+        // Only written when set, so existing grids serialize (and hash) as before
+        if (autoFillIndex >= 0) {
+            nbo.add("autoFillIndex", new NoteInteger(autoFillIndex));
+            nbo.add("autoFillLength", new NoteInteger(autoFillLength));
+        }
+        
         return nbo;
     }
 }
\ No newline at end of file
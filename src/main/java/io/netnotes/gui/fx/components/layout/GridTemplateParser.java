@@ -0,0 +1,364 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import io.netnotes.gui.fx.utils.CacheRegistry;
+
+/**
+ * Parser for CSS-like grid track lists and gaps (data-grid-* attributes).
+ *
+ * Grammar (whitespace separated, case-insensitive):
+ * <pre>
+ * track-list := ( track | repeat( count , track-list ) )*
+ * count      := integer | auto-fill | auto-fit
+ * track      := 200px | 50% | 1fr | auto | min-content | max-content
+ *             | minmax( track , track )
+ * </pre>
+ *
+ * Single pass over the characters with no regex or split. Parsed templates
+ * are immutable and memoized by source string, so generated tables sharing
+ * a template parse it once. Malformed tracks become auto; parsing never
+ * throws.
+ *
+ * minmax(min, max) maps onto TrackSize constraints: the max track keeps its
+ * unit with min as a lower bound, and a fixed max becomes an auto track
+ * clamped to [min, max]. repeat(auto-fill, ...) is kept as a range that
+ * GridLayoutProperties.resolveColumns() expands once the width is known;
+ * auto-fit is treated as auto-fill.
+ */
+class GridTemplateParser {
+    static final int MAX_REPEAT = 1000;
+    private static final int MAX_CACHED = 512;
+    private static final long BYTES_PER_TRACK = 64; // rough estimate for CacheRegistry
+
+    private static final Map<String, Template> TEMPLATES = new ConcurrentHashMap<>();
+    private static final CacheRegistry.CacheGauges GAUGES = CacheRegistry.register("GridTemplateParser", 5,
+        GridTemplateParser::getEstimatedBytes,
+        () -> TEMPLATES.size(),
+        _ -> { long bytes = getEstimatedBytes(); TEMPLATES.clear(); return bytes; });
+
+    /**
+     * Parsed track list
+     */
+    static class Template {
+        final List<GridLayoutProperties.TrackSize> tracks;
+        final int autoFillIndex;  // first track of repeat(auto-fill, ...), or -1
+        final int autoFillLength; // tracks in one auto-fill repetition
+
+        Template(List<GridLayoutProperties.TrackSize> tracks, int autoFillIndex, int autoFillLength) {
+            this.tracks = Collections.unmodifiableList(tracks);
+            this.autoFillIndex = autoFillIndex;
+            this.autoFillLength = autoFillLength;
+        }
+    }
+
+    // ========== Public API ==========
+
+    /**
+     * Parse a track list (memoized)
+     */
+    static Template parse(String input) {
+        if (input == null) {
+            return new Template(new ArrayList<>(), -1, 0);
+        }
+
+        Template template = TEMPLATES.get(input);
+        if (template != null) {
+            GAUGES.recordHit();
+            return template;
+        }
+        GAUGES.recordMiss();
+
+        template = new GridTemplateParser(input).parseTemplate();
+        if (TEMPLATES.size() >= MAX_CACHED) {
+            GAUGES.recordEvictions(TEMPLATES.size());
+            TEMPLATES.clear();
+        }
+        TEMPLATES.put(input, template);
+        return template;
+    }
+
+    /**
+     * Set grid columns from a template, including any auto-fill range
+     */
+    static void applyColumns(String input, GridLayoutProperties gridProps) {
+        Template template = parse(input);
+        gridProps.columns = new ArrayList<>(template.tracks);
+        gridProps.autoFillIndex = template.autoFillIndex;
+        gridProps.autoFillLength = template.autoFillLength;
+    }
+
+    /**
+     * Parse a row track list; an auto-fill range counts as one repetition
+     */
+    static List<GridLayoutProperties.TrackSize> parseTracks(String input) {
+        return new ArrayList<>(parse(input).tracks);
+    }
+
+    /**
+     * Parse a gap: "10" or "10px 20px" (row, column)
+     * @return the gap, or null if malformed
+     */
+    static GridLayoutProperties.Gap parseGap(String input) {
+        if (input == null) return null;
+
+        GridTemplateParser parser = new GridTemplateParser(input);
+        int rowGap = parser.readGapLength();
+        if (rowGap < 0) return null;
+
+        parser.skipWhitespace();
+        if (parser.atEnd()) {
+            return new GridLayoutProperties.Gap(rowGap);
+        }
+
+        int columnGap = parser.readGapLength();
+        parser.skipWhitespace();
+        if (columnGap < 0 || !parser.atEnd()) return null;
+
+        return new GridLayoutProperties.Gap(rowGap, columnGap);
+    }
+
+    static void clearCache() {
+        GAUGES.recordEvictions(TEMPLATES.size());
+        TEMPLATES.clear();
+    }
+
+    private static long getEstimatedBytes() {
+        long tracks = 0;
+        for (Template template : TEMPLATES.values()) {
+            tracks += template.tracks.size();
+        }
+        return tracks * BYTES_PER_TRACK;
+    }
+
+    // ========== Lexer / Parser ==========
+
+    private final String m_input;
+    private int m_pos = 0;
+
+    private GridTemplateParser(String input) {
+        m_input = input;
+    }
+
+    private Template parseTemplate() {
+        List<GridLayoutProperties.TrackSize> tracks = new ArrayList<>();
+        int[] autoFill = { -1, 0 };
+        parseTrackList(tracks, autoFill, true);
+        return new Template(tracks, autoFill[0], autoFill[1]);
+    }
+
+    /**
+     * Parse tracks until end of input or ')'
+     * @param autoFill [index, length] of the auto-fill range, filled in on first use
+     */
+    private void parseTrackList(List<GridLayoutProperties.TrackSize> out, int[] autoFill, boolean topLevel) {
+        while (true) {
+            skipSeparators();
+            if (atEnd()) return;
+            if (peek() == ')') {
+                if (!topLevel) return;
+                m_pos++; // stray ')'
+                continue;
+            }
+
+            int start = m_pos;
+            String ident = readIdent();
+
+            if (ident.equals("repeat") && consume('(')) {
+                parseRepeat(out, autoFill, topLevel);
+            } else {
+                m_pos = start;
+                out.add(parseTrack());
+            }
+        }
+    }
+
+    private void parseRepeat(List<GridLayoutProperties.TrackSize> out, int[] autoFill, boolean topLevel) {
+        skipWhitespace();
+
+        int count = 1;
+        boolean isAutoFill = false;
+        if (Character.isDigit(peek())) {
+            count = (int) Math.min(MAX_REPEAT, readNumber());
+        } else {
+            String mode = readIdent();
+            isAutoFill = (mode.equals("auto-fill") || mode.equals("auto-fit")) && topLevel && autoFill[0] < 0;
+        }
+
+        skipWhitespace();
+        consume(',');
+
+        List<GridLayoutProperties.TrackSize> inner = new ArrayList<>();
+        parseTrackList(inner, autoFill, false);
+        consume(')');
+
+        if (isAutoFill && !inner.isEmpty()) {
+            autoFill[0] = out.size();
+            autoFill[1] = inner.size();
+            out.addAll(inner);
+            return;
+        }
+        for (int i = 0; i < count; i++) {
+            out.addAll(inner);
+        }
+    }
+
+    /**
+     * Parse one track; malformed input yields auto and is skipped
+     */
+    private GridLayoutProperties.TrackSize parseTrack() {
+        char c = peek();
+
+        if (Character.isDigit(c) || c == '.') {
+            double value = readNumber();
+            String unit = readUnit();
+            switch (unit) {
+                case "px": return GridLayoutProperties.TrackSize.px(value);
+                case "%": return GridLayoutProperties.TrackSize.percent(value);
+                case "fr": return GridLayoutProperties.TrackSize.fr(value);
+                default: return GridLayoutProperties.TrackSize.auto();
+            }
+        }
+
+        String ident = readIdent();
+        switch (ident) {
+            case "auto":
+                return GridLayoutProperties.TrackSize.auto();
+            case "min-content":
+                return GridLayoutProperties.TrackSize.minContent();
+            case "max-content":
+                return GridLayoutProperties.TrackSize.maxContent();
+            case "minmax":
+                if (consume('(')) {
+                    return parseMinMax();
+                }
+                return GridLayoutProperties.TrackSize.auto();
+            default:
+                if (ident.isEmpty()) {
+                    skipToken();
+                } else if (consume('(')) {
+                    skipToClose();
+                }
+                return GridLayoutProperties.TrackSize.auto();
+        }
+    }
+
+    private GridLayoutProperties.TrackSize parseMinMax() {
+        skipWhitespace();
+        GridLayoutProperties.TrackSize min = parseTrack();
+        skipWhitespace();
+        consume(',');
+        skipWhitespace();
+        GridLayoutProperties.TrackSize max = parseTrack();
+        skipToClose();
+
+        double minPx = min.getUnit() == GridLayoutProperties.TrackSize.Unit.PX ? min.getValue() : 0;
+        if (max.getUnit() == GridLayoutProperties.TrackSize.Unit.PX) {
+            return GridLayoutProperties.TrackSize.auto().withMin(minPx).withMax(max.getValue());
+        }
+        return max.withMin(minPx);
+    }
+
+    /**
+     * Read a non-negative length with optional px unit
+     * @return the length, or -1 if malformed
+     */
+    private int readGapLength() {
+        skipWhitespace();
+        if (atEnd() || !Character.isDigit(peek())) return -1;
+
+        double value = readNumber();
+        String unit = readUnit();
+        return unit.isEmpty() || unit.equals("px") ? (int) value : -1;
+    }
+
+    private double readNumber() {
+        double value = 0;
+        while (!atEnd() && Character.isDigit(peek())) {
+            value = value * 10 + (m_input.charAt(m_pos++) - '0');
+        }
+        if (!atEnd() && peek() == '.') {
+            m_pos++;
+            double scale = 0.1;
+            while (!atEnd() && Character.isDigit(peek())) {
+                value += (m_input.charAt(m_pos++) - '0') * scale;
+                scale /= 10;
+            }
+        }
+        return value;
+    }
+
+    private String readUnit() {
+        if (!atEnd() && peek() == '%') {
+            m_pos++;
+            return "%";
+        }
+        return readIdent();
+    }
+
+    private String readIdent() {
+        int start = m_pos;
+        while (!atEnd() && (Character.isLetter(peek()) || peek() == '-')) {
+            m_pos++;
+        }
+        return m_input.substring(start, m_pos).toLowerCase();
+    }
+
+    private void skipToken() {
+        while (!atEnd() && !isSeparator(peek()) && peek() != '(' && peek() != ')') {
+            m_pos++;
+        }
+        if (!atEnd() && peek() == '(') {
+            m_pos++;
+            skipToClose();
+        }
+    }
+
+    /**
+     * Skip past the ')' closing the current function, allowing nesting
+     */
+    private void skipToClose() {
+        int depth = 1;
+        while (!atEnd() && depth > 0) {
+            char c = m_input.charAt(m_pos++);
+            if (c == '(') depth++;
+            else if (c == ')') depth--;
+        }
+    }
+
+    private boolean consume(char expected) {
+        if (!atEnd() && peek() == expected) {
+            m_pos++;
+            return true;
+        }
+        return false;
+    }
+
+    private void skipWhitespace() {
+        while (!atEnd() && Character.isWhitespace(peek())) {
+            m_pos++;
+        }
+    }
+
+    private void skipSeparators() {
+        while (!atEnd() && isSeparator(peek())) {
+            m_pos++;
+        }
+    }
+
+    private static boolean isSeparator(char c) {
+        return Character.isWhitespace(c) || c == ',';
+    }
+
+    private char peek() {
+        return atEnd() ? '\0' : m_input.charAt(m_pos);
+    }
+
+    private boolean atEnd() {
+        return m_pos >= m_input.length();
+    }
+}
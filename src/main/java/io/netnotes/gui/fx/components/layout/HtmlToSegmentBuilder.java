@@ -1,18 +1,16 @@
 package io.netnotes.gui.fx.components.layout;
 
 import io.netnotes.engine.noteBytes.NoteBytesArray;
-import io.netnotes.engine.utils.streams.UrlStreamHelpers;
-import io.netnotes.gui.fx.noteBytes.NoteBytesImage;
-import io.netnotes.gui.fx.utils.TaskUtils;
+import io.netnotes.engine.noteBytes.NoteBytesObject;
 
 import java.awt.*;
+import java.io.IOException;
+import java.io.Reader;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.concurrent.CompletableFuture;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.function.Consumer;
 
 /**
  * Converts HTML markup to LayoutSegment structures.
@@ -21,9 +19,21 @@ import java.util.regex.Pattern;
  */
 public class HtmlToSegmentBuilder {
     
-    // Simple HTML tag regex (doesn't handle all edge cases, but works for basic HTML)
-    private static final Pattern TAG_PATTERN = Pattern.compile("<(/?)([a-zA-Z][a-zA-Z0-9]*)(.*?)(/?)>", Pattern.DOTALL);
-    private static final Pattern ATTR_PATTERN = Pattern.compile("([a-zA-Z][a-zA-Z0-9-]*)\\s*=\\s*[\"']([^\"']*)[\"']");
+    // Canonical instances of common tag names, so known tags cost no allocation
+    private static final String[] KNOWN_TAGS = {
+        "p", "div", "span", "a", "b", "i", "strong", "em", "br", "img",
+        "h1", "h2", "h3", "h4", "h5", "h6",
+        "table", "thead", "tbody", "tr", "th", "td",
+        "ul", "ol", "li", "hr", "pre", "code", "blockquote", "html", "body"
+    };
+    
+    // Attributes read by the converters; others are skipped without allocating
+    private static final String[] KNOWN_ATTRIBUTES = {
+        "src", "alt", "width", "height", "href", "title", "border", "colspan", "rowspan",
+        "data-grid-columns", "data-grid-rows", "data-grid-gap",
+        "data-resizable-columns", "data-resizable-rows",
+        "data-grid-column", "data-grid-row", "data-grid-column-span", "data-grid-row-span"
+    };
     
     /**
      * Parse HTML string into segments
@@ -35,99 +45,186 @@ public class HtmlToSegmentBuilder {
             return segments;
         }
         
-        // Parse HTML into a simple DOM tree
-        List<HtmlNode> nodes = parseHtml(html);
-        
-        // Convert nodes to segments
-        for (HtmlNode node : nodes) {
-            LayoutSegment segment = convertNode(node);
-            if (segment != null) {
-                segments.add(segment.getData());
-            }
+        TreeBuilder builder = new TreeBuilder(segments::add);
+        try {
+            new HtmlTokenizer(builder).tokenize(html);
+        } catch (IOException e) {
+            // Not thrown for in-memory input
+            System.err.println("HTML parse failed: " + e.getMessage());
         }
+        builder.finish();
         
         return segments;
     }
     
     /**
-     * Simple HTML parser that builds a tree of nodes
+     * Parse HTML from a stream into segments, collected into one array.
+     * The reader is not closed.
+     * @see #buildFromHtml(Reader, Consumer)
      */
-    private static List<HtmlNode> parseHtml(String html) {
-        List<HtmlNode> roots = new ArrayList<>();
-        List<HtmlNode> stack = new ArrayList<>();
-        
-        Matcher matcher = TAG_PATTERN.matcher(html);
-        int lastEnd = 0;
-        
-        while (matcher.find()) {
-            // Add text before tag
-            if (matcher.start() > lastEnd) {
-                String text = html.substring(lastEnd, matcher.start());
-                if (!text.trim().isEmpty()) {
-                    HtmlNode textNode = new HtmlNode("text");
-                    textNode.text = unescapeHtml(text);
-                    addNode(textNode, stack, roots);
-                }
+    public static NoteBytesArray buildFromHtml(Reader reader) throws IOException {
+        NoteBytesArray segments = new NoteBytesArray();
+        buildFromHtml(reader, segments::add);
+        return segments;
+    }
+    
+    /**
+     * Parse HTML from a stream, handing each top-level segment to `sink` as
+     * soon as its element closes. html and body wrappers are not segments:
+     * their children are top level. Memory is bounded by the largest
+     * top-level element, not the document. The reader is not closed.
+     */
+    public static void buildFromHtml(Reader reader, Consumer<NoteBytesObject> sink) throws IOException {
+        if (reader == null) {
+            return;
+        }
+        
+        TreeBuilder builder = new TreeBuilder(sink);
+        new HtmlTokenizer(builder).tokenize(reader);
+        builder.finish();
+    }
+    
+    /**
+     * Builds HtmlNode trees from tokenizer events and converts each
+     * completed top-level node straight into a segment
+     */
+    private static class TreeBuilder implements HtmlTokenizer.Handler {
+        private final Consumer<NoteBytesObject> sink;
+        private final List<HtmlNode> stack = new ArrayList<>();
+        private final StringBuilder text = new StringBuilder();
+        private HtmlNode pending = null;
+        
+        TreeBuilder(Consumer<NoteBytesObject> sink) {
+            this.sink = sink;
+        }
+        
+        @Override
+        public void startTag(CharSequence name) {
+            flushText();
+            pending = new HtmlNode(tagName(name));
+        }
+        
+        @Override
+        public void attribute(CharSequence name, CharSequence value) {
+            if (pending == null) return;
+            
+            String known = attributeName(name);
+            if (known != null) {
+                pending.attributes.put(known, value.toString());
             }
+        }
+        
+        @Override
+        public void startTagEnd(CharSequence name, boolean selfClosing) {
+            HtmlNode node = pending;
+            pending = null;
+            if (node == null) return;
             
-            String isClosing = matcher.group(1);
-            String tagName = matcher.group(2).toLowerCase();
-            String attributes = matcher.group(3);
-            String isSelfClosing = matcher.group(4);
+            addNode(node, selfClosing || isVoidTag(node.tag));
+        }
+        
+        @Override
+        public void endTag(CharSequence name) {
+            flushText();
             
-            if (!isClosing.isEmpty()) {
-                // Closing tag
-                if (!stack.isEmpty() && stack.get(stack.size() - 1).tag.equals(tagName)) {
-                    stack.remove(stack.size() - 1);
+            // Close the nearest matching element, implicitly closing any
+            // unclosed elements inside it; stray end tags are ignored
+            for (int i = stack.size() - 1; i >= 0; i--) {
+                if (HtmlTokenizer.contentEquals(name, stack.get(i).tag)) {
+                    HtmlNode closed = stack.get(i);
+                    while (stack.size() > i) {
+                        stack.remove(stack.size() - 1);
+                    }
+                    if (stack.isEmpty()) {
+                        emit(closed);
+                    }
+                    return;
                 }
-            } else {
-                // Opening tag
-                HtmlNode node = new HtmlNode(tagName);
-                parseAttributes(attributes, node);
-                
-                addNode(node, stack, roots);
-                
-                // Self-closing or void tags
-                if (!isSelfClosing.isEmpty() || isVoidTag(tagName)) {
-                    // Don't push to stack
+            }
+        }
+        
+        @Override
+        public void text(CharSequence chunk) {
+            text.append(chunk);
+        }
+        
+        /**
+         * Emit anything still open at end of input
+         */
+        void finish() {
+            flushText();
+            if (!stack.isEmpty()) {
+                emit(stack.get(0));
+                stack.clear();
+            }
+        }
+        
+        private void flushText() {
+            if (text.length() == 0) return;
+            
+            if (!isBlank(text)) {
+                HtmlNode textNode = new HtmlNode("text");
+                textNode.text = text.toString();
+                addNode(textNode, true);
+            }
+            text.setLength(0);
+        }
+        
+        private void addNode(HtmlNode node, boolean leaf) {
+            if (stack.isEmpty() && isDocumentWrapper(node.tag)) {
+                return; // Children are top level; the end tag finds nothing to close
+            }
+            if (stack.isEmpty()) {
+                if (leaf) {
+                    emit(node);
                 } else {
                     stack.add(node);
                 }
+            } else {
+                stack.get(stack.size() - 1).children.add(node);
+                if (!leaf) {
+                    stack.add(node);
+                }
             }
-            
-            lastEnd = matcher.end();
         }
         
-        // Add remaining text
-        if (lastEnd < html.length()) {
-            String text = html.substring(lastEnd);
-            if (!text.trim().isEmpty()) {
-                HtmlNode textNode = new HtmlNode("text");
-                textNode.text = unescapeHtml(text);
-                addNode(textNode, stack, roots);
+        private void emit(HtmlNode root) {
+            LayoutSegment segment = convertNode(root);
+            if (segment != null) {
+                sink.accept(segment.getData());
             }
         }
-        
-        return roots;
     }
     
-    private static void addNode(HtmlNode node, List<HtmlNode> stack, List<HtmlNode> roots) {
-        if (stack.isEmpty()) {
-            roots.add(node);
-        } else {
-            stack.get(stack.size() - 1).children.add(node);
+    private static String tagName(CharSequence name) {
+        for (String tag : KNOWN_TAGS) {
+            if (HtmlTokenizer.contentEquals(name, tag)) {
+                return tag;
+            }
         }
+        return name.toString();
     }
     
-    private static void parseAttributes(String attrString, HtmlNode node) {
-        if (attrString == null || attrString.trim().isEmpty()) return;
-        
-        Matcher matcher = ATTR_PATTERN.matcher(attrString);
-        while (matcher.find()) {
-            String name = matcher.group(1).toLowerCase();
-            String value = matcher.group(2);
-            node.attributes.put(name, value);
+    private static String attributeName(CharSequence name) {
+        for (String attribute : KNOWN_ATTRIBUTES) {
+            if (HtmlTokenizer.contentEquals(name, attribute)) {
+                return attribute;
+            }
         }
+        return null;
+    }
+    
+    private static boolean isDocumentWrapper(String tag) {
+        return tag.equals("html") || tag.equals("body");
+    }
+    
+    private static boolean isBlank(CharSequence text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) > ' ') {
+                return false;
+            }
+        }
+        return true;
     }
     
     private static boolean isVoidTag(String tag) {
@@ -135,15 +232,6 @@ public class HtmlToSegmentBuilder {
                tag.equals("input") || tag.equals("meta") || tag.equals("link");
     }
     
-    private static String unescapeHtml(String text) {
-        return text.replace("&lt;", "<")
-                   .replace("&gt;", ">")
-                   .replace("&amp;", "&")
-                   .replace("&quot;", "\"")
-                   .replace("&apos;", "'")
-                   .replace("&nbsp;", " ");
-    }
-    
     /**
      * Convert HTML node to LayoutSegment
      */
@@ -256,24 +344,8 @@ public class HtmlToSegmentBuilder {
         String widthStr = node.attributes.get("width");
         String heightStr = node.attributes.get("height");
         
-        LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.IMAGE);
-        segment.getLayout().display = LayoutSegment.Display.BLOCK;
-        segment.getLayout().margin = new Insets(0, 0, 10, 0);
-        
-        // Try to load image from URL or base64
-        if (src != null) {
-            try {
-                if (src.startsWith("data:")) {
-                    // Base64 data URL
-                    loadBase64Image(segment, src);
-                } else {
-                    // External URL
-                    loadExternalImage(segment, src);
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to load image: " + src + " - " + e.getMessage());
-            }
-        }
+        // Placeholder; LayoutCanvas fetches the image when the segment is added
+        LayoutSegment segment = ImageFetchPipeline.placeholder(src);
         
         // Set dimensions if provided
         if (widthStr != null) {
@@ -297,40 +369,6 @@ public class HtmlToSegmentBuilder {
         return segment;
     }
     
-    private static void loadBase64Image(LayoutSegment segment, String dataUrl) {
-        // Parse data URL: data:image/png;base64,iVBORw0KG...
-        CompletableFuture.runAsync(()->{
-            String[] parts = dataUrl.split(",", 2);
-            if (parts.length == 2) {
-                String base64 = parts[1];
-                byte[] imageData = java.util.Base64.getDecoder().decode(base64);
-                NoteBytesImage img = new NoteBytesImage(imageData);
-                TaskUtils.noDelay(_->{
-                    segment.setImageContent(img);
-                    segment.markDirty();
-                });
-            }
-        });
-    }
-    
-    private static void loadExternalImage(LayoutSegment segment, String urlString) {
-        // Load image asynchronously to avoid blocking
-        UrlStreamHelpers.getUrlBytes(urlString, TaskUtils.getVirtualExecutor())
-            .thenAccept(imageData -> {
-                if (imageData != null && imageData.length > 0) {
-                    NoteBytesImage img = new NoteBytesImage(imageData);
-                    TaskUtils.noDelay(_->{
-                        segment.setImageContent(img);
-                        segment.markDirty();
-                    });
-                }
-            })
-            .exceptionally(e -> {
-                System.err.println("Failed to load external image: " + urlString + " - " + e.getMessage());
-                return null;
-            });
-    }
-    
     private static LayoutSegment createLineBreak() {
         LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.TEXT);
         segment.setTextContent("\n");
@@ -356,34 +394,21 @@ public class HtmlToSegmentBuilder {
             GridLayoutProperties gridProps = new GridLayoutProperties();
             gridProps.direction = GridLayoutProperties.Direction.ROW;
             
-            // Parse columns (e.g., "1fr 2fr 1fr" or "200px auto 1fr")
+            // Parse columns (e.g., "1fr 2fr 1fr", "200px auto 1fr" or "repeat(auto-fill, minmax(120px, 1fr))")
             if (gridCols != null) {
-                gridProps.columns = parseTrackSizes(gridCols);
+                GridTemplateParser.applyColumns(gridCols, gridProps);
             }
             
             // Parse rows
             if (gridRows != null) {
-                gridProps.rows = parseTrackSizes(gridRows);
+                gridProps.rows = GridTemplateParser.parseTracks(gridRows);
             }
             
             // Parse gap (e.g., "10" or "10 20" for row/column gap)
             if (gridGap != null) {
-                String[] gaps = gridGap.trim().split("\\s+");
-                if (gaps.length == 1) {
-                    try {
-                        int gap = Integer.parseInt(gaps[0]);
-                        gridProps.gap = new GridLayoutProperties.Gap(gap);
-                    } catch (NumberFormatException e) {
-                        // Ignore
-                    }
-                } else if (gaps.length == 2) {
-                    try {
-                        int rowGap = Integer.parseInt(gaps[0]);
-                        int colGap = Integer.parseInt(gaps[1]);
-                        gridProps.gap = new GridLayoutProperties.Gap(rowGap, colGap);
-                    } catch (NumberFormatException e) {
-                        // Ignore
-                    }
+                GridLayoutProperties.Gap gap = GridTemplateParser.parseGap(gridGap);
+                if (gap != null) {
+                    gridProps.gap = gap;
                 }
             }
             
@@ -679,94 +704,6 @@ public class HtmlToSegmentBuilder {
         return result;
     }
     
-    /**
-     * Parse track sizes from CSS-like string
-     * Examples: "1fr 2fr 1fr", "200px auto 1fr", "repeat(3, 1fr)"
-     */
-    private static List<GridLayoutProperties.TrackSize> parseTrackSizes(String input) {
-        List<GridLayoutProperties.TrackSize> tracks = new ArrayList<>();
-        
-        if (input == null || input.trim().isEmpty()) {
-            return tracks;
-        }
-        
-        // Handle repeat() function
-        Pattern repeatPattern = Pattern.compile("repeat\\((\\d+),\\s*([^)]+)\\)");
-        Matcher repeatMatcher = repeatPattern.matcher(input);
-        
-        if (repeatMatcher.find()) {
-            int count = Integer.parseInt(repeatMatcher.group(1));
-            String trackDef = repeatMatcher.group(2).trim();
-            
-            for (int i = 0; i < count; i++) {
-                tracks.add(parseTrackSize(trackDef));
-            }
-            
-            return tracks;
-        }
-        
-        // Parse individual track sizes
-        String[] parts = input.trim().split("\\s+");
-        for (String part : parts) {
-            tracks.add(parseTrackSize(part));
-        }
-        
-        return tracks;
-    }
-    
-    /**
-     * Parse a single track size
-     * Examples: "200px", "50%", "1fr", "auto", "min-content", "max-content"
-     */
-    private static GridLayoutProperties.TrackSize parseTrackSize(String input) {
-        if (input == null || input.trim().isEmpty()) {
-            return GridLayoutProperties.TrackSize.auto();
-        }
-        
-        input = input.trim().toLowerCase();
-        
-        if (input.equals("auto")) {
-            return GridLayoutProperties.TrackSize.auto();
-        }
-        
-        if (input.equals("min-content")) {
-            return GridLayoutProperties.TrackSize.minContent();
-        }
-        
-        if (input.equals("max-content")) {
-            return GridLayoutProperties.TrackSize.maxContent();
-        }
-        
-        if (input.endsWith("px")) {
-            try {
-                double value = Double.parseDouble(input.substring(0, input.length() - 2));
-                return GridLayoutProperties.TrackSize.px(value);
-            } catch (NumberFormatException e) {
-                return GridLayoutProperties.TrackSize.auto();
-            }
-        }
-        
-        if (input.endsWith("%")) {
-            try {
-                double value = Double.parseDouble(input.substring(0, input.length() - 1));
-                return GridLayoutProperties.TrackSize.percent(value);
-            } catch (NumberFormatException e) {
-                return GridLayoutProperties.TrackSize.auto();
-            }
-        }
-        
-        if (input.endsWith("fr")) {
-            try {
-                double value = Double.parseDouble(input.substring(0, input.length() - 2));
-                return GridLayoutProperties.TrackSize.fr(value);
-            } catch (NumberFormatException e) {
-                return GridLayoutProperties.TrackSize.auto();
-            }
-        }
-        
-        return GridLayoutProperties.TrackSize.auto();
-    }
-    
     /**
      * Simple HTML node representation
      */
@@ -0,0 +1,532 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Single-pass HTML tokenizer (hand-written state machine).
+ *
+ * Reads from a char[], CharSequence or Reader and reports tokens to a
+ * Handler. Tag names, attribute names/values and text are delivered as
+ * CharSequence views of reused buffers: they are only valid during the
+ * callback and nothing is allocated per token. Reader input is consumed
+ * through a fixed buffer, and text longer than MAX_TEXT_CHUNK is delivered
+ * in several consecutive text() calls, so memory stays bounded for any
+ * input size.
+ *
+ * Handles:
+ * - start/end/self-closing tags with quoted, unquoted and bare attributes
+ *   (names lower-cased)
+ * - named (common subset) and numeric character references in text and
+ *   attribute values
+ * - comments, DOCTYPE and processing instructions (skipped)
+ * - CDATA sections (reported as raw text)
+ * - script/style bodies (skipped up to the matching end tag)
+ *
+ * Malformed markup never throws; a '<' that does not start a tag is text.
+ */
+class HtmlTokenizer {
+
+    /**
+     * Receives tokens in document order
+     */
+    interface Handler {
+        void startTag(CharSequence name);
+        void attribute(CharSequence name, CharSequence value);
+        /** End of the start tag begun by startTag(name) */
+        void startTagEnd(CharSequence name, boolean selfClosing);
+        void endTag(CharSequence name);
+        void text(CharSequence text);
+    }
+
+    static final int MAX_TEXT_CHUNK = 8192;
+    private static final int READ_BUFFER_SIZE = 8192;
+    private static final int MAX_ENTITY_LENGTH = 10;
+    private static final int EOF = -1;
+
+    // Named references (common subset), matched without allocating; codes by index
+    private static final String[] ENTITY_NAMES = {
+        "lt", "gt", "amp", "quot", "apos", "nbsp",
+        "copy", "reg", "trade", "hellip", "mdash", "ndash",
+        "lsquo", "rsquo", "ldquo", "rdquo", "bull", "middot",
+        "deg", "times", "divide", "euro", "pound", "yen",
+        "cent", "sect", "para", "laquo", "raquo", "larr", "rarr"
+    };
+    private static final int[] ENTITY_CODES = {
+        '<', '>', '&', '"', '\'', 0xA0,
+        0xA9, 0xAE, 0x2122, 0x2026, 0x2014, 0x2013,
+        0x2018, 0x2019, 0x201C, 0x201D, 0x2022, 0xB7,
+        0xB0, 0xD7, 0xF7, 0x20AC, 0xA3, 0xA5,
+        0xA2, 0xA7, 0xB6, 0xAB, 0xBB, 0x2190, 0x2192
+    };
+
+    private final Handler m_handler;
+
+    // Input: exactly one of sequence / reader; char[] input uses the buffer directly
+    private CharSequence m_sequence;
+    private Reader m_reader;
+    private char[] m_buffer;
+    private int m_pos;
+    private int m_limit;
+    private int m_pushback = EOF;
+
+    // Reused token buffers
+    private final StringBuilder m_text = new StringBuilder();
+    private final StringBuilder m_tagName = new StringBuilder();
+    private final StringBuilder m_attrName = new StringBuilder();
+    private final StringBuilder m_attrValue = new StringBuilder();
+    private final StringBuilder m_entity = new StringBuilder();
+    private final StringBuilder m_scratch = new StringBuilder();
+
+    HtmlTokenizer(Handler handler) {
+        m_handler = handler;
+    }
+
+    // ========== Entry Points ==========
+
+    void tokenize(char[] input, int offset, int length) throws IOException {
+        m_sequence = null;
+        m_reader = null;
+        m_buffer = input;
+        m_pos = offset;
+        m_limit = offset + length;
+        run();
+    }
+
+    void tokenize(CharSequence input) throws IOException {
+        m_sequence = input;
+        m_reader = null;
+        m_buffer = null;
+        m_pos = 0;
+        m_limit = input.length();
+        run();
+    }
+
+    /**
+     * Tokenize a stream; the reader is not closed
+     */
+    void tokenize(Reader reader) throws IOException {
+        m_sequence = null;
+        m_reader = reader;
+        m_buffer = new char[READ_BUFFER_SIZE];
+        m_pos = 0;
+        m_limit = 0;
+        run();
+    }
+
+    // ========== Input ==========
+
+    private int read() throws IOException {
+        if (m_pushback != EOF) {
+            int c = m_pushback;
+            m_pushback = EOF;
+            return c;
+        }
+        if (m_pos < m_limit) {
+            return m_sequence != null ? m_sequence.charAt(m_pos++) : m_buffer[m_pos++];
+        }
+        if (m_reader == null) {
+            return EOF;
+        }
+        int n = m_reader.read(m_buffer, 0, m_buffer.length);
+        if (n <= 0) {
+            return EOF;
+        }
+        m_pos = 0;
+        m_limit = n;
+        return m_buffer[m_pos++];
+    }
+
+    private void unread(int c) {
+        m_pushback = c;
+    }
+
+    // ========== State Machine ==========
+
+    private void run() throws IOException {
+        m_text.setLength(0);
+        m_pushback = EOF;
+
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '<') {
+                readMarkup();
+            } else if (c == '&') {
+                readCharacterReference(m_text, false);
+            } else {
+                appendText(c);
+            }
+        }
+        flushText();
+    }
+
+    private void appendText(int c) {
+        m_text.append((char) c);
+        if (m_text.length() >= MAX_TEXT_CHUNK && !Character.isHighSurrogate((char) c)) {
+            flushText();
+        }
+    }
+
+    private void flushText() {
+        if (m_text.length() > 0) {
+            m_handler.text(m_text);
+            m_text.setLength(0);
+        }
+    }
+
+    /**
+     * After '<': tag, end tag, comment/CDATA/doctype, processing instruction or literal text
+     */
+    private void readMarkup() throws IOException {
+        int c = read();
+        if (isAsciiLetter(c)) {
+            flushText();
+            readStartTag(c);
+        } else if (c == '/') {
+            int next = read();
+            if (isAsciiLetter(next)) {
+                flushText();
+                readEndTag(next);
+            } else {
+                appendText('<');
+                appendText('/');
+                if (next != EOF) unread(next);
+            }
+        } else if (c == '!') {
+            flushText();
+            readDeclaration();
+        } else if (c == '?') {
+            flushText();
+            skipUntil('>');
+        } else {
+            appendText('<');
+            if (c != EOF) unread(c);
+        }
+    }
+
+    private void readStartTag(int first) throws IOException {
+        readName(m_tagName, first);
+        m_handler.startTag(m_tagName);
+
+        boolean selfClosing = false;
+        int c = read();
+        while (c != EOF && c != '>') {
+            if (c == '/') {
+                c = read();
+                if (c == '>') {
+                    selfClosing = true;
+                    break;
+                }
+                continue;
+            }
+            if (isWhitespace(c)) {
+                c = read();
+                continue;
+            }
+            c = readAttribute(c);
+        }
+
+        m_handler.startTagEnd(m_tagName, selfClosing);
+
+        if (!selfClosing && isRawTextElement(m_tagName)) {
+            skipRawText();
+        }
+    }
+
+    /**
+     * Read one attribute starting at c
+     * @return the first character after it
+     */
+    private int readAttribute(int c) throws IOException {
+        m_attrName.setLength(0);
+        m_attrValue.setLength(0);
+
+        while (c != EOF && !isWhitespace(c) && c != '=' && c != '>' && c != '/') {
+            m_attrName.append(Character.toLowerCase((char) c));
+            c = read();
+        }
+        while (isWhitespace(c)) {
+            c = read();
+        }
+
+        if (c == '=') {
+            c = read();
+            while (isWhitespace(c)) {
+                c = read();
+            }
+            if (c == '"' || c == '\'') {
+                int quote = c;
+                while ((c = read()) != EOF && c != quote) {
+                    if (c == '&') {
+                        readCharacterReference(m_attrValue, true);
+                    } else {
+                        m_attrValue.append((char) c);
+                    }
+                }
+                c = read();
+            } else {
+                while (c != EOF && !isWhitespace(c) && c != '>') {
+                    if (c == '&') {
+                        readCharacterReference(m_attrValue, true);
+                    } else {
+                        m_attrValue.append((char) c);
+                    }
+                    c = read();
+                }
+            }
+        }
+
+        if (m_attrName.length() > 0) {
+            m_handler.attribute(m_attrName, m_attrValue);
+        } else if (c != EOF && c != '>' && c != '/') {
+            c = read(); // stray character (e.g. '=' with no name)
+        }
+        return c;
+    }
+
+    private void readEndTag(int first) throws IOException {
+        readName(m_tagName, first);
+        skipUntil('>');
+        m_handler.endTag(m_tagName);
+    }
+
+    private void readName(StringBuilder out, int first) throws IOException {
+        out.setLength(0);
+        out.append(Character.toLowerCase((char) first));
+        int c;
+        while ((c = read()) != EOF && (isAsciiLetter(c) || (c >= '0' && c <= '9') || c == '-' || c == ':')) {
+            out.append(Character.toLowerCase((char) c));
+        }
+        if (c != EOF) unread(c);
+    }
+
+    /**
+     * After "<!": comment, CDATA section, or DOCTYPE/other declaration
+     */
+    private void readDeclaration() throws IOException {
+        int c = read();
+        if (c == '-') {
+            int next = read();
+            if (next == '-') {
+                skipComment();
+                return;
+            }
+            c = next;
+        } else if (c == '[') {
+            if (matchAhead("CDATA[")) {
+                readCData();
+                return;
+            }
+        }
+        if (c != '>' && c != EOF) {
+            skipUntil('>');
+        }
+    }
+
+    private void skipComment() throws IOException {
+        // Ends at "-->"; tolerates "--!>" like browsers
+        int dashes = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == '-') {
+                dashes++;
+            } else if (c == '>' && dashes >= 2) {
+                return;
+            } else if (!(c == '!' && dashes >= 2)) {
+                dashes = 0;
+            }
+        }
+    }
+
+    private void readCData() throws IOException {
+        int brackets = 0;
+        int c;
+        while ((c = read()) != EOF) {
+            if (c == ']') {
+                brackets++;
+                continue;
+            }
+            if (c == '>' && brackets >= 2) {
+                for (int i = 0; i < brackets - 2; i++) appendText(']');
+                flushText();
+                return;
+            }
+            for (int i = 0; i < brackets; i++) appendText(']');
+            brackets = 0;
+            appendText(c);
+        }
+        flushText();
+    }
+
+    /**
+     * Skip a script/style body up to its end tag (the end tag itself is reported)
+     */
+    private void skipRawText() throws IOException {
+        m_scratch.setLength(0);
+        m_scratch.append(m_tagName);
+
+        int c;
+        while ((c = read()) != EOF) {
+            if (c != '<') continue;
+            c = read();
+            if (c != '/') {
+                if (c != EOF) unread(c);
+                continue;
+            }
+            if (matchAheadIgnoreCase(m_scratch)) {
+                c = read();
+                if (c == '>' || isWhitespace(c) || c == '/' || c == EOF) {
+                    if (c != '>' && c != EOF) skipUntil('>');
+                    m_tagName.setLength(0);
+                    m_tagName.append(m_scratch);
+                    m_handler.endTag(m_tagName);
+                    return;
+                }
+                unread(c);
+            }
+        }
+    }
+
+    /**
+     * Consume `expected` if it is next; otherwise stop at the first mismatch
+     * (the mismatching character is pushed back)
+     */
+    private boolean matchAhead(CharSequence expected) throws IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            int c = read();
+            if (c != expected.charAt(i)) {
+                if (c != EOF) unread(c);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchAheadIgnoreCase(CharSequence expected) throws IOException {
+        for (int i = 0; i < expected.length(); i++) {
+            int c = read();
+            if (c == EOF || Character.toLowerCase((char) c) != expected.charAt(i)) {
+                if (c != EOF) unread(c);
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void skipUntil(int terminator) throws IOException {
+        int c;
+        while ((c = read()) != EOF && c != terminator) {
+            // skip
+        }
+    }
+
+    // ========== Character References ==========
+
+    /**
+     * After '&': decode a named or numeric reference into out, or append
+     * the consumed characters literally if it is not one
+     */
+    private void readCharacterReference(StringBuilder out, boolean inAttribute) throws IOException {
+        m_entity.setLength(0);
+
+        int c = read();
+        if (c == '#') {
+            m_entity.append('#');
+            boolean hex = false;
+            c = read();
+            if (c == 'x' || c == 'X') {
+                hex = true;
+                m_entity.append((char) c);
+                c = read();
+            }
+            int value = 0;
+            int digits = 0;
+            while (c != EOF && digits < 8) {
+                int digit = Character.digit(c, hex ? 16 : 10);
+                if (digit < 0) break;
+                value = value * (hex ? 16 : 10) + digit;
+                m_entity.append((char) c);
+                digits++;
+                c = read();
+            }
+            if (digits > 0 && Character.isValidCodePoint(value) && value != 0) {
+                appendCodePoint(out, value, inAttribute);
+                if (c != ';' && c != EOF) unread(c);
+                return;
+            }
+        } else {
+            while (c != EOF && m_entity.length() < MAX_ENTITY_LENGTH && (isAsciiLetter(c) || (c >= '0' && c <= '9'))) {
+                m_entity.append((char) c);
+                c = read();
+            }
+            if (m_entity.length() > 0) {
+                int codePoint = lookupEntity(m_entity);
+                if (codePoint >= 0) {
+                    appendCodePoint(out, codePoint, inAttribute);
+                    if (c != ';' && c != EOF) unread(c);
+                    return;
+                }
+            }
+        }
+
+        // Not a reference: keep it literally
+        appendLiteral(out, '&', inAttribute);
+        for (int i = 0; i < m_entity.length(); i++) {
+            appendLiteral(out, m_entity.charAt(i), inAttribute);
+        }
+        if (c != EOF) unread(c);
+    }
+
+    /**
+     * @return the code point of a named reference, or -1
+     */
+    private static int lookupEntity(CharSequence name) {
+        for (int i = 0; i < ENTITY_NAMES.length; i++) {
+            if (contentEquals(name, ENTITY_NAMES[i])) {
+                return ENTITY_CODES[i];
+            }
+        }
+        return -1;
+    }
+
+    private void appendCodePoint(StringBuilder out, int codePoint, boolean inAttribute) {
+        if (inAttribute) {
+            out.appendCodePoint(codePoint);
+        } else if (Character.isBmpCodePoint(codePoint)) {
+            appendText(codePoint);
+        } else {
+            appendText(Character.highSurrogate(codePoint));
+            appendText(Character.lowSurrogate(codePoint));
+        }
+    }
+
+    private void appendLiteral(StringBuilder out, char c, boolean inAttribute) {
+        if (inAttribute) {
+            out.append(c);
+        } else {
+            appendText(c);
+        }
+    }
+
+    // ========== Character Classes ==========
+
+    private static boolean isAsciiLetter(int c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z');
+    }
+
+    private static boolean isWhitespace(int c) {
+        return c == ' ' || c == '\n' || c == '\t' || c == '\r' || c == '\f';
+    }
+
+    private static boolean isRawTextElement(CharSequence name) {
+        return contentEquals(name, "script") || contentEquals(name, "style");
+    }
+
+    static boolean contentEquals(CharSequence a, String b) {
+        if (a.length() != b.length()) return false;
+        for (int i = 0; i < b.length(); i++) {
+            if (a.charAt(i) != b.charAt(i)) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,457 @@
+package io.netnotes.gui.fx.components.layout;
+
+import io.netnotes.engine.crypto.HashServices;
+import io.netnotes.engine.utils.MathHelpers;
+import io.netnotes.engine.utils.streams.UrlStreamHelpers;
+import io.netnotes.gui.fx.noteBytes.NoteBytesImage;
+import io.netnotes.gui.fx.utils.CacheRegistry;
+import io.netnotes.gui.fx.utils.ContentAddressedStore;
+import io.netnotes.gui.fx.utils.TaskUtils;
+
+import java.awt.Insets;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Base64;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Semaphore;
+
+/**
+ * Asynchronous image resolution for markup builders.
+ *
+ * HtmlToSegmentBuilder and MarkdownToSegmentBuilder emit placeholder IMAGE
+ * segments (see placeholder()) carrying the source URL and, when the markup
+ * or data URL header allows, a size hint. LayoutCanvas hands pending
+ * placeholders to fetch() and patches the decoded image into the node when
+ * it arrives, so parsing never waits on I/O.
+ *
+ * Fetches run on virtual threads, at most maxConcurrent at a time, and
+ * concurrent requests for one URL share a fetch. Results are cached by
+ * content: URL -> Blake2b hash -> image, so the same bytes reached through
+ * different URLs (or data URLs) are decoded once. data: URLs are keyed by a
+ * hash of the URL rather than the URL itself. The cache is bounded by
+ * MAX_CACHE_BYTES and registered with CacheRegistry; evicting an image also
+ * drops the URLs mapped to it. With setStore(), remote (http/https) bytes
+ * are also kept on disk, so they survive restarts and are not downloaded
+ * again.
+ *
+ * Sources are fetched by a Resolver per URL scheme. Built in: data: (base64),
+ * file: URLs and plain paths (relative, absolute or drive), http(s):.
+ * setResolver() replaces one, or disables it when given null (e.g. "file"
+ * for untrusted documents); directoryResolver() serves http URLs from a
+ * local folder for offline use.
+ */
+public class ImageFetchPipeline {
+    public static final int DEFAULT_MAX_CONCURRENT = 6;
+    public static final long MAX_CACHE_BYTES = 64L * 1024 * 1024;
+    private static final int HASH_LENGTH = 32;
+    private static final int SIZE_PROBE_CHARS = 44; // base64 chars covering PNG/GIF headers
+
+    private static final ImageFetchPipeline DEFAULT = new ImageFetchPipeline(DEFAULT_MAX_CONCURRENT);
+
+    // Caches of all pipelines, registered as one CacheRegistry entry
+    private static final CacheRegistry.Members<ImageFetchPipeline> PIPELINES = new CacheRegistry.Members<>();
+    private static final CacheRegistry.CacheGauges GAUGES = CacheRegistry.register("ImageFetchPipeline", 50,
+        () -> PIPELINES.sum(ImageFetchPipeline::getCachedBytes),
+        () -> PIPELINES.sum(ImageFetchPipeline::getCachedCount),
+        _ -> {
+            long[] freed = { 0 };
+            PIPELINES.forEach(pipeline -> freed[0] += pipeline.clearCache());
+            return freed[0];
+        });
+
+    /**
+     * Fetches the raw bytes of a source; called on a virtual thread
+     */
+    @FunctionalInterface
+    public interface Resolver {
+        byte[] fetch(String src) throws IOException;
+    }
+
+    private final Semaphore m_permits;
+    private final Map<String, Resolver> m_resolvers = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<NoteBytesImage>> m_inFlight = new ConcurrentHashMap<>();
+    private volatile ContentAddressedStore m_store = null;
+
+    // Content-addressed cache, keyed by keyOf(src); guarded by this
+    private final Map<String, String> m_hashByUrl = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CachedImage> m_imagesByHash = new LinkedHashMap<>(16, 0.75f, true);
+    private long m_cachedBytes = 0;
+
+    public ImageFetchPipeline(int maxConcurrent) {
+        if (maxConcurrent < 1) {
+            throw new IllegalArgumentException("maxConcurrent must be at least 1");
+        }
+        m_permits = new Semaphore(maxConcurrent);
+
+        m_resolvers.put("data", ImageFetchPipeline::decodeDataUrl);
+        m_resolvers.put("file", ImageFetchPipeline::readFile);
+        m_resolvers.put("http", ImageFetchPipeline::fetchUrl);
+        m_resolvers.put("https", ImageFetchPipeline::fetchUrl);
+
+        PIPELINES.add(this);
+    }
+
+    public static ImageFetchPipeline getDefault() {
+        return DEFAULT;
+    }
+
+    /**
+     * Replace the resolver for a URL scheme ("data", "file", "http", ...)
+     */
+    public void setResolver(String scheme, Resolver resolver) {
+        if (resolver == null) {
+            m_resolvers.remove(scheme.toLowerCase());
+        } else {
+            m_resolvers.put(scheme.toLowerCase(), resolver);
+        }
+    }
+
+    /**
+     * Persist fetched remote images in `store`, or stop persisting when null
+     */
+    public void setStore(ContentAddressedStore store) {
+        m_store = store;
+    }
+
+    // ========== Fetching ==========
+
+    /**
+     * Resolve an image source
+     * @return the decoded image, completed from cache when possible
+     */
+    public CompletableFuture<NoteBytesImage> fetch(String src) {
+        if (src == null || src.isEmpty()) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Empty image source"));
+        }
+
+        String key = keyOf(src);
+        NoteBytesImage cached = getCached(key);
+        if (cached != null) {
+            GAUGES.recordHit();
+            return CompletableFuture.completedFuture(cached);
+        }
+        GAUGES.recordMiss();
+
+        CompletableFuture<NoteBytesImage> pending = m_inFlight.get(key);
+        if (pending != null) {
+            return pending;
+        }
+        CompletableFuture<NoteBytesImage> future = new CompletableFuture<>();
+        pending = m_inFlight.putIfAbsent(key, future);
+        if (pending != null) {
+            return pending;
+        }
+
+        CompletableFuture.supplyAsync(() -> load(src, key), TaskUtils.getVirtualExecutor())
+            .whenComplete((image, error) -> {
+                m_inFlight.remove(key, future);
+                if (error != null) {
+                    future.completeExceptionally(error);
+                } else {
+                    future.complete(image);
+                }
+            });
+        return future;
+    }
+
+    private NoteBytesImage load(String src, String key) {
+        Resolver resolver = resolverFor(src);
+        if (resolver == null) {
+            throw new CompletionException(new IOException("No resolver for image source: " + abbreviate(src)));
+        }
+
+        ContentAddressedStore store = isRemote(src) ? m_store : null;
+        byte[] bytes = store != null ? store.read(src).join() : null;
+        if (bytes != null) {
+            return cache(key, bytes);
+        }
+
+        try {
+            m_permits.acquire();
+            try {
+                bytes = resolver.fetch(src);
+            } finally {
+                m_permits.release();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CompletionException(e);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+
+        if (bytes == null || bytes.length == 0) {
+            throw new CompletionException(new IOException("Empty image: " + abbreviate(src)));
+        }
+        if (store != null) {
+            store.store(src, bytes).exceptionally(e -> {
+                System.err.println("ImageFetchPipeline: could not store image " + abbreviate(src) + ": " +
+                    e.getMessage());
+                return null;
+            });
+        }
+        return cache(key, bytes);
+    }
+
+    private static boolean isRemote(String src) {
+        String scheme = schemeOf(src);
+        return scheme.equals("http") || scheme.equals("https");
+    }
+
+    /**
+     * Cache key for a source: the URL, or for data: URLs a hash of it, so
+     * the encoded payload is not kept as a map key
+     */
+    static String keyOf(String src) {
+        if (!src.regionMatches(true, 0, "data:", 0, 5)) {
+            return src;
+        }
+        return "data:" + HashServices.digestToUrlSafeString(src.getBytes(StandardCharsets.UTF_8), HASH_LENGTH);
+    }
+
+    private Resolver resolverFor(String src) {
+        return m_resolvers.get(schemeOf(src));
+    }
+
+    /**
+     * URL scheme, or "file" for plain paths (including "C:\..." drive paths)
+     */
+    static String schemeOf(String src) {
+        int colon = src.indexOf(':');
+        if (colon < 2) {
+            return "file";
+        }
+        for (int i = 0; i < colon; i++) {
+            char c = src.charAt(i);
+            if (!Character.isLetterOrDigit(c) && c != '+' && c != '-' && c != '.') {
+                return "file";
+            }
+        }
+        return src.substring(0, colon).toLowerCase();
+    }
+
+    // ========== Content-Addressed Cache ==========
+
+    private synchronized NoteBytesImage getCached(String key) {
+        String hash = m_hashByUrl.get(key);
+        if (hash == null) return null;
+
+        CachedImage entry = m_imagesByHash.get(hash);
+        return entry != null ? entry.image : null;
+    }
+
+    private NoteBytesImage cache(String key, byte[] bytes) {
+        String hash = HashServices.digestToUrlSafeString(bytes, HASH_LENGTH);
+
+        synchronized (this) {
+            String previous = m_hashByUrl.put(key, hash);
+            if (previous != null && !previous.equals(hash)) {
+                CachedImage old = m_imagesByHash.get(previous);
+                if (old != null) {
+                    old.keys.remove(key);
+                }
+            }
+
+            CachedImage entry = m_imagesByHash.get(hash);
+            if (entry != null) {
+                entry.keys.add(key);
+                return entry.image;
+            }
+
+            entry = new CachedImage(new NoteBytesImage(bytes), bytes.length);
+            entry.keys.add(key);
+            m_imagesByHash.put(hash, entry);
+            m_cachedBytes += entry.bytes;
+
+            Iterator<CachedImage> it = m_imagesByHash.values().iterator();
+            while (m_cachedBytes > MAX_CACHE_BYTES && it.hasNext()) {
+                CachedImage eldest = it.next();
+                if (eldest == entry) break;
+                it.remove();
+                m_cachedBytes -= eldest.bytes;
+                m_hashByUrl.keySet().removeAll(eldest.keys);
+                GAUGES.recordEviction();
+            }
+            return entry.image;
+        }
+    }
+
+    /**
+     * @return bytes released
+     */
+    public synchronized long clearCache() {
+        long bytes = m_cachedBytes;
+        GAUGES.recordEvictions(m_imagesByHash.size());
+        m_imagesByHash.clear();
+        m_hashByUrl.clear();
+        m_cachedBytes = 0;
+        return bytes;
+    }
+
+    public synchronized long getCachedBytes() {
+        return m_cachedBytes;
+    }
+
+    public synchronized long getCachedCount() {
+        return m_imagesByHash.size();
+    }
+
+    public int getInFlightCount() {
+        return m_inFlight.size();
+    }
+
+    // ========== Placeholders ==========
+
+    /**
+     * Create a placeholder IMAGE segment for `src`.
+     * When the source is a data URL whose header gives the image size, the
+     * intrinsic aspect ratio is set so layout reserves the right height
+     * before the image is decoded.
+     */
+    public static LayoutSegment placeholder(String src) {
+        LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.IMAGE);
+        segment.getLayout().display = LayoutSegment.Display.BLOCK;
+        segment.getLayout().margin = new Insets(0, 0, 10, 0);
+        segment.setImageSource(src);
+
+        int[] size = src != null && src.startsWith("data:") ? probeDataUrlSize(src) : null;
+        if (size != null) {
+            segment.getLayout().aspectRatio = MathHelpers.divideNearestNeighbor(
+                BigDecimal.valueOf(size[0]), BigDecimal.valueOf(size[1]));
+        }
+        return segment;
+    }
+
+    /**
+     * Read width/height from the start of a base64 data URL without decoding it
+     * @return {width, height}, or null if unknown
+     */
+    static int[] probeDataUrlSize(String dataUrl) {
+        int comma = dataUrl.indexOf(',');
+        if (comma < 0 || !dataUrl.regionMatches(true, comma - 7, ";base64", 0, 7)) {
+            return null;
+        }
+        int end = Math.min(dataUrl.length(), comma + 1 + SIZE_PROBE_CHARS);
+        end -= (end - comma - 1) % 4;
+        try {
+            return probeSize(Base64.getDecoder().decode(dataUrl.substring(comma + 1, end)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Width/height from a PNG or GIF header
+     * @return {width, height}, or null if unknown
+     */
+    static int[] probeSize(byte[] header) {
+        // PNG: 8-byte signature, IHDR length + type, then big-endian width/height
+        if (header.length >= 24 && (header[0] & 0xFF) == 0x89 && header[1] == 'P' && header[2] == 'N' &&
+            header[3] == 'G' && header[12] == 'I' && header[13] == 'H' && header[14] == 'D' && header[15] == 'R') {
+            int width = readIntBE(header, 16);
+            int height = readIntBE(header, 20);
+            return width > 0 && height > 0 ? new int[] { width, height } : null;
+        }
+        // GIF: "GIF8", version, then little-endian 16-bit width/height
+        if (header.length >= 10 && header[0] == 'G' && header[1] == 'I' && header[2] == 'F' && header[3] == '8') {
+            int width = (header[6] & 0xFF) | (header[7] & 0xFF) << 8;
+            int height = (header[8] & 0xFF) | (header[9] & 0xFF) << 8;
+            return width > 0 && height > 0 ? new int[] { width, height } : null;
+        }
+        return null;
+    }
+
+    private static int readIntBE(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16 |
+            (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    // ========== Resolvers ==========
+
+    /**
+     * Decode a base64 data URL: data:image/png;base64,iVBORw0KG...
+     */
+    static byte[] decodeDataUrl(String src) throws IOException {
+        int comma = src.indexOf(',');
+        if (comma < 0 || !src.regionMatches(true, comma - 7, ";base64", 0, 7)) {
+            throw new IOException("Unsupported data URL (base64 only)");
+        }
+        try {
+            return Base64.getMimeDecoder().decode(src.substring(comma + 1));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Invalid base64 in data URL", e);
+        }
+    }
+
+    /**
+     * Read a file: URL or a plain (relative, absolute or drive) path
+     */
+    static byte[] readFile(String src) throws IOException {
+        try {
+            Path path = src.regionMatches(true, 0, "file:", 0, 5) ? Path.of(URI.create(src)) : Path.of(src);
+            return Files.readAllBytes(path);
+        } catch (IllegalArgumentException e) {
+            // Includes InvalidPathException
+            throw new IOException("Invalid file path: " + abbreviate(src), e);
+        }
+    }
+
+    private static byte[] fetchUrl(String src) throws IOException {
+        try {
+            return UrlStreamHelpers.getUrlBytes(src, TaskUtils.getVirtualExecutor()).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted fetching " + src, e);
+        } catch (ExecutionException e) {
+            throw new IOException("Failed to fetch " + src, e.getCause());
+        }
+    }
+
+    /**
+     * Resolver serving sources from a local directory by URL path, for
+     * offline use and tests, e.g.
+     * setResolver("https", ImageFetchPipeline.directoryResolver(dir))
+     * maps https://host/img/a.png to dir/img/a.png. Paths may not leave dir.
+     */
+    public static Resolver directoryResolver(Path directory) {
+        Path root = directory.toAbsolutePath().normalize();
+        return src -> {
+            String path = URI.create(src).getPath();
+            if (path == null || path.isEmpty()) {
+                throw new IOException("No path in " + src);
+            }
+            Path file = root.resolve(path.startsWith("/") ? path.substring(1) : path).normalize();
+            if (!file.startsWith(root)) {
+                throw new IOException("Path escapes resolver directory: " + src);
+            }
+            return Files.readAllBytes(file);
+        };
+    }
+
+    private static String abbreviate(String src) {
+        return src.length() > 64 ? src.substring(0, 64) + "..." : src;
+    }
+
+    private static class CachedImage {
+        final NoteBytesImage image;
+        final long bytes;
+        final Set<String> keys = new HashSet<>(); // keys in m_hashByUrl mapped to this image
+
+        CachedImage(NoteBytesImage image, long bytes) {
+            this.image = image;
+            this.bytes = bytes;
+        }
+    }
+}
@@ -0,0 +1,266 @@
+package io.netnotes.gui.fx.components.layout;
+
+import io.netnotes.engine.noteBytes.NoteBytesArray;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Block-level incremental Markdown parser for live previews.
+ *
+ * Keeps the source lines and a line-to-block map. The blocks partition the
+ * lines; a block is whatever MarkdownToSegmentBuilder.parseBlock() consumes
+ * (a fenced code block, a table, a blank line or a single line), and
+ * produces at most one top-level segment.
+ *
+ * On an edit, parsing restarts at the block holding the line before the
+ * edit (a table header is decided by the line after it) and runs forward
+ * until a block boundary past the edit lines up with an old boundary.
+ * Since parseBlock() depends only on the text from its start line on, every
+ * block after that point is unchanged. A fence opened or closed by the
+ * edit keeps the re-parse going until the fences agree again.
+ *
+ * The result is a Splice of top-level segments: untouched blocks keep
+ * their SegmentNodes (and cached layout) in the LayoutCanvas.
+ *
+ * Usage:
+ * <pre>
+ * IncrementalMarkdownParser parser = new IncrementalMarkdownParser();
+ * canvas.setSegments(parser.reset(markdown), true);
+ * ...
+ * parser.update(editedMarkdown).applyTo(canvas);
+ * </pre>
+ *
+ * Not thread-safe.
+ */
+public class IncrementalMarkdownParser {
+
+    private final List<String> m_lines = new ArrayList<>();
+    private final List<Block> m_blocks = new ArrayList<>();
+
+    /**
+     * Replace the whole document
+     * @return all top-level segments
+     */
+    public NoteBytesArray reset(String markdown) {
+        m_lines.clear();
+        m_blocks.clear();
+
+        Splice splice = edit(0, 0, splitLines(markdown));
+
+        NoteBytesArray segments = new NoteBytesArray();
+        for (LayoutSegment segment : splice.segments) {
+            segments.add(segment.getData());
+        }
+        return segments;
+    }
+
+    /**
+     * Diff the new text against the current lines and re-parse the changed range
+     */
+    public Splice update(String markdown) {
+        List<String> lines = splitLines(markdown);
+
+        int oldSize = m_lines.size();
+        int newSize = lines.size();
+        int limit = Math.min(oldSize, newSize);
+
+        int prefix = 0;
+        while (prefix < limit && m_lines.get(prefix).equals(lines.get(prefix))) {
+            prefix++;
+        }
+        int suffix = 0;
+        while (suffix < limit - prefix &&
+               m_lines.get(oldSize - 1 - suffix).equals(lines.get(newSize - 1 - suffix))) {
+            suffix++;
+        }
+
+        return edit(prefix, oldSize - prefix - suffix, lines.subList(prefix, newSize - suffix));
+    }
+
+    /**
+     * Replace `removedLines` lines at `startLine` with `insertedLines`
+     * @return the top-level segment change
+     */
+    public Splice edit(int startLine, int removedLines, List<String> insertedLines) {
+        if (startLine < 0 || removedLines < 0 || startLine + removedLines > m_lines.size()) {
+            throw new IllegalArgumentException("Edit range " + startLine + "+" + removedLines +
+                " outside document of " + m_lines.size() + " lines");
+        }
+
+        int oldEditEnd = startLine + removedLines;
+        int newEditEnd = startLine + insertedLines.size();
+        int delta = insertedLines.size() - removedLines;
+
+        // Restart at a block boundary (outside any fence) before the edit
+        int firstBlock = m_blocks.isEmpty() ? 0 : blockIndexAt(Math.max(0, startLine - 1));
+        int parseFrom = firstBlock < m_blocks.size() ? m_blocks.get(firstBlock).start : 0;
+
+        m_lines.subList(startLine, oldEditEnd).clear();
+        m_lines.addAll(startLine, insertedLines);
+
+        List<Block> newBlocks = new ArrayList<>();
+        List<LayoutSegment> newSegments = new ArrayList<>();
+        int oldEnd = firstBlock;
+        boolean resynced = false;
+
+        int line = parseFrom;
+        while (line < m_lines.size()) {
+            MarkdownToSegmentBuilder.BlockParseResult result = MarkdownToSegmentBuilder.parseBlock(m_lines, line);
+            newBlocks.add(new Block(line, result.endIndex - line, result.segment != null));
+            newSegments.add(result.segment);
+            line = result.endIndex;
+
+            if (line >= newEditEnd) {
+                int oldLine = line - delta;
+                while (oldEnd < m_blocks.size() && m_blocks.get(oldEnd).start < oldLine) {
+                    oldEnd++;
+                }
+                if (oldEnd < m_blocks.size() && m_blocks.get(oldEnd).start == oldLine) {
+                    resynced = true;
+                    break;
+                }
+            }
+        }
+        if (!resynced) {
+            oldEnd = m_blocks.size();
+        }
+
+        // Leading blocks re-parsed over unchanged lines to the same extent are unchanged
+        int keep = 0;
+        while (keep < newBlocks.size() && firstBlock + keep < oldEnd) {
+            Block oldBlock = m_blocks.get(firstBlock + keep);
+            Block newBlock = newBlocks.get(keep);
+            if (oldBlock.start != newBlock.start || oldBlock.lineCount != newBlock.lineCount ||
+                oldBlock.start + oldBlock.lineCount > startLine) {
+                break;
+            }
+            keep++;
+        }
+
+        int replaceFrom = firstBlock + keep;
+        int segmentIndex = countSegments(0, replaceFrom);
+        int removeCount = countSegments(replaceFrom, oldEnd);
+
+        List<LayoutSegment> inserted = new ArrayList<>();
+        for (int i = keep; i < newSegments.size(); i++) {
+            if (newSegments.get(i) != null) {
+                inserted.add(newSegments.get(i));
+            }
+        }
+
+        m_blocks.subList(replaceFrom, oldEnd).clear();
+        m_blocks.addAll(replaceFrom, newBlocks.subList(keep, newBlocks.size()));
+        if (delta != 0) {
+            for (int i = replaceFrom + newBlocks.size() - keep; i < m_blocks.size(); i++) {
+                m_blocks.get(i).start += delta;
+            }
+        }
+
+        return new Splice(segmentIndex, removeCount, inserted);
+    }
+
+    public int getLineCount() {
+        return m_lines.size();
+    }
+
+    public int getBlockCount() {
+        return m_blocks.size();
+    }
+
+    /**
+     * Top-level segment index of the block containing `line`, or -1 if that
+     * block produces no segment (blank line, unclosed fence)
+     */
+    public int getSegmentIndexForLine(int line) {
+        if (line < 0 || line >= m_lines.size()) {
+            return -1;
+        }
+        int block = blockIndexAt(line);
+        return m_blocks.get(block).hasSegment ? countSegments(0, block) : -1;
+    }
+
+    // ========== Internal ==========
+
+    /**
+     * Index of the block containing `line` (binary search on block starts)
+     */
+    private int blockIndexAt(int line) {
+        int low = 0;
+        int high = m_blocks.size() - 1;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (m_blocks.get(mid).start <= line) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    private int countSegments(int fromBlock, int toBlock) {
+        int count = 0;
+        for (int i = fromBlock; i < toBlock; i++) {
+            if (m_blocks.get(i).hasSegment) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private static List<String> splitLines(String markdown) {
+        if (markdown == null) {
+            return Collections.emptyList();
+        }
+        // Keep trailing empty lines so line numbers match an editor's
+        return Arrays.asList(markdown.split("\n", -1));
+    }
+
+    /**
+     * Source line range of one parsed block
+     */
+    private static class Block {
+        int start;
+        final int lineCount;
+        final boolean hasSegment;
+
+        Block(int start, int lineCount, boolean hasSegment) {
+            this.start = start;
+            this.lineCount = lineCount;
+            this.hasSegment = hasSegment;
+        }
+    }
+
+    /**
+     * Replace `removeCount` top-level segments at `index` with `segments`
+     */
+    public static class Splice {
+        public final int index;
+        public final int removeCount;
+        public final List<LayoutSegment> segments;
+
+        Splice(int index, int removeCount, List<LayoutSegment> segments) {
+            this.index = index;
+            this.removeCount = removeCount;
+            this.segments = segments;
+        }
+
+        public boolean isEmpty() {
+            return removeCount == 0 && segments.isEmpty();
+        }
+
+        public void applyTo(LayoutCanvas canvas) {
+            if (!isEmpty()) {
+                canvas.replaceSegments(index, removeCount, segments);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Splice[index=" + index + ", remove=" + removeCount + ", insert=" + segments.size() + "]";
+        }
+    }
+}
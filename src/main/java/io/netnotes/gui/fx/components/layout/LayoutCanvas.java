@@ -3,6 +3,7 @@ package io.netnotes.gui.fx.components.layout;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.HostServices;
+import javafx.application.Platform;
 import javafx.beans.value.ChangeListener;
 import javafx.scene.Cursor;
 import javafx.scene.input.KeyCode;
@@ -23,16 +24,16 @@ import io.netnotes.gui.fx.display.GraphicsContextPool;
 import io.netnotes.gui.fx.display.TextRenderer;
 import io.netnotes.gui.fx.display.control.layout.DeferredLayoutManager;
 import io.netnotes.gui.fx.noteBytes.NoteBytesImage;
+import io.netnotes.gui.fx.utils.CacheRegistry;
 import io.netnotes.gui.fx.utils.TaskUtils;
+import io.netnotes.gui.fx.utils.TraceRecorder;
 
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.IOException;
 import java.math.BigDecimal;
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicReference;
@@ -51,6 +52,14 @@ public class LayoutCanvas extends BufferedCanvasView {
     private static final int VIEWPORT_BUFFER = GraphicsContextPool.SIZE_TOLERANCE;
     //  private static final int SCROLL_SPEED = 20;
     private static final int VIRTUAL_SCROLL_MARGIN = 200;
+    private static final int LAYOUT_WINDOW_VIEWPORTS = 2; // windowed layout: viewports laid out above/below
+    
+    // Layout caches of all canvases, registered as one CacheRegistry entry
+    private static final CacheRegistry.Members<LayoutCanvas> LAYOUT_CACHES = new CacheRegistry.Members<>();
+    private static final CacheRegistry.CacheGauges LAYOUT_CACHE_GAUGES = CacheRegistry.register("LayoutCanvas.layoutCache", 40,
+        () -> LAYOUT_CACHES.sum(canvas -> canvas.m_layoutCache.getEstimatedBytes()),
+        () -> LAYOUT_CACHES.sum(canvas -> canvas.m_layoutCache.size()),
+        LayoutCanvas::shedLayoutCaches);
 
     
     private HostServices m_hostServices;
@@ -62,15 +71,21 @@ public class LayoutCanvas extends BufferedCanvasView {
     
     // ========== Data Storage ==========
 
-    private NoteBytesArray m_segments;
+    private SegmentNode m_document;
     private LayoutEngine m_layoutEngine;
     private CursorSelectionSystem.CursorNavigator m_navigator;
 
-    private final Map<String, LayoutEngine.LayoutResult> m_layoutCache;
+    private final LayoutResultCache m_layoutCache;
+    private ImageFetchPipeline m_imagePipeline = ImageFetchPipeline.getDefault();
     // ========== Layout State ==========
     
     private LayoutEngine.LayoutResult m_layoutResult;
     private boolean m_layoutDirty;
+    private int m_batchDepth = 0;
+    private boolean m_batchInvalidated = false;
+    private boolean m_windowedLayoutEnabled = false;
+    private WindowedLayout m_windowedLayout = null;
+    private boolean m_windowedLayoutStale = false; // top-level blocks changed since it was built
 
     // ========== Cursor & Selection ==========
     
@@ -107,6 +122,9 @@ public class LayoutCanvas extends BufferedCanvasView {
     private GridResizeHandler.ResizeOperation m_activeResize = null;
     private GridResizeHandler.ResizeHandle m_hoverHandle = null;
     private LayoutEngine.LayoutResult m_resizingContainer = null;
+    private GridLayoutEngine.GridLayoutResult m_resizeBase = null; // grid solution when the drag started
+    private Rectangle[] m_resizeOrigins = null;                    // child bounds when the drag started
+    private int[] m_resizeCells = null;                            // grid cell index of each child result
     
     // ========== Dimensions ==========
     
@@ -144,7 +162,8 @@ public class LayoutCanvas extends BufferedCanvasView {
     public LayoutCanvas(HostServices hostServices, int width, int height) {
         super();
         this.m_hostServices = hostServices;
-        m_layoutCache = new HashMap<>();
+        m_layoutCache = new LayoutResultCache(LAYOUT_CACHE_GAUGES);
+        LAYOUT_CACHES.add(this);
         // Enable real-time coalescing mode - keeps only latest render request
         isRealTimeTask().set(true);
         
@@ -155,7 +174,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         
         
 
-        m_segments = new NoteBytesArray();
+        m_document = SegmentNode.createRoot(new NoteBytesArray());
         m_layoutEngine = new LayoutEngine();
         
         m_cursor = new CursorSelectionSystem.CursorPosition();
@@ -238,6 +257,8 @@ public class LayoutCanvas extends BufferedCanvasView {
     
     @Override
     protected void drawContent(Graphics2D g2d, int width, int height) {
+        long span = TraceRecorder.begin();
+        
         // Regenerate content layer if dirty
         if (m_contentDirty || m_contentLayer == null || 
             m_contentLayer.getWidth() != width || m_contentLayer.getHeight() != height) {
@@ -262,6 +283,8 @@ public class LayoutCanvas extends BufferedCanvasView {
         // Composite layers
         g2d.drawImage(m_contentLayer, 0, 0, null);
         drawOverlayLayer(g2d, width, height);
+        
+        TraceRecorder.end(TraceRecorder.LAYOUT_CANVAS_DRAW, span, height);
     }
 
  
@@ -602,10 +625,35 @@ public class LayoutCanvas extends BufferedCanvasView {
      * - Style changes (fonts, colors that affect layout)
      */
     public void invalidateLayout() {
+        if (m_batchDepth > 0) {
+            m_batchInvalidated = true;
+            return;
+        }
         m_layoutDirty = true;
-        m_layoutCache.clear();
         DeferredLayoutManager.markDirty(this);
     }
+
+    /**
+     * Start a batch of document mutations. Invalidations inside the batch
+     * are deferred and issued once by the matching endBatch().
+     * Batches nest; only the outermost endBatch() invalidates.
+     */
+    public void beginBatch() {
+        m_batchDepth++;
+    }
+
+    /**
+     * End a batch started with beginBatch()
+     */
+    public void endBatch() {
+        if (m_batchDepth == 0) {
+            throw new IllegalStateException("endBatch() without beginBatch()");
+        }
+        if (--m_batchDepth == 0 && m_batchInvalidated) {
+            m_batchInvalidated = false;
+            invalidateLayout();
+        }
+    }
     
   
     // ========== Layout Computation ==========
@@ -613,10 +661,20 @@ public class LayoutCanvas extends BufferedCanvasView {
     public static String generateLayoutKey(byte[] bytes, int width, int height){
         return HashServices.digestToUrlSafeString(bytes, 16) + "_" + width + "x" + height;
     }
+
+    /**
+     * Layout key from a document's structural hash.
+     * The root hash is cached and only re-hashed along edited paths.
+     */
+    public static String generateLayoutKey(SegmentNode root, int width, int height){
+        return root.getHashString() + "_" + width + "x" + height;
+    }
     
     private void computeLayout() {
-        if (m_segments.size() == 0) {
+        if (!m_document.hasChildren()) {
             m_layoutResult = null;
+            m_windowedLayout = null;
+            m_windowedLayoutStale = false;
             return;
         }
 
@@ -625,11 +683,14 @@ public class LayoutCanvas extends BufferedCanvasView {
         int availableWidth = m_preferredWidth - m_insets.left - m_insets.right;
         int availableHeight = m_preferredHeight - m_insets.top - m_insets.bottom;
         
-        // Simple cache key
-        String layoutKey = generateLayoutKey(m_segments.get(), availableWidth, availableHeight);
+        if (m_windowedLayoutEnabled) {
+            computeWindowedLayout(availableWidth, availableHeight);
+            fireLayoutComplete(startTime);
+            return;
+        }
         
-        // Check instance-level cache
-        LayoutEngine.LayoutResult cached = m_layoutCache.get(layoutKey);
+        // Keyed by document hash, so a result survives edits that are undone
+        LayoutEngine.LayoutResult cached = m_layoutCache.get(m_document, availableWidth, availableHeight);
         if (cached != null) {
             m_layoutResult = cached;
             updateScrollBounds();
@@ -641,16 +702,29 @@ public class LayoutCanvas extends BufferedCanvasView {
             availableWidth, availableHeight
         );
         
-        m_layoutResult = m_layoutEngine.layout(m_segments, constraints);
+        m_layoutResult = m_layoutEngine.layout(m_document, constraints);
         
-        // Cache it (simple, no cross-instance complexity)
         if (m_layoutResult != null) {
-            m_layoutCache.put(layoutKey, m_layoutResult);
+            m_layoutCache.put(m_document, availableWidth, availableHeight, m_layoutResult);
             updateScrollBounds();
         }
 
 
 
+        fireLayoutComplete(startTime);
+    }
+    
+    /**
+     * Drop cached layouts of all canvases (memory governor). The caches are
+     * FX-thread state, so clearing is posted; the return value is the estimate.
+     */
+    private static long shedLayoutCaches(long bytes) {
+        long released = LAYOUT_CACHES.sum(canvas -> canvas.m_layoutCache.getEstimatedBytes());
+        Platform.runLater(() -> LAYOUT_CACHES.forEach(canvas -> canvas.m_layoutCache.clear()));
+        return released;
+    }
+    
+    private void fireLayoutComplete(long startTime) {
         long endTime = System.currentTimeMillis();
         
         // FIRE LAYOUT COMPLETE EVENT
@@ -662,6 +736,49 @@ public class LayoutCanvas extends BufferedCanvasView {
             ));
         }
     }
+    
+    /**
+     * Rebuild the windowed layout, carrying over exact heights of unchanged
+     * blocks and the scroll anchor from the previous one
+     */
+    private void computeWindowedLayout(int availableWidth, int availableHeight) {
+        LayoutEngine.Constraints constraints = LayoutEngine.Constraints.loose(
+            availableWidth, availableHeight
+        );
+        
+        m_windowedLayout = new WindowedLayout(
+            m_layoutEngine,
+            m_document,
+            constraints,
+            m_windowedLayout,
+            m_scrollY
+        );
+        
+        m_windowedLayoutStale = false;
+        m_scrollY = m_windowedLayout.update(m_scrollY, availableHeight, LAYOUT_WINDOW_VIEWPORTS);
+        m_layoutResult = m_windowedLayout.getResult();
+        updateScrollBounds();
+    }
+    
+    /**
+     * Lay out any blocks that scrolled into the window (windowed mode only).
+     * Keeps the block at the top of the viewport fixed while estimates are refined.
+     * Skipped while a structural edit is pending: the window's block ranges
+     * refer to the children as they were when it was built.
+     */
+    private void refreshLayoutWindow() {
+        if (m_windowedLayout == null || m_windowedLayoutStale) return;
+        
+        int availableHeight = m_preferredHeight - m_insets.top - m_insets.bottom;
+        int scrollY = m_windowedLayout.update(m_scrollY, availableHeight, LAYOUT_WINDOW_VIEWPORTS);
+        
+        if (m_windowedLayout.getResult() != m_layoutResult) {
+            m_layoutResult = m_windowedLayout.getResult();
+            m_scrollY = scrollY;
+            updateScrollBounds();
+            m_contentDirty = true;
+        }
+    }
 
 
     private void updateScrollBounds() {
@@ -855,7 +972,7 @@ public class LayoutCanvas extends BufferedCanvasView {
     private void renderCursor(Graphics2D g2d, int offsetX, int offsetY) {
         if (m_layoutResult == null) return;
         
-        LayoutEngine.LayoutResult result = m_layoutResult.findAtOffset(m_cursor.getGlobalOffset());
+        LayoutEngine.LayoutResult result = m_layoutResult.getSpatialIndex().findAtOffset(m_cursor.getGlobalOffset());
         if (result == null) return;
         
         Rectangle bounds = result.bounds;
@@ -914,7 +1031,14 @@ public class LayoutCanvas extends BufferedCanvasView {
     private void ensureCursorVisible() {
         if (m_layoutResult == null) return;
         
-        LayoutEngine.LayoutResult result = m_layoutResult.findAtOffset(m_cursor.getGlobalOffset());
+        LayoutEngine.LayoutResult result = m_layoutResult.getSpatialIndex().findAtOffset(m_cursor.getGlobalOffset());
+        
+        // Windowed mode: cursor is in a block that has not been laid out yet
+        if (result == m_layoutResult && m_windowedLayout != null && !m_windowedLayoutStale) {
+            m_scrollY = m_windowedLayout.getTopForOffset(m_cursor.getGlobalOffset());
+            refreshLayoutWindow();
+            result = m_layoutResult.getSpatialIndex().findAtOffset(m_cursor.getGlobalOffset());
+        }
         if (result == null) return;
         
         Rectangle bounds = result.bounds;
@@ -1041,7 +1165,7 @@ public class LayoutCanvas extends BufferedCanvasView {
             
             if (ctrl) {
                 // Jump to document end
-                int totalLength = m_navigator.getTotalContentLength(m_segments);
+                int totalLength = m_navigator.getTotalContentLength();
                 m_cursor = m_navigator.globalOffsetToPosition(totalLength);
             } else {
                 // Jump to line end
@@ -1090,14 +1214,14 @@ public class LayoutCanvas extends BufferedCanvasView {
     private CursorSelectionSystem.CursorPosition moveUp(CursorSelectionSystem.CursorPosition current) {
         if (m_layoutResult == null) return current;
         
-        LayoutEngine.LayoutResult currentResult = m_layoutResult.findAtOffset(current.getGlobalOffset());
+        LayoutEngine.LayoutResult currentResult = m_layoutResult.getSpatialIndex().findAtOffset(current.getGlobalOffset());
         if (currentResult == null) return current;
         
         Rectangle currentBounds = currentResult.bounds;
         int targetY = currentBounds.y - currentBounds.height / 2;
         
         // Find segment at this Y position
-        List<LayoutEngine.LayoutResult> allResults = m_layoutResult.flatten();
+        List<LayoutEngine.LayoutResult> allResults = m_layoutResult.getSpatialIndex().getResults();
         for (LayoutEngine.LayoutResult result : allResults) {
             if (result.bounds.y <= targetY && (result.bounds.y + result.bounds.height) > targetY) {
                 return m_navigator.globalOffsetToPosition(result.globalStartOffset);
@@ -1111,14 +1235,14 @@ public class LayoutCanvas extends BufferedCanvasView {
     private CursorSelectionSystem.CursorPosition moveDown(CursorSelectionSystem.CursorPosition current) {
         if (m_layoutResult == null) return current;
         
-        LayoutEngine.LayoutResult currentResult = m_layoutResult.findAtOffset(current.getGlobalOffset());
+        LayoutEngine.LayoutResult currentResult = m_layoutResult.getSpatialIndex().findAtOffset(current.getGlobalOffset());
         if (currentResult == null) return current;
         
         Rectangle currentBounds = currentResult.bounds;
         int targetY = currentBounds.y + currentBounds.height + currentBounds.height / 2;
         
         // Find segment at this Y position
-        List<LayoutEngine.LayoutResult> allResults = m_layoutResult.flatten();
+        List<LayoutEngine.LayoutResult> allResults = m_layoutResult.getSpatialIndex().getResults();
         for (LayoutEngine.LayoutResult result : allResults) {
             if (result.bounds.y <= targetY && (result.bounds.y + result.bounds.height) > targetY) {
                 return m_navigator.globalOffsetToPosition(result.globalStartOffset);
@@ -1249,12 +1373,13 @@ public class LayoutCanvas extends BufferedCanvasView {
                 x,
                 y
             );
+            beginResizePreview();
             requestRender();
             event.consume();
             return;
         }
         
-        LayoutEngine.LayoutResult clicked = m_layoutResult.findAtPoint(x, y);
+        LayoutEngine.LayoutResult clicked = m_layoutResult.getSpatialIndex().findAtPoint(x, y);
         if (clicked != null) {
             // For text segments, find character position
             if (clicked.segment.getType() == LayoutSegment.SegmentType.TEXT) {
@@ -1361,7 +1486,7 @@ public class LayoutCanvas extends BufferedCanvasView {
 
 
     private void handleMouseDragged(MouseEvent event) {
-        if (!m_isSelecting || m_layoutResult == null) return;
+        if (m_layoutResult == null) return;
         double mouseX = event.getX();
         double mouseY = event.getY();
 
@@ -1378,12 +1503,16 @@ public class LayoutCanvas extends BufferedCanvasView {
                 y
             );
             
+            updateResizePreview();
+            
             // Request render to show preview
             requestRender();
             event.consume();
             return;
         }
         
+        if (!m_isSelecting) return;
+        
         pendingDragEvent.set(() -> processDragEvent(mouseX, mouseY));
 
         if (isDragProcessing.compareAndSet(false, true)) {
@@ -1430,13 +1559,15 @@ public class LayoutCanvas extends BufferedCanvasView {
             m_scrollY = Math.min(m_maxScrollY, m_scrollY + scrollDelta);
         }
         
+        refreshLayoutWindow();
+        
         int x = (int) mouseX - paddingLeft + m_scrollX;
         int y = (int) mouseY - paddingTop + m_scrollY;
         
         x = Math.max(0, Math.min(x, m_layoutResult.bounds.width));
         y = Math.max(0, Math.min(y, m_layoutResult.bounds.height));
         
-        LayoutEngine.LayoutResult dragged = m_layoutResult.findAtPoint(x, y);
+        LayoutEngine.LayoutResult dragged = m_layoutResult.getSpatialIndex().findAtPoint(x, y);
         if (dragged != null) {
             if (dragged.segment.getType() == LayoutSegment.SegmentType.TEXT) {
                 int charPos = findCharacterAtPosition(dragged, x);
@@ -1477,7 +1608,7 @@ public class LayoutCanvas extends BufferedCanvasView {
                 int x = (int) event.getX() - paddingLeft + m_scrollX;
                 int y = (int) event.getY() - paddingTop + m_scrollY;
                 
-                LayoutEngine.LayoutResult clicked = m_layoutResult.findAtPoint(x, y);
+                LayoutEngine.LayoutResult clicked = m_layoutResult.getSpatialIndex().findAtPoint(x, y);
                 if (clicked != null) {
                     m_onSegmentClick.accept(new SegmentClickEvent(
                         clicked.segment, 
@@ -1502,7 +1633,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         int y = (int) event.getY() - paddingTop + m_scrollY;
         
         // Find the segment at the clicked point using the layout tree
-        LayoutEngine.LayoutResult clicked = m_layoutResult.findAtPoint(x, y);
+        LayoutEngine.LayoutResult clicked = m_layoutResult.getSpatialIndex().findAtPoint(x, y);
         if (clicked == null) return;
         
         // Check if this segment has link properties
@@ -1518,7 +1649,7 @@ public class LayoutCanvas extends BufferedCanvasView {
                 link.visited = true;
                 
                 // Mark segment dirty to trigger re-layout if needed
-                clicked.segment.markDirty();
+                clicked.node.markDirty();
                 
                 // Force content layer redraw to show visited state
                 m_contentDirty = true;
@@ -1533,6 +1664,87 @@ public class LayoutCanvas extends BufferedCanvasView {
         }
     }
 
+    // ========== Live Grid Resize ==========
+    
+    private void beginResizePreview() {
+        m_resizeBase = m_resizingContainer.gridLayoutResult;
+        m_resizeOrigins = new Rectangle[m_resizingContainer.children.size()];
+        m_resizeCells = new int[m_resizeOrigins.length];
+        for (int i = 0; i < m_resizeOrigins.length; i++) {
+            LayoutEngine.LayoutResult child = m_resizingContainer.children.get(i);
+            m_resizeOrigins[i] = new Rectangle(child.bounds);
+            // display:none children have no result, so cells are matched by node index
+            m_resizeCells[i] = m_resizingContainer.node.indexOf(child.node);
+        }
+    }
+    
+    /**
+     * Re-position the dragged grid's cells from the incremental track update
+     */
+    private void updateResizePreview() {
+        if (m_resizeBase == null || m_resizingContainer == null) return;
+        
+        GridLayoutProperties gridProps = m_resizingContainer.segment.getGridLayout();
+        if (gridProps == null) return;
+        
+        GridResizeHandler.ResizeHandle handle = m_activeResize.handle;
+        int newSize = Math.max(gridProps.minTrackSize, handle.initialSize + m_activeResize.currentDelta);
+        
+        GridLayoutEngine.GridLayoutResult preview = GridLayoutEngine.resizeTrack(
+            m_resizeBase,
+            handle.type == GridResizeHandler.HandleType.ROW,
+            handle.trackIndex,
+            newSize,
+            gridProps,
+            m_resizingContainer.segment.getLayout().padding
+        );
+        
+        applyGridCells(preview);
+    }
+    
+    private void endResizePreview() {
+        if (m_resizeBase != null && m_resizingContainer != null) {
+            applyGridCells(m_resizeBase);
+        }
+        m_resizeBase = null;
+        m_resizeOrigins = null;
+        m_resizeCells = null;
+    }
+    
+    /**
+     * Move the resizing container's children to the cells of a grid solution.
+     * Child bounds may be translated relative to the grid's cells (windowed
+     * layout), so the drag-start offset between them is preserved.
+     */
+    private void applyGridCells(GridLayoutEngine.GridLayoutResult grid) {
+        List<LayoutEngine.LayoutResult> children = m_resizingContainer.children;
+        int count = Math.min(children.size(), m_resizeOrigins.length);
+        
+        for (int i = 0; i < count; i++) {
+            int cellIndex = m_resizeCells[i];
+            if (cellIndex < 0 || cellIndex >= grid.cellBounds.size() ||
+                cellIndex >= m_resizeBase.cellBounds.size()) {
+                continue;
+            }
+            
+            Rectangle base = m_resizeBase.cellBounds.get(cellIndex);
+            Rectangle origin = m_resizeOrigins[i];
+            Rectangle cell = grid.cellBounds.get(cellIndex);
+            
+            Rectangle bounds = children.get(i).bounds;
+            bounds.setBounds(
+                cell.x + origin.x - base.x,
+                cell.y + origin.y - base.y,
+                cell.width,
+                cell.height
+            );
+        }
+        
+        m_resizingContainer.gridLayoutResult = grid;
+        m_layoutResult.invalidateSpatialIndex();
+        m_contentDirty = true;
+    }
+
     private void handleMouseReleased(MouseEvent event) {
         
         m_isSelecting = false;
@@ -1541,6 +1753,10 @@ public class LayoutCanvas extends BufferedCanvasView {
             LayoutSegment segment = m_resizingContainer.segment;
             GridLayoutProperties gridProps = segment.getGridLayout();
             
+            // Put the (possibly cached) layout back the way it was; the
+            // relayout below produces the committed track sizes
+            endResizePreview();
+            
             if (gridProps != null) {
                 // Apply the resize
                 GridResizeHandler.applyResize(
@@ -1550,7 +1766,7 @@ public class LayoutCanvas extends BufferedCanvasView {
                 );
                 
                 // Mark segment as dirty
-                segment.markDirty();
+                m_resizingContainer.node.markDirty();
                 
                 invalidateLayout();
             }
@@ -1609,7 +1825,7 @@ public class LayoutCanvas extends BufferedCanvasView {
     private void selectSegmentAtCursor() {
         if (m_layoutResult == null) return;
         
-        LayoutEngine.LayoutResult result = m_layoutResult.findAtOffset(m_cursor.getGlobalOffset());
+        LayoutEngine.LayoutResult result = m_layoutResult.getSpatialIndex().findAtOffset(m_cursor.getGlobalOffset());
         if (result == null) return;
         
         CursorSelectionSystem.CursorPosition startPos = 
@@ -1684,10 +1900,10 @@ public class LayoutCanvas extends BufferedCanvasView {
     }
     
     private void selectAll(boolean render) {
-        if (m_segments.size() == 0) return;
+        if (!m_document.hasChildren()) return;
         
         CursorSelectionSystem.CursorPosition start = new CursorSelectionSystem.CursorPosition();
-        int totalLength = m_navigator.getTotalContentLength(m_segments);
+        int totalLength = m_navigator.getTotalContentLength();
         CursorSelectionSystem.CursorPosition end = m_navigator.globalOffsetToPosition(totalLength);
         
         m_selection = new CursorSelectionSystem.Selection(start, end);
@@ -1700,10 +1916,11 @@ public class LayoutCanvas extends BufferedCanvasView {
 
 
     private void insertAtCursor(String text) {
-        LayoutSegment segment = m_navigator.getSegmentAt(m_cursor);
-        if (segment == null || segment.getType() != LayoutSegment.SegmentType.TEXT) {
+        SegmentNode node = m_navigator.getNodeAt(m_cursor);
+        if (node == null || node.getType() != LayoutSegment.SegmentType.TEXT) {
             return;
         }
+        LayoutSegment segment = node.getSegment();
         
         NoteIntegerArray content = segment.getTextContent();
         if (content == null) return;
@@ -1712,6 +1929,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         int insertOffset = m_cursor.getLocalOffset();
         
         content.insert(m_cursor.getLocalOffset(), text);
+        node.markDirty();
     
         m_navigator.notifyTextInsert(m_cursor, text.length());
 
@@ -1735,10 +1953,11 @@ public class LayoutCanvas extends BufferedCanvasView {
     private void deleteBeforeCursor() {
         if (m_cursor.getGlobalOffset() == 0) return;
         
-        LayoutSegment segment = m_navigator.getSegmentAt(m_cursor);
-        if (segment == null || segment.getType() != LayoutSegment.SegmentType.TEXT) {
+        SegmentNode node = m_navigator.getNodeAt(m_cursor);
+        if (node == null || node.getType() != LayoutSegment.SegmentType.TEXT) {
             return;
         }
+        LayoutSegment segment = node.getSegment();
         
         if (!segment.getInteraction().editable) return;
         
@@ -1749,7 +1968,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         int deleteOffset = m_cursor.getLocalOffset() - 1;
         
         content.deleteCodePointAt(deleteOffset);
-        
+        node.markDirty();
         
         m_navigator.notifyTextDelete(m_cursor, 1);
 
@@ -1773,10 +1992,11 @@ public class LayoutCanvas extends BufferedCanvasView {
     }
 
     private void deleteAfterCursor() {
-        LayoutSegment segment = m_navigator.getSegmentAt(m_cursor);
-        if (segment == null || segment.getType() != LayoutSegment.SegmentType.TEXT) {
+        SegmentNode node = m_navigator.getNodeAt(m_cursor);
+        if (node == null || node.getType() != LayoutSegment.SegmentType.TEXT) {
             return;
         }
+        LayoutSegment segment = node.getSegment();
         
         if (!segment.getInteraction().editable) return;
         
@@ -1786,6 +2006,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         }
         
         content.deleteCodePointAt(m_cursor.getLocalOffset());
+        node.markDirty();
         
         // NEW: Update navigator incrementally
         m_navigator.notifyTextDelete(m_cursor, 1);
@@ -1801,12 +2022,13 @@ public class LayoutCanvas extends BufferedCanvasView {
         CursorSelectionSystem.CursorPosition end = normalized.getEnd();
         
         if (start.getSegmentPath().equals(end.getSegmentPath())) {
-            LayoutSegment segment = m_navigator.getSegmentAt(start);
-            if (segment != null && segment.getType() == LayoutSegment.SegmentType.TEXT) {
-                NoteIntegerArray text = segment.getTextContent();
+            SegmentNode node = m_navigator.getNodeAt(start);
+            if (node != null && node.getType() == LayoutSegment.SegmentType.TEXT) {
+                NoteIntegerArray text = node.getSegment().getTextContent();
                 if (text != null) {
                     int deleteLen = end.getLocalOffset() - start.getLocalOffset();
                     text.delete(start.getLocalOffset(), end.getLocalOffset());
+                    node.markDirty();
                     m_navigator.notifyTextDelete(start, deleteLen);
                 }
             }
@@ -1827,7 +2049,7 @@ public class LayoutCanvas extends BufferedCanvasView {
         int endGlobal = end.getGlobalOffset();
         
         List<LayoutEngine.LayoutResult> allResults = m_layoutResult != null ? 
-            m_layoutResult.flatten() : new ArrayList<>();
+            m_layoutResult.getSpatialIndex().getResults() : new ArrayList<>();
         
         List<LayoutEngine.LayoutResult> affectedSegments = new ArrayList<>();
         for (LayoutEngine.LayoutResult result : allResults) {
@@ -1855,6 +2077,7 @@ public class LayoutCanvas extends BufferedCanvasView {
             
             if (deleteEnd > deleteStart) {
                 text.delete(deleteStart, deleteEnd);
+                result.node.markDirty();
             }
         }
     }
@@ -1895,43 +2118,144 @@ public class LayoutCanvas extends BufferedCanvasView {
     }*/
     
     private void rebuildNavigator() {
-        m_navigator = new CursorSelectionSystem.CursorNavigator(m_segments);
+        m_navigator = new CursorSelectionSystem.CursorNavigator(m_document);
     }
     
+    /**
+     * Get the serialized top-level segments (dirty segments are re-serialized first)
+     */
     public NoteBytesArray getSegments() {
-        return m_segments;
+        return m_document.getChildData();
+    }
+    
+    /**
+     * Get the parsed document tree
+     */
+    public SegmentNode getDocument() {
+        return m_document;
     }
     
     public void setSegments(NoteBytesArray segments, boolean render) {
-        m_segments = segments;
+        m_document = SegmentNode.createRoot(segments);
+        m_windowedLayoutStale = true;
         rebuildNavigator();
         m_cursor = new CursorSelectionSystem.CursorPosition();
         m_selection = null;
+        requestImages(m_document);
         invalidateLayout();
     }
     
     public void addSegment(LayoutSegment segment) {
-        m_segments.add(segment.getData());
+        SegmentNode node = SegmentNode.fromSegment(segment);
+        m_document.addChild(node);
+        m_windowedLayoutStale = true;
+        requestImages(node);
         m_navigator.invalidateCache();
         invalidateLayout();
     }
     
     public void addSegment(int index, LayoutSegment segment) {
-        m_segments.add(index, segment.getData());
+        SegmentNode node = SegmentNode.fromSegment(segment);
+        m_document.insertChild(index, node);
+        m_windowedLayoutStale = true;
+        requestImages(node);
         m_navigator.invalidateCache();
         invalidateLayout();
     }
     
     public void removeSegment(int index) {
-        if (index >= 0 && index < m_segments.size()) {
-            m_segments.remove(index);
+        if (m_document.removeChild(index) != null) {
+            m_windowedLayoutStale = true;
             m_navigator.invalidateCache();
             invalidateLayout();
         }
     }
+
+    /**
+     * Replace `removeCount` top-level segments at `index` with `segments`.
+     * Nodes outside the range are untouched, so their cached hashes and
+     * layout remain valid (see IncrementalMarkdownParser.Splice).
+     */
+    public void replaceSegments(int index, int removeCount, List<LayoutSegment> segments) {
+        if (index < 0 || removeCount < 0 || index + removeCount > m_document.getChildCount()) {
+            throw new IndexOutOfBoundsException("Splice " + index + "+" + removeCount +
+                " outside " + m_document.getChildCount() + " segments");
+        }
+
+        for (int i = 0; i < removeCount; i++) {
+            m_document.removeChild(index);
+        }
+        for (int i = 0; i < segments.size(); i++) {
+            SegmentNode node = SegmentNode.fromSegment(segments.get(i));
+            m_document.insertChild(index + i, node);
+            requestImages(node);
+        }
+        m_windowedLayoutStale = true;
+        m_navigator.invalidateCache();
+        invalidateLayout();
+    }
+
+    /**
+     * Fetch the content of placeholder images under `node`. Each image is
+     * patched in on the FX thread if its node is still in the document.
+     */
+    private void requestImages(SegmentNode node) {
+        if (m_imagePipeline == null) return;
+
+        if (node.getSegment() != null && node.getSegment().isImagePending()) {
+            String src = node.getSegment().getImageSource();
+            m_imagePipeline.fetch(src).whenComplete((image, ex) -> TaskUtils.noDelay(_ -> {
+                if (ex != null) {
+                    System.err.println("Failed to load image: " + src + " - " + ex.getMessage());
+                    return;
+                }
+                if (!isAttached(node) || !node.getSegment().isImagePending()) return;
+
+                node.getSegment().setImageContent(image);
+                node.markDirty();
+                invalidateLayout();
+            }));
+        }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            requestImages(node.getChild(i));
+        }
+    }
+
+    private boolean isAttached(SegmentNode node) {
+        SegmentNode current = node;
+        while (current.getParent() != null) {
+            current = current.getParent();
+        }
+        return current == m_document;
+    }
+
+    /**
+     * Get the top-level index of a segment instance, or -1
+     */
+    public int indexOfSegment(LayoutSegment segment) {
+        for (int i = 0; i < m_document.getChildCount(); i++) {
+            if (m_document.getChild(i).getSegment() == segment) {
+                return i;
+            }
+        }
+        return -1;
+    }
+    
+    /**
+     * Notify the canvas that a segment's properties or content were mutated in place
+     */
+    public void invalidateSegment(LayoutSegment segment) {
+        SegmentNode node = m_document.find(segment);
+        if (node != null) {
+            node.markDirty();
+        }
+        m_navigator.invalidateCache();
+        invalidateLayout();
+    }
     
     public void clear() {
-        m_segments.clear();
+        m_document.clearChildren();
+        m_windowedLayoutStale = true;
         rebuildNavigator();
         m_cursor = new CursorSelectionSystem.CursorPosition();
         m_selection = null;
@@ -1969,7 +2293,7 @@ public class LayoutCanvas extends BufferedCanvasView {
     
     public LayoutEngine.LayoutResult getLayoutResultAtCursor() {
         if (m_layoutResult == null) return null;
-        return m_layoutResult.findAtOffset(m_cursor.getGlobalOffset());
+        return m_layoutResult.getSpatialIndex().findAtOffset(m_cursor.getGlobalOffset());
     }
     
     public List<LayoutEngine.LayoutResult> getAllLayoutResults() {
@@ -2005,6 +2329,17 @@ public class LayoutCanvas extends BufferedCanvasView {
     public void setHostServices(HostServices hostServices) {
         m_hostServices = hostServices;
     }
+
+    /**
+     * Set the pipeline placeholder images are fetched with; null disables fetching
+     */
+    public void setImagePipeline(ImageFetchPipeline pipeline) {
+        m_imagePipeline = pipeline;
+    }
+
+    public ImageFetchPipeline getImagePipeline() {
+        return m_imagePipeline;
+    }
     
     public void setBackgroundColor(Color color, boolean render) {
         m_backgroundColor = color;
@@ -2097,6 +2432,7 @@ public class LayoutCanvas extends BufferedCanvasView {
     }
 
      private void checkScrollContentDirty() {
+        refreshLayoutWindow();
         if (Math.abs(m_scrollX - m_lastRenderScrollX) > RENDER_BUFFER ||
             Math.abs(m_scrollY - m_lastRenderScrollY) > RENDER_BUFFER) {
             m_contentDirty = true;
@@ -2105,9 +2441,26 @@ public class LayoutCanvas extends BufferedCanvasView {
 
     // ========== Public API ==========
 
+    /**
+     * Enable viewport-windowed layout for very long documents.
+     * Only top-level blocks near the viewport are laid out; the rest use
+     * estimated heights until scrolled into range.
+     */
+    public void setWindowedLayoutEnabled(boolean enabled) {
+        if (m_windowedLayoutEnabled == enabled) return;
+        m_windowedLayoutEnabled = enabled;
+        m_windowedLayout = null;
+        invalidateLayout();
+    }
+    
+    public boolean isWindowedLayoutEnabled() {
+        return m_windowedLayoutEnabled;
+    }
+    
     public void setGridResizeEnabled(boolean enabled) {
         m_gridResizeEnabled = enabled;
         if (!enabled) {
+            endResizePreview();
             m_activeResize = null;
             m_hoverHandle = null;
             m_resizingContainer = null;
@@ -2122,6 +2475,7 @@ public class LayoutCanvas extends BufferedCanvasView {
 
     public void cancelResize() {
         if (m_activeResize != null) {
+            endResizePreview();
             m_activeResize = null;
             m_resizingContainer = null;
             requestRender();
@@ -2131,7 +2485,7 @@ public class LayoutCanvas extends BufferedCanvasView {
     public void scrollToSegment(LayoutSegment segment, boolean render) {
         if (m_layoutResult == null) return;
         
-        List<LayoutEngine.LayoutResult> results = m_layoutResult.flatten();
+        List<LayoutEngine.LayoutResult> results = m_layoutResult.getSpatialIndex().getResults();
         for (LayoutEngine.LayoutResult result : results) {
             if (result.segment == segment) {
                 Rectangle bounds = result.bounds;
@@ -2278,10 +2632,11 @@ public class LayoutCanvas extends BufferedCanvasView {
 
         
         
-        m_segments = null;
+        m_document = null;
         m_layoutEngine = null;
         m_navigator = null;
         m_layoutResult = null;
+        m_windowedLayout = null;
        
         return super.shutdown();
             
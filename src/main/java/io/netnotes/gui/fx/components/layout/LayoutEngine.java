@@ -2,17 +2,19 @@ package io.netnotes.gui.fx.components.layout;
 
 import io.netnotes.engine.noteBytes.NoteBytes;
 import io.netnotes.engine.noteBytes.NoteBytesArray;
-import io.netnotes.engine.noteBytes.NoteBytesObject;
 import io.netnotes.engine.noteBytes.NoteIntegerArray;
 import io.netnotes.engine.noteBytes.processing.IntCounter;
 import io.netnotes.engine.utils.MathHelpers;
 import io.netnotes.gui.fx.display.TextRenderer;
 import io.netnotes.gui.fx.noteBytes.NoteBytesImage;
+import io.netnotes.gui.fx.utils.TraceRecorder;
 
 import java.awt.*;
 import java.math.BigDecimal;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Layout Engine for computing segment positions and sizes.
@@ -34,6 +36,13 @@ public class LayoutEngine {
   
     private final TextRenderer textRenderer = TextRenderer.getInstance();
     
+    // Subtree measurements keyed by structural hash + constraints.
+    // Two generations: entries not used during a pass are dropped after it.
+    private Map<String, MeasuredSize> m_measureCache = new HashMap<>();
+    private Map<String, MeasuredSize> m_prevMeasureCache = new HashMap<>();
+    
+    // Memoized grid track solutions
+    private final GridLayoutEngine.TrackCache m_gridCache = new GridLayoutEngine.TrackCache(64);
 
 
     /**
@@ -106,6 +115,7 @@ public class LayoutEngine {
      * Result of laying out a segment (includes all children)
      */
     public static class LayoutResult {
+        public SegmentNode node;
         public LayoutSegment segment;
         public Rectangle bounds;
         public List<LayoutResult> children;
@@ -114,10 +124,12 @@ public class LayoutEngine {
         public GridLayoutEngine.GridLayoutResult gridLayoutResult = null;
         
         private GlyphBoundaryCache glyphCache = null;
+        private LayoutSpatialIndex spatialIndex = null;
 
         
-        public LayoutResult(LayoutSegment segment) {
-            this.segment = segment;
+        public LayoutResult(SegmentNode node) {
+            this.node = node;
+            this.segment = node.getSegment();
             this.bounds = new Rectangle(0, 0, 0, 0);
             this.children = new ArrayList<>();
         }
@@ -130,6 +142,26 @@ public class LayoutEngine {
             this.glyphCache = cache;
         }
         
+        /**
+         * Get the hit-test index for this subtree (built on first use).
+         * Results are not modified after layout, so the index stays valid
+         * for the lifetime of this tree.
+         */
+        public LayoutSpatialIndex getSpatialIndex() {
+            if (spatialIndex == null) {
+                spatialIndex = LayoutSpatialIndex.build(this);
+            }
+            return spatialIndex;
+        }
+        
+        /**
+         * Drop the hit-test index after bounds were modified in place
+         * (e.g. a live grid track drag)
+         */
+        public void invalidateSpatialIndex() {
+            spatialIndex = null;
+        }
+        
         /**
          * Find layout result at global offset
          */
@@ -192,89 +224,104 @@ public class LayoutEngine {
     }
     
     /**
-     * Perform full layout on segment tree
+     * Perform full layout on a binary segment array.
+     * Parses the array into a SegmentNode tree first; callers that lay out
+     * the same document repeatedly should keep the tree and use
+     * layout(SegmentNode, Constraints) instead.
      */
     public LayoutResult layout(NoteBytesArray segments, Constraints constraints) {
-        // Create virtual root container
-        LayoutSegment root = new LayoutSegment(LayoutSegment.SegmentType.CONTAINER);
-        root.getChildren().clear();
-        
-        // Copy segments into root
-        for (int i = 0; i < segments.size(); i++) {
-            root.getChildren().add(segments.get(i));
-        }
-        
+        return layout(SegmentNode.createRoot(segments), constraints);
+    }
+
+    /**
+     * Perform full layout on a parsed segment tree
+     */
+    public LayoutResult layout(SegmentNode root, Constraints constraints) {
+        long span = TraceRecorder.begin();
         LayoutResult result = new LayoutResult(root);
         LayoutContext ctx = new LayoutContext();
         
+        m_prevMeasureCache = m_measureCache;
+        m_measureCache = new HashMap<>();
+        
         layoutContainer(root, constraints, result, ctx);
         
+        m_prevMeasureCache.clear();
+        
+        TraceRecorder.end(TraceRecorder.LAYOUT_ENGINE, span, constraints.maxWidth);
         return result;
     }
     
+    /**
+     * Drop all cached subtree measurements
+     */
+    public void clearMeasureCache() {
+        m_measureCache.clear();
+        m_prevMeasureCache.clear();
+        m_gridCache.clear();
+    }
+    
     /**
      * Layout a container segment
      */
-    private void layoutContainer(LayoutSegment segment, Constraints constraints, LayoutResult result, LayoutContext ctx) {
-        if (!segment.isContainer() || !segment.hasChildren()) {
+    private void layoutContainer(SegmentNode node, Constraints constraints, LayoutResult result, LayoutContext ctx) {
+        if (!node.isContainer() || !node.hasChildren()) {
             return;
         }
         
         // Check if this is a grid layout container
-        if (segment.hasGridLayout()) {
-            layoutGridContainer(segment, constraints, result, ctx);
+        if (node.getSegment().hasGridLayout()) {
+            layoutGridContainer(node, constraints, result, ctx);
             return;
         }
         
         // Standard flow layout (original implementation)
-        layoutFlowContainer(segment, constraints, result, ctx);
+        layoutFlowContainer(node, constraints, result, ctx);
     }
 
     /**
      * Layout a grid-based container
      */
     private void layoutGridContainer(
-        LayoutSegment segment,
+        SegmentNode node,
         Constraints constraints,
         LayoutResult result,
         LayoutContext ctx
     ) {
+        LayoutSegment segment = node.getSegment();
         GridLayoutProperties gridProps = segment.getGridLayout();
-        NoteBytesArray children = segment.getChildren();
         
         // Apply padding
         Insets padding = segment.getLayout().padding;
         
         // Compute grid layout
         GridLayoutEngine.GridLayoutResult gridResult = GridLayoutEngine.computeLayout(
-            segment,
-            children,
+            node,
             constraints.maxWidth,
             constraints.maxHeight,
-            gridProps
+            gridProps,
+            m_gridCache
         );
         
         // Create layout results for children
-        for (int i = 0; i < children.size() && i < gridResult.cellBounds.size(); i++) {
-            NoteBytes item = children.get(i);
-            if (!(item instanceof NoteBytesObject)) continue;
-            
-            LayoutSegment childSegment = new LayoutSegment((NoteBytesObject) item);
+        for (int i = 0; i < node.getChildCount() && i < gridResult.cellBounds.size(); i++) {
+            SegmentNode childNode = node.getChild(i);
+            LayoutSegment childSegment = childNode.getSegment();
             
             // Skip display:none
             if (childSegment.getLayout().display == LayoutSegment.Display.NONE) {
                 continue;
             }
             
-            LayoutResult childResult = new LayoutResult(childSegment);
+            LayoutResult childResult = new LayoutResult(childNode);
             result.children.add(childResult);
             
-            // Set bounds from grid computation
-            childResult.bounds = gridResult.cellBounds.get(i);
+            // Set bounds from grid computation (copied: grid results are memoized and shared)
+            childResult.bounds = new Rectangle(gridResult.cellBounds.get(i));
             
             // Update cursor offsets
             childResult.globalStartOffset = ctx.globalOffset;
-            ctx.globalOffset += childSegment.getContentLength();
+            ctx.globalOffset += childNode.getContentLength();
             childResult.globalEndOffset = ctx.globalOffset;
             
             // Build glyph cache for text segments
@@ -283,12 +330,12 @@ public class LayoutEngine {
             }
             
             // Recursively layout children
-            if (childSegment.isContainer()) {
+            if (childNode.isContainer()) {
                 Constraints childConstraints = new Constraints(
                     childResult.bounds.width,
                     childResult.bounds.height
                 );
-                layoutContainer(childSegment, childConstraints, childResult, ctx);
+                layoutContainer(childNode, childConstraints, childResult, ctx);
             }
         }
         
@@ -296,22 +343,21 @@ public class LayoutEngine {
         result.bounds.width = gridResult.totalWidth + padding.left + padding.right;
         result.bounds.height = gridResult.totalHeight + padding.top + padding.bottom;
         
-        // Store grid result for potential resize operations
-        // You might want to add this to LayoutResult:
-        // result.gridLayoutResult = gridResult;
+        // Store grid result for resize handles and incremental track updates
+        result.gridLayoutResult = gridResult;
     }
 
     /**
      * Layout a standard flow container (original implementation)
      */
     private void layoutFlowContainer(
-        LayoutSegment segment,
+        SegmentNode node,
         Constraints constraints,
         LayoutResult result,
         LayoutContext ctx
     ) {
         // Apply padding
-        Insets padding = segment.getLayout().padding;
+        Insets padding = node.getLayout().padding;
         Constraints innerConstraints = constraints.deflate(padding);
         
         int startX = padding.left;
@@ -322,53 +368,8 @@ public class LayoutEngine {
         ctx.lineHeight = 0;
         ctx.maxLineWidth = 0;
         
-        NoteBytesArray children = segment.getChildren();
-        
-        for (int i = 0; i < children.size(); i++) {
-            NoteBytes item = children.get(i);
-            if (!(item instanceof NoteBytesObject)) continue;
-            
-            LayoutSegment childSegment = new LayoutSegment((NoteBytesObject) item);
-            
-            // Skip display:none
-            if (childSegment.getLayout().display == LayoutSegment.Display.NONE) {
-                continue;
-            }
-            
-            LayoutResult childResult = new LayoutResult(childSegment);
-            result.children.add(childResult);
-            
-            // Measure child
-            MeasuredSize measured = measure(childSegment, innerConstraints);
-            
-            // Layout based on display type
-            switch (childSegment.getLayout().display) {
-                case BLOCK:
-                    layoutBlock(childSegment, measured, innerConstraints, childResult, ctx);
-                    break;
-                    
-                case INLINE:
-                case INLINE_BLOCK:
-                    layoutInline(childSegment, measured, innerConstraints, childResult, ctx, startX);
-                    break;
-                    
-                case HIDDEN:
-                    // Takes space but not visible
-                    layoutBlock(childSegment, measured, innerConstraints, childResult, ctx);
-                    break;
-                    
-                default:
-                    break;
-            }
-            
-            // Recursively layout children
-            if (childSegment.isContainer()) {
-                Constraints childConstraints = new Constraints(
-                    childResult.bounds.width,
-                    childResult.bounds.height
-                );
-                layoutContainer(childSegment, childConstraints, childResult, ctx);
-            }
+        for (int i = 0; i < node.getChildCount(); i++) {
+            layoutFlowChild(node.getChild(i), innerConstraints, result, ctx, startX);
         }
         
         // Flush remaining inline elements
@@ -383,17 +384,168 @@ public class LayoutEngine {
         result.bounds.width = contentWidth + padding.left + padding.right;
         result.bounds.height = contentHeight + padding.top + padding.bottom;
     }
+    
+    /**
+     * Layout one child of a flow container and its subtree
+     */
+    private void layoutFlowChild(
+        SegmentNode childNode,
+        Constraints innerConstraints,
+        LayoutResult result,
+        LayoutContext ctx,
+        int startX
+    ) {
+        LayoutSegment childSegment = childNode.getSegment();
+        
+        // Skip display:none
+        if (childSegment.getLayout().display == LayoutSegment.Display.NONE) {
+            return;
+        }
+        
+        LayoutResult childResult = new LayoutResult(childNode);
+        result.children.add(childResult);
+        
+        // Measure child
+        MeasuredSize measured = measure(childNode, innerConstraints);
+        
+        // Layout based on display type
+        switch (childSegment.getLayout().display) {
+            case BLOCK:
+                layoutBlock(childNode, measured, innerConstraints, childResult, ctx);
+                break;
+                
+            case INLINE:
+            case INLINE_BLOCK:
+                layoutInline(childNode, measured, innerConstraints, childResult, ctx, startX);
+                break;
+                
+            case HIDDEN:
+                // Takes space but not visible
+                layoutBlock(childNode, measured, innerConstraints, childResult, ctx);
+                break;
+                
+            default:
+                break;
+        }
+        
+        // Recursively layout children
+        if (childNode.isContainer()) {
+            Constraints childConstraints = new Constraints(
+                childResult.bounds.width,
+                childResult.bounds.height
+            );
+            layoutContainer(childNode, childConstraints, childResult, ctx);
+        }
+    }
+    
+    // ========== Windowed Layout Support ==========
+    
+    /**
+     * Layout children [from, to) of a flow container in isolation, as if
+     * they were the only content, starting at y = 0.
+     * Used by WindowedLayout to lay out one top-level block at a time.
+     */
+    List<LayoutResult> layoutRange(
+        SegmentNode parent,
+        int from,
+        int to,
+        Constraints constraints,
+        int globalOffset
+    ) {
+        Insets padding = parent.getLayout().padding;
+        Constraints innerConstraints = constraints.deflate(padding);
+        
+        LayoutResult holder = new LayoutResult(parent);
+        LayoutContext ctx = new LayoutContext();
+        ctx.currentX = padding.left;
+        ctx.globalOffset = globalOffset;
+        
+        for (int i = from; i < to; i++) {
+            layoutFlowChild(parent.getChild(i), innerConstraints, holder, ctx, padding.left);
+        }
+        
+        if (!ctx.currentLine.isEmpty()) {
+            flushLine(ctx, padding.left, innerConstraints.maxWidth);
+        }
+        
+        return holder.children;
+    }
+    
+    /**
+     * Estimate the height of children [from, to) of a flow container
+     * without building results (no glyph caches, no subtree layout)
+     */
+    int estimateRangeHeight(SegmentNode parent, int from, int to, Constraints constraints) {
+        Insets padding = parent.getLayout().padding;
+        Constraints innerConstraints = constraints.deflate(padding);
+        
+        int y = 0;
+        int lineX = 0;
+        int lineHeight = 0;
+        
+        for (int i = from; i < to; i++) {
+            SegmentNode child = parent.getChild(i);
+            LayoutSegment segment = child.getSegment();
+            LayoutSegment.Display display = segment.getLayout().display;
+            
+            if (display == LayoutSegment.Display.NONE) {
+                continue;
+            }
+            
+            MeasuredSize measured = measure(child, innerConstraints);
+            Insets margin = segment.getLayout().margin;
+            int height = resolveHeight(segment, measured, innerConstraints) + margin.top + margin.bottom;
+            
+            if (display == LayoutSegment.Display.BLOCK || display == LayoutSegment.Display.HIDDEN) {
+                y += lineHeight + height;
+                lineX = 0;
+                lineHeight = 0;
+            } else {
+                int width = resolveWidth(segment, measured, innerConstraints) + margin.left + margin.right;
+                if (lineX + width > innerConstraints.maxWidth && lineX > 0) {
+                    y += lineHeight;
+                    lineX = 0;
+                    lineHeight = 0;
+                }
+                lineX += width;
+                lineHeight = Math.max(lineHeight, height);
+            }
+        }
+        
+        return y + lineHeight;
+    }
+    
+    /**
+     * Number of global offsets a subtree advances during layout.
+     * Matches the offset bookkeeping of layoutBlock/layoutInline/layoutGridContainer,
+     * where a container counts its own length and then each visible child.
+     */
+    static int offsetSpan(SegmentNode node) {
+        if (node.getLayout().display == LayoutSegment.Display.NONE) {
+            return 0;
+        }
+        
+        int span = node.getContentLength();
+        if (node.isContainer()) {
+            for (int i = 0; i < node.getChildCount(); i++) {
+                span += offsetSpan(node.getChild(i));
+            }
+        }
+        return span;
+    }
             
         /**
      * Layout a block-level segment
      */
     private void layoutBlock(
-        LayoutSegment segment,
+        SegmentNode node,
         MeasuredSize measured,
         Constraints constraints,
         LayoutResult result,
         LayoutContext ctx
     ) {
+        LayoutSegment segment = node.getSegment();
+        
         // Flush any pending inline elements
         if (!ctx.currentLine.isEmpty()) {
             flushLine(ctx, 0, constraints.maxWidth);
@@ -417,7 +569,7 @@ public class LayoutEngine {
         
         // Update cursor offsets
         result.globalStartOffset = ctx.globalOffset;
-        ctx.globalOffset += segment.getContentLength();
+        ctx.globalOffset += node.getContentLength();
         result.globalEndOffset = ctx.globalOffset;
         
         // NEW: Build glyph cache for text segments
@@ -434,13 +586,15 @@ public class LayoutEngine {
      * Layout an inline or inline-block segment
      */
     private void layoutInline(
-        LayoutSegment segment,
+        SegmentNode node,
         MeasuredSize measured,
         Constraints constraints,
         LayoutResult result,
         LayoutContext ctx,
         int startX
     ) {
+        LayoutSegment segment = node.getSegment();
+        
         Insets margin = segment.getLayout().margin;
         
         int width = resolveWidth(segment, measured, constraints);
@@ -461,7 +615,7 @@ public class LayoutEngine {
         
         // Update cursor offsets
         result.globalStartOffset = ctx.globalOffset;
-        ctx.globalOffset += segment.getContentLength();
+        ctx.globalOffset += node.getContentLength();
         result.globalEndOffset = ctx.globalOffset;
         
         // NEW: Build glyph cache for text segments
@@ -517,16 +671,14 @@ public class LayoutEngine {
     /**
      * Measure intrinsic size of a segment
      */
-    private MeasuredSize measure(LayoutSegment segment, Constraints constraints) {
-        switch (segment.getType()) {
+    private MeasuredSize measure(SegmentNode node, Constraints constraints) {
+        switch (node.getType()) {
             case TEXT:
-                return measureText(segment, constraints);
-                
             case CONTAINER:
-                return measureContainer(segment, constraints);
+                return measureCached(node, constraints);
                 
             case IMAGE:
-                return measureImage(segment, constraints);
+                return measureImage(node.getSegment(), constraints);
                 
             case SPACER:
                 return new MeasuredSize(0, 0);
@@ -536,6 +688,29 @@ public class LayoutEngine {
         }
     }
     
+    /**
+     * Measure text or container subtree, reusing the result for unchanged
+     * subtrees (same structural hash) under the same constraints
+     */
+    private MeasuredSize measureCached(SegmentNode node, Constraints constraints) {
+        String key = node.getHashString() + "_" + constraints.maxWidth + "x" + constraints.maxHeight;
+        
+        MeasuredSize size = m_measureCache.get(key);
+        if (size != null) {
+            return size;
+        }
+        
+        size = m_prevMeasureCache.get(key);
+        if (size == null) {
+            size = node.getType() == LayoutSegment.SegmentType.TEXT
+                ? measureText(node.getSegment(), constraints)
+                : measureContainer(node, constraints);
+        }
+        
+        m_measureCache.put(key, size);
+        return size;
+    }
+    
     /**
      * Measure text segment
      */
@@ -577,9 +752,9 @@ public class LayoutEngine {
     /**
      * Measure container segment
      */
-    private MeasuredSize measureContainer(LayoutSegment segment, Constraints constraints) {
-        if (!segment.hasChildren()) {
-            Insets padding = segment.getLayout().padding;
+    private MeasuredSize measureContainer(SegmentNode node, Constraints constraints) {
+        if (!node.hasChildren()) {
+            Insets padding = node.getLayout().padding;
             return new MeasuredSize(
                 padding.left + padding.right,
                 padding.top + padding.bottom
@@ -587,18 +762,14 @@ public class LayoutEngine {
         }
         
         // Recursively measure children
-        Insets padding = segment.getLayout().padding;
+        Insets padding = node.getLayout().padding;
         Constraints innerConstraints = constraints.deflate(padding);
         
         int maxWidth = 0;
         int totalHeight = 0;
         
-        NoteBytesArray children = segment.getChildren();
-        for (int i = 0; i < children.size(); i++) {
-            NoteBytes item = children.get(i);
-            if (!(item instanceof NoteBytesObject)) continue;
-            
-            LayoutSegment child = new LayoutSegment((NoteBytesObject) item);
+        for (int i = 0; i < node.getChildCount(); i++) {
+            SegmentNode child = node.getChild(i);
             
             if (child.getLayout().display == LayoutSegment.Display.NONE) {
                 continue;
@@ -629,7 +800,8 @@ public class LayoutEngine {
         // Try to get actual image dimensions
         NoteBytes binaryContent = segment.getBinaryContent();
         
-        if (binaryContent != null) {
+        // Placeholders (no content yet) reserve space from hints below
+        if (binaryContent != null && !segment.isImagePending()) {
             try {
                 // Convert to NoteBytesImage if not already
                 boolean isCached = binaryContent instanceof NoteBytesImage;
@@ -0,0 +1,188 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Indexed dispatch of LayoutEvents to handlers and pending requests.
+ *
+ * Handlers are held in copy-on-write arrays indexed by:
+ * - event type (array slot per EventType ordinal)
+ * - segment id (hash map)
+ * - event type + segment id (hash map per type)
+ *
+ * Dispatch is a few lookups and array loops: no handler is visited unless
+ * it matches, and nothing is allocated per event.
+ *
+ * Pending requests are keyed by correlation id. An event carrying a
+ * correlation id completes exactly that request; an uncorrelated event
+ * completes the oldest pending request waiting for its type.
+ */
+class LayoutEventRouter {
+    @SuppressWarnings("unchecked")
+    private static final Consumer<LayoutEvent>[] NO_HANDLERS = new Consumer[0];
+    private static final LayoutEvent.EventType[] TYPES = LayoutEvent.EventType.values();
+
+    private volatile Consumer<LayoutEvent>[][] m_byType;
+    private final Map<String, Consumer<LayoutEvent>[]> m_bySegment = new ConcurrentHashMap<>();
+    private final Map<String, Consumer<LayoutEvent>[]>[] m_byTypeAndSegment;
+
+    private final Map<Integer, PendingRequest> m_pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<PendingRequest>[] m_pendingByType;
+    private final AtomicInteger m_nextCorrelationId = new AtomicInteger(1);
+
+    @SuppressWarnings("unchecked")
+    LayoutEventRouter() {
+        m_byType = new Consumer[TYPES.length][];
+        Arrays.fill(m_byType, NO_HANDLERS);
+
+        m_byTypeAndSegment = new Map[TYPES.length];
+        m_pendingByType = new ConcurrentLinkedQueue[TYPES.length];
+        for (int i = 0; i < TYPES.length; i++) {
+            m_byTypeAndSegment[i] = new ConcurrentHashMap<>();
+            m_pendingByType[i] = new ConcurrentLinkedQueue<>();
+        }
+    }
+
+    // ========== Registration ==========
+
+    synchronized void addTypeHandler(LayoutEvent.EventType type, Consumer<LayoutEvent> handler) {
+        Consumer<LayoutEvent>[][] byType = m_byType.clone();
+        byType[type.ordinal()] = append(byType[type.ordinal()], handler);
+        m_byType = byType;
+    }
+
+    void addSegmentHandler(String segmentId, Consumer<LayoutEvent> handler) {
+        m_bySegment.merge(segmentId, single(handler), LayoutEventRouter::concat);
+    }
+
+    void addHandler(LayoutEvent.EventType type, String segmentId, Consumer<LayoutEvent> handler) {
+        m_byTypeAndSegment[type.ordinal()].merge(segmentId, single(handler), LayoutEventRouter::concat);
+    }
+
+    /**
+     * Drop every handler registered for a segment id (e.g. when the segment is removed)
+     */
+    void removeSegmentHandlers(String segmentId) {
+        m_bySegment.remove(segmentId);
+        for (Map<String, Consumer<LayoutEvent>[]> map : m_byTypeAndSegment) {
+            map.remove(segmentId);
+        }
+    }
+
+    // ========== Pending Requests ==========
+
+    /**
+     * Register a request waiting for an event of the given type
+     *
+     * @return the request; its correlation id must be sent with the command
+     */
+    PendingRequest expect(LayoutEvent.EventType type, long timeoutMs) {
+        int correlationId = m_nextCorrelationId.getAndIncrement();
+        PendingRequest request = new PendingRequest(correlationId, type);
+
+        m_pending.put(correlationId, request);
+        m_pendingByType[type.ordinal()].add(request);
+
+        request.future
+            .orTimeout(timeoutMs, TimeUnit.MILLISECONDS)
+            .whenComplete((_, _) -> {
+                m_pending.remove(correlationId);
+                m_pendingByType[type.ordinal()].remove(request);
+            });
+        return request;
+    }
+
+    int getPendingCount() {
+        return m_pending.size();
+    }
+
+    // ========== Dispatch ==========
+
+    void dispatch(LayoutEvent event) {
+        int ordinal = event.type.ordinal();
+
+        completePending(event, ordinal);
+
+        Consumer<LayoutEvent>[] handlers = m_byType[ordinal];
+        for (int i = 0; i < handlers.length; i++) {
+            handlers[i].accept(event);
+        }
+
+        if (event.segmentId != null) {
+            handlers = m_bySegment.get(event.segmentId);
+            if (handlers != null) {
+                for (int i = 0; i < handlers.length; i++) {
+                    handlers[i].accept(event);
+                }
+            }
+
+            handlers = m_byTypeAndSegment[ordinal].get(event.segmentId);
+            if (handlers != null) {
+                for (int i = 0; i < handlers.length; i++) {
+                    handlers[i].accept(event);
+                }
+            }
+        }
+    }
+
+    private void completePending(LayoutEvent event, int ordinal) {
+        if (m_pending.isEmpty()) return;
+
+        if (event.correlationId >= 0) {
+            PendingRequest request = m_pending.get(event.correlationId);
+            if (request != null && request.type == event.type) {
+                request.future.complete(event);
+            }
+            return;
+        }
+
+        // Uncorrelated: oldest request still waiting for this type
+        ConcurrentLinkedQueue<PendingRequest> queue = m_pendingByType[ordinal];
+        PendingRequest request;
+        while ((request = queue.poll()) != null) {
+            if (request.future.complete(event)) {
+                return;
+            }
+        }
+    }
+
+    // ========== Helpers ==========
+
+    @SuppressWarnings("unchecked")
+    private static Consumer<LayoutEvent>[] single(Consumer<LayoutEvent> handler) {
+        return new Consumer[]{ handler };
+    }
+
+    private static Consumer<LayoutEvent>[] concat(Consumer<LayoutEvent>[] a, Consumer<LayoutEvent>[] b) {
+        Consumer<LayoutEvent>[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+
+    private static Consumer<LayoutEvent>[] append(Consumer<LayoutEvent>[] handlers, Consumer<LayoutEvent> handler) {
+        Consumer<LayoutEvent>[] result = Arrays.copyOf(handlers, handlers.length + 1);
+        result[handlers.length] = handler;
+        return result;
+    }
+
+    /**
+     * A request waiting for a response event
+     */
+    static class PendingRequest {
+        final int correlationId;
+        final LayoutEvent.EventType type;
+        final CompletableFuture<LayoutEvent> future = new CompletableFuture<>();
+
+        PendingRequest(int correlationId, LayoutEvent.EventType type) {
+            this.correlationId = correlationId;
+            this.type = type;
+        }
+    }
+}
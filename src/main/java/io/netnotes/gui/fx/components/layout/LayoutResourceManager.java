@@ -11,6 +11,7 @@ import io.netnotes.engine.utils.FreeMemory;
 import io.netnotes.engine.utils.shell.ShellHelpers;
 import io.netnotes.engine.noteBytes.NoteUUID;
 import io.netnotes.gui.fx.display.ImageHelpers;
+import io.netnotes.gui.fx.utils.CacheRegistry;
 import io.netnotes.gui.fx.utils.TaskUtils;
 
 /**
@@ -43,7 +44,8 @@ public class LayoutResourceManager {
     
     // ========== Memory Monitoring ==========
     
-    private volatile long currentMemoryUsage = 0;
+    // Adjusted from the FX thread, instance cleanup and the memory governor
+    private final AtomicLong currentMemoryUsage = new AtomicLong(0);
     private volatile MemoryPressure memoryPressure = MemoryPressure.NORMAL;
     private volatile long lastMemoryCheck = 0;
     private static final long MEMORY_CHECK_INTERVAL_MS = 10000; // Check every 10 seconds
@@ -71,6 +73,8 @@ public class LayoutResourceManager {
     private volatile long layoutCacheMisses = 0;
     private volatile long memoryWarnings = 0;
     
+    private final CacheRegistry.CacheGauges gauges;
+    
     // ========== Error Listener ==========
     
     private volatile MemoryErrorListener errorListener;
@@ -174,6 +178,11 @@ public class LayoutResourceManager {
         this.activeImagesByInstance = new ConcurrentHashMap<>();
         this.activeScaledImagesByInstance = new ConcurrentHashMap<>();
         
+        gauges = CacheRegistry.register("LayoutResourceManager", 60,
+            currentMemoryUsage::get,
+            () -> imageCache.size() + layoutCache.size(),
+            _ -> shedUnused());
+        
         // Start background memory monitor
         startMemoryMonitor();
     }
@@ -263,7 +272,7 @@ public class LayoutResourceManager {
                         memoryWarnings++;
                         fireMemoryWarning(MemoryWarningType.SYSTEM_MEMORY_CRITICAL,
                             String.format("System memory critically low: %.1f%% available", availablePercent),
-                            currentMemoryUsage, availableKB * 1024);
+                            currentMemoryUsage.get(), availableKB * 1024);
                     }
                 } else if (availablePercent < SYSTEM_WARNING_THRESHOLD * 100) {
                     memoryPressure = MemoryPressure.WARNING;
@@ -271,7 +280,7 @@ public class LayoutResourceManager {
                         memoryWarnings++;
                         fireMemoryWarning(MemoryWarningType.SYSTEM_MEMORY_LOW,
                             String.format("System memory getting low: %.1f%% available", availablePercent),
-                            currentMemoryUsage, availableKB * 1024);
+                            currentMemoryUsage.get(), availableKB * 1024);
                     }
                 } else {
                     memoryPressure = MemoryPressure.NORMAL;
@@ -299,10 +308,12 @@ public class LayoutResourceManager {
     public BufferedImage getImage(String hashId, String instanceId) throws IOException {
         CachedImage cached = imageCache.get(hashId);
         if (cached != null) {
+            gauges.recordHit();
             cached.updateAccessTime();
             markImageActive(instanceId, hashId);
             return cached.image;
         }
+        gauges.recordMiss();
         return null;
     }
 
@@ -313,7 +324,7 @@ public class LayoutResourceManager {
             CachedImage cachedImage = new CachedImage(image);
             imageCache.put(hashId, cachedImage);
             markImageActive(instanceId, hashId);
-            currentMemoryUsage += cachedImage.memorySize;
+            currentMemoryUsage.addAndGet(cachedImage.memorySize);
             return true;
         }
         return false;
@@ -350,10 +361,12 @@ public class LayoutResourceManager {
         if (cached != null) {
             cached.updateAccessTime();
             layoutCacheHits++;
+            gauges.recordHit();
             return cached.result;
         }
         
         layoutCacheMisses++;
+        gauges.recordMiss();
         return null;
     }
     
@@ -446,7 +459,7 @@ public class LayoutResourceManager {
             CachedImage cachedImage = entry.getValue();
             
             if (cachedImage.isUnused() && checkStale ? isStaleImage(cachedImage.lastAccessTime.get()) : true ) {
-                currentMemoryUsage -= entry.getValue().memorySize;
+                currentMemoryUsage.addAndGet(-entry.getValue().memorySize);
                 return true;
             }
             return false;
@@ -454,14 +467,36 @@ public class LayoutResourceManager {
     }
     
     
+    /**
+     * Drop images no instance references and all cached layouts (memory governor)
+     * @return bytes released from the image cache
+     */
+    public long shedUnused() {
+        long[] released = { 0 };
+        imageCache.entrySet().removeIf(entry -> {
+            CachedImage cachedImage = entry.getValue();
+            if (cachedImage.isUnused()) {
+                released[0] += cachedImage.memorySize;
+                gauges.recordEviction();
+                return true;
+            }
+            return false;
+        });
+        currentMemoryUsage.addAndGet(-released[0]);
+        
+        gauges.recordEvictions(layoutCache.size());
+        layoutCache.clear();
+        return released[0];
+    }
+    
     // ========== Statistics & Info ==========
     
     public long getMemoryUsage() {
-        return currentMemoryUsage;
+        return currentMemoryUsage.get();
     }
     
     public double getMemoryUsageMB() {
-        return currentMemoryUsage / (1024.0 * 1024.0);
+        return currentMemoryUsage.get() / (1024.0 * 1024.0);
     }
     
     public MemoryPressure getMemoryPressure() {
@@ -478,7 +513,7 @@ public class LayoutResourceManager {
             layoutCache.size(),
             layoutCacheHits,
             layoutCacheMisses,
-            currentMemoryUsage,
+            currentMemoryUsage.get(),
             memoryPressure,
             memoryWarnings,
             getActiveInstanceCount()
@@ -543,7 +578,7 @@ public class LayoutResourceManager {
         layoutCache.clear();
         activeImagesByInstance.values().forEach(Set::clear);
         activeScaledImagesByInstance.values().forEach(Set::clear);
-        currentMemoryUsage = 0;
+        currentMemoryUsage.set(0);
         memoryPressure = MemoryPressure.NORMAL;
     }
     
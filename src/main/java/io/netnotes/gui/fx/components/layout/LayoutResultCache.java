@@ -0,0 +1,156 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import io.netnotes.gui.fx.utils.CacheRegistry;
+
+/**
+ * Small LRU of full-document layout results for one LayoutCanvas.
+ *
+ * Keyed by (document root hash, width bucket). A bucket holds the most
+ * recent layout within WIDTH_BUCKET pixels, so dragging a window edge
+ * replaces one entry instead of keeping every width passed through; a hit
+ * still requires the exact width and height. Entries are weighted by
+ * LayoutResult node count and evicted least-recently-used first once
+ * MAX_ENTRIES or MAX_WEIGHT is exceeded.
+ *
+ * The root hash covers content, so results survive edits: undoing an edit
+ * or toggling between two widths is a lookup. Layout results reference the
+ * SegmentNodes they were computed from; a hit is only returned while those
+ * nodes still form the current tree (a node replaced by an equal copy,
+ * e.g. a re-inserted segment, fails the check and re-lays out).
+ *
+ * FX thread only.
+ */
+class LayoutResultCache {
+    static final int WIDTH_BUCKET = 32;
+    static final int MAX_ENTRIES = 8;
+    static final int MAX_WEIGHT = 50_000;
+    static final long BYTES_PER_NODE = 256; // rough estimate for CacheRegistry
+
+    private final Map<String, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final CacheRegistry.CacheGauges m_gauges;
+    private int m_weight = 0;
+
+    LayoutResultCache(CacheRegistry.CacheGauges gauges) {
+        m_gauges = gauges;
+    }
+
+    /**
+     * @return the cached layout of root at exactly width x height, or null
+     */
+    LayoutEngine.LayoutResult get(SegmentNode root, int width, int height) {
+        String key = key(root, width);
+        Entry entry = m_entries.get(key);
+
+        if (entry != null && entry.width == width && entry.height == height) {
+            if (isCurrent(entry.result, root)) {
+                m_gauges.recordHit();
+                return entry.result;
+            }
+            // Computed from nodes no longer in the tree
+            remove(key);
+            m_gauges.recordEviction();
+        }
+        m_gauges.recordMiss();
+        return null;
+    }
+
+    void put(SegmentNode root, int width, int height, LayoutEngine.LayoutResult result) {
+        if (result == null) return;
+
+        int weight = countNodes(result);
+        if (weight > MAX_WEIGHT) return; // would evict everything else
+
+        String key = key(root, width);
+        remove(key);
+        m_entries.put(key, new Entry(result, width, height, weight));
+        m_weight += weight;
+
+        Iterator<Entry> it = m_entries.values().iterator();
+        while ((m_entries.size() > MAX_ENTRIES || m_weight > MAX_WEIGHT) && it.hasNext()) {
+            Entry eldest = it.next();
+            it.remove();
+            m_weight -= eldest.weight;
+            m_gauges.recordEviction();
+        }
+    }
+
+    void clear() {
+        m_gauges.recordEvictions(m_entries.size());
+        m_entries.clear();
+        m_weight = 0;
+    }
+
+    int size() {
+        return m_entries.size();
+    }
+
+    /**
+     * Total node count of cached results
+     */
+    int getWeight() {
+        return m_weight;
+    }
+
+    long getEstimatedBytes() {
+        return m_weight * BYTES_PER_NODE;
+    }
+
+    private void remove(String key) {
+        Entry removed = m_entries.remove(key);
+        if (removed != null) {
+            m_weight -= removed.weight;
+        }
+    }
+
+    private static String key(SegmentNode root, int width) {
+        return root.getHashString() + "_" + Math.floorDiv(width, WIDTH_BUCKET);
+    }
+
+    private static int countNodes(LayoutEngine.LayoutResult result) {
+        int count = 1;
+        List<LayoutEngine.LayoutResult> children = result.children;
+        for (int i = 0; i < children.size(); i++) {
+            count += countNodes(children.get(i));
+        }
+        return count;
+    }
+
+    /**
+     * Whether every result still refers to a node attached at the same place
+     * in the current tree (display:none children have no result, so results
+     * are matched by parent link rather than index)
+     */
+    private static boolean isCurrent(LayoutEngine.LayoutResult result, SegmentNode root) {
+        return result.node == root && childrenAttached(result);
+    }
+
+    private static boolean childrenAttached(LayoutEngine.LayoutResult result) {
+        List<LayoutEngine.LayoutResult> children = result.children;
+        for (int i = 0; i < children.size(); i++) {
+            LayoutEngine.LayoutResult child = children.get(i);
+            if (child.node.getParent() != result.node || !childrenAttached(child)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Entry {
+        final LayoutEngine.LayoutResult result;
+        final int width;
+        final int height;
+        final int weight;
+
+        Entry(LayoutEngine.LayoutResult result, int width, int height, int weight) {
+            this.result = result;
+            this.width = width;
+            this.height = height;
+            this.weight = weight;
+        }
+    }
+}
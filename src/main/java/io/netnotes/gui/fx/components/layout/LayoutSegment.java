@@ -44,6 +44,7 @@ public class LayoutSegment {
     private LinkProperties m_linkProperties = null;
     private GridLayoutProperties m_gridLayout = null;
     private GridItemProperties m_gridItem = null;
+    private String m_imageSource = null; // IMAGE: source URL, resolved by ImageFetchPipeline
 
     // ========== Image Caching ==========
     private transient BufferedImage m_cachedScaledImage = null;
@@ -673,6 +674,8 @@ public class LayoutSegment {
                 break;
             case IMAGE:
                 m_binaryContent = contentNb != null ? contentNb : new NoteBytes(new byte[0]);
+                NoteBytes srcNb = m_data.get("src") != null ? m_data.get("src").getValue() : null;
+                m_imageSource = srcNb != null ? srcNb.getAsString() : null;
                 break;
             default:
                 break;
@@ -694,41 +697,69 @@ public class LayoutSegment {
     }
     
     private void rebuildData() {
-        m_data = new NoteBytesObject(new NoteBytesPair[]{
+        m_data = buildData(true);
+    }
+
+    /**
+     * Serialize this segment's own properties and content, without the
+     * child array of a CONTAINER. Used for per-node structural hashing.
+     */
+    public NoteBytesObject getPropertiesData() {
+        return buildData(false);
+    }
+
+    private NoteBytesObject buildData(boolean includeChildren) {
+        NoteBytesObject data = new NoteBytesObject(new NoteBytesPair[]{
             new NoteBytesPair("type", new NoteInteger(m_type.getValue())),
             new NoteBytesPair("layout", m_layout.toNoteBytesObject()),
             new NoteBytesPair("interaction", m_interaction.toNoteBytesObject()),
             new NoteBytesPair("style", m_style.toNoteBytesObject())
         });
         if (m_gridLayout != null) {
-            m_data.add("gridLayout", m_gridLayout.toNoteBytesObject());
+            data.add("gridLayout", m_gridLayout.toNoteBytesObject());
         }
 
         if (m_gridItem != null) {
-            m_data.add("gridItem", m_gridItem.toNoteBytesObject());
+            data.add("gridItem", m_gridItem.toNoteBytesObject());
+        }
+
+        // Rich text spans and links, so a rebuild after an edit keeps them
+        if (m_textSpans != null && !m_textSpans.isEmpty()) {
+            NoteBytesArray spansArray = new NoteBytesArray();
+            for (RichTextSpan span : m_textSpans) {
+                spansArray.add(span.toNoteBytesObject());
+            }
+            data.add("textSpans", spansArray);
         }
 
+        if (m_linkProperties != null) {
+            data.add("linkProperties", m_linkProperties.toNoteBytesObject());
+        }
         
         // Content
         switch (m_type) {
             case TEXT:
                 if (m_textContent != null) {
-                    m_data.add("content", m_textContent);
+                    data.add("content", m_textContent);
                 }
                 break;
             case CONTAINER:
-                if (m_children != null) {
-                    m_data.add("content", m_children);
+                if (includeChildren && m_children != null) {
+                    data.add("content", m_children);
                 }
                 break;
             case IMAGE:
                 if (m_binaryContent != null) {
-                    m_data.add("content", m_binaryContent);
+                    data.add("content", m_binaryContent);
+                }
+                if (m_imageSource != null) {
+                    data.add("src", new NoteString(m_imageSource));
                 }
                 break;
             default:
                 break;
         }
+        return data;
     }
     
     // ========== Getters/Setters ==========
@@ -789,6 +820,27 @@ public class LayoutSegment {
         setBinaryContent(image);
     }
 
+    public String getImageSource() { return m_imageSource; }
+
+    /**
+     * Set the URL an IMAGE segment's content is fetched from (see ImageFetchPipeline)
+     */
+    public void setImageSource(String src) {
+        m_imageSource = src;
+        m_dataDirty = true;
+    }
+
+    /**
+     * Whether this is an IMAGE with a source but no content yet
+     */
+    public boolean isImagePending() {
+        if (m_type != SegmentType.IMAGE || m_imageSource == null || m_imageSource.isEmpty()) {
+            return false;
+        }
+        return m_binaryContent == null ||
+            (!(m_binaryContent instanceof NoteBytesImage) && m_binaryContent.get().length == 0);
+    }
+
     /**
      * Get scaled image with caching at segment level.
      * Cache invalidates when binary content changes or dimensions change.
@@ -0,0 +1,305 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.awt.Rectangle;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Spatial and offset index over a LayoutResult tree.
+ *
+ * Replaces the depth-first walks of LayoutResult.findAtPoint/findAtOffset
+ * for hot paths (mouse move, click, drag, cursor lookups):
+ * - Points: uniform grid of buckets, each holding the results whose bounds
+ *   overlap the cell, in depth-first order
+ * - Offsets: each result's children sorted by globalStartOffset with a
+ *   running max of globalEndOffset; a lookup binary-searches one level and
+ *   descends, so it costs O(depth * log children) with no allocation
+ *
+ * Candidates are resolved with the same rule the recursive search uses
+ * (descend into the first child that matches), so results are identical.
+ *
+ * The index is immutable and built once per LayoutResult tree; a new
+ * layout produces a new tree and therefore a new index.
+ */
+public class LayoutSpatialIndex {
+    private static final int MIN_CELL_SIZE = 16;
+    private static final int MAX_CELLS = 1 << 16;
+
+    private final LayoutEngine.LayoutResult[] m_results; // depth-first order
+    private final int[] m_parents;                        // parent index, -1 for root
+
+    // Grid buckets (compressed: m_cellStarts[c]..m_cellStarts[c+1] into m_cellItems)
+    private int m_originX;
+    private int m_originY;
+    private int m_cellSize;
+    private int m_cols;
+    private int m_rows;
+    private int[] m_cellStarts;
+    private int[] m_cellItems;
+
+    // Offset intervals, per parent (m_childFirst[p]..m_childFirst[p+1] into the arrays below)
+    private final int[] m_childFirst;
+    private final int[] m_childByStart;  // child indices sorted by globalStartOffset, then child order
+    private final int[] m_childStarts;   // globalStartOffset in m_childByStart order
+    private final int[] m_childMaxEnd;   // running max of globalEndOffset within each parent's range
+
+    /**
+     * Build an index for a layout tree
+     */
+    public static LayoutSpatialIndex build(LayoutEngine.LayoutResult root) {
+        List<LayoutEngine.LayoutResult> results = new ArrayList<>();
+        List<Integer> parents = new ArrayList<>();
+        collect(root, -1, results, parents);
+
+        int[] parentArray = new int[parents.size()];
+        for (int i = 0; i < parentArray.length; i++) {
+            parentArray[i] = parents.get(i);
+        }
+
+        return new LayoutSpatialIndex(
+            results.toArray(new LayoutEngine.LayoutResult[0]),
+            parentArray
+        );
+    }
+
+    private static void collect(
+        LayoutEngine.LayoutResult result,
+        int parent,
+        List<LayoutEngine.LayoutResult> results,
+        List<Integer> parents
+    ) {
+        int index = results.size();
+        results.add(result);
+        parents.add(parent);
+
+        for (LayoutEngine.LayoutResult child : result.children) {
+            collect(child, index, results, parents);
+        }
+    }
+
+    private LayoutSpatialIndex(LayoutEngine.LayoutResult[] results, int[] parents) {
+        m_results = results;
+        m_parents = parents;
+
+        buildGrid();
+
+        int n = results.length;
+        m_childFirst = new int[n + 1];
+        m_childByStart = new int[Math.max(0, n - 1)];
+        m_childStarts = new int[m_childByStart.length];
+        m_childMaxEnd = new int[m_childByStart.length];
+
+        // Group children by parent; depth-first order keeps siblings in child order
+        for (int i = 1; i < n; i++) {
+            m_childFirst[parents[i] + 1]++;
+        }
+        for (int i = 1; i <= n; i++) {
+            m_childFirst[i] += m_childFirst[i - 1];
+        }
+
+        // Sort key: start offset, then depth-first index (child order on ties)
+        long[] keys = new long[m_childByStart.length];
+        int[] fill = Arrays.copyOf(m_childFirst, n);
+        for (int i = 1; i < n; i++) {
+            keys[fill[parents[i]]++] = ((long) results[i].globalStartOffset << 32) | i;
+        }
+
+        for (int p = 0; p < n; p++) {
+            int from = m_childFirst[p];
+            int to = m_childFirst[p + 1];
+            if (to - from > 1) {
+                Arrays.sort(keys, from, to);
+            }
+
+            int maxEnd = Integer.MIN_VALUE;
+            for (int j = from; j < to; j++) {
+                int idx = (int) keys[j];
+                m_childByStart[j] = idx;
+                m_childStarts[j] = results[idx].globalStartOffset;
+                maxEnd = Math.max(maxEnd, results[idx].globalEndOffset);
+                m_childMaxEnd[j] = maxEnd;
+            }
+        }
+    }
+
+    // ========== Grid Construction ==========
+
+    private void buildGrid() {
+        int n = m_results.length;
+
+        int minX = Integer.MAX_VALUE, minY = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE, maxY = Integer.MIN_VALUE;
+        for (LayoutEngine.LayoutResult result : m_results) {
+            Rectangle b = result.bounds;
+            if (b.width <= 0 || b.height <= 0) continue;
+            minX = Math.min(minX, b.x);
+            minY = Math.min(minY, b.y);
+            maxX = Math.max(maxX, b.x + b.width);
+            maxY = Math.max(maxY, b.y + b.height);
+        }
+
+        if (minX > maxX) {
+            // Nothing hit-testable
+            m_cols = 0;
+            m_rows = 0;
+            m_cellStarts = new int[1];
+            m_cellItems = new int[0];
+            return;
+        }
+
+        long width = (long) maxX - minX;
+        long height = (long) maxY - minY;
+
+        // Aim for roughly one cell per result
+        int cellSize = (int) Math.max(MIN_CELL_SIZE, Math.sqrt((double) width * height / Math.max(1, n)));
+        while (((width / cellSize) + 1) * ((height / cellSize) + 1) > MAX_CELLS) {
+            cellSize *= 2;
+        }
+
+        m_originX = minX;
+        m_originY = minY;
+        m_cellSize = cellSize;
+        m_cols = (int) (width / cellSize) + 1;
+        m_rows = (int) (height / cellSize) + 1;
+
+        int cellCount = m_cols * m_rows;
+        int[] counts = new int[cellCount + 1];
+
+        // Pass 1: count
+        for (int i = 0; i < n; i++) {
+            Rectangle b = m_results[i].bounds;
+            if (b.width <= 0 || b.height <= 0) continue;
+            int c0 = cellX(b.x), c1 = cellX(b.x + b.width - 1);
+            int r0 = cellY(b.y), r1 = cellY(b.y + b.height - 1);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    counts[r * m_cols + c + 1]++;
+                }
+            }
+        }
+
+        for (int i = 1; i <= cellCount; i++) {
+            counts[i] += counts[i - 1];
+        }
+        m_cellStarts = counts;
+        m_cellItems = new int[counts[cellCount]];
+
+        // Pass 2: fill in depth-first order
+        int[] fill = Arrays.copyOf(counts, cellCount);
+        for (int i = 0; i < n; i++) {
+            Rectangle b = m_results[i].bounds;
+            if (b.width <= 0 || b.height <= 0) continue;
+            int c0 = cellX(b.x), c1 = cellX(b.x + b.width - 1);
+            int r0 = cellY(b.y), r1 = cellY(b.y + b.height - 1);
+            for (int r = r0; r <= r1; r++) {
+                for (int c = c0; c <= c1; c++) {
+                    m_cellItems[fill[r * m_cols + c]++] = i;
+                }
+            }
+        }
+    }
+
+    private int cellX(int x) {
+        return Math.max(0, Math.min(m_cols - 1, (x - m_originX) / m_cellSize));
+    }
+
+    private int cellY(int y) {
+        return Math.max(0, Math.min(m_rows - 1, (y - m_originY) / m_cellSize));
+    }
+
+    // ========== Queries ==========
+
+    /**
+     * Equivalent to root.findAtPoint(x, y)
+     */
+    public LayoutEngine.LayoutResult findAtPoint(int x, int y) {
+        if (m_results.length == 0 || !m_results[0].bounds.contains(x, y)) {
+            return null;
+        }
+        if (m_cols == 0 || x < m_originX || y < m_originY) {
+            return m_results[0];
+        }
+
+        int col = (x - m_originX) / m_cellSize;
+        int row = (y - m_originY) / m_cellSize;
+        if (col >= m_cols || row >= m_rows) {
+            return m_results[0];
+        }
+
+        int cell = row * m_cols + col;
+        int current = 0;
+
+        // Bucket items are in depth-first order, so the first matching child
+        // of the current node is always the first one encountered
+        for (int i = m_cellStarts[cell]; i < m_cellStarts[cell + 1]; i++) {
+            int idx = m_cellItems[i];
+            if (m_parents[idx] == current && m_results[idx].bounds.contains(x, y)) {
+                current = idx;
+            }
+        }
+
+        return m_results[current];
+    }
+
+    /**
+     * Equivalent to root.findAtOffset(offset)
+     */
+    public LayoutEngine.LayoutResult findAtOffset(int offset) {
+        if (m_results.length == 0) {
+            return null;
+        }
+        LayoutEngine.LayoutResult root = m_results[0];
+        if (offset < root.globalStartOffset || offset > root.globalEndOffset) {
+            return null;
+        }
+
+        // Descend into the first child (in child order) spanning the offset,
+        // matching the recursive search
+        int current = 0;
+        while (true) {
+            int from = m_childFirst[current];
+            int last = upperBound(from, m_childFirst[current + 1], offset) - 1;
+
+            int next = -1;
+            for (int j = last; j >= from && m_childMaxEnd[j] >= offset; j--) {
+                int idx = m_childByStart[j];
+                if (m_results[idx].globalEndOffset >= offset && (next < 0 || idx < next)) {
+                    next = idx;
+                }
+            }
+
+            if (next < 0) {
+                return m_results[current];
+            }
+            current = next;
+        }
+    }
+
+    /**
+     * First position in [from, to) whose child start is greater than offset
+     */
+    private int upperBound(int from, int to, int offset) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_childStarts[mid] <= offset) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    /**
+     * All results in depth-first order (same order as LayoutResult.flatten())
+     */
+    public List<LayoutEngine.LayoutResult> getResults() {
+        return Arrays.asList(m_results);
+    }
+
+    public int size() {
+        return m_results.length;
+    }
+}
@@ -1,11 +1,10 @@
 package io.netnotes.gui.fx.components.layout;
 
 import io.netnotes.engine.noteBytes.NoteBytesArray;
-import io.netnotes.engine.utils.streams.UrlStreamHelpers;
-import io.netnotes.gui.fx.utils.TaskUtils;
 
 import java.awt.*;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
@@ -36,96 +35,93 @@ public class MarkdownToSegmentBuilder {
             return segments;
         }
         
-        String[] lines = markdown.split("\n");
-        boolean inCodeBlock = false;
-        StringBuilder codeBlockContent = new StringBuilder();
+        List<String> lines = Arrays.asList(markdown.split("\n"));
         
         int i = 0;
-        while (i < lines.length) {
-            String line = lines[i];
-            
-            // Code blocks
-            if (line.trim().startsWith("```")) {
-                if (inCodeBlock) {
-                    // End of code block
-                    segments.add(createCodeBlock(codeBlockContent.toString()).getData());
-                    codeBlockContent = new StringBuilder();
-                    inCodeBlock = false;
-                } else {
-                    // Start of code block
-                    inCodeBlock = true;
-                }
-                i++;
-                continue;
-            }
-            
-            if (inCodeBlock) {
-                codeBlockContent.append(line).append("\n");
-                i++;
-                continue;
-            }
-            
-            // Empty line
-            if (line.trim().isEmpty()) {
-                i++;
-                continue;
+        while (i < lines.size()) {
+            BlockParseResult block = parseBlock(lines, i);
+            if (block.segment != null) {
+                segments.add(block.segment.getData());
             }
-            
-            // Check for table (requires looking ahead for separator line)
-            if (i + 1 < lines.length && isTableRow(line)) {
-                String nextLine = lines[i + 1];
-                if (isTableSeparator(nextLine)) {
-                    // This is a table!
-                    TableParseResult table = parseTable(lines, i);
-                    segments.add(createTableGrid(table).getData());
-                    i = table.endIndex;
-                    continue;
+            i = block.endIndex;
+        }
+        
+        return segments;
+    }
+    
+    /**
+     * Parse the block starting at line `start`.
+     * A block is a blank line, a fenced code block, a table or a single
+     * heading/list/image/paragraph line. The parse depends only on the
+     * lines from `start` onward, so block boundaries are safe restart
+     * points for incremental parsing.
+     */
+    static BlockParseResult parseBlock(List<String> lines, int start) {
+        String line = lines.get(start);
+        
+        // Code blocks
+        if (line.trim().startsWith("```")) {
+            StringBuilder codeBlockContent = new StringBuilder();
+            int i = start + 1;
+            while (i < lines.size()) {
+                String codeLine = lines.get(i);
+                if (codeLine.trim().startsWith("```")) {
+                    // End of code block
+                    return new BlockParseResult(createCodeBlock(codeBlockContent.toString()), i + 1);
                 }
-            }
-            
-            // Check for standalone images (must come before links since images contain link syntax)
-            Matcher imageMatcher = IMAGE_PATTERN.matcher(line.trim());
-            if (imageMatcher.matches()) {
-                String alt = imageMatcher.group(1);
-                String src = imageMatcher.group(2);
-                segments.add(createImage(src, alt).getData());
-                i++;
-                continue;
-            }
-            
-            // Headings
-            Matcher headingMatcher = HEADING_PATTERN.matcher(line);
-            if (headingMatcher.matches()) {
-                int level = headingMatcher.group(1).length();
-                String text = headingMatcher.group(2);
-                segments.add(createHeading(text, level).getData());
+                codeBlockContent.append(codeLine).append("\n");
                 i++;
-                continue;
             }
-            
-            // Lists
-            Matcher listMatcher = LIST_PATTERN.matcher(line);
-            if (listMatcher.matches()) {
-                String text = listMatcher.group(1);
-                segments.add(createListItem(text, false).getData());
-                i++;
-                continue;
-            }
-            
-            Matcher orderedListMatcher = ORDERED_LIST_PATTERN.matcher(line);
-            if (orderedListMatcher.matches()) {
-                String text = orderedListMatcher.group(1);
-                segments.add(createListItem(text, true).getData());
-                i++;
-                continue;
+            // Unclosed code block consumes the rest of the document
+            return new BlockParseResult(null, lines.size());
+        }
+        
+        // Empty line
+        if (line.trim().isEmpty()) {
+            return new BlockParseResult(null, start + 1);
+        }
+        
+        // Check for table (requires looking ahead for separator line)
+        if (start + 1 < lines.size() && isTableRow(line)) {
+            String nextLine = lines.get(start + 1);
+            if (isTableSeparator(nextLine)) {
+                // This is a table!
+                TableParseResult table = parseTable(lines, start);
+                return new BlockParseResult(createTableGrid(table), table.endIndex);
             }
-            
-            // Regular paragraph
-            segments.add(createParagraph(line).getData());
-            i++;
         }
         
-        return segments;
+        // Check for standalone images (must come before links since images contain link syntax)
+        Matcher imageMatcher = IMAGE_PATTERN.matcher(line.trim());
+        if (imageMatcher.matches()) {
+            String alt = imageMatcher.group(1);
+            String src = imageMatcher.group(2);
+            return new BlockParseResult(createImage(src, alt), start + 1);
+        }
+        
+        // Headings
+        Matcher headingMatcher = HEADING_PATTERN.matcher(line);
+        if (headingMatcher.matches()) {
+            int level = headingMatcher.group(1).length();
+            String text = headingMatcher.group(2);
+            return new BlockParseResult(createHeading(text, level), start + 1);
+        }
+        
+        // Lists
+        Matcher listMatcher = LIST_PATTERN.matcher(line);
+        if (listMatcher.matches()) {
+            String text = listMatcher.group(1);
+            return new BlockParseResult(createListItem(text, false), start + 1);
+        }
+        
+        Matcher orderedListMatcher = ORDERED_LIST_PATTERN.matcher(line);
+        if (orderedListMatcher.matches()) {
+            String text = orderedListMatcher.group(1);
+            return new BlockParseResult(createListItem(text, true), start + 1);
+        }
+        
+        // Regular paragraph
+        return new BlockParseResult(createParagraph(line), start + 1);
     }
     
     /**
@@ -146,11 +142,11 @@ public class MarkdownToSegmentBuilder {
     /**
      * Parse a markdown table starting at the given line index
      */
-    private static TableParseResult parseTable(String[] lines, int startIndex) {
+    private static TableParseResult parseTable(List<String> lines, int startIndex) {
         List<List<String>> rows = new ArrayList<>();
         
         // Parse header row
-        List<String> headerRow = parseTableRow(lines[startIndex]);
+        List<String> headerRow = parseTableRow(lines.get(startIndex));
         rows.add(headerRow);
         
         int maxColumns = headerRow.size();
@@ -159,8 +155,8 @@ public class MarkdownToSegmentBuilder {
         int currentIndex = startIndex + 2;
         
         // Parse data rows
-        while (currentIndex < lines.length) {
-            String line = lines[currentIndex];
+        while (currentIndex < lines.size()) {
+            String line = lines.get(currentIndex);
             
             if (line.trim().isEmpty() || !isTableRow(line)) {
                 break; // End of table
@@ -372,27 +368,13 @@ public class MarkdownToSegmentBuilder {
      * Create an image segment from markdown
      */
     private static LayoutSegment createImage(String src, String alt) {
-        LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.IMAGE);
-        segment.getLayout().display = LayoutSegment.Display.BLOCK;
-        segment.getLayout().margin = new Insets(0, 0, 10, 0);
-        
-        // Try to load image from URL or base64
-        if (src != null && !src.isEmpty()) {
-            try {
-                if (src.startsWith("data:")) {
-                    // Base64 data URL
-                    loadBase64Image(segment, src);
-                } else {
-                    // External URL or file path
-                    loadExternalImage(segment, src);
-                }
-            } catch (Exception e) {
-                System.err.println("Failed to load image: " + src + " - " + e.getMessage());
-                // Create placeholder text segment instead
-                return createImagePlaceholder(alt != null ? alt : src);
-            }
+        if (src == null || src.isEmpty()) {
+            return createImagePlaceholder(alt != null ? alt : "");
         }
         
+        // Placeholder; LayoutCanvas fetches the image when the segment is added
+        LayoutSegment segment = ImageFetchPipeline.placeholder(src);
+        
         // Default to auto sizing (will use intrinsic dimensions or aspect ratio)
         segment.getLayout().width = LayoutSegment.Dimension.auto();
         segment.getLayout().height = LayoutSegment.Dimension.auto();
@@ -400,31 +382,6 @@ public class MarkdownToSegmentBuilder {
         return segment;
     }
     
-    private static void loadBase64Image(LayoutSegment segment, String dataUrl) {
-        // Parse data URL: data:image/png;base64,iVBORw0KG...
-        String[] parts = dataUrl.split(",", 2);
-        if (parts.length == 2) {
-            String base64 = parts[1];
-            byte[] imageData = java.util.Base64.getDecoder().decode(base64);
-            segment.setBinaryContent(imageData);
-        }
-    }
-    
-    private static void loadExternalImage(LayoutSegment segment, String urlString) {
-        // Load image asynchronously to avoid blocking
-        UrlStreamHelpers.getUrlBytes(urlString, TaskUtils.getVirtualExecutor())
-            .thenAccept(imageData -> {
-                if (imageData != null && imageData.length > 0) {
-                    segment.setBinaryContent(imageData);
-                    segment.markDirty();
-                }
-            })
-            .exceptionally(e -> {
-                System.err.println("Failed to load external image: " + urlString + " - " + e.getMessage());
-                return null;
-            });
-    }
-    
     private static LayoutSegment createImagePlaceholder(String text) {
         LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.TEXT);
         segment.setTextContent("[Image: " + text + "]");
@@ -637,6 +594,19 @@ public class MarkdownToSegmentBuilder {
         }
     }
     
+    /**
+     * Result of block parsing
+     */
+    static class BlockParseResult {
+        LayoutSegment segment; // null for blank lines and unclosed code blocks
+        int endIndex; // Line index after the block
+        
+        BlockParseResult(LayoutSegment segment, int endIndex) {
+            this.segment = segment;
+            this.endIndex = endIndex;
+        }
+    }
+    
     /**
      * Result of table parsing
      */
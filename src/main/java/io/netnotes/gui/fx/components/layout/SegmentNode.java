@@ -0,0 +1,388 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.util.Arrays;
+
+import io.netnotes.engine.crypto.HashServices;
+import io.netnotes.engine.noteBytes.NoteBytes;
+import io.netnotes.engine.noteBytes.NoteBytesArray;
+import io.netnotes.engine.noteBytes.NoteBytesObject;
+import io.netnotes.engine.noteBytes.processing.EncodingHelpers;
+
+/**
+ * Persistent, parsed view of a segment tree.
+ *
+ * A document's NoteBytesObject tree is parsed into SegmentNodes ONCE.
+ * Layout, cursor navigation and rendering then walk typed objects
+ * (LayoutProperties, StyleProperties, child arrays) instead of
+ * re-running LayoutSegment.parseData on every pass.
+ *
+ * Serialization is write-through and lazy:
+ * - Structural edits (insert/remove) are applied to the backing
+ *   NoteBytesArray immediately, since they are cheap index operations
+ * - Property and content edits only set m_dataDirty on the node and its
+ *   ancestors; the binary form is rebuilt on the next flush()/getData()
+ *
+ * Derived values (content length, structural hash) are cached per node
+ * and invalidated only along the path from an edited node to the root.
+ *
+ * The structural hash is Merkle-style: a node's hash covers its own
+ * properties plus the hashes of its children, so after an edit only the
+ * edited path is re-hashed and untouched subtrees keep stable hashes
+ * that can key per-subtree caches.
+ */
+public class SegmentNode {
+    private static final SegmentNode[] EMPTY_CHILDREN = new SegmentNode[0];
+
+    private final LayoutSegment m_segment;
+    private final NoteBytesArray m_childData;
+    private SegmentNode m_parent = null;
+    private SegmentNode[] m_children = EMPTY_CHILDREN;
+    private int m_childCount = 0;
+    // Backing array index per child, only when the array also holds non-segment entries
+    private int[] m_dataIndex = null;
+
+    private boolean m_dataDirty = false;
+    private int m_contentLength = -1;
+    private byte[] m_hash = null;
+    private String m_hashString = null;
+
+    private SegmentNode(LayoutSegment segment, NoteBytesArray childData) {
+        m_segment = segment;
+        m_childData = childData;
+    }
+
+    // ========== Construction ==========
+
+    /**
+     * Parse a segment and all of its descendants
+     */
+    public static SegmentNode parse(NoteBytesObject data) {
+        return fromSegment(new LayoutSegment(data));
+    }
+
+    /**
+     * Wrap an existing segment instance, parsing only its children.
+     * The segment identity is preserved so callers holding a reference
+     * (id maps, event consumers) address the same object the layout uses.
+     */
+    public static SegmentNode fromSegment(LayoutSegment segment) {
+        NoteBytesArray childData = segment.isContainer() ? segment.getChildren() : null;
+        SegmentNode node = new SegmentNode(segment, childData);
+        node.parseChildren();
+        return node;
+    }
+
+    /**
+     * Create a virtual root container backed by a document's top-level array
+     */
+    public static SegmentNode createRoot(NoteBytesArray segments) {
+        LayoutSegment root = new LayoutSegment(LayoutSegment.SegmentType.CONTAINER);
+        SegmentNode node = new SegmentNode(root, segments != null ? segments : new NoteBytesArray());
+        node.parseChildren();
+        return node;
+    }
+
+    private void parseChildren() {
+        if (m_childData == null || m_childData.size() == 0) {
+            return;
+        }
+
+        int size = m_childData.size();
+        m_children = new SegmentNode[size];
+        m_childCount = 0;
+        int[] dataIndex = new int[size];
+
+        for (int i = 0; i < size; i++) {
+            NoteBytes item = m_childData.get(i);
+            if (!(item instanceof NoteBytesObject)) {
+                // Non-segment entries are left in place and skipped
+                continue;
+            }
+            SegmentNode child = parse((NoteBytesObject) item);
+            child.m_parent = this;
+            dataIndex[m_childCount] = i;
+            m_children[m_childCount++] = child;
+        }
+
+        if (m_childCount < size) {
+            m_dataIndex = dataIndex;
+        }
+    }
+
+    /**
+     * Index in the backing array of the child at `index`
+     */
+    private int dataIndexOf(int index) {
+        return m_dataIndex != null ? m_dataIndex[index] : index;
+    }
+
+    // ========== Accessors ==========
+
+    public LayoutSegment getSegment() { return m_segment; }
+    public SegmentNode getParent() { return m_parent; }
+
+    public LayoutSegment.SegmentType getType() { return m_segment.getType(); }
+    public LayoutSegment.LayoutProperties getLayout() { return m_segment.getLayout(); }
+    public LayoutSegment.StyleProperties getStyle() { return m_segment.getStyle(); }
+    public LayoutSegment.InteractionProperties getInteraction() { return m_segment.getInteraction(); }
+
+    public boolean isContainer() {
+        return m_childData != null;
+    }
+
+    public boolean hasChildren() {
+        return m_childCount > 0;
+    }
+
+    public int getChildCount() {
+        return m_childCount;
+    }
+
+    public SegmentNode getChild(int index) {
+        return index >= 0 && index < m_childCount ? m_children[index] : null;
+    }
+
+    public int indexOf(SegmentNode child) {
+        for (int i = 0; i < m_childCount; i++) {
+            if (m_children[i] == child) return i;
+        }
+        return -1;
+    }
+
+    public int getIndexInParent() {
+        return m_parent != null ? m_parent.indexOf(this) : -1;
+    }
+
+    /**
+     * Depth-first search for the node wrapping a specific segment instance
+     */
+    public SegmentNode find(LayoutSegment segment) {
+        if (m_segment == segment) return this;
+
+        for (int i = 0; i < m_childCount; i++) {
+            SegmentNode found = m_children[i].find(segment);
+            if (found != null) return found;
+        }
+        return null;
+    }
+
+    // ========== Structure ==========
+
+    public void addChild(SegmentNode child) {
+        insertChild(m_childCount, child);
+    }
+
+    public void insertChild(int index, SegmentNode child) {
+        if (!isContainer()) {
+            throw new IllegalStateException("Can only add children to CONTAINER segments");
+        }
+        index = Math.max(0, Math.min(index, m_childCount));
+        int dataIndex = index < m_childCount ? dataIndexOf(index) : m_childData.size();
+
+        if (m_childCount == m_children.length) {
+            SegmentNode[] grown = new SegmentNode[Math.max(4, m_childCount * 2)];
+            System.arraycopy(m_children, 0, grown, 0, m_childCount);
+            m_children = grown;
+            if (m_dataIndex != null) {
+                m_dataIndex = Arrays.copyOf(m_dataIndex, grown.length);
+            }
+        }
+        System.arraycopy(m_children, index, m_children, index + 1, m_childCount - index);
+        m_children[index] = child;
+        if (m_dataIndex != null) {
+            System.arraycopy(m_dataIndex, index, m_dataIndex, index + 1, m_childCount - index);
+            m_dataIndex[index] = dataIndex;
+            for (int i = index + 1; i <= m_childCount; i++) {
+                m_dataIndex[i]++;
+            }
+        }
+        m_childCount++;
+
+        child.m_parent = this;
+        m_childData.add(dataIndex, child.getData());
+        invalidatePath();
+    }
+
+    public SegmentNode removeChild(int index) {
+        if (index < 0 || index >= m_childCount) {
+            return null;
+        }
+
+        SegmentNode removed = m_children[index];
+        int dataIndex = dataIndexOf(index);
+        System.arraycopy(m_children, index + 1, m_children, index, m_childCount - index - 1);
+        if (m_dataIndex != null) {
+            System.arraycopy(m_dataIndex, index + 1, m_dataIndex, index, m_childCount - index - 1);
+            for (int i = index; i < m_childCount - 1; i++) {
+                m_dataIndex[i]--;
+            }
+        }
+        m_children[--m_childCount] = null;
+
+        removed.m_parent = null;
+        m_childData.remove(dataIndex);
+        invalidatePath();
+        return removed;
+    }
+
+    public void clearChildren() {
+        if (m_dataIndex != null) {
+            // Keep the non-segment entries the children were parsed around
+            for (int i = m_childCount - 1; i >= 0; i--) {
+                m_childData.remove(m_dataIndex[i]);
+            }
+        } else if (m_childData != null) {
+            m_childData.clear();
+        }
+
+        for (int i = 0; i < m_childCount; i++) {
+            m_children[i].m_parent = null;
+            m_children[i] = null;
+        }
+        m_childCount = 0;
+        invalidatePath();
+    }
+
+    // ========== Dirty Tracking ==========
+
+    /**
+     * Mark this node's properties/content as changed.
+     * The segment is re-serialized lazily and cached values along the
+     * path to the root are dropped.
+     */
+    public void markDirty() {
+        m_segment.markDirty();
+        SegmentNode node = this;
+        while (node != null) {
+            node.m_dataDirty = true;
+            node.m_contentLength = -1;
+            node.m_hash = null;
+            node.m_hashString = null;
+            node = node.m_parent;
+        }
+    }
+
+    /**
+     * Drop cached derived values along the path to the root without
+     * forcing a re-serialization (used for in-place structural edits)
+     */
+    private void invalidatePath() {
+        SegmentNode node = this;
+        while (node != null) {
+            node.m_contentLength = -1;
+            node.m_hash = null;
+            node.m_hashString = null;
+            node = node.m_parent;
+        }
+    }
+
+    public boolean isDataDirty() {
+        return m_dataDirty;
+    }
+
+    /**
+     * Re-serialize dirty nodes and patch the backing arrays.
+     * Only descends into dirty subtrees.
+     */
+    public void flush() {
+        if (!m_dataDirty) return;
+
+        for (int i = 0; i < m_childCount; i++) {
+            SegmentNode child = m_children[i];
+            if (!child.m_dataDirty) continue;
+
+            child.flush();
+            NoteBytesObject childData = child.m_segment.getData();
+            int dataIndex = dataIndexOf(i);
+            if (m_childData.get(dataIndex) != childData) {
+                m_childData.remove(dataIndex);
+                m_childData.add(dataIndex, childData);
+            }
+        }
+        m_dataDirty = false;
+    }
+
+    /**
+     * Get the binary form of this segment, re-serializing if needed
+     */
+    public NoteBytesObject getData() {
+        flush();
+        return m_segment.getData();
+    }
+
+    /**
+     * Get the backing child array, re-serializing dirty children first
+     */
+    public NoteBytesArray getChildData() {
+        flush();
+        return m_childData;
+    }
+
+    // ========== Derived Values ==========
+
+    /**
+     * Content length in cursor positions (cached)
+     */
+    public int getContentLength() {
+        if (m_contentLength >= 0) {
+            return m_contentLength;
+        }
+
+        if (isContainer()) {
+            int total = 0;
+            for (int i = 0; i < m_childCount; i++) {
+                total += m_children[i].getContentLength();
+            }
+            m_contentLength = total;
+        } else {
+            m_contentLength = m_segment.getContentLength();
+        }
+        return m_contentLength;
+    }
+
+    /**
+     * Structural hash of this subtree (cached, 16 bytes).
+     * Leaves hash their full serialized form; containers hash their own
+     * properties followed by each child's hash.
+     */
+    public byte[] getHash() {
+        if (m_hash != null) {
+            return m_hash;
+        }
+
+        if (!isContainer()) {
+            m_hash = HashServices.digestBytesToBytes(m_segment.getData().get(), 16);
+            return m_hash;
+        }
+
+        byte[] localHash = HashServices.digestBytesToBytes(m_segment.getPropertiesData().get(), 16);
+        byte[] combined = new byte[localHash.length * (m_childCount + 1)];
+        System.arraycopy(localHash, 0, combined, 0, localHash.length);
+
+        int pos = localHash.length;
+        for (int i = 0; i < m_childCount; i++) {
+            byte[] childHash = m_children[i].getHash();
+            System.arraycopy(childHash, 0, combined, pos, childHash.length);
+            pos += childHash.length;
+        }
+
+        m_hash = HashServices.digestBytesToBytes(combined, 16);
+        return m_hash;
+    }
+
+    /**
+     * Url-safe string form of getHash(), suitable for cache keys
+     */
+    public String getHashString() {
+        if (m_hashString == null) {
+            m_hashString = EncodingHelpers.encodeUrlSafeString(getHash());
+        }
+        return m_hashString;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("SegmentNode[%s, children=%d, dirty=%s]",
+            m_segment, m_childCount, m_dataDirty);
+    }
+}
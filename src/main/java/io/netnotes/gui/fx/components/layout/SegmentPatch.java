@@ -0,0 +1,354 @@
+package io.netnotes.gui.fx.components.layout;
+
+import io.netnotes.engine.noteBytes.*;
+import io.netnotes.engine.noteBytes.collections.NoteBytesPair;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Field-level delta encoding for segment sync.
+ *
+ * The sender keeps a Baseline of what the receiver last saw for each
+ * segment id and sends only what changed:
+ * - set:    top-level keys replaced wholesale
+ * - merge:  property groups (layout, style, ...) with only the changed keys
+ * - unset:  keys ("key" or "group/key") no longer present
+ * - splice: text edit as [offset, deleteLen, insertCodePoints]
+ * - full:   complete segment data when there is no baseline
+ *
+ * Container children are not diffed; they are synced as their own segments.
+ */
+class SegmentPatch {
+    private static final String PATH_SEPARATOR = "/";
+
+    private SegmentPatch() {}
+
+    // ========== Baseline ==========
+
+    /**
+     * Snapshot of a segment as last sent to the receiver
+     */
+    static class Baseline {
+        final Map<String, byte[]> fields = new HashMap<>(); // "key" or "group/key" -> value bytes
+        String text = null;
+
+        static Baseline capture(LayoutSegment segment) {
+            Baseline baseline = new Baseline();
+            NoteBytesObject data = segment.getData();
+
+            for (NoteBytesPair pair : data.getAsList()) {
+                String key = pair.getKey().getAsString();
+                NoteBytes value = pair.getValue();
+
+                if (key.equals("content")) {
+                    if (segment.getType() == LayoutSegment.SegmentType.TEXT) {
+                        baseline.text = segment.getTextContent() != null
+                            ? segment.getTextContent().toString() : "";
+                    } else if (!segment.isContainer()) {
+                        baseline.fields.put(key, value.get().clone());
+                    }
+                } else if (value instanceof NoteBytesObject) {
+                    for (NoteBytesPair sub : ((NoteBytesObject) value).getAsList()) {
+                        baseline.fields.put(
+                            key + PATH_SEPARATOR + sub.getKey().getAsString(),
+                            sub.getValue().get().clone()
+                        );
+                    }
+                    // Marker so a group that disappears entirely can be unset
+                    baseline.fields.put(key, null);
+                } else {
+                    baseline.fields.put(key, value.get().clone());
+                }
+            }
+            return baseline;
+        }
+    }
+
+    // ========== Encoding ==========
+
+    /**
+     * Encode the difference between a baseline and a segment's current state
+     *
+     * @param baseline what the receiver has, or null to send the full segment
+     * @return the patch, or null if nothing changed
+     */
+    static NoteBytesObject diff(String segmentId, Baseline baseline, LayoutSegment segment) {
+        NoteBytesObject patch = new NoteBytesObject(new NoteBytesPair[]{
+            new NoteBytesPair("segmentId", new NoteString(segmentId))
+        });
+
+        if (baseline == null) {
+            patch.add("full", segment.getData());
+            return patch;
+        }
+
+        NoteBytesObject data = segment.getData();
+        NoteBytesObject set = new NoteBytesObject();
+        NoteBytesObject merge = new NoteBytesObject();
+        NoteBytesArray unset = new NoteBytesArray();
+        Set<String> seen = new HashSet<>();
+        boolean changed = false;
+
+        for (NoteBytesPair pair : data.getAsList()) {
+            String key = pair.getKey().getAsString();
+            NoteBytes value = pair.getValue();
+            seen.add(key);
+
+            if (key.equals("content")) {
+                if (segment.getType() == LayoutSegment.SegmentType.TEXT) {
+                    String text = segment.getTextContent() != null ? segment.getTextContent().toString() : "";
+                    if (baseline.text == null) {
+                        set.add(key, value);
+                        changed = true;
+                    } else {
+                        NoteBytesArray splice = splice(baseline.text, text);
+                        if (splice != null) {
+                            patch.add("splice", splice);
+                            changed = true;
+                        }
+                    }
+                    continue;
+                }
+                if (segment.isContainer()) {
+                    continue;
+                }
+            }
+
+            if (value instanceof NoteBytesObject && baseline.fields.containsKey(key)
+                && baseline.fields.get(key) == null) {
+                // Property group: diff one level down
+                NoteBytesObject groupChanges = new NoteBytesObject();
+                Set<String> seenSub = new HashSet<>();
+
+                for (NoteBytesPair sub : ((NoteBytesObject) value).getAsList()) {
+                    String subKey = sub.getKey().getAsString();
+                    String path = key + PATH_SEPARATOR + subKey;
+                    seenSub.add(path);
+
+                    byte[] previous = baseline.fields.get(path);
+                    if (previous == null || !Arrays.equals(previous, sub.getValue().get())) {
+                        groupChanges.add(subKey, sub.getValue());
+                    }
+                }
+                for (String path : baseline.fields.keySet()) {
+                    if (path.startsWith(key + PATH_SEPARATOR) && !seenSub.contains(path)) {
+                        unset.add(new NoteString(path));
+                    }
+                }
+
+                if (groupChanges.getAsList().size() > 0) {
+                    merge.add(key, groupChanges);
+                    changed = true;
+                }
+                continue;
+            }
+
+            byte[] previous = baseline.fields.get(key);
+            if (previous == null || !Arrays.equals(previous, value.get())) {
+                set.add(key, value);
+                changed = true;
+            }
+        }
+
+        for (String path : baseline.fields.keySet()) {
+            if (!path.contains(PATH_SEPARATOR) && !seen.contains(path)) {
+                unset.add(new NoteString(path));
+            }
+        }
+        if (baseline.text != null && !seen.contains("content")) {
+            unset.add(new NoteString("content"));
+        }
+
+        if (!changed && unset.size() == 0) {
+            return null;
+        }
+
+        if (set.getAsList().size() > 0) patch.add("set", set);
+        if (merge.getAsList().size() > 0) patch.add("merge", merge);
+        if (unset.size() > 0) patch.add("unset", unset);
+        return patch;
+    }
+
+    /**
+     * Smallest single splice turning oldText into newText (in code points),
+     * or null if they are equal
+     */
+    static NoteBytesArray splice(String oldText, String newText) {
+        if (oldText.equals(newText)) {
+            return null;
+        }
+
+        int[] a = oldText.codePoints().toArray();
+        int[] b = newText.codePoints().toArray();
+
+        int prefix = 0;
+        int maxPrefix = Math.min(a.length, b.length);
+        while (prefix < maxPrefix && a[prefix] == b[prefix]) {
+            prefix++;
+        }
+
+        int suffix = 0;
+        int maxSuffix = maxPrefix - prefix;
+        while (suffix < maxSuffix && a[a.length - 1 - suffix] == b[b.length - 1 - suffix]) {
+            suffix++;
+        }
+
+        NoteBytesArray splice = new NoteBytesArray();
+        splice.add(new NoteInteger(prefix));
+        splice.add(new NoteInteger(a.length - prefix - suffix));
+        splice.add(new NoteIntegerArray(new String(b, prefix, b.length - prefix - suffix)));
+        return splice;
+    }
+
+    // ========== Decoding ==========
+
+    static String getSegmentId(NoteBytesObject patch) {
+        NoteBytes idNb = patch.get("segmentId") != null ? patch.get("segmentId").getValue() : null;
+        return idNb != null ? idNb.getAsString() : null;
+    }
+
+    /**
+     * Full segment data if this patch introduces the segment, else null
+     */
+    static NoteBytesObject getFull(NoteBytesObject patch) {
+        NoteBytes fullNb = patch.get("full") != null ? patch.get("full").getValue() : null;
+        return fullNb instanceof NoteBytesObject ? (NoteBytesObject) fullNb : null;
+    }
+
+    /**
+     * Check a patch can be applied to a segment without partial effects
+     */
+    static boolean canApply(NoteBytesObject patch, LayoutSegment segment) {
+        if (getFull(patch) != null) {
+            return true;
+        }
+        if (segment == null) {
+            return false;
+        }
+
+        NoteBytesArray splice = getArray(patch, "splice");
+        if (splice != null) {
+            if (segment.getType() != LayoutSegment.SegmentType.TEXT || splice.size() != 3) {
+                return false;
+            }
+            int length = segment.getTextContent() != null ? segment.getTextContent().length() : 0;
+            int offset = splice.get(0).getAsInt();
+            int deleteLen = splice.get(1).getAsInt();
+            if (offset < 0 || deleteLen < 0 || offset + deleteLen > length) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Build the segment's new data: current data with set/merge/unset applied.
+     * Text splices are not included; see applySplice().
+     */
+    static NoteBytesObject merge(NoteBytesObject current, NoteBytesObject patch) {
+        NoteBytesObject set = getObject(patch, "set");
+        NoteBytesObject merge = getObject(patch, "merge");
+        Set<String> unset = new HashSet<>();
+        NoteBytesArray unsetArray = getArray(patch, "unset");
+        if (unsetArray != null) {
+            for (int i = 0; i < unsetArray.size(); i++) {
+                unset.add(unsetArray.get(i).getAsString());
+            }
+        }
+
+        NoteBytesObject result = new NoteBytesObject();
+        Set<String> written = new HashSet<>();
+
+        for (NoteBytesPair pair : current.getAsList()) {
+            String key = pair.getKey().getAsString();
+            if (unset.contains(key)) continue;
+
+            NoteBytes value = pair.getValue();
+            if (set != null && set.get(key) != null) {
+                value = set.get(key).getValue();
+            } else if (merge != null && merge.get(key) != null && value instanceof NoteBytesObject) {
+                value = mergeGroup(key, (NoteBytesObject) value,
+                    (NoteBytesObject) merge.get(key).getValue(), unset);
+            }
+
+            result.add(key, value);
+            written.add(key);
+        }
+
+        if (set != null) {
+            for (NoteBytesPair pair : set.getAsList()) {
+                String key = pair.getKey().getAsString();
+                if (!written.contains(key)) {
+                    result.add(key, pair.getValue());
+                }
+            }
+        }
+        return result;
+    }
+
+    private static NoteBytesObject mergeGroup(
+        String group,
+        NoteBytesObject current,
+        NoteBytesObject changes,
+        Set<String> unset
+    ) {
+        NoteBytesObject result = new NoteBytesObject();
+        Set<String> written = new HashSet<>();
+
+        for (NoteBytesPair pair : current.getAsList()) {
+            String key = pair.getKey().getAsString();
+            if (unset.contains(group + PATH_SEPARATOR + key)) continue;
+
+            result.add(key, changes.get(key) != null ? changes.get(key).getValue() : pair.getValue());
+            written.add(key);
+        }
+        for (NoteBytesPair pair : changes.getAsList()) {
+            String key = pair.getKey().getAsString();
+            if (!written.contains(key)) {
+                result.add(key, pair.getValue());
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Apply the patch's text splice (if any) to a TEXT segment in place
+     */
+    static void applySplice(NoteBytesObject patch, LayoutSegment segment) {
+        NoteBytesArray splice = getArray(patch, "splice");
+        if (splice == null) return;
+
+        int offset = splice.get(0).getAsInt();
+        int deleteLen = splice.get(1).getAsInt();
+        NoteBytes insert = splice.get(2);
+
+        NoteIntegerArray content = segment.getTextContent();
+        if (content == null) {
+            content = new NoteIntegerArray();
+            segment.setTextContent(content);
+        }
+        if (deleteLen > 0) {
+            content.delete(offset, offset + deleteLen);
+        }
+        String inserted = insert instanceof NoteIntegerArray
+            ? insert.toString() : new NoteIntegerArray(insert.get()).toString();
+        if (!inserted.isEmpty()) {
+            content.insert(offset, inserted);
+        }
+        segment.markDirty();
+    }
+
+    private static NoteBytesObject getObject(NoteBytesObject obj, String key) {
+        NoteBytes nb = obj.get(key) != null ? obj.get(key).getValue() : null;
+        return nb instanceof NoteBytesObject ? (NoteBytesObject) nb : null;
+    }
+
+    private static NoteBytesArray getArray(NoteBytesObject obj, String key) {
+        NoteBytes nb = obj.get(key) != null ? obj.get(key).getValue() : null;
+        return nb instanceof NoteBytesArray ? (NoteBytesArray) nb : null;
+    }
+}
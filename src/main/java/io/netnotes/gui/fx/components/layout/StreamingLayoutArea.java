@@ -1,9 +1,13 @@
 package io.netnotes.gui.fx.components.layout;
 
 import io.netnotes.engine.noteBytes.*;
+import io.netnotes.gui.fx.noteBytes.NoteBytesImage;
 import javafx.application.HostServices;
 import javafx.application.Platform;
 
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
@@ -27,6 +31,10 @@ public class StreamingLayoutArea extends LayoutArea {
     
     private Consumer<NoteBytesObject> m_outboundStream; // Events to VirtualLayoutArea
     private boolean m_eventsEnabled = false;
+    private final InboundQueue m_inbound = new InboundQueue(INBOUND_CAPACITY);
+    private int m_lastPatchSequence = -1; // -1: accept any (after FULL_SYNC)
+    
+    private static final int INBOUND_CAPACITY = 8192;
     
     // ========== Constructors ==========
     
@@ -76,18 +84,26 @@ public class StreamingLayoutArea extends LayoutArea {
     
     /**
      * Process inbound command from VirtualLayoutArea
-     * This is the main entry point for remote control
+     * This is the main entry point for remote control.
+     *
+     * Commands are queued and applied in batches on the JavaFX thread;
+     * at most one drain is scheduled at a time, so a burst of commands
+     * costs one runLater and one layout invalidation.
      */
     public void processInboundCommand(NoteBytesObject commandData) {
-        // Must run on JavaFX thread since we're modifying UI
-        Platform.runLater(() -> {
-            try {
-                handleCommand(commandData);
-            } catch (Exception e) {
-                System.err.println("Error processing command: " + e.getMessage());
-                e.printStackTrace();
-            }
-        });
+        InboundCommand command = InboundCommand.parse(commandData);
+        if (command == null) return;
+        
+        if (m_inbound.offer(command)) {
+            Platform.runLater(this::drainInbound);
+        }
+    }
+    
+    /**
+     * Snapshot of inbound queue counters (backpressure signal)
+     */
+    public InboundStats getInboundStats() {
+        return m_inbound.stats();
     }
     
     // ========== Event Consumer Setup ==========
@@ -127,82 +143,157 @@ public class StreamingLayoutArea extends LayoutArea {
     
     // ========== Command Handling ==========
     
-    private void handleCommand(NoteBytesObject commandData) {
-        NoteBytes typeNb = commandData.get("type") != null ? 
-            commandData.get("type").getValue() : null;
-        if (typeNb == null) return;
+    /**
+     * Apply every queued command as one batch
+     */
+    private void drainInbound() {
+        List<InboundCommand> commands = m_inbound.drain();
+        
+        // Coalesce by segment id. Ops keep first-seen order; later commands
+        // for the same id fold into the pending op where the result is the same.
+        // INSERT and REMOVE shift the indices of later inserts, so nothing
+        // folds back across them (moving a remove earlier would change where
+        // an insert in between lands).
+        NoteBytesArray fullSync = null;
+        List<Integer> fullSyncCorrelationIds = null;
+        List<InboundCommand> ops = new ArrayList<>(commands.size());
+        Map<String, InboundCommand> pendingById = new HashMap<>();
+        int merged = 0;
+        
+        for (InboundCommand command : commands) {
+            if (command.type == InboundCommand.FULL_SYNC) {
+                merged += ops.size();
+                ops.clear();
+                pendingById.clear();
+                fullSync = command.segments;
+                if (command.correlationId >= 0) {
+                    // Superseded syncs are answered by the one that replaced them
+                    if (fullSyncCorrelationIds == null) fullSyncCorrelationIds = new ArrayList<>();
+                    fullSyncCorrelationIds.add(command.correlationId);
+                }
+                continue;
+            }
+            if (command.type == InboundCommand.MOVE) {
+                continue; // TODO: Implement segment reordering
+            }
+            if (command.type == InboundCommand.PATCH) {
+                // Frames apply as a unit; nothing folds across them
+                ops.add(command);
+                pendingById.clear();
+                continue;
+            }
+            
+            InboundCommand pending = pendingById.get(command.segmentId);
+            
+            if (pending != null) {
+                if (command.type == InboundCommand.UPDATE && pending.type != InboundCommand.REMOVE) {
+                    // Last update wins (folds into a pending insert as well)
+                    pending.segmentData = command.segmentData;
+                    merged++;
+                    continue;
+                }
+                if (command.type == InboundCommand.REMOVE) {
+                    if (pending.type == InboundCommand.INSERT) {
+                        // Inserted and removed within the batch: cancels out
+                        pending.cancelled = true;
+                        pendingById.remove(command.segmentId);
+                        merged += 2;
+                        continue;
+                    }
+                    if (pending.type == InboundCommand.UPDATE) {
+                        pending.type = InboundCommand.REMOVE;
+                        pending.segmentData = null;
+                        merged++;
+                        continue;
+                    }
+                }
+            }
+            
+            if (command.type == InboundCommand.INSERT || command.type == InboundCommand.REMOVE) {
+                pendingById.clear();
+            }
+            ops.add(command);
+            pendingById.put(command.segmentId, command);
+        }
         
-        int typeValue = typeNb.getAsInt();
+        LayoutCanvas canvas = getLayoutCanvas();
+        int applied = 0;
         
-        switch (typeValue) {
-            case 0: // FULL_SYNC
-                handleFullSync(commandData);
-                break;
-                
-            case 1: // UPDATE
-                handleUpdate(commandData);
-                break;
-                
-            case 2: // REMOVE
-                handleRemove(commandData);
-                break;
-                
-            case 3: // INSERT
-                handleInsert(commandData);
-                break;
-                
-            case 4: // MOVE
-                handleMove(commandData);
-                break;
-                
-            default:
-                System.err.println("Unknown command type: " + typeValue);
+        canvas.beginBatch();
+        try {
+            if (fullSync != null) {
+                applyFullSync(fullSync);
+                applied++;
+            }
+            
+            for (InboundCommand op : ops) {
+                if (op.cancelled) continue;
+                try {
+                    switch (op.type) {
+                        case InboundCommand.UPDATE:
+                            applyUpdate(op.segmentId, op.segmentData);
+                            break;
+                        case InboundCommand.REMOVE:
+                            applyRemove(op.segmentId);
+                            break;
+                        case InboundCommand.INSERT:
+                            applyInsert(op.segmentId, op.segmentData, op.index);
+                            break;
+                        case InboundCommand.PATCH:
+                            applyPatchFrame(op.sequence, op.segments, op.correlationId);
+                            break;
+                    }
+                    applied++;
+                } catch (Exception e) {
+                    System.err.println("Error processing command: " + e.getMessage());
+                    e.printStackTrace();
+                }
+            }
+        } finally {
+            canvas.endBatch();
         }
-    }
-    
-    private void handleFullSync(NoteBytesObject commandData) {
-        NoteBytes segmentsNb = commandData.get("segments") != null ? 
-            commandData.get("segments").getValue() : null;
         
-        if (!(segmentsNb instanceof NoteBytesArray)) {
-            return;
+        m_inbound.recordBatch(applied, merged);
+        
+        if (fullSync != null) {
+            // Send layout complete event (one per correlated request)
+            if (fullSyncCorrelationIds == null) {
+                sendEvent(LayoutEvent.layoutComplete());
+            } else {
+                for (int correlationId : fullSyncCorrelationIds) {
+                    LayoutEvent event = LayoutEvent.layoutComplete();
+                    event.correlationId = correlationId;
+                    sendEvent(event);
+                }
+            }
         }
         
-        NoteBytesArray segments = (NoteBytesArray) segmentsNb;
-        
+        if (m_inbound.takeResyncRequest()) {
+            // Commands were dropped; local state can no longer be patched
+            sendEvent(LayoutEvent.resyncRequested());
+        }
+    }
+    
+    private void applyFullSync(NoteBytesArray segments) {
         // Clear existing
         LayoutCanvas canvas = getLayoutCanvas();
         canvas.clear();
         m_segmentIdMap.clear();
         m_reverseIdMap.clear();
+        m_lastPatchSequence = -1;
         
         // Set new segments
         canvas.setSegments(segments, false);
-        
-        // Send layout complete event
-        sendEvent(LayoutEvent.layoutComplete());
     }
     
-    private void handleUpdate(NoteBytesObject commandData) {
-        NoteBytes idNb = commandData.get("segmentId") != null ? 
-            commandData.get("segmentId").getValue() : null;
-        NoteBytes dataNb = commandData.get("segmentData") != null ? 
-            commandData.get("segmentData").getValue() : null;
-        
-        if (idNb == null || !(dataNb instanceof NoteBytesObject)) {
-            return;
-        }
-        
-        String segmentId = idNb.getAsString();
-        NoteBytesObject segmentData = (NoteBytesObject) dataNb;
-        
+    private void applyUpdate(String segmentId, NoteBytesObject segmentData) {
         LayoutSegment existingSegment = m_segmentIdMap.get(segmentId);
         LayoutCanvas canvas = getLayoutCanvas();
         
         if (existingSegment != null) {
             // Update existing segment
             updateSegmentFromData(existingSegment, segmentData);
-            canvas.invalidateLayout();
+            canvas.invalidateSegment(existingSegment);
         } else {
             // New segment - add it
             LayoutSegment newSegment = new LayoutSegment(segmentData);
@@ -211,50 +302,71 @@ public class StreamingLayoutArea extends LayoutArea {
         }
     }
     
-    private void handleRemove(NoteBytesObject commandData) {
-        NoteBytes idNb = commandData.get("segmentId") != null ? 
-            commandData.get("segmentId").getValue() : null;
-        
-        if (idNb == null) return;
-        
-        String segmentId = idNb.getAsString();
+    private void applyRemove(String segmentId) {
         LayoutSegment segment = m_segmentIdMap.get(segmentId);
         LayoutCanvas canvas = getLayoutCanvas();
         
         if (segment != null) {
-            // Find and remove from segments array
-            NoteBytesArray segments = canvas.getSegments();
-            for (int i = 0; i < segments.size(); i++) {
-                NoteBytes item = segments.get(i);
-                if (item instanceof NoteBytesObject) {
-                    LayoutSegment seg = new LayoutSegment((NoteBytesObject) item);
-                    if (seg == segment) {
-                        canvas.removeSegment(i);
-                        break;
-                    }
-                }
+            // Parsed nodes keep segment identity, so this lookup is exact
+            int index = canvas.indexOfSegment(segment);
+            if (index >= 0) {
+                canvas.removeSegment(index);
             }
             
             unregisterSegment(segmentId);
         }
     }
     
-    private void handleInsert(NoteBytesObject commandData) {
-        NoteBytes idNb = commandData.get("segmentId") != null ? 
-            commandData.get("segmentId").getValue() : null;
-        NoteBytes dataNb = commandData.get("segmentData") != null ? 
-            commandData.get("segmentData").getValue() : null;
-        NoteBytes indexNb = commandData.get("index") != null ? 
-            commandData.get("index").getValue() : null;
+    /**
+     * Apply a PATCH frame atomically: every patch is validated first and
+     * the frame is either applied in full or rejected (followed by a
+     * resync request). The result is acknowledged with PATCH_ACK.
+     */
+    private void applyPatchFrame(int sequence, NoteBytesArray patches, int correlationId) {
+        boolean valid = m_lastPatchSequence < 0 || sequence == m_lastPatchSequence + 1;
         
-        if (idNb == null || !(dataNb instanceof NoteBytesObject)) {
+        for (int i = 0; valid && i < patches.size(); i++) {
+            NoteBytes item = patches.get(i);
+            if (!(item instanceof NoteBytesObject)) {
+                valid = false;
+                break;
+            }
+            NoteBytesObject patch = (NoteBytesObject) item;
+            String segmentId = SegmentPatch.getSegmentId(patch);
+            valid = segmentId != null && SegmentPatch.canApply(patch, m_segmentIdMap.get(segmentId));
+        }
+        
+        if (!valid) {
+            System.err.println("Rejected patch frame " + sequence + " (expected " + (m_lastPatchSequence + 1) + ")");
+            sendEvent(LayoutEvent.patchAck(sequence, false, correlationId));
+            sendEvent(LayoutEvent.resyncRequested());
             return;
         }
         
-        String segmentId = idNb.getAsString();
-        NoteBytesObject segmentData = (NoteBytesObject) dataNb;
-        int index = indexNb != null ? indexNb.getAsInt() : 0;
+        LayoutCanvas canvas = getLayoutCanvas();
+        for (int i = 0; i < patches.size(); i++) {
+            NoteBytesObject patch = (NoteBytesObject) patches.get(i);
+            String segmentId = SegmentPatch.getSegmentId(patch);
+            NoteBytesObject full = SegmentPatch.getFull(patch);
+            
+            if (full != null) {
+                applyUpdate(segmentId, full);
+                continue;
+            }
+            
+            LayoutSegment segment = m_segmentIdMap.get(segmentId);
+            NoteBytesObject merged = SegmentPatch.merge(segment.getData(), patch);
+            updateSegmentFromData(segment, merged);
+            // After the update: merged carries the pre-splice "content"
+            SegmentPatch.applySplice(patch, segment);
+            canvas.invalidateSegment(segment);
+        }
         
+        m_lastPatchSequence = sequence;
+        sendEvent(LayoutEvent.patchAck(sequence, true, correlationId));
+    }
+    
+    private void applyInsert(String segmentId, NoteBytesObject segmentData, int index) {
         LayoutSegment segment = new LayoutSegment(segmentData);
         registerSegment(segmentId, segment);
         
@@ -262,10 +374,6 @@ public class StreamingLayoutArea extends LayoutArea {
         canvas.addSegment(index, segment);
     }
     
-    private void handleMove(NoteBytesObject commandData) {
-        // TODO: Implement segment reordering
-    }
-    
     // ========== ID Management ==========
     
     private void registerSegment(String id, LayoutSegment segment) {
@@ -388,10 +496,257 @@ public class StreamingLayoutArea extends LayoutArea {
             if (contentNb instanceof NoteIntegerArray) {
                 segment.setTextContent((NoteIntegerArray) contentNb);
             }
+        } else if (contentNb != null && segment.getType() == LayoutSegment.SegmentType.IMAGE) {
+            // Image resolved by the sender's ImageFetchPipeline
+            segment.setImageContent(contentNb instanceof NoteBytesImage
+                ? (NoteBytesImage) contentNb : new NoteBytesImage(contentNb));
         }
         
         segment.markDirty();
     }
+    
+    // ========== Inbound Queue ==========
+    
+    /**
+     * Parsed inbound command
+     */
+    private static class InboundCommand {
+        static final int FULL_SYNC = 0;
+        static final int UPDATE = 1;
+        static final int REMOVE = 2;
+        static final int INSERT = 3;
+        static final int MOVE = 4;
+        static final int PATCH = 5;
+        
+        int type;
+        String segmentId;
+        NoteBytesObject segmentData;
+        NoteBytesArray segments; // FULL_SYNC segments, or PATCH patches
+        int index;
+        int sequence;
+        int correlationId = -1;
+        boolean cancelled = false;
+        
+        static InboundCommand parse(NoteBytesObject commandData) {
+            NoteBytes typeNb = commandData.get("type") != null ? 
+                commandData.get("type").getValue() : null;
+            if (typeNb == null) return null;
+            
+            InboundCommand command = new InboundCommand();
+            command.type = typeNb.getAsInt();
+            
+            NoteBytes cidNb = commandData.get("cid") != null ? 
+                commandData.get("cid").getValue() : null;
+            command.correlationId = cidNb != null ? cidNb.getAsInt() : -1;
+            
+            if (command.type == FULL_SYNC) {
+                NoteBytes segmentsNb = commandData.get("segments") != null ? 
+                    commandData.get("segments").getValue() : null;
+                if (!(segmentsNb instanceof NoteBytesArray)) return null;
+                command.segments = (NoteBytesArray) segmentsNb;
+                return command;
+            }
+            
+            if (command.type == PATCH) {
+                NoteBytes seqNb = commandData.get("seq") != null ? 
+                    commandData.get("seq").getValue() : null;
+                NoteBytes patchesNb = commandData.get("patches") != null ? 
+                    commandData.get("patches").getValue() : null;
+                if (seqNb == null || !(patchesNb instanceof NoteBytesArray)) return null;
+                command.sequence = seqNb.getAsInt();
+                command.segments = (NoteBytesArray) patchesNb;
+                return command;
+            }
+            
+            if (command.type < FULL_SYNC || command.type > PATCH) {
+                System.err.println("Unknown command type: " + command.type);
+                return null;
+            }
+            
+            NoteBytes idNb = commandData.get("segmentId") != null ? 
+                commandData.get("segmentId").getValue() : null;
+            if (idNb == null) return null;
+            command.segmentId = idNb.getAsString();
+            
+            if (command.type == UPDATE || command.type == INSERT) {
+                NoteBytes dataNb = commandData.get("segmentData") != null ? 
+                    commandData.get("segmentData").getValue() : null;
+                if (!(dataNb instanceof NoteBytesObject)) return null;
+                command.segmentData = (NoteBytesObject) dataNb;
+                
+                NoteBytes indexNb = commandData.get("index") != null ? 
+                    commandData.get("index").getValue() : null;
+                command.index = indexNb != null ? indexNb.getAsInt() : 0;
+            }
+            
+            return command;
+        }
+    }
+    
+    /**
+     * Bounded ring of inbound commands, filled from any thread and
+     * drained on the JavaFX thread.
+     *
+     * Consecutive UPDATEs for a segment are merged as they arrive, and a
+     * FULL_SYNC discards everything queued before it. When the ring is full
+     * the command is dropped and a resync is requested; incremental commands
+     * are then dropped until the next FULL_SYNC arrives.
+     */
+    private static class InboundQueue {
+        private final InboundCommand[] m_ring;
+        private int m_head = 0;
+        private int m_count = 0;
+        private boolean m_drainScheduled = false;
+        
+        // Latest queued UPDATE per segment id, for enqueue-time merging
+        private final Map<String, InboundCommand> m_pendingUpdates = new HashMap<>();
+        
+        private boolean m_awaitingResync = false;
+        private boolean m_resyncRequested = false;
+        
+        private long m_received = 0;
+        private long m_applied = 0;
+        private long m_merged = 0;
+        private long m_dropped = 0;
+        private long m_batches = 0;
+        private int m_peakDepth = 0;
+        
+        InboundQueue(int capacity) {
+            m_ring = new InboundCommand[capacity];
+        }
+        
+        /**
+         * Queue a command
+         * @return true if the caller must schedule a drain
+         */
+        synchronized boolean offer(InboundCommand command) {
+            m_received++;
+            
+            if (command.type == InboundCommand.FULL_SYNC) {
+                // Supersedes everything queued so far
+                m_merged += m_count;
+                clearRing();
+                m_awaitingResync = false;
+            } else if (m_awaitingResync) {
+                m_dropped++;
+                return false;
+            } else if (command.type == InboundCommand.PATCH) {
+                // Later UPDATEs must not merge into ones queued before the frame
+                m_pendingUpdates.clear();
+            } else if (command.type == InboundCommand.UPDATE) {
+                InboundCommand pending = m_pendingUpdates.get(command.segmentId);
+                if (pending != null) {
+                    pending.segmentData = command.segmentData;
+                    m_merged++;
+                    return false;
+                }
+            } else {
+                m_pendingUpdates.remove(command.segmentId);
+            }
+            
+            if (m_count == m_ring.length) {
+                m_dropped++;
+                m_awaitingResync = true;
+                m_resyncRequested = true;
+                return scheduleDrain();
+            }
+            
+            m_ring[(m_head + m_count) % m_ring.length] = command;
+            m_count++;
+            m_peakDepth = Math.max(m_peakDepth, m_count);
+            
+            if (command.type == InboundCommand.UPDATE) {
+                m_pendingUpdates.put(command.segmentId, command);
+            }
+            
+            return scheduleDrain();
+        }
+        
+        private boolean scheduleDrain() {
+            if (m_drainScheduled) return false;
+            m_drainScheduled = true;
+            return true;
+        }
+        
+        /**
+         * Remove and return every queued command, in arrival order
+         */
+        synchronized List<InboundCommand> drain() {
+            List<InboundCommand> commands = new ArrayList<>(m_count);
+            for (int i = 0; i < m_count; i++) {
+                commands.add(m_ring[(m_head + i) % m_ring.length]);
+            }
+            clearRing();
+            m_drainScheduled = false;
+            return commands;
+        }
+        
+        private void clearRing() {
+            for (int i = 0; i < m_count; i++) {
+                m_ring[(m_head + i) % m_ring.length] = null;
+            }
+            m_head = 0;
+            m_count = 0;
+            m_pendingUpdates.clear();
+        }
+        
+        synchronized void recordBatch(int applied, int merged) {
+            m_applied += applied;
+            m_merged += merged;
+            m_batches++;
+        }
+        
+        synchronized boolean takeResyncRequest() {
+            boolean requested = m_resyncRequested;
+            m_resyncRequested = false;
+            return requested;
+        }
+        
+        synchronized InboundStats stats() {
+            return new InboundStats(
+                m_count, m_peakDepth, m_ring.length,
+                m_received, m_applied, m_merged, m_dropped, m_batches,
+                m_awaitingResync
+            );
+        }
+    }
+    
+    /**
+     * Inbound queue counters at a point in time
+     */
+    public static class InboundStats {
+        public final int queueDepth;
+        public final int peakQueueDepth;
+        public final int capacity;
+        public final long received;
+        public final long applied;
+        public final long merged;
+        public final long dropped;
+        public final long batches;
+        public final boolean awaitingResync;
+        
+        InboundStats(int queueDepth, int peakQueueDepth, int capacity,
+                     long received, long applied, long merged, long dropped, long batches,
+                     boolean awaitingResync) {
+            this.queueDepth = queueDepth;
+            this.peakQueueDepth = peakQueueDepth;
+            this.capacity = capacity;
+            this.received = received;
+            this.applied = applied;
+            this.merged = merged;
+            this.dropped = dropped;
+            this.batches = batches;
+            this.awaitingResync = awaitingResync;
+        }
+        
+        @Override
+        public String toString() {
+            return String.format(
+                "InboundStats[depth=%d/%d, peak=%d, received=%d, applied=%d, merged=%d, dropped=%d, batches=%d%s]",
+                queueDepth, capacity, peakQueueDepth, received, applied, merged, dropped, batches,
+                awaitingResync ? ", awaiting resync" : "");
+        }
+    }
 }
 
 /**
@@ -410,10 +765,27 @@ class StreamingLayoutBridge {
         m_virtualLayout.connectOutboundStream(m_layoutArea::processInboundCommand);
         m_layoutArea.connectOutboundStream(m_virtualLayout::processInboundEvent);
         
+        // Dropped inbound commands: re-send the whole tree
+        m_virtualLayout.onEvent(LayoutEvent.EventType.RESYNC_REQUESTED, _ -> {
+            m_virtualLayout.requestFullSync();
+            m_virtualLayout.flush();
+        });
+        
         // Enable events
         m_layoutArea.setEventsEnabled(true);
     }
     
+    /**
+     * Backpressure signal from the client side: queue depth, merged and dropped commands
+     */
+    public StreamingLayoutArea.InboundStats getInboundStats() {
+        return m_layoutArea.getInboundStats();
+    }
+    
+    public int getInboundQueueDepth() {
+        return m_layoutArea.getInboundStats().queueDepth;
+    }
+    
     public VirtualLayoutArea getVirtualLayout() {
         return m_virtualLayout;
     }
@@ -6,8 +6,11 @@ import io.netnotes.engine.noteBytes.collections.NoteBytesPair;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.function.Consumer;
 
+import javafx.application.Platform;
+
 /**
  * Server-side virtual layout that communicates with LayoutCanvas via streams.
  * 
@@ -19,6 +22,10 @@ import java.util.function.Consumer;
  * - Outbound stream: Commands to update UI (add/remove/modify segments)
  * - Inbound stream: Events from UI (cursor moves, text changes, clicks)
  * - Delta updates: Only changed segments are transmitted
+ * - Delta patches: changed fields and text splices, batched into one
+ *   sequenced PATCH frame per flush and acknowledged by the receiver
+ * - Images: pending IMAGE segments are resolved with the ImageFetchPipeline
+ *   and sent as segment updates, so every receiver gets the decoded image
  */
 public class VirtualLayoutArea {
     
@@ -31,7 +38,7 @@ public class VirtualLayoutArea {
     // ========== Streaming ==========
     
     private Consumer<NoteBytesObject> m_outboundStream;
-    private final List<Consumer<LayoutEvent>> m_eventHandlers;
+    private final LayoutEventRouter m_eventRouter;
     
     // ========== Root Layout ==========
     
@@ -43,12 +50,26 @@ public class VirtualLayoutArea {
     private final Set<String> m_dirtySegments;
     private boolean m_needsFullSync;
     
+    public static final long DEFAULT_EVENT_TIMEOUT_MS = 30_000;
+    
+    // ========== Delta Patches ==========
+    
+    private final Map<String, SegmentPatch.Baseline> m_sentBaselines = new ConcurrentHashMap<>();
+    private boolean m_deltaPatchesEnabled = true;
+    private int m_patchSequence = 0;
+    private volatile int m_lastAckedPatchSequence = -1;
+    
+    // ========== Images ==========
+    
+    private ImageFetchPipeline m_imagePipeline = ImageFetchPipeline.getDefault();
+    private Executor m_ownerExecutor = Platform::runLater; // thread that edits this layout
+    
     // ========== Constructors ==========
     
     public VirtualLayoutArea() {
         m_segmentsById = new ConcurrentHashMap<>();
         m_segmentParents = new ConcurrentHashMap<>();
-        m_eventHandlers = new ArrayList<>();
+        m_eventRouter = new LayoutEventRouter();
         m_dirtySegments = ConcurrentHashMap.newKeySet();
         m_needsFullSync = true;
         
@@ -92,32 +113,33 @@ public class VirtualLayoutArea {
     public void processInboundEvent(NoteBytesObject eventData) {
         LayoutEvent event = LayoutEvent.fromNoteBytes(eventData);
         
-        // Dispatch to registered handlers
-        for (Consumer<LayoutEvent> handler : m_eventHandlers) {
-            handler.accept(event);
+        if (event.type == LayoutEvent.EventType.PATCH_ACK) {
+            handlePatchAck(event);
         }
+        
+        // Dispatch to pending requests and registered handlers
+        m_eventRouter.dispatch(event);
     }
     
     /**
      * Register event handler for specific event types
      */
     public void onEvent(LayoutEvent.EventType type, Consumer<LayoutEvent> handler) {
-        m_eventHandlers.add(event -> {
-            if (event.type == type) {
-                handler.accept(event);
-            }
-        });
+        m_eventRouter.addTypeHandler(type, handler);
     }
     
     /**
      * Register event handler for specific segment
      */
     public void onSegmentEvent(String segmentId, Consumer<LayoutEvent> handler) {
-        m_eventHandlers.add(event -> {
-            if (segmentId.equals(event.segmentId)) {
-                handler.accept(event);
-            }
-        });
+        m_eventRouter.addSegmentHandler(segmentId, handler);
+    }
+    
+    /**
+     * Register event handler for one event type on a specific segment
+     */
+    public void onSegmentEvent(LayoutEvent.EventType type, String segmentId, Consumer<LayoutEvent> handler) {
+        m_eventRouter.addHandler(type, segmentId, handler);
     }
     
     // ========== Layout Building API ==========
@@ -156,6 +178,7 @@ public class VirtualLayoutArea {
         m_dirtySegments.add(segmentId);
         m_dirtySegments.add(parentId); // Parent changed too
         
+        requestImage(segmentId, segment);
         return segmentId;
     }
     
@@ -187,6 +210,8 @@ public class VirtualLayoutArea {
         // Unregister
         m_segmentsById.remove(segmentId);
         m_segmentParents.remove(segmentId);
+        m_sentBaselines.remove(segmentId);
+        m_eventRouter.removeSegmentHandlers(segmentId);
         
         // Send remove command
         sendCommand(LayoutCommand.remove(segmentId));
@@ -204,6 +229,8 @@ public class VirtualLayoutArea {
         updater.accept(segment);
         segment.markDirty();
         m_dirtySegments.add(segmentId);
+        
+        requestImage(segmentId, segment);
     }
     
     /**
@@ -215,6 +242,13 @@ public class VirtualLayoutArea {
     
     // ========== Flushing Changes ==========
     
+    /**
+     * Send the full tree on the next flush (e.g. the client dropped commands)
+     */
+    public void requestFullSync() {
+        m_needsFullSync = true;
+    }
+    
     /**
      * Flush all pending changes to the outbound stream
      */
@@ -223,13 +257,19 @@ public class VirtualLayoutArea {
             return; // Not connected
         }
         
+        // Take the dirty ids so segments marked during the send stay dirty
+        List<String> dirty = new ArrayList<>(m_dirtySegments);
+        m_dirtySegments.removeAll(dirty);
+        
         if (m_needsFullSync) {
             sendFullSync();
             m_needsFullSync = false;
-            m_dirtySegments.clear();
-        } else if (!m_dirtySegments.isEmpty()) {
-            sendDeltaUpdates();
-            m_dirtySegments.clear();
+        } else if (!dirty.isEmpty()) {
+            if (m_deltaPatchesEnabled) {
+                sendPatchFrame(dirty);
+            } else {
+                sendDeltaUpdates(dirty);
+            }
         }
     }
     
@@ -242,21 +282,134 @@ public class VirtualLayoutArea {
         
         LayoutCommand cmd = LayoutCommand.fullSync(segments);
         sendCommand(cmd);
+        
+        // The receiver rebuilds from scratch and does not know segment ids
+        m_sentBaselines.clear();
     }
     
     /**
      * Send only changed segments
      */
-    private void sendDeltaUpdates() {
-        for (String segmentId : m_dirtySegments) {
+    private void sendDeltaUpdates(List<String> dirty) {
+        for (String segmentId : dirty) {
             LayoutSegment segment = m_segmentsById.get(segmentId);
             if (segment != null) {
                 LayoutCommand cmd = LayoutCommand.update(segmentId, segment);
                 sendCommand(cmd);
+                m_sentBaselines.put(segmentId, SegmentPatch.Baseline.capture(segment));
             }
         }
     }
     
+    /**
+     * Send changed fields of every dirty segment as one sequenced frame
+     */
+    private void sendPatchFrame(List<String> dirty) {
+        NoteBytesArray patches = new NoteBytesArray();
+        
+        for (String segmentId : dirty) {
+            // The root is implicit on the receiver; its children sync individually
+            if (segmentId.equals(m_rootId)) continue;
+            
+            LayoutSegment segment = m_segmentsById.get(segmentId);
+            if (segment == null) continue;
+            
+            NoteBytesObject patch = SegmentPatch.diff(segmentId, m_sentBaselines.get(segmentId), segment);
+            if (patch != null) {
+                patches.add(patch);
+                m_sentBaselines.put(segmentId, SegmentPatch.Baseline.capture(segment));
+            }
+        }
+        
+        if (patches.size() > 0) {
+            sendCommand(LayoutCommand.patch(++m_patchSequence, patches));
+        }
+    }
+    
+    // ========== Images ==========
+    
+    /**
+     * Pipeline resolving pending IMAGE segments, or null to leave them to the receiver
+     */
+    public void setImagePipeline(ImageFetchPipeline pipeline) {
+        m_imagePipeline = pipeline;
+    }
+    
+    public ImageFetchPipeline getImagePipeline() {
+        return m_imagePipeline;
+    }
+    
+    /**
+     * Executor for the thread that edits this layout (default: the JavaFX
+     * thread). Fetched images are applied and flushed there.
+     */
+    public void setOwnerExecutor(Executor executor) {
+        if (executor == null) {
+            throw new IllegalArgumentException("Owner executor required");
+        }
+        m_ownerExecutor = executor;
+    }
+    
+    /**
+     * Fetch a pending IMAGE segment's source and send the image as an update.
+     * Placeholders nested inside container segments are resolved by the receiver.
+     */
+    private void requestImage(String segmentId, LayoutSegment segment) {
+        ImageFetchPipeline pipeline = m_imagePipeline;
+        if (pipeline == null || !segment.isImagePending()) return;
+        
+        String src = segment.getImageSource();
+        pipeline.fetch(src).whenCompleteAsync((image, error) -> {
+            if (error != null) {
+                System.err.println("VirtualLayoutArea: could not load image " + src + ": " + error.getMessage());
+                return;
+            }
+            // Skip if the segment was removed or its source changed meanwhile
+            LayoutSegment current = m_segmentsById.get(segmentId);
+            if (current != segment || !segment.isImagePending() || !src.equals(segment.getImageSource())) {
+                return;
+            }
+            updateSegment(segmentId, s -> s.setImageContent(image));
+            flush();
+        }, m_ownerExecutor);
+    }
+    
+    private void handlePatchAck(LayoutEvent event) {
+        NoteBytes seqNb = event.data.get("seq");
+        NoteBytes okNb = event.data.get("ok");
+        if (seqNb == null) return;
+        
+        if (okNb == null || okNb.getAsBoolean()) {
+            m_lastAckedPatchSequence = Math.max(m_lastAckedPatchSequence, seqNb.getAsInt());
+        }
+        // A rejected frame is followed by RESYNC_REQUESTED from the receiver
+    }
+    
+    /**
+     * Enable/disable field-level PATCH frames (otherwise one full UPDATE per dirty segment)
+     */
+    public void setDeltaPatchesEnabled(boolean enabled) {
+        m_deltaPatchesEnabled = enabled;
+    }
+    
+    public boolean isDeltaPatchesEnabled() {
+        return m_deltaPatchesEnabled;
+    }
+    
+    /**
+     * Sequence number of the last PATCH frame sent
+     */
+    public int getPatchSequence() {
+        return m_patchSequence;
+    }
+    
+    /**
+     * Sequence number of the last PATCH frame the receiver applied, or -1
+     */
+    public int getLastAckedPatchSequence() {
+        return m_lastAckedPatchSequence;
+    }
+    
     /**
      * Send a command to the LayoutCanvas
      */
@@ -270,28 +423,38 @@ public class VirtualLayoutArea {
     
     /**
      * Send command and wait for specific event response
+     * (times out after DEFAULT_EVENT_TIMEOUT_MS)
      */
     public CompletableFuture<LayoutEvent> sendAndWaitForEvent(
         LayoutCommand command, 
         LayoutEvent.EventType expectedType
     ) {
-        CompletableFuture<LayoutEvent> future = new CompletableFuture<>();
-        
-        // Register one-time handler
-        Consumer<LayoutEvent> handler = new Consumer<LayoutEvent>() {
-            @Override
-            public void accept(LayoutEvent event) {
-                if (event.type == expectedType) {
-                    future.complete(event);
-                    m_eventHandlers.remove(this);
-                }
-            }
-        };
-        
-        m_eventHandlers.add(handler);
+        return sendAndWaitForEvent(command, expectedType, DEFAULT_EVENT_TIMEOUT_MS);
+    }
+    
+    /**
+     * Send command and wait for specific event response.
+     * The command carries a correlation id; a response echoing it completes
+     * this request directly, otherwise the first event of the expected type does.
+     * The future fails with a TimeoutException after timeoutMs.
+     */
+    public CompletableFuture<LayoutEvent> sendAndWaitForEvent(
+        LayoutCommand command, 
+        LayoutEvent.EventType expectedType,
+        long timeoutMs
+    ) {
+        LayoutEventRouter.PendingRequest request = m_eventRouter.expect(expectedType, timeoutMs);
+        command.correlationId = request.correlationId;
         sendCommand(command);
         
-        return future;
+        return request.future;
+    }
+    
+    /**
+     * Number of sendAndWaitForEvent requests still waiting for a response
+     */
+    public int getPendingRequestCount() {
+        return m_eventRouter.getPendingCount();
     }
     
     // ========== Convenience Methods ==========
@@ -352,7 +515,8 @@ class LayoutCommand {
         UPDATE(1),
         REMOVE(2),
         INSERT(3),
-        MOVE(4);
+        MOVE(4),
+        PATCH(5);
         
         final int value;
         CommandType(int value) { this.value = value; }
@@ -360,9 +524,11 @@ class LayoutCommand {
     
     CommandType type;
     String segmentId;
-    NoteBytesArray segments; // For FULL_SYNC
+    NoteBytesArray segments; // For FULL_SYNC, or patches for PATCH
     NoteBytesObject segmentData; // For UPDATE/INSERT
     int index; // For INSERT
+    int sequence = -1; // For PATCH
+    int correlationId = -1; // Echoed by the response event, if any
     
     static LayoutCommand fullSync(NoteBytesArray segments) {
         LayoutCommand cmd = new LayoutCommand();
@@ -395,6 +561,14 @@ class LayoutCommand {
         return cmd;
     }
     
+    static LayoutCommand patch(int sequence, NoteBytesArray patches) {
+        LayoutCommand cmd = new LayoutCommand();
+        cmd.type = CommandType.PATCH;
+        cmd.sequence = sequence;
+        cmd.segments = patches;
+        return cmd;
+    }
+    
     NoteBytesObject toNoteBytes() {
         NoteBytesObject obj = new NoteBytesObject(new NoteBytesPair[]{
             new NoteBytesPair("type", new NoteInteger(type.value))
@@ -403,7 +577,10 @@ class LayoutCommand {
         if (segmentId != null) {
             obj.add("segmentId", new NoteString(segmentId));
         }
-        if (segments != null) {
+        if (type == CommandType.PATCH) {
+            obj.add("seq", new NoteInteger(sequence));
+            obj.add("patches", segments);
+        } else if (segments != null) {
             obj.add("segments", segments);
         }
         if (segmentData != null) {
@@ -412,6 +589,9 @@ class LayoutCommand {
         if (index >= 0) {
             obj.add("index", new NoteInteger(index));
         }
+        if (correlationId >= 0) {
+            obj.add("cid", new NoteInteger(correlationId));
+        }
         
         return obj;
     }
@@ -427,7 +607,9 @@ class LayoutEvent {
         SELECTION_CHANGED(2),
         SEGMENT_CLICKED(3),
         SEGMENT_FOCUSED(4),
-        LAYOUT_COMPLETE(5);
+        LAYOUT_COMPLETE(5),
+        RESYNC_REQUESTED(6),
+        PATCH_ACK(7);
         
         final int value;
         EventType(int value) { this.value = value; }
@@ -443,6 +625,7 @@ class LayoutEvent {
     EventType type;
     String segmentId;
     Map<String, NoteBytes> data; // Flexible data payload
+    int correlationId = -1; // Correlation id of the command this responds to
     
     static LayoutEvent cursorMoved(String segmentId, int offset) {
         LayoutEvent event = new LayoutEvent();
@@ -477,6 +660,23 @@ class LayoutEvent {
         return event;
     }
     
+    static LayoutEvent resyncRequested() {
+        LayoutEvent event = new LayoutEvent();
+        event.type = EventType.RESYNC_REQUESTED;
+        event.data = new HashMap<>();
+        return event;
+    }
+    
+    static LayoutEvent patchAck(int sequence, boolean ok, int correlationId) {
+        LayoutEvent event = new LayoutEvent();
+        event.type = EventType.PATCH_ACK;
+        event.correlationId = correlationId;
+        event.data = new HashMap<>();
+        event.data.put("seq", new NoteInteger(sequence));
+        event.data.put("ok", new NoteBoolean(ok));
+        return event;
+    }
+    
     static LayoutEvent fromNoteBytes(NoteBytesObject obj) {
         LayoutEvent event = new LayoutEvent();
         
@@ -487,6 +687,9 @@ class LayoutEvent {
         NoteBytes idNb = obj.get("segmentId") != null ? obj.get("segmentId").getValue() : null;
         event.segmentId = idNb != null ? idNb.getAsString() : null;
         
+        NoteBytes cidNb = obj.get("cid") != null ? obj.get("cid").getValue() : null;
+        event.correlationId = cidNb != null ? cidNb.getAsInt() : -1;
+        
         // Parse data map
         event.data = new HashMap<>();
         NoteBytes dataNb = obj.get("data") != null ? obj.get("data").getValue() : null;
@@ -508,6 +711,9 @@ class LayoutEvent {
         if (segmentId != null) {
             obj.add("segmentId", new NoteString(segmentId));
         }
+        if (correlationId >= 0) {
+            obj.add("cid", new NoteInteger(correlationId));
+        }
         
         if (data != null && !data.isEmpty()) {
             NoteBytesPair[] pairs = new NoteBytesPair[data.size()];
@@ -0,0 +1,343 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.awt.Insets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Viewport-windowed layout for very long documents.
+ *
+ * Top-level children are grouped into units: each BLOCK/HIDDEN child is
+ * its own unit, consecutive inline children share one. Only units within
+ * a few viewports of the scroll position are laid out; the rest use an
+ * estimated height from cheap measurement so the total height (and the
+ * scrollbar) stays stable.
+ *
+ * When a unit is laid out its estimate is replaced by the exact height.
+ * update() returns a corrected scroll position that keeps the unit under
+ * the top of the viewport (the anchor) visually fixed.
+ *
+ * Each unit is laid out in isolation at y = 0 and then translated to its
+ * stacked position, so units never influence each other's layout.
+ */
+public class WindowedLayout {
+    private static final int MAX_REFINE_PASSES = 8;
+
+    private final LayoutEngine m_engine;
+    private final SegmentNode m_root;
+    private final LayoutEngine.Constraints m_constraints;
+    private final Insets m_padding;
+
+    // Units: children [m_unitStart[u], m_unitEnd[u]) of the root
+    private final int m_unitCount;
+    private final int[] m_unitStart;
+    private final int[] m_unitEnd;
+    // First child and height key of each unit, captured when the units are built:
+    // the root is edited in place afterwards, so the indices go stale
+    private final SegmentNode[] m_unitFirst;
+    private final String[] m_unitKey;
+    private final int[] m_unitOffset;   // global start offset
+    private final int[] m_unitHeight;   // exact once laid out, else estimated
+    private final int[] m_unitWidth;
+    private final int[] m_unitTop;      // prefix sum of heights (m_unitCount + 1 entries)
+    private final boolean[] m_laidOut;
+    private final List<List<LayoutEngine.LayoutResult>> m_unitResults;
+    private final int[] m_unitAppliedTop; // y translation currently applied to a unit's results
+
+    private final int m_totalOffset;
+    private LayoutEngine.LayoutResult m_result = null;
+
+    // Anchor carried over from a previous instance (after an edit/relayout)
+    private SegmentNode m_carriedAnchor = null;
+    private int m_carriedAnchorDelta = 0;
+
+    /**
+     * @param previous a previous windowed layout of the same document, or null.
+     *                 Exact heights of unchanged units and the scroll anchor are carried over.
+     */
+    public WindowedLayout(
+        LayoutEngine engine,
+        SegmentNode root,
+        LayoutEngine.Constraints constraints,
+        WindowedLayout previous,
+        int previousScrollY
+    ) {
+        m_engine = engine;
+        m_root = root;
+        m_constraints = constraints;
+        m_padding = root.getLayout().padding;
+
+        // Group top-level children into units
+        List<int[]> units = new ArrayList<>();
+        int runStart = -1;
+        for (int i = 0; i < root.getChildCount(); i++) {
+            LayoutSegment.Display display = root.getChild(i).getLayout().display;
+            boolean block = display == LayoutSegment.Display.BLOCK || display == LayoutSegment.Display.HIDDEN;
+
+            if (block) {
+                if (runStart >= 0) {
+                    units.add(new int[]{runStart, i});
+                    runStart = -1;
+                }
+                units.add(new int[]{i, i + 1});
+            } else if (runStart < 0) {
+                runStart = i;
+            }
+        }
+        if (runStart >= 0) {
+            units.add(new int[]{runStart, root.getChildCount()});
+        }
+
+        m_unitCount = units.size();
+        m_unitStart = new int[m_unitCount];
+        m_unitEnd = new int[m_unitCount];
+        m_unitFirst = new SegmentNode[m_unitCount];
+        m_unitKey = new String[m_unitCount];
+        m_unitOffset = new int[m_unitCount];
+        m_unitHeight = new int[m_unitCount];
+        m_unitWidth = new int[m_unitCount];
+        m_unitTop = new int[m_unitCount + 1];
+        m_laidOut = new boolean[m_unitCount];
+        m_unitAppliedTop = new int[m_unitCount];
+        m_unitResults = new ArrayList<>(m_unitCount);
+
+        Map<String, Integer> knownHeights = previous != null ? previous.exactHeights() : null;
+
+        int offset = 0;
+        for (int u = 0; u < m_unitCount; u++) {
+            int[] unit = units.get(u);
+            m_unitStart[u] = unit[0];
+            m_unitEnd[u] = unit[1];
+            m_unitFirst[u] = root.getChild(unit[0]);
+            m_unitKey[u] = unit[1] - unit[0] == 1 ? m_unitFirst[u].getHashString() : null;
+            m_unitOffset[u] = offset;
+            m_unitResults.add(null);
+
+            for (int i = unit[0]; i < unit[1]; i++) {
+                offset += LayoutEngine.offsetSpan(root.getChild(i));
+            }
+
+            Integer known = knownHeights != null ? knownHeights.get(m_unitKey[u]) : null;
+            m_unitHeight[u] = known != null
+                ? known
+                : m_engine.estimateRangeHeight(root, unit[0], unit[1], constraints);
+        }
+        m_totalOffset = offset;
+        recomputeTops();
+
+        if (previous != null) {
+            int anchorUnit = previous.unitAt(previousScrollY);
+            if (anchorUnit >= 0) {
+                m_carriedAnchor = previous.m_unitFirst[anchorUnit];
+                m_carriedAnchorDelta = previousScrollY - previous.m_unitTop[anchorUnit];
+            }
+        }
+    }
+
+    // ========== Window Update ==========
+
+    /**
+     * Lay out every unit within `viewports` viewports of scrollY.
+     *
+     * @return the corrected scroll position (anchor kept fixed)
+     */
+    public int update(int scrollY, int viewportHeight, int viewports) {
+        int anchor;
+        int anchorDelta;
+
+        if (m_carriedAnchor != null) {
+            anchor = findUnitStartingWith(m_carriedAnchor);
+            anchorDelta = m_carriedAnchorDelta;
+            m_carriedAnchor = null;
+            if (anchor < 0) {
+                anchor = unitAt(scrollY);
+                anchorDelta = anchor >= 0 ? scrollY - m_unitTop[anchor] : 0;
+            }
+        } else {
+            anchor = unitAt(scrollY);
+            anchorDelta = anchor >= 0 ? scrollY - m_unitTop[anchor] : 0;
+        }
+
+        boolean changed = m_result == null;
+
+        for (int pass = 0; pass < MAX_REFINE_PASSES; pass++) {
+            if (anchor >= 0) {
+                scrollY = m_unitTop[anchor] + Math.min(anchorDelta, m_unitHeight[anchor]);
+            }
+
+            int margin = viewportHeight * viewports;
+            int windowTop = Math.max(0, scrollY - margin);
+            int windowBottom = scrollY + viewportHeight + margin;
+
+            boolean laidOutAny = false;
+            int first = Math.max(0, unitAt(windowTop));
+            for (int u = first; u < m_unitCount && m_unitTop[u] <= windowBottom; u++) {
+                if (!m_laidOut[u]) {
+                    layoutUnit(u);
+                    laidOutAny = true;
+                }
+            }
+
+            if (!laidOutAny) break;
+            changed = true;
+            recomputeTops();
+        }
+
+        if (anchor >= 0) {
+            scrollY = m_unitTop[anchor] + Math.min(anchorDelta, m_unitHeight[anchor]);
+        }
+
+        if (changed) {
+            buildResult();
+        }
+
+        return Math.max(0, scrollY);
+    }
+
+    private void layoutUnit(int u) {
+        List<LayoutEngine.LayoutResult> results = m_engine.layoutRange(
+            m_root,
+            m_unitStart[u],
+            m_unitEnd[u],
+            m_constraints,
+            m_unitOffset[u]
+        );
+
+        int bottom = 0;
+        int right = 0;
+        for (LayoutEngine.LayoutResult r : results) {
+            Insets margin = r.segment.getLayout().margin;
+            bottom = Math.max(bottom, r.bounds.y + r.bounds.height + margin.bottom);
+            right = Math.max(right, r.bounds.x + r.bounds.width + margin.right);
+        }
+
+        m_unitResults.set(u, results);
+        m_unitHeight[u] = bottom;
+        m_unitWidth[u] = right;
+        m_unitAppliedTop[u] = 0;
+        m_laidOut[u] = true;
+    }
+
+    private void recomputeTops() {
+        m_unitTop[0] = 0;
+        for (int u = 0; u < m_unitCount; u++) {
+            m_unitTop[u + 1] = m_unitTop[u] + m_unitHeight[u];
+        }
+    }
+
+    /**
+     * Assemble the root result from laid-out units, translating each
+     * unit to its current stacked position
+     */
+    private void buildResult() {
+        LayoutEngine.LayoutResult root = new LayoutEngine.LayoutResult(m_root);
+        int width = 0;
+
+        for (int u = 0; u < m_unitCount; u++) {
+            if (!m_laidOut[u]) continue;
+
+            int top = m_padding.top + m_unitTop[u];
+            int dy = top - m_unitAppliedTop[u];
+            for (LayoutEngine.LayoutResult r : m_unitResults.get(u)) {
+                if (dy != 0) translate(r, dy);
+                root.children.add(r);
+            }
+            m_unitAppliedTop[u] = top;
+            width = Math.max(width, m_unitWidth[u]);
+        }
+
+        root.bounds.width = width + m_padding.right;
+        root.bounds.height = m_unitTop[m_unitCount] + m_padding.top + m_padding.bottom;
+        root.globalStartOffset = 0;
+        root.globalEndOffset = m_totalOffset;
+
+        m_result = root;
+    }
+
+    private static void translate(LayoutEngine.LayoutResult result, int dy) {
+        result.bounds.y += dy;
+        for (LayoutEngine.LayoutResult child : result.children) {
+            translate(child, dy);
+        }
+    }
+
+    // ========== Queries ==========
+
+    /**
+     * Current layout (laid-out units only; unlaid units occupy estimated space)
+     */
+    public LayoutEngine.LayoutResult getResult() {
+        return m_result;
+    }
+
+    public int getTotalHeight() {
+        return m_unitTop[m_unitCount];
+    }
+
+    public boolean isFullyLaidOut() {
+        for (boolean laidOut : m_laidOut) {
+            if (!laidOut) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Top y (content coordinates) of the unit containing a global offset.
+     * Used to scroll toward content that has not been laid out yet.
+     */
+    public int getTopForOffset(int globalOffset) {
+        int lo = 0, hi = m_unitCount - 1, found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_unitOffset[mid] <= globalOffset) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return m_unitCount == 0 ? 0 : m_unitTop[found];
+    }
+
+    /**
+     * Index of the unit covering a y position, or -1 if there are no units
+     */
+    private int unitAt(int y) {
+        if (m_unitCount == 0) return -1;
+
+        int lo = 0, hi = m_unitCount - 1, found = 0;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (m_unitTop[mid] <= y) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found;
+    }
+
+    private int findUnitStartingWith(SegmentNode node) {
+        for (int u = 0; u < m_unitCount; u++) {
+            if (m_unitFirst[u] == node) return u;
+        }
+        return -1;
+    }
+
+    /**
+     * Exact heights of laid-out single-child units, keyed by structural hash
+     */
+    private Map<String, Integer> exactHeights() {
+        Map<String, Integer> heights = new HashMap<>();
+        for (int u = 0; u < m_unitCount; u++) {
+            String key = m_laidOut[u] ? m_unitKey[u] : null;
+            if (key != null) {
+                heights.put(key, m_unitHeight[u]);
+            }
+        }
+        return heights;
+    }
+}
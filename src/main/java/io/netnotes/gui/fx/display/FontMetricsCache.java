@@ -8,6 +8,8 @@ import java.awt.image.BufferedImage;
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
+import io.netnotes.gui.fx.utils.CacheRegistry;
+
 /**
  * Global singleton cache for font metrics and character width calculations.
  * Thread-safe and optimized for reuse across multiple text field instances.
@@ -20,6 +22,10 @@ public class FontMetricsCache {
     private static final int MAX_FONT_CACHE_SIZE = 50;
     private static final int MAX_CHAR_CACHE_SIZE_PER_FONT = 2000;
     
+    // Rough retained size estimates for CacheRegistry
+    private static final long FONT_ENTRY_BYTES = 2048;
+    private static final long CHAR_ENTRY_BYTES = 64;
+    
     // Cache structure: Font -> (Character -> Width)
     private final Map<FontKey, FontMetricsData> fontCache = new ConcurrentHashMap<>();
     
@@ -27,6 +33,8 @@ public class FontMetricsCache {
     private final BufferedImage dummyImage = new BufferedImage(1, 1, BufferedImage.TYPE_INT_ARGB);
     private final Graphics2D dummyGraphics;
     
+    private final CacheRegistry.CacheGauges gauges;
+    
     /**
      * Inner class to uniquely identify fonts
      */
@@ -103,6 +111,11 @@ public class FontMetricsCache {
         dummyGraphics.setRenderingHint(
             RenderingHints.KEY_FRACTIONALMETRICS,
             RenderingHints.VALUE_FRACTIONALMETRICS_ON);
+        
+        gauges = CacheRegistry.register("FontMetricsCache", 20,
+            this::getEstimatedBytes,
+            () -> { CacheStats stats = getStats(); return stats.fontCount + stats.totalCharCount; },
+            _ -> { long bytes = getEstimatedBytes(); clearAll(); return bytes; });
     }
     
     /**
@@ -123,11 +136,16 @@ public class FontMetricsCache {
         FontKey key = new FontKey(font);
         FontMetricsData data = fontCache.get(key);
         
-        if (data == null) {
+        if (data != null) {
+            gauges.recordHit();
+        } else {
+            gauges.recordMiss();
+            
             // Check cache size limit
             if (fontCache.size() >= MAX_FONT_CACHE_SIZE) {
                 // Remove oldest entry (simple approach - could use LRU)
                 fontCache.remove(fontCache.keySet().iterator().next());
+                gauges.recordEviction();
             }
             
             // Create new metrics
@@ -246,6 +264,11 @@ public class FontMetricsCache {
         return new CacheStats(fontCache.size(), totalChars);
     }
     
+    private long getEstimatedBytes() {
+        CacheStats stats = getStats();
+        return stats.fontCount * FONT_ENTRY_BYTES + stats.totalCharCount * CHAR_ENTRY_BYTES;
+    }
+    
     /**
      * Cache statistics
      */
@@ -42,6 +42,8 @@ public class FxResourceFactory {
 
     public final static File LOG_FILE = new File("netnotes-log.txt");
     public final static File STREAM_LOG_FILE = new File("netnotes-stream-log.txt");
+    // Local files that live outside the NoteFiles, next to the logs
+    public final static File CACHE_DIRECTORY = new File("netnotes-cache");
 
     public final static String APP_NAME =  "Netnotes";
 
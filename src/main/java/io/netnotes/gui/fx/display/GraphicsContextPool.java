@@ -6,6 +6,8 @@ import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import io.netnotes.gui.fx.utils.CacheRegistry;
+
 /**
  * Global singleton pool for reusable Graphics2D contexts and BufferedImages.
  * Limits the number of active graphics contexts and reuses them efficiently.
@@ -32,6 +34,8 @@ public class GraphicsContextPool {
     private final AtomicInteger totalReused = new AtomicInteger(0);
     private final AtomicInteger totalReleased = new AtomicInteger(0);
     
+    private final CacheRegistry.CacheGauges gauges;
+    
     /**
      * Key for dimension-based pooling with tolerance
      */
@@ -189,7 +193,10 @@ public class GraphicsContextPool {
     }
     
     private GraphicsContextPool() {
-        // Private constructor for singleton
+        gauges = CacheRegistry.register("GraphicsContextPool", 10,
+            this::getPooledBytes,
+            () -> getStats().pooledContexts,
+            _ -> { long bytes = getPooledBytes(); clearPool(); return bytes; });
     }
     
     /**
@@ -218,6 +225,7 @@ public class GraphicsContextPool {
                 context.reset();
                 activeContexts.incrementAndGet();
                 totalReused.incrementAndGet();
+                gauges.recordHit();
                 return context;
             }
         }
@@ -236,6 +244,7 @@ public class GraphicsContextPool {
         GraphicsContext context = new GraphicsContext(this, width, height);
         activeContexts.incrementAndGet();
         totalCreated.incrementAndGet();
+        gauges.recordMiss();
         return context;
     }
     
@@ -268,6 +277,7 @@ public class GraphicsContextPool {
         } else {
             // Pool full for this size, dispose it
             context.dispose();
+            gauges.recordEviction();
         }
         
         activeContexts.decrementAndGet();
@@ -292,6 +302,22 @@ public class GraphicsContextPool {
         );
     }
     
+    /**
+     * Estimated bytes held by pooled (idle) contexts
+     */
+    private long getPooledBytes() {
+        long bytes = 0;
+        for (ConcurrentLinkedQueue<GraphicsContext> queue : pool.values()) {
+            for (GraphicsContext context : queue) {
+                BufferedImage image = context.image;
+                if (image != null) {
+                    bytes += (long) image.getWidth() * image.getHeight() * 4;
+                }
+            }
+        }
+        return bytes;
+    }
+    
     /**
      * Pool statistics
      */
@@ -335,6 +361,7 @@ public class GraphicsContextPool {
             GraphicsContext context;
             while ((context = queue.poll()) != null) {
                 context.dispose();
+                gauges.recordEviction();
             }
         }
         pool.clear();
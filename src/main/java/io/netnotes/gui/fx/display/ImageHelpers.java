@@ -29,6 +29,7 @@ import javax.imageio.ImageWriter;
 import io.netnotes.engine.utils.HashData;
 import io.netnotes.gui.fx.components.images.scaling.ScalingUtils;
 import io.netnotes.gui.fx.components.images.scaling.ScalingUtils.ScalingAlgorithm;
+import io.netnotes.gui.fx.utils.TraceRecorder;
 import javafx.concurrent.WorkerStateEvent;
 import javafx.embed.swing.SwingFXUtils;
 import javafx.event.EventHandler;
@@ -125,7 +126,10 @@ public class ImageHelpers {
 
      public static CompletableFuture<Image> decodeImage(byte[] bytes, ExecutorService execService, EventHandler<WorkerStateEvent> onSucceeded, EventHandler<WorkerStateEvent> onFailed){
         return CompletableFuture.supplyAsync(()->{
-            return new Image (new ByteArrayInputStream(bytes));
+            long span = TraceRecorder.begin();
+            Image image = new Image (new ByteArrayInputStream(bytes));
+            TraceRecorder.end(TraceRecorder.IMAGE_DECODE, span, bytes.length);
+            return image;
         });
     }
 
@@ -0,0 +1,101 @@
+package io.netnotes.gui.fx.display.control;
+
+import java.util.Arrays;
+
+/**
+ * Log-bucketed duration histogram (HDR-style) for percentile queries.
+ *
+ * Values are recorded in microseconds. Below 16us buckets are exact; above,
+ * each power of two is split into 16 linear sub-buckets, so any recorded
+ * value is reported within ~6% of its true value. Recording is O(1).
+ *
+ * Counts are halved every DECAY_INTERVAL samples so percentiles follow
+ * recent behaviour instead of the whole session.
+ */
+public class DurationHistogram {
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int MAX_EXPONENT = 40; // ~12 days in microseconds
+    private static final int BUCKET_COUNT = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+    private static final int DECAY_INTERVAL = 1024;
+
+    private final long[] counts = new long[BUCKET_COUNT];
+    private long total = 0;
+    private int sinceDecay = 0;
+
+    /**
+     * Record a duration in milliseconds
+     */
+    public synchronized void record(double durationMs) {
+        long micros = Math.max(0, Math.round(durationMs * 1000.0));
+        counts[bucketIndex(micros)]++;
+        total++;
+
+        if (++sinceDecay >= DECAY_INTERVAL) {
+            decay();
+        }
+    }
+
+    /**
+     * Duration in milliseconds at or below which `percentile` percent of
+     * samples fall (upper edge of the bucket), or 0 if empty
+     */
+    public synchronized double getPercentile(double percentile) {
+        if (total == 0) return 0.0;
+
+        long target = Math.max(1, (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentile)) / 100.0));
+        long seen = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            seen += counts[i];
+            if (seen >= target) {
+                return bucketUpperBound(i) / 1000.0;
+            }
+        }
+        return bucketUpperBound(BUCKET_COUNT - 1) / 1000.0;
+    }
+
+    public synchronized long getCount() {
+        return total;
+    }
+
+    public synchronized void reset() {
+        Arrays.fill(counts, 0);
+        total = 0;
+        sinceDecay = 0;
+    }
+
+    private void decay() {
+        long newTotal = 0;
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            counts[i] >>= 1;
+            newTotal += counts[i];
+        }
+        total = newTotal;
+        sinceDecay = 0;
+    }
+
+    // ==================== Bucket Math ====================
+
+    static int bucketIndex(long micros) {
+        if (micros < SUB_BUCKETS) {
+            return (int) micros;
+        }
+        int exponent = 63 - Long.numberOfLeadingZeros(micros);
+        if (exponent > MAX_EXPONENT) {
+            return BUCKET_COUNT - 1;
+        }
+        int sub = (int) ((micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + sub;
+    }
+
+    static long bucketUpperBound(int index) {
+        if (index < SUB_BUCKETS) {
+            return index;
+        }
+        int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+        int sub = index % SUB_BUCKETS;
+        int shift = exponent - SUB_BUCKET_BITS;
+        long lower = (long) (SUB_BUCKETS + sub) << shift;
+        return lower + (1L << shift) - 1;
+    }
+}
@@ -2,117 +2,293 @@ package io.netnotes.gui.fx.display.control;
 
 /**
  * Global frame rate monitor for coordinating timing across all real-time components
+ *
+ * Durations are tracked per source (frame interval, layout, render, canvas
+ * upload, effects). Each series keeps a rolling window with a running sum
+ * for O(1) averages and a log-bucketed histogram for percentiles.
+ *
+ * The recommended debounce delay is the output of a PID controller that
+ * steers FX-thread work (layout + canvas upload) towards a share of the
+ * configured frame budget: sustained overruns lengthen the delay so more
+ * changes are batched, headroom shortens it again.
  */
 public class FrameRateMonitor {
     private static final FrameRateMonitor INSTANCE = new FrameRateMonitor();
-    
+
     private static final int SAMPLE_SIZE = 30;
-    private final long[] frameTimes = new long[SAMPLE_SIZE];
-    private final double[] layoutCosts = new double[SAMPLE_SIZE];
-    private int frameIndex = 0;
+
+    public static final double DEFAULT_FRAME_BUDGET_MS = 1000.0 / 60.0;
+
+    // Intervals longer than this are idle gaps between bursts, not slow frames
+    private static final double IDLE_GAP_MS = 250.0;
+
+    // Controller tuning: target share of the budget for FX-thread work, gains on normalized error
+    private static final double TARGET_WORK_SHARE = 0.5;
+    private static final double KP = 1.0;
+    private static final double KI = 0.25;
+    private static final double KD = 0.5;
+    private static final double INTEGRAL_LIMIT = 4.0;
+    private static final long MIN_DEBOUNCE_MS = 8;
+    private static final long MAX_DEBOUNCE_MS = 200;
+
+    /**
+     * Duration sources tracked by the monitor
+     */
+    public enum Source {
+        FRAME,          // interval between recorded frames
+        LAYOUT,         // layout pass cost
+        RENDER,         // off-thread image rendering
+        CANVAS_UPLOAD,  // pixel transfer to the canvas (FX thread)
+        EFFECTS         // image effects applied after rendering
+    }
+
+    private final Series[] series = new Series[Source.values().length];
+
     private long lastFrameTime = System.nanoTime();
-    private double averageFrameTime = 16.0; // Start at 60fps assumption
-    private double averageLayoutCost = 0.0;
-    
-    private FrameRateMonitor() {}
-    
+
+    // Last layout pass (DeferredLayoutManager)
+    private double lastPassTime = 0.0;
+    private int lastPassNodes = 0;
+    private int lastPassDeferred = 0;
+    private long deferredPassCount = 0;
+
+    // Debounce controller
+    private volatile double frameBudget = DEFAULT_FRAME_BUDGET_MS;
+    private double integral = 0.0;
+    private double lastMeasurement = 0.0;
+    private volatile long recommendedDelay = Math.round(DEFAULT_FRAME_BUDGET_MS);
+
+    private FrameRateMonitor() {
+        for (int i = 0; i < series.length; i++) {
+            series[i] = new Series();
+        }
+    }
+
     public static FrameRateMonitor getInstance() {
         return INSTANCE;
     }
-    
+
     /**
      * Record a frame completion with layout cost information.
      * @param layoutCostMs Time spent in layout calculation in milliseconds
      */
     public void recordFrame(double layoutCostMs) {
         long now = System.nanoTime();
-        long elapsed = now - lastFrameTime;
+        double elapsedMs = (now - lastFrameTime) / 1_000_000.0;
         lastFrameTime = now;
-        
-        frameTimes[frameIndex] = elapsed;
-        layoutCosts[frameIndex] = layoutCostMs;
-        frameIndex = (frameIndex + 1) % SAMPLE_SIZE;
-        
-        // Calculate rolling averages
-        long timeSum = 0;
-        double costSum = 0;
-        for (int i = 0; i < SAMPLE_SIZE; i++) {
-            timeSum += frameTimes[i];
-            costSum += layoutCosts[i];
+
+        if (elapsedMs <= IDLE_GAP_MS) {
+            series(Source.FRAME).record(elapsedMs);
+        }
+        series(Source.LAYOUT).record(layoutCostMs);
+
+        updateController();
+    }
+
+    /**
+     * Record a time-sliced layout pass.
+     * @param layoutCostMs Time spent in the pass in milliseconds
+     * @param nodeCount Nodes laid out in the pass
+     * @param deferredCount Dirty nodes left for the next pulse (budget exhausted)
+     */
+    public void recordLayoutPass(double layoutCostMs, int nodeCount, int deferredCount) {
+        lastPassTime = layoutCostMs;
+        lastPassNodes = nodeCount;
+        lastPassDeferred = deferredCount;
+        if (deferredCount > 0) {
+            deferredPassCount++;
         }
-        averageFrameTime = (timeSum / (double) SAMPLE_SIZE) / 1_000_000.0; // Convert to ms
-        averageLayoutCost = costSum / SAMPLE_SIZE;
+        recordFrame(layoutCostMs);
     }
-    
+
     /**
      * Record a frame completion without layout cost (for other components).
      */
     public void recordFrame() {
         recordFrame(0.0);
     }
-    
+
+    /**
+     * Record a duration for a source (safe from any thread)
+     * @param durationMs duration in milliseconds
+     */
+    public void record(Source source, double durationMs) {
+        series(source).record(durationMs);
+    }
+
+    // ========== Statistics ==========
+
+    /**
+     * Rolling average of the last samples for a source, in milliseconds
+     */
+    public double getAverage(Source source) {
+        return series(source).getAverage();
+    }
+
+    /**
+     * Percentile (0-100) for a source in milliseconds, from its histogram
+     */
+    public double getPercentile(Source source, double percentile) {
+        return series(source).histogram.getPercentile(percentile);
+    }
+
+    public double getP50(Source source) {
+        return getPercentile(source, 50);
+    }
+
+    public double getP95(Source source) {
+        return getPercentile(source, 95);
+    }
+
+    public double getP99(Source source) {
+        return getPercentile(source, 99);
+    }
+
+    public long getSampleCount(Source source) {
+        return series(source).histogram.getCount();
+    }
+
     /**
      * Get the average frame time in milliseconds
      */
     public double getAverageFrameTime() {
-        return averageFrameTime;
+        Series frames = series(Source.FRAME);
+        return frames.isEmpty() ? frameBudget : frames.getAverage();
     }
-    
+
     /**
      * Get the average layout cost in milliseconds
      */
     public double getAverageLayoutCost() {
-        return averageLayoutCost;
+        return series(Source.LAYOUT).getAverage();
+    }
+
+    public double getLastPassTime() {
+        return lastPassTime;
+    }
+
+    public int getLastPassNodeCount() {
+        return lastPassNodes;
+    }
+
+    public int getLastPassDeferredCount() {
+        return lastPassDeferred;
+    }
+
+    /**
+     * Number of layout passes that ran out of budget and deferred work
+     */
+    public long getDeferredPassCount() {
+        return deferredPassCount;
     }
-    
+
     /**
      * Get the percentage of frame time spent in layout
      */
     public double getLayoutPercentage() {
-        return averageFrameTime > 0 ? (averageLayoutCost / averageFrameTime) * 100.0 : 0.0;
+        double frameTime = getAverageFrameTime();
+        return frameTime > 0 ? (getAverageLayoutCost() / frameTime) * 100.0 : 0.0;
     }
-    
+
     /**
      * Get the current FPS
      */
     public double getFPS() {
-        return 1000.0 / averageFrameTime;
+        return 1000.0 / getAverageFrameTime();
     }
-    
+
     /**
      * Check if we're under performance pressure
-     * @return true if FPS is below 30
+     * @return true if the p95 frame time is over twice the frame budget
      */
     public boolean isUnderPressure() {
-        return getFPS() < 30;
+        Series frames = series(Source.FRAME);
+        return !frames.isEmpty() && getP95(Source.FRAME) > frameBudget * 2;
     }
-    
+
     /**
      * Check if layout is the bottleneck
-     * @return true if layout takes more than 50% of frame time
+     * @return true if p95 layout cost exceeds half the frame budget
      */
     public boolean isLayoutBottleneck() {
-        return getLayoutPercentage() > 50.0;
+        return getP95(Source.LAYOUT) > frameBudget * 0.5;
     }
-    
+
+    // ========== Debounce Controller ==========
+
+    /**
+     * Set the frame budget the debounce controller steers towards
+     * @param budgetMs frame budget in milliseconds
+     */
+    public void setFrameBudget(double budgetMs) {
+        if (budgetMs <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive");
+        }
+        frameBudget = budgetMs;
+    }
+
+    public double getFrameBudget() {
+        return frameBudget;
+    }
+
     /**
      * Get recommended delay for debouncing based on current performance
      * @return delay in milliseconds
      */
     public long getRecommendedDebounceDelay() {
-        double fps = getFPS();
-        
-        // If layout is the bottleneck, be more aggressive with batching
-        if (isLayoutBottleneck()) {
-            return 100;
+        return recommendedDelay;
+    }
+
+    /**
+     * One controller step per recorded frame. Error is FX-thread work per
+     * frame (average layout + canvas upload) minus the target share of the
+     * budget, normalized by the budget. The derivative acts on the
+     * measurement so a budget change doesn't kick the output.
+     */
+    private synchronized void updateController() {
+        double budget = frameBudget;
+        double measurement = (series(Source.LAYOUT).getAverage()
+            + series(Source.CANVAS_UPLOAD).getAverage()) / budget;
+        double error = measurement - TARGET_WORK_SHARE;
+
+        integral = Math.max(-INTEGRAL_LIMIT, Math.min(INTEGRAL_LIMIT, integral + error));
+        double derivative = measurement - lastMeasurement;
+        lastMeasurement = measurement;
+
+        double output = budget * (1.0 + KP * error + KI * integral + KD * derivative);
+        recommendedDelay = Math.max(MIN_DEBOUNCE_MS, Math.min(MAX_DEBOUNCE_MS, Math.round(output)));
+    }
+
+    private Series series(Source source) {
+        return series[source.ordinal()];
+    }
+
+    /**
+     * Rolling window with a running sum, plus a histogram for percentiles
+     */
+    private static class Series {
+        private final double[] samples = new double[SAMPLE_SIZE];
+        private final DurationHistogram histogram = new DurationHistogram();
+        private int index = 0;
+        private int count = 0;
+        private double sum = 0.0;
+
+        synchronized void record(double durationMs) {
+            sum += durationMs - samples[index];
+            samples[index] = durationMs;
+            index = (index + 1) % SAMPLE_SIZE;
+            if (count < SAMPLE_SIZE) {
+                count++;
+            }
+            histogram.record(durationMs);
         }
-        
-        if (fps > 50) {
-            return 16; // ~60fps target
-        } else if (fps > 30) {
-            return 33; // ~30fps target
-        } else {
-            return 60; // Under pressure, batch more aggressively
+
+        synchronized double getAverage() {
+            return count == 0 ? 0.0 : Math.max(0.0, sum) / count;
+        }
+
+        synchronized boolean isEmpty() {
+            return count == 0;
         }
     }
-}
\ No newline at end of file
+}
@@ -1,33 +1,77 @@
 package io.netnotes.gui.fx.display.control.layout;
 
 
+import java.lang.ref.Reference;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashMap;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.LinkedHashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Queue;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.Future;
 
 import io.netnotes.gui.fx.display.control.FrameRateMonitor;
 import io.netnotes.gui.fx.utils.TaskUtils;
+import io.netnotes.gui.fx.utils.TraceRecorder;
+import javafx.animation.AnimationTimer;
+import javafx.geometry.Bounds;
 import javafx.scene.Node;
+import javafx.scene.Scene;
 import javafx.stage.Stage;
 
 /**
  * Main deferred layout manager with adaptive rate monitoring
+ *
+ * Threading:
+ * - markDirty/markStageDirty may be called from any thread. Marks are
+ *   pushed onto lock-free queues (deduplicated per node) and folded into
+ *   the per-stage dirty sets only on the FX thread, at layout time.
+ * - Registries are concurrent maps. Structural changes (parent/child links)
+ *   are serialized on structureLock.
+ * - Nodes are registered by identity through weak keys; a node that is
+ *   collected without being unregistered is purged on the next pass.
+ *
+ * Ordering is maintained incrementally rather than sorted per pass:
+ * - Stages keep a topological order (StageOrder) updated as dependencies
+ *   are added, so dirty stages are ordered by a precomputed index
+ * - Dirty nodes are bucketed by scene depth per stage, so they come out
+ *   parents-first without sorting
+ *
+ * Node layout is time-sliced: a pass stops once the frame budget is used
+ * and resumes from an AnimationTimer once a pulse has rendered the slice.
+ * Nodes on screen when they were marked are processed ahead of offscreen
+ * ones.
  */
 public class DeferredLayoutManager {
     private static final DeferredLayoutManager INSTANCE = new DeferredLayoutManager();
     
-    private final Map<Stage, StageNode> stageNodes = new LinkedHashMap<>();
-    private final Map<Node, LayoutNode> nodeRegistry = new HashMap<>();
-    private final Set<LayoutNode> dirtyNodes = new LinkedHashSet<>();
+    private final Map<Stage, StageNode> stageNodes = new ConcurrentHashMap<>();
+    private final StageOrder stageOrder = new StageOrder();
+    private final Map<NodeKey, LayoutNode> nodeRegistry = new ConcurrentHashMap<>();
+    private final ReferenceQueue<Node> collectedNodes = new ReferenceQueue<>();
+    private final Object structureLock = new Object();
+    
+    // Written from any thread
+    private final Queue<LayoutNode> pendingNodes = new ConcurrentLinkedQueue<>();
+    private final Queue<StageNode> pendingStages = new ConcurrentLinkedQueue<>();
+    
+    // FX thread only
+    private final Map<Stage, StageDirtyNodes> dirtyNodesByStage = new LinkedHashMap<>();
     private final Set<StageNode> dirtyStages = new LinkedHashSet<>();
+    private boolean resumeScheduled = false;
+    private boolean resumeSkipPulse = false;
+    private boolean inResumePulse = false;
+    private AnimationTimer resumeTimer = null; // created on first use, needs the toolkit
+    
+    public static final long DEFAULT_FRAME_BUDGET_MS = 8;
+    private volatile long frameBudgetNanos = DEFAULT_FRAME_BUDGET_MS * 1_000_000L;
     
 
     private Future<?> scheduledLayout = null;
@@ -36,7 +80,7 @@ public class DeferredLayoutManager {
     private int rapidEventCount = 0;
     private final Object scheduleLock = new Object();
     
-    private boolean useAdaptiveDelay = true;
+    private volatile boolean useAdaptiveDelay = true;
     
     private DeferredLayoutManager() {}
     
@@ -54,6 +98,21 @@ public class DeferredLayoutManager {
         INSTANCE.useAdaptiveDelay = adaptive;
     }
     
+    /**
+     * Time a single layout pass may spend on node layout before yielding
+     * to the next pulse (at least one node is always processed)
+     */
+    public static void setFrameBudget(long budgetMillis) {
+        if (budgetMillis <= 0) {
+            throw new IllegalArgumentException("Frame budget must be positive");
+        }
+        INSTANCE.frameBudgetNanos = budgetMillis * 1_000_000L;
+    }
+    
+    public static long getFrameBudget() {
+        return INSTANCE.frameBudgetNanos / 1_000_000L;
+    }
+    
     // ==================== Stage Registration ====================
     
     public static void registerStage(Stage stage, StageLayoutCallback callback) {
@@ -64,26 +123,64 @@ public class DeferredLayoutManager {
         INSTANCE.registerStageInternal(stage, callback, dependencies);
     }
     
+    /**
+     * Declare that a registered stage is positioned after another one
+     *
+     * @throws IllegalArgumentException if the dependency would create a cycle
+     */
+    public static void addStageDependency(Stage stage, Stage dependency) {
+        INSTANCE.addStageDependencyInternal(stage, dependency);
+    }
+    
     private void registerStageInternal(Stage stage, StageLayoutCallback callback, Stage... dependencies) {
         StageNode stageNode = new StageNode(stage, callback);
-        stageNodes.put(stage, stageNode);
-        
-        // Add dependencies
-        for (Stage dep : dependencies) {
-            StageNode depNode = stageNodes.get(dep);
-            if (depNode != null) {
-                stageNode.addDependency(depNode);
+        synchronized (structureLock) {
+            StageNode previous = stageNodes.put(stage, stageNode);
+            if (previous != null) {
+                stageOrder.remove(previous);
+            }
+            stageOrder.add(stageNode);
+            
+            // Add dependencies
+            for (Stage dep : dependencies) {
+                StageNode depNode = stageNodes.get(dep);
+                if (depNode != null) {
+                    stageOrder.addDependency(stageNode, depNode);
+                }
             }
         }
         
         // Auto-cleanup when stage closes
         stage.setOnHiding(_ -> {
-            stageNodes.remove(stage);
+            synchronized (structureLock) {
+                StageNode removed = stageNodes.remove(stage);
+                if (removed != null) {
+                    stageOrder.remove(removed);
+                }
+            }
             // Clean up any nodes registered to this stage
-            nodeRegistry.entrySet().removeIf(entry -> entry.getValue().getStage() == stage);
+            synchronized (structureLock) {
+                nodeRegistry.values().removeIf(layoutNode -> {
+                    if (layoutNode.getStage() != stage) return false;
+                    layoutNode.setUnregistered();
+                    layoutNode.detach();
+                    return true;
+                });
+            }
         });
     }
     
+    private void addStageDependencyInternal(Stage stage, Stage dependency) {
+        synchronized (structureLock) {
+            StageNode stageNode = stageNodes.get(stage);
+            StageNode depNode = stageNodes.get(dependency);
+            if (stageNode == null || depNode == null) {
+                throw new IllegalArgumentException("Both stages must be registered");
+            }
+            stageOrder.addDependency(stageNode, depNode);
+        }
+    }
+    
     // ==================== Node Registration ====================
     
     public static void register(Stage stage, Node node, LayoutCallback callback) {
@@ -99,49 +196,64 @@ public class DeferredLayoutManager {
     }
 
     private void unregisterNode(Node node) {
-        LayoutNode layoutNode = nodeRegistry.remove(node);
-        if (layoutNode != null) {
-            // Remove from dirty sets
-            dirtyNodes.remove(layoutNode);
-            
-            // Remove from parent's children list
-            LayoutNode parent = layoutNode.getParent();
-            if (parent != null) {
-                parent.getChildren().remove(layoutNode);
+        synchronized (structureLock) {
+            LayoutNode layoutNode = nodeRegistry.remove(new NodeKey(node));
+            if (layoutNode != null) {
+                // Queued marks are skipped once the node is unregistered
+                layoutNode.setUnregistered();
+                
+                // Remove from parent's children list
+                layoutNode.detach();
+                
+                // Note: We don't recursively unregister children because
+                // in typical usage, children will be unregistered separately
             }
-            
-            // Note: We don't recursively unregister children because
-            // in typical usage, children will be unregistered separately
         }
     }
         
     private void registerNode(Stage stage, Node node, LayoutCallback callback, Runnable applyCallback) {
-       
-        // Auto-unregister if already registered (cleans up old relationships)
-        LayoutNode existingNode = nodeRegistry.get(node);
-        if (existingNode != null) {
-            // Clean up old registration
-            LayoutNode oldParent = existingNode.getParent();
-            if (oldParent != null) {
-                oldParent.getChildren().remove(existingNode);
+        synchronized (structureLock) {
+            expungeCollectedNodes();
+            
+            // Auto-unregister if already registered (cleans up old relationships)
+            LayoutNode existingNode = nodeRegistry.get(new NodeKey(node));
+            if (existingNode != null) {
+                // Clean up old registration
+                existingNode.setUnregistered();
+                existingNode.detach();
+            }
+            
+            // Create new registration
+            LayoutNode layoutNode = new LayoutNode(node, stage, callback, applyCallback);
+            nodeRegistry.put(new NodeKey(node, collectedNodes), layoutNode);
+            
+            // Build parent-child relationships by walking up the scene graph
+            Node parentNode = node.getParent();
+            while (parentNode != null) {
+                LayoutNode parentLayoutNode = nodeRegistry.get(new NodeKey(parentNode));
+                if (parentLayoutNode != null) {
+                    // Found a registered parent, link them
+                    parentLayoutNode.addChild(layoutNode);
+                    break;
+                }
+                parentNode = parentNode.getParent();
             }
-            dirtyNodes.remove(existingNode);
         }
-        
-        // Create new registration
-        LayoutNode layoutNode = new LayoutNode(node, stage, callback, applyCallback);
-        nodeRegistry.put(node, layoutNode);
-        
-        // Build parent-child relationships by walking up the scene graph
-        Node parentNode = node.getParent();
-        while (parentNode != null) {
-            LayoutNode parentLayoutNode = nodeRegistry.get(parentNode);
-            if (parentLayoutNode != null) {
-                // Found a registered parent, link them
-                parentLayoutNode.addChild(layoutNode);
-                break;
+    }
+    
+    /**
+     * Drop registrations whose scene graph node has been garbage collected
+     */
+    private void expungeCollectedNodes() {
+        Reference<? extends Node> ref;
+        while ((ref = collectedNodes.poll()) != null) {
+            synchronized (structureLock) {
+                LayoutNode layoutNode = nodeRegistry.remove((NodeKey) ref);
+                if (layoutNode != null) {
+                    layoutNode.setUnregistered();
+                    layoutNode.detach();
+                }
             }
-            parentNode = parentNode.getParent();
         }
     }
     
@@ -156,9 +268,9 @@ public class DeferredLayoutManager {
     }
     
     private void markNodeDirty(Node node) {
-        LayoutNode layoutNode = nodeRegistry.get(node);
-        if (layoutNode != null) {
-            dirtyNodes.add(layoutNode);
+        LayoutNode layoutNode = nodeRegistry.get(new NodeKey(node));
+        if (layoutNode != null && layoutNode.markQueued()) {
+            pendingNodes.offer(layoutNode);
             scheduleLayout();
         }
     }
@@ -166,11 +278,34 @@ public class DeferredLayoutManager {
     private void markStageNodeDirty(Stage stage) {
         StageNode stageNode = stageNodes.get(stage);
         if (stageNode != null) {
-            dirtyStages.add(stageNode);
+            pendingStages.offer(stageNode);
             scheduleLayout();
         }
     }
     
+    /**
+     * Move queued marks into the per-stage dirty sets (FX thread)
+     */
+    private void foldDirtyMarks() {
+        StageNode stageNode;
+        while ((stageNode = pendingStages.poll()) != null) {
+            if (stageNodes.get(stageNode.getStage()) == stageNode) {
+                dirtyStages.add(stageNode);
+            }
+        }
+        
+        LayoutNode layoutNode;
+        while ((layoutNode = pendingNodes.poll()) != null) {
+            layoutNode.clearQueued();
+            // Nodes still waiting from a deferred pass are not added twice
+            if (layoutNode.isRegistered() && layoutNode.markScheduled()) {
+                dirtyNodesByStage
+                    .computeIfAbsent(layoutNode.getStage(), _ -> new StageDirtyNodes())
+                    .add(layoutNode, isOnScreen(layoutNode));
+            }
+        }
+    }
+    
     // ==================== Scheduling ====================
     
     private void scheduleLayout() {
@@ -214,6 +349,7 @@ public class DeferredLayoutManager {
     // ==================== Layout Execution ====================
     
     private void performLayout() {
+        long span = TraceRecorder.begin();
         long startTime = System.nanoTime();
         
         synchronized (scheduleLock) {
@@ -221,9 +357,15 @@ public class DeferredLayoutManager {
             lastLayoutTime = System.currentTimeMillis();
         }
         
+        expungeCollectedNodes();
+        foldDirtyMarks();
+        
         // PHASE 1: Position stages relative to each other
         if (!dirtyStages.isEmpty()) {
-            List<StageNode> sortedStages = topologicalSortStages(new ArrayList<>(dirtyStages));
+            List<StageNode> sortedStages = new ArrayList<>(dirtyStages);
+            synchronized (structureLock) {
+                StageOrder.sort(sortedStages);
+            }
             StageContext context = new StageContext(stageNodes, null);
             
             for (StageNode stageNode : sortedStages) {
@@ -235,88 +377,171 @@ public class DeferredLayoutManager {
             dirtyStages.clear();
         }
         
-        // PHASE 2: Layout nodes within each stage
-        if (!dirtyNodes.isEmpty()) {
-            Map<Stage, List<LayoutNode>> nodesByStage = groupByStage(dirtyNodes);
+        // PHASE 2: Layout nodes within each stage, within the frame budget
+        long deadline = startTime + frameBudgetNanos;
+        int processed = 0;
+        List<LayoutNode> slice = new ArrayList<>();
+        
+        Iterator<StageDirtyNodes> stages = dirtyNodesByStage.values().iterator();
+        while (stages.hasNext()) {
+            StageDirtyNodes stageDirty = stages.next();
             
-            for (Map.Entry<Stage, List<LayoutNode>> entry : nodesByStage.entrySet()) {
-                List<LayoutNode> sorted = topologicalSortNodes(entry.getValue());
-                
-                for (LayoutNode node : sorted) {
-                    node.calculate();
-                }
-                for (LayoutNode node : sorted) {
-                    node.apply();
-                }
+            // Calculate parents-first (on-screen first) until the budget is used
+            LayoutNode node;
+            while ((processed == 0 || System.nanoTime() < deadline) && (node = stageDirty.poll()) != null) {
+                node.clearScheduled();
+                if (!node.isRegistered()) continue;
+                node.calculate();
+                slice.add(node);
+                processed++;
+            }
+            
+            for (int i = 0; i < slice.size(); i++) {
+                slice.get(i).apply();
+            }
+            slice.clear();
+            
+            if (stageDirty.isEmpty()) {
+                stages.remove();
+            } else {
+                break; // Out of budget
             }
-            dirtyNodes.clear();
+        }
+        
+        int deferred = 0;
+        for (StageDirtyNodes stageDirty : dirtyNodesByStage.values()) {
+            deferred += stageDirty.size();
         }
         
         // Record frame time and layout cost for adaptive performance
         long endTime = System.nanoTime();
         double layoutTimeMs = (endTime - startTime) / 1_000_000.0;
-        FrameRateMonitor.getInstance().recordFrame(layoutTimeMs);
+        FrameRateMonitor.getInstance().recordLayoutPass(layoutTimeMs, processed, deferred);
+        TraceRecorder.end(TraceRecorder.DEFERRED_LAYOUT, span, processed);
+        
+        if (deferred > 0 && !resumeScheduled) {
+            // Yield to rendering and continue on a later pulse
+            resumeScheduled = true;
+            scheduleResume();
+        }
     }
     
-    // ==================== Topological Sorting ====================
+    /**
+     * Resume from the animation phase of a pulse. A pass run outside a pulse
+     * is rendered by the next one, so that pulse is skipped; a pass run from
+     * the timer was rendered by its own pulse.
+     */
+    private void scheduleResume() {
+        if (resumeTimer == null) {
+            resumeTimer = new AnimationTimer() {
+                @Override
+                public void handle(long now) {
+                    if (resumeSkipPulse) {
+                        resumeSkipPulse = false;
+                        return;
+                    }
+                    stop();
+                    resumeScheduled = false;
+                    inResumePulse = true;
+                    try {
+                        performLayout();
+                    } finally {
+                        inResumePulse = false;
+                    }
+                }
+            };
+        }
+        resumeSkipPulse = !inResumePulse;
+        resumeTimer.start();
+    }
     
-    private List<StageNode> topologicalSortStages(List<StageNode> stages) {
-        // Kahn's algorithm for topological sort
-        Map<StageNode, Integer> inDegree = new HashMap<>();
-        for (StageNode node : stages) {
-            inDegree.put(node, 0);
+    /**
+     * Whether a node intersects its scene's viewport (checked when folded)
+     */
+    private static boolean isOnScreen(LayoutNode layoutNode) {
+        Node node = layoutNode.getNode();
+        if (node == null || !node.isVisible() || node.getScene() == null) {
+            return false;
         }
+        Scene scene = node.getScene();
+        Bounds bounds = node.localToScene(node.getLayoutBounds());
+        return bounds.getMaxX() >= 0 && bounds.getMaxY() >= 0
+            && bounds.getMinX() <= scene.getWidth() && bounds.getMinY() <= scene.getHeight();
+    }
+    
+    // ==================== Depth Buckets ====================
+    
+    /**
+     * Dirty nodes of one stage, bucketed by scene depth (index = depth).
+     * Polling is parents-first without sorting.
+     */
+    private static final class DepthBuckets {
+        private ArrayDeque<LayoutNode>[] buckets = newBuckets(8);
+        private int minDepth = 0;   // no non-empty bucket below this
+        private int maxDepth = -1;
+        private int size = 0;
         
-        // Calculate in-degrees
-        for (StageNode node : stages) {
-            for (StageNode dep : node.getDependencies()) {
-                if (inDegree.containsKey(dep)) {
-                    inDegree.put(node, inDegree.get(node) + 1);
-                }
-            }
+        @SuppressWarnings("unchecked")
+        private static ArrayDeque<LayoutNode>[] newBuckets(int size) {
+            return new ArrayDeque[size];
         }
         
-        // Queue nodes with no dependencies
-        Queue<StageNode> queue = new LinkedList<>();
-        for (Map.Entry<StageNode, Integer> entry : inDegree.entrySet()) {
-            if (entry.getValue() == 0) {
-                queue.offer(entry.getKey());
+        void add(LayoutNode node) {
+            int depth = node.getDepth();
+            if (depth >= buckets.length) {
+                ArrayDeque<LayoutNode>[] grown = newBuckets(Math.max(depth + 1, buckets.length * 2));
+                System.arraycopy(buckets, 0, grown, 0, buckets.length);
+                buckets = grown;
             }
+            if (buckets[depth] == null) {
+                buckets[depth] = new ArrayDeque<>();
+            }
+            buckets[depth].add(node);
+            minDepth = size == 0 ? depth : Math.min(minDepth, depth);
+            maxDepth = Math.max(maxDepth, depth);
+            size++;
         }
         
-        List<StageNode> sorted = new ArrayList<>();
-        while (!queue.isEmpty()) {
-            StageNode current = queue.poll();
-            sorted.add(current);
-            
-            // Reduce in-degree for dependent nodes
-            for (StageNode node : stages) {
-                if (node.getDependencies().contains(current)) {
-                    int degree = inDegree.get(node) - 1;
-                    inDegree.put(node, degree);
-                    if (degree == 0) {
-                        queue.offer(node);
-                    }
+        LayoutNode poll() {
+            while (size > 0 && minDepth <= maxDepth) {
+                ArrayDeque<LayoutNode> bucket = buckets[minDepth];
+                if (bucket != null && !bucket.isEmpty()) {
+                    size--;
+                    return bucket.poll();
                 }
+                minDepth++;
             }
+            return null;
         }
         
-        return sorted;
-    }
-    
-    private List<LayoutNode> topologicalSortNodes(List<LayoutNode> nodes) {
-        // Sort by depth in scene graph (parents before children)
-        nodes.sort(Comparator.comparingInt(LayoutNode::getDepth));
-        return nodes;
+        int size() {
+            return size;
+        }
     }
     
-    private Map<Stage, List<LayoutNode>> groupByStage(Set<LayoutNode> nodes) {
-        Map<Stage, List<LayoutNode>> grouped = new HashMap<>();
-        for (LayoutNode node : nodes) {
-            grouped.computeIfAbsent(node.getStage(), _ -> new ArrayList<>())
-                   .add(node);
+    /**
+     * Dirty nodes of one stage: on-screen nodes are polled before offscreen ones
+     */
+    private static final class StageDirtyNodes {
+        private final DepthBuckets onScreen = new DepthBuckets();
+        private final DepthBuckets offScreen = new DepthBuckets();
+        
+        void add(LayoutNode node, boolean visible) {
+            (visible ? onScreen : offScreen).add(node);
+        }
+        
+        LayoutNode poll() {
+            LayoutNode node = onScreen.poll();
+            return node != null ? node : offScreen.poll();
+        }
+        
+        int size() {
+            return onScreen.size() + offScreen.size();
+        }
+        
+        boolean isEmpty() {
+            return size() == 0;
         }
-        return grouped;
     }
     
     // ==================== Diagnostics ====================
@@ -331,7 +556,48 @@ public class DeferredLayoutManager {
         System.out.printf("Under Pressure: %s%n", monitor.isUnderPressure());
         System.out.printf("Layout Bottleneck: %s%n", monitor.isLayoutBottleneck());
         System.out.printf("Recommended Delay: %d ms%n", monitor.getRecommendedDebounceDelay());
+        for (FrameRateMonitor.Source source : FrameRateMonitor.Source.values()) {
+            System.out.printf("%s: p50 %.2f ms, p95 %.2f ms, p99 %.2f ms%n", source,
+                monitor.getP50(source), monitor.getP95(source), monitor.getP99(source));
+        }
+        System.out.printf("Last Pass: %.2f ms, %d nodes, %d deferred%n",
+            monitor.getLastPassTime(), monitor.getLastPassNodeCount(), monitor.getLastPassDeferredCount());
+        System.out.printf("Deferred Passes: %d (budget %d ms)%n",
+            monitor.getDeferredPassCount(), getFrameBudget());
         System.out.printf("Registered Stages: %d%n", INSTANCE.stageNodes.size());
         System.out.printf("Registered Nodes: %d%n", INSTANCE.nodeRegistry.size());
     }
+    
+    // ==================== Weak Identity Key ====================
+    
+    /**
+     * Weak, identity-based registry key. Lookup keys are created without a
+     * queue; registered keys are enqueued when their node is collected.
+     */
+    private static final class NodeKey extends WeakReference<Node> {
+        private final int hash;
+        
+        NodeKey(Node node) {
+            super(node);
+            hash = System.identityHashCode(node);
+        }
+        
+        NodeKey(Node node, ReferenceQueue<Node> queue) {
+            super(node, queue);
+            hash = System.identityHashCode(node);
+        }
+        
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+        
+        @Override
+        public boolean equals(Object obj) {
+            if (obj == this) return true;
+            if (!(obj instanceof NodeKey)) return false;
+            Node node = get();
+            return node != null && node == ((NodeKey) obj).get();
+        }
+    }
 }
\ No newline at end of file
@@ -1,67 +1,104 @@
 package io.netnotes.gui.fx.display.control.layout;
 
+import java.lang.ref.WeakReference;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import javafx.scene.Node;
 import javafx.stage.Stage;
 
 /**
- * Represents a node in the layout hierarchy
+ * Represents a node in the layout hierarchy.
+ *
+ * The scene graph node is held weakly so a node that is dropped without
+ * being unregistered can be collected; DeferredLayoutManager then purges
+ * the registration.
+ *
+ * The callbacks usually capture the node, so they are kept in the node's
+ * own properties and only weakly here: they live exactly as long as the
+ * node does, and the registry never keeps the node reachable.
  */
 public class LayoutNode {
-    private final Node node;
+    private final WeakReference<Node> node;
     private final Stage stage;
-    private final LayoutCallback callback;
+    private final WeakReference<Callbacks> callbacks;
     private final List<LayoutNode> children = new ArrayList<>();
-    private final Runnable applyCallback;
     private LayoutNode parent;
     private LayoutData calculatedLayout;
     private int depth = -1;
-    
+
+    // Set while a dirty mark for this node is queued (dedupes marks from any thread)
+    private final AtomicBoolean queued = new AtomicBoolean(false);
+    private volatile boolean registered = true;
+    private boolean scheduled = false; // in a stage's dirty buckets (FX thread only)
+
+    // Node property holding the strong reference to the current registration's callbacks
+    private static final Object CALLBACKS_PROPERTY = new Object();
+
+    private static final class Callbacks {
+        final LayoutCallback callback;
+        final Runnable applyCallback;
+
+        Callbacks(LayoutCallback callback, Runnable applyCallback) {
+            this.callback = callback;
+            this.applyCallback = applyCallback;
+        }
+    }
+
     public LayoutNode(Node node, Stage stage, LayoutCallback callback, Runnable applyCallback) {
-        this.node = node;
+        Callbacks nodeCallbacks = new Callbacks(callback, applyCallback);
+        node.getProperties().put(CALLBACKS_PROPERTY, nodeCallbacks);
+
+        this.node = new WeakReference<>(node);
         this.stage = stage;
-        this.callback = callback;
-        this.applyCallback = applyCallback;
+        this.callbacks = new WeakReference<>(nodeCallbacks);
     }
-    
+
     public void addChild(LayoutNode child) {
         children.add(child);
         child.parent = this;
+        child.invalidateDepth();
     }
-    
+
     public void calculate() {
-        if (callback != null) {
-            calculatedLayout = callback.calculate(new LayoutContext(node, stage));
+        Node n = node.get();
+        Callbacks c = callbacks.get();
+        if (n != null && c != null && c.callback != null) {
+            calculatedLayout = c.callback.calculate(new LayoutContext(n, stage));
         }
     }
-    
+
     public void apply() {
-        if (calculatedLayout != null) {
-            calculatedLayout.applyTo(node);
+        Node n = node.get();
+        if (calculatedLayout != null && n != null) {
+            calculatedLayout.applyTo(n);
             calculatedLayout = null;
-            if (applyCallback != null) {
-                applyCallback.run();
+            Callbacks c = callbacks.get();
+            if (c != null && c.applyCallback != null) {
+                c.applyCallback.run();
             }
         }
     }
-    
+
+    /**
+     * @return the scene graph node, or null if it has been collected
+     */
     public Node getNode() {
-        return node;
+        return node.get();
     }
-    
+
     public Stage getStage() {
         return stage;
     }
-    
+
     public int getDepth() {
         if (depth == -1) {
             depth = calculateDepth();
         }
         return depth;
     }
-    
+
     private int calculateDepth() {
         int d = 0;
         LayoutNode current = this.parent;
@@ -71,12 +108,70 @@ public class LayoutNode {
         }
         return d;
     }
+
+    private void invalidateDepth() {
+        depth = -1;
+        for (LayoutNode child : children) {
+            child.invalidateDepth();
+        }
+    }
+
+    void detach() {
+        if (parent != null) {
+            parent.children.remove(this);
+            parent = null;
+        }
+        invalidateDepth();
+    }
+
+    // ==================== Dirty State ====================
+
+    /**
+     * Claim the queued flag
+     * @return true if the caller should enqueue this node
+     */
+    boolean markQueued() {
+        return queued.compareAndSet(false, true);
+    }
+
+    void clearQueued() {
+        queued.set(false);
+    }
     
+    /**
+     * Record that this node was added to its stage's dirty buckets
+     * @return false if it is already waiting there
+     */
+    boolean markScheduled() {
+        if (scheduled) return false;
+        scheduled = true;
+        return true;
+    }
+
+    void clearScheduled() {
+        scheduled = false;
+    }
+
+    boolean isRegistered() {
+        return registered && node.get() != null;
+    }
+
+    void setUnregistered() {
+        registered = false;
+
+        // Drop the callbacks from the node unless a newer registration replaced them
+        Node n = node.get();
+        Callbacks c = callbacks.get();
+        if (n != null && c != null) {
+            n.getProperties().remove(CALLBACKS_PROPERTY, c);
+        }
+    }
+
     public LayoutNode getParent() {
         return parent;
     }
-    
+
     public List<LayoutNode> getChildren() {
         return children;
     }
-}
\ No newline at end of file
+}
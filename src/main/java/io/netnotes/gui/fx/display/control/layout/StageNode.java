@@ -12,7 +12,9 @@ class StageNode {
     private final Stage stage;
     private final StageLayoutCallback callback;
     private final List<StageNode> dependencies = new ArrayList<>();
+    private final List<StageNode> dependents = new ArrayList<>();
     private StageLayout calculatedLayout;
+    private int order = -1; // position in StageOrder
     
     public StageNode(Stage stage, StageLayoutCallback callback) {
         this.stage = stage;
@@ -50,4 +52,16 @@ class StageNode {
     public List<StageNode> getDependencies() {
         return dependencies;
     }
+    
+    List<StageNode> getDependents() {
+        return dependents;
+    }
+    
+    int getOrder() {
+        return order;
+    }
+    
+    void setOrder(int order) {
+        this.order = order;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,161 @@
+package io.netnotes.gui.fx.display.control.layout;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Incrementally maintained topological order of the stage dependency DAG
+ * (Pearce-Kelly).
+ *
+ * Every StageNode carries an order index; a dependency always has a lower
+ * index than the stage depending on it. New stages are appended, which
+ * never violates the order since their dependencies already exist. When an
+ * edge is added against the current order, only the affected region
+ * (nodes with order between the two endpoints reachable from either end)
+ * is visited and re-indexed.
+ *
+ * Removed stages leave empty slots; once they make up half of the index
+ * the remaining stages are packed down, keeping their relative order.
+ */
+class StageOrder {
+    private static final Comparator<StageNode> BY_ORDER = Comparator.comparingInt(StageNode::getOrder);
+
+    private static final int MIN_COMPACT_SIZE = 32;
+
+    private final List<StageNode> byOrder = new ArrayList<>(); // order index -> node (null once removed)
+    private int removedSlots = 0;
+
+    void add(StageNode node) {
+        node.setOrder(byOrder.size());
+        byOrder.add(node);
+    }
+
+    void remove(StageNode node) {
+        int order = node.getOrder();
+        if (order >= 0 && order < byOrder.size() && byOrder.get(order) == node) {
+            byOrder.set(order, null);
+            removedSlots++;
+        }
+        for (StageNode dependency : node.getDependencies()) {
+            dependency.getDependents().remove(node);
+        }
+        for (StageNode dependent : node.getDependents()) {
+            dependent.getDependencies().remove(node);
+        }
+        node.getDependencies().clear();
+        node.getDependents().clear();
+        node.setOrder(-1);
+
+        if (byOrder.size() >= MIN_COMPACT_SIZE && removedSlots * 2 >= byOrder.size()) {
+            compact();
+        }
+    }
+
+    /**
+     * Drop the empty slots and renumber the remaining stages in order
+     */
+    private void compact() {
+        int next = 0;
+        for (int i = 0; i < byOrder.size(); i++) {
+            StageNode node = byOrder.get(i);
+            if (node != null) {
+                node.setOrder(next);
+                byOrder.set(next++, node);
+            }
+        }
+        byOrder.subList(next, byOrder.size()).clear();
+        removedSlots = 0;
+    }
+
+    /**
+     * Add the edge dependency -> stage, re-ordering the affected region if needed
+     *
+     * @throws IllegalArgumentException if the edge would create a cycle
+     */
+    void addDependency(StageNode stage, StageNode dependency) {
+        if (stage == dependency) {
+            throw new IllegalArgumentException("Stage cannot depend on itself");
+        }
+        if (stage.getDependencies().contains(dependency)) {
+            return;
+        }
+
+        int lower = stage.getOrder();
+        int upper = dependency.getOrder();
+
+        if (upper > lower) {
+            // Forward: everything reachable from stage within (lower, upper]
+            List<StageNode> forward = new ArrayList<>();
+            Set<StageNode> visited = new HashSet<>();
+            if (!collectForward(stage, dependency, upper, forward, visited)) {
+                throw new IllegalArgumentException("Stage dependency would create a cycle");
+            }
+
+            // Backward: everything reaching dependency within [lower, upper)
+            List<StageNode> backward = new ArrayList<>();
+            collectBackward(dependency, lower, backward, visited);
+
+            reorder(backward, forward);
+        }
+
+        stage.addDependency(dependency);
+        dependency.getDependents().add(stage);
+    }
+
+    private boolean collectForward(StageNode node, StageNode target, int upper, List<StageNode> out, Set<StageNode> visited) {
+        visited.add(node);
+        out.add(node);
+        for (StageNode next : node.getDependents()) {
+            if (next == target) return false;
+            if (next.getOrder() < upper && !visited.contains(next)) {
+                if (!collectForward(next, target, upper, out, visited)) return false;
+            }
+        }
+        return true;
+    }
+
+    private void collectBackward(StageNode node, int lower, List<StageNode> out, Set<StageNode> visited) {
+        visited.add(node);
+        out.add(node);
+        for (StageNode previous : node.getDependencies()) {
+            if (previous.getOrder() > lower && !visited.contains(previous)) {
+                collectBackward(previous, lower, out, visited);
+            }
+        }
+    }
+
+    /**
+     * Reassign the pooled order indices: backward region first, then forward,
+     * each keeping its relative order
+     */
+    private void reorder(List<StageNode> backward, List<StageNode> forward) {
+        backward.sort(BY_ORDER);
+        forward.sort(BY_ORDER);
+
+        int[] slots = new int[backward.size() + forward.size()];
+        int i = 0;
+        for (StageNode node : backward) slots[i++] = node.getOrder();
+        for (StageNode node : forward) slots[i++] = node.getOrder();
+        Arrays.sort(slots);
+
+        i = 0;
+        for (StageNode node : backward) place(node, slots[i++]);
+        for (StageNode node : forward) place(node, slots[i++]);
+    }
+
+    private void place(StageNode node, int order) {
+        node.setOrder(order);
+        byOrder.set(order, node);
+    }
+
+    /**
+     * Sort a subset of stages into dependency order
+     */
+    static void sort(List<StageNode> stages) {
+        stages.sort(BY_ORDER);
+    }
+}
@@ -13,10 +13,22 @@ import io.netnotes.engine.noteBytes.processing.EncodingHelpers;
 import io.netnotes.engine.noteBytes.processing.NoteBytesMetaData;
 import io.netnotes.gui.fx.display.ImageHelpers;
 import io.netnotes.gui.fx.display.ImageHelpers.ImageFormat;
+import io.netnotes.gui.fx.utils.CacheRegistry;
+import io.netnotes.gui.fx.utils.TraceRecorder;
 
 public class NoteBytesImage extends NoteBytes {
-    private BufferedImage m_bufferedImageCache = null;
+    // Instances that have held a decoded image, shed under memory pressure
+    private static final CacheRegistry.Members<NoteBytesImage> CACHED_IMAGES = new CacheRegistry.Members<>();
+    private static final CacheRegistry.CacheGauges CACHE_GAUGES = CacheRegistry.register("NoteBytesImage", 50,
+        () -> CACHED_IMAGES.sum(NoteBytesImage::getCacheMemoryUsage),
+        () -> CACHED_IMAGES.sum(image -> image.isCached() ? 1 : 0),
+        NoteBytesImage::shedCachedImages);
+
+    // Volatile: shedCachedImages() clears it from the memory governor's thread;
+    // read it once into a local before use
+    private volatile BufferedImage m_bufferedImageCache = null;
     private boolean m_cacheEnabled = true;
+    private boolean m_cacheTracked = false;
     
     // Image metadata (cached on first decode)
     private Integer m_cachedWidth = null;
@@ -35,9 +47,12 @@ public class NoteBytesImage extends NoteBytes {
         m_cachedFormat = ImageHelpers.detectImageFormat(bytes);
         if(enableCache && !m_cachedFormat.equals(ImageFormat.UNKNOWN.getValue())){
             try{
-                m_bufferedImageCache = getAsBufferedImage();
-                m_cachedWidth = m_bufferedImageCache.getWidth();
-                m_cachedHeight = m_bufferedImageCache.getHeight();
+                BufferedImage image = getAsBufferedImage();
+                if (image != null) {
+                    setCache(image);
+                    m_cachedWidth = image.getWidth();
+                    m_cachedHeight = image.getHeight();
+                }
                 
             }catch(IOException e){
                 System.err.println("Warning: noteBytesImage decoding failed");
@@ -53,7 +68,7 @@ public class NoteBytesImage extends NoteBytes {
     
     public NoteBytesImage(BufferedImage image, String format) throws IOException {
         super(ImageHelpers.encodeImage(image, format), NoteBytesMetaData.IMAGE_TYPE);
-        m_bufferedImageCache = image;
+        setCache(image);
         m_cachedWidth = image.getWidth();
         m_cachedHeight = image.getHeight();
         m_cachedFormat = format.toUpperCase();
@@ -109,8 +124,10 @@ public class NoteBytesImage extends NoteBytes {
         byte[] bytes = get();
         
         // Return cached image if available
-        if (useCache && m_bufferedImageCache != null) {
-            return m_bufferedImageCache;
+        BufferedImage cached = useCache ? m_bufferedImageCache : null;
+        if (cached != null) {
+            CACHE_GAUGES.recordHit();
+            return cached;
         }
         
         // Validate data
@@ -119,7 +136,10 @@ public class NoteBytesImage extends NoteBytes {
         }
         
         // Decode image
+        CACHE_GAUGES.recordMiss();
+        long span = TraceRecorder.begin();
         BufferedImage image = ImageIO.read(new ByteArrayInputStream(bytes));
+        TraceRecorder.end(TraceRecorder.IMAGE_DECODE, span, bytes.length);
         
         if (image == null) {
             throw new IOException("Failed to decode image - unsupported format or corrupted data");
@@ -132,7 +152,7 @@ public class NoteBytesImage extends NoteBytes {
         
         // Cache image if requested
         if (useCache) {
-            m_bufferedImageCache = image;
+            setCache(image);
         }
         
         return image;
@@ -146,7 +166,15 @@ public class NoteBytesImage extends NoteBytes {
     }
 
     public void setCachedImage(BufferedImage image) {
+        setCache(image);
+    }
+
+    private void setCache(BufferedImage image) {
         m_bufferedImageCache = image;
+        if (image != null && !m_cacheTracked) {
+            m_cacheTracked = true;
+            CACHED_IMAGES.add(this);
+        }
     }
     
     /**
@@ -224,6 +252,21 @@ public class NoteBytesImage extends NoteBytes {
         m_bufferedImageCache = null;
     }
     
+    /**
+     * Drop decoded images until `bytes` are released (memory governor)
+     */
+    private static long shedCachedImages(long bytes) {
+        long[] released = { 0 };
+        CACHED_IMAGES.forEach(image -> {
+            if (released[0] < bytes && image.isCached()) {
+                released[0] += image.getCacheMemoryUsage();
+                image.clearCache();
+                CACHE_GAUGES.recordEviction();
+            }
+        });
+        return released[0];
+    }
+    
     /**
      * Enable or disable automatic caching
      */
@@ -245,13 +288,14 @@ public class NoteBytesImage extends NoteBytes {
      * Get approximate memory usage of cached image
      */
     public long getCacheMemoryUsage() {
-        if (m_bufferedImageCache == null) {
+        BufferedImage image = m_bufferedImageCache;
+        if (image == null) {
             return 0;
         }
         
-        int width = m_bufferedImageCache.getWidth();
-        int height = m_bufferedImageCache.getHeight();
-        int colorModel = m_bufferedImageCache.getColorModel().getPixelSize();
+        int width = image.getWidth();
+        int height = image.getHeight();
+        int colorModel = image.getColorModel().getPixelSize();
         
         // Rough estimate: width * height * bytes per pixel
         return (long) width * height * (colorModel / 8);
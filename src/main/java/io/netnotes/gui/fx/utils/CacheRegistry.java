@@ -0,0 +1,271 @@
+package io.netnotes.gui.fx.utils;
+
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.ToLongFunction;
+
+/**
+ * Registry of named in-process caches with a uniform gauge set:
+ * hits, misses, evictions, bytes and entries.
+ *
+ * Each cache registers once with a value (1-100, roughly what a rebuild
+ * costs) and a Shedder. When heap pressure rises, MemoryGovernor asks the
+ * registry to shed bytes; caches are visited from lowest value score
+ * (value weighted by hit rate) to highest until enough is freed.
+ *
+ * Bytes are estimates supplied by each cache and are only used to rank
+ * and stop shedding, not for accounting.
+ */
+public class CacheRegistry {
+
+    private static final Map<String, CacheGauges> caches = new ConcurrentHashMap<>();
+
+    /**
+     * Frees cached data on request
+     */
+    @FunctionalInterface
+    public interface Shedder {
+        /**
+         * @param bytes bytes the governor would like released
+         * @return estimated bytes released (may exceed the request)
+         */
+        long shed(long bytes);
+    }
+
+    /**
+     * Register a cache
+     * @param name unique cache name
+     * @param value rebuild cost 1-100; lower value caches are shed first
+     * @param bytes estimated retained bytes
+     * @param entries current entry count
+     * @param shedder releases cached data under memory pressure
+     * @return gauges the cache records hits/misses/evictions into
+     */
+    public static CacheGauges register(String name, int value, LongSupplier bytes, LongSupplier entries, Shedder shedder) {
+        if (name == null || bytes == null || entries == null || shedder == null) {
+            throw new IllegalArgumentException("Cache name, gauges and shedder are required");
+        }
+        if (value < 1 || value > 100) {
+            throw new IllegalArgumentException("Cache value must be between 1 and 100");
+        }
+
+        CacheGauges gauges = new CacheGauges(name, value, bytes, entries, shedder);
+        if (caches.putIfAbsent(name, gauges) != null) {
+            throw new IllegalStateException("Cache already registered: " + name);
+        }
+        MemoryGovernor.getInstance().start();
+        return gauges;
+    }
+
+    public static void unregister(String name) {
+        caches.remove(name);
+    }
+
+    public static CacheGauges get(String name) {
+        return caches.get(name);
+    }
+
+    /**
+     * All registered caches, sorted by name
+     */
+    public static List<CacheGauges> getCaches() {
+        List<CacheGauges> list = new ArrayList<>(caches.values());
+        list.sort(Comparator.comparing(CacheGauges::getName));
+        return list;
+    }
+
+    public static long getTotalBytes() {
+        long total = 0;
+        for (CacheGauges gauges : caches.values()) {
+            total += gauges.getBytes();
+        }
+        return total;
+    }
+
+    // ========== Shedding ==========
+
+    /**
+     * Shed from the lowest-value caches first until `bytes` are released
+     * @return estimated bytes released
+     */
+    public static long shed(long bytes) {
+        List<CacheGauges> order = new ArrayList<>(caches.values());
+        order.sort(Comparator.comparingDouble(CacheGauges::getValueScore));
+
+        long released = 0;
+        for (CacheGauges gauges : order) {
+            if (released >= bytes) break;
+            if (gauges.getBytes() <= 0) continue;
+
+            try {
+                long freed = gauges.shedder.shed(bytes - released);
+                gauges.shedBytes.addAndGet(freed);
+                released += freed;
+            } catch (Exception e) {
+                System.err.println("Error shedding cache " + gauges.name + ": " + e.getMessage());
+            }
+        }
+        return released;
+    }
+
+    public static void printDiagnostics() {
+        System.out.println("=== Cache Registry ===");
+        for (CacheGauges gauges : getCaches()) {
+            System.out.println(gauges);
+        }
+        System.out.printf("Total: %.1f MB%n", getTotalBytes() / (1024.0 * 1024.0));
+        System.out.println(MemoryGovernor.getInstance());
+    }
+
+    /**
+     * Named gauge set for one cache
+     */
+    public static class CacheGauges {
+        private final String name;
+        private final int value;
+        private final LongSupplier bytes;
+        private final LongSupplier entries;
+        private final Shedder shedder;
+
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong evictions = new AtomicLong();
+        private final AtomicLong shedBytes = new AtomicLong();
+
+        CacheGauges(String name, int value, LongSupplier bytes, LongSupplier entries, Shedder shedder) {
+            this.name = name;
+            this.value = value;
+            this.bytes = bytes;
+            this.entries = entries;
+            this.shedder = shedder;
+        }
+
+        public void recordHit() {
+            hits.incrementAndGet();
+        }
+
+        public void recordMiss() {
+            misses.incrementAndGet();
+        }
+
+        public void recordEviction() {
+            evictions.incrementAndGet();
+        }
+
+        public void recordEvictions(long count) {
+            evictions.addAndGet(count);
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        public int getValue() {
+            return value;
+        }
+
+        public long getHits() {
+            return hits.get();
+        }
+
+        public long getMisses() {
+            return misses.get();
+        }
+
+        public long getEvictions() {
+            return evictions.get();
+        }
+
+        public long getBytes() {
+            return bytes.getAsLong();
+        }
+
+        public long getEntries() {
+            return entries.getAsLong();
+        }
+
+        public long getShedBytes() {
+            return shedBytes.get();
+        }
+
+        public double getHitRate() {
+            long h = hits.get();
+            long total = h + misses.get();
+            return total == 0 ? 0.0 : (double) h / total;
+        }
+
+        /**
+         * Value weighted by hit rate; caches with nothing recorded rank by value alone
+         */
+        double getValueScore() {
+            long total = hits.get() + misses.get();
+            double hitRate = total == 0 ? 1.0 : getHitRate();
+            return value * (0.1 + hitRate);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(
+                "%s[entries=%d, bytes=%.1fKB, hits=%d, misses=%d, hit=%.1f%%, evictions=%d, shed=%.1fKB, value=%d]",
+                name, getEntries(), getBytes() / 1024.0, getHits(), getMisses(), getHitRate() * 100.0,
+                getEvictions(), getShedBytes() / 1024.0, value);
+        }
+    }
+
+    /**
+     * Weakly held set of cache owners for caches spread across many instances
+     * (e.g. one per canvas). Callers add each instance once.
+     */
+    public static class Members<T> {
+        private static final int SWEEP_INTERVAL = 256;
+
+        private final ConcurrentLinkedQueue<WeakReference<T>> members = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger addsSinceSweep = new AtomicInteger();
+
+        public void add(T member) {
+            members.add(new WeakReference<>(member));
+            if (addsSinceSweep.incrementAndGet() >= SWEEP_INTERVAL) {
+                addsSinceSweep.set(0);
+                forEach(_ -> { });
+            }
+        }
+
+        public void remove(T member) {
+            members.removeIf(ref -> {
+                T value = ref.get();
+                return value == null || value == member;
+            });
+        }
+
+        /**
+         * Visit live members, dropping collected ones
+         */
+        public void forEach(Consumer<T> action) {
+            Iterator<WeakReference<T>> it = members.iterator();
+            while (it.hasNext()) {
+                T member = it.next().get();
+                if (member == null) {
+                    it.remove();
+                } else {
+                    action.accept(member);
+                }
+            }
+        }
+
+        public long sum(ToLongFunction<T> gauge) {
+            long[] total = { 0 };
+            forEach(member -> total[0] += gauge.applyAsLong(member));
+            return total[0];
+        }
+    }
+}
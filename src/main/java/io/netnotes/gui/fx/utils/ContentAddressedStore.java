@@ -0,0 +1,298 @@
+package io.netnotes.gui.fx.utils;
+
+import java.io.IOException;
+import java.io.PipedInputStream;
+import java.io.PipedOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+
+import io.netnotes.engine.AppDataInterface;
+import io.netnotes.engine.crypto.HashServices;
+import io.netnotes.engine.noteBytes.NoteBytes;
+import io.netnotes.engine.noteBytes.NoteBytesObject;
+import io.netnotes.engine.noteBytes.NoteStringArrayReadOnly;
+import io.netnotes.engine.noteFiles.NoteFile;
+import io.netnotes.engine.utils.streams.StreamUtils;
+
+/**
+ * Content-addressed blob store in app data NoteFiles.
+ *
+ * One NoteFile per distinct content (named by its Blake2b hash) and an index
+ * NoteFile mapping keys (usually source URLs) to hashes, all under one
+ * directory. Keys with the same bytes share one file.
+ *
+ * The store is LRU by key and bounded by maxBytes of distinct content; a
+ * file is deleted once no key in the index refers to it.
+ */
+public class ContentAddressedStore {
+    private static final int HASH_LENGTH = 16;
+    private static final String INDEX_FILE = "index";
+
+    private final AppDataInterface m_appData;
+    private final ExecutorService m_execService;
+    private final String m_directory;
+    private final long m_maxBytes;
+
+    // key -> entry in access order, and references per hash; guarded by this
+    private final Map<String, Entry> m_entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Integer> m_hashRefs = new HashMap<>();
+    private long m_bytes = 0;
+    private CompletableFuture<Void> m_indexLoad = null;
+    private CompletableFuture<Void> m_indexWrite = CompletableFuture.completedFuture(null);
+
+    /**
+     * @param directory app data directory holding the files and the index
+     * @param maxBytes bound on distinct stored content
+     */
+    public ContentAddressedStore(AppDataInterface appData, ExecutorService execService, String directory, long maxBytes) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+        }
+        m_appData = appData;
+        m_execService = execService;
+        m_directory = directory;
+        m_maxBytes = maxBytes;
+    }
+
+    // ========== Access ==========
+
+    /**
+     * Stored bytes for `key`
+     * @return the bytes, or null if the key is not stored or its file is missing or unreadable
+     */
+    public CompletableFuture<byte[]> read(String key) {
+        return loadIndex().thenCompose(_ -> {
+            Entry entry = touchEntry(key);
+            if (entry == null) {
+                return CompletableFuture.completedFuture(null);
+            }
+            return readBlob(entry.hash).handle((bytes, error) -> error == null && bytes.length > 0 ? bytes : null);
+        });
+    }
+
+    /**
+     * Record `key` -> hash of `bytes`, writing the file if the content is new
+     */
+    public CompletableFuture<Void> store(String key, byte[] bytes) {
+        return loadIndex().thenCompose(_ -> storeLoaded(key, bytes));
+    }
+
+    private CompletableFuture<Void> storeLoaded(String key, byte[] bytes) {
+        String hash = HashServices.digestToUrlSafeString(bytes, HASH_LENGTH);
+
+        boolean isNew;
+        List<String> unreferenced;
+        synchronized (this) {
+            Entry previous = m_entries.get(key);
+            if (previous != null && previous.hash.equals(hash)) {
+                return CompletableFuture.completedFuture(null);
+            }
+            isNew = !m_hashRefs.containsKey(hash);
+            unreferenced = new ArrayList<>();
+            if (previous != null) {
+                removeEntry(key, unreferenced);
+            }
+            addEntry(key, new Entry(hash, bytes.length));
+            unreferenced.addAll(evict(key));
+        }
+
+        deleteBlobs(unreferenced);
+        CompletableFuture<Void> write = isNew ? writeBlob(hash, bytes) : CompletableFuture.completedFuture(null);
+        return write.thenCompose(_ -> saveIndex());
+    }
+
+    public synchronized long getBytes() {
+        return m_bytes;
+    }
+
+    public synchronized int getEntryCount() {
+        return m_entries.size();
+    }
+
+    // ========== Entries ==========
+
+    private synchronized Entry touchEntry(String key) {
+        return m_entries.get(key);
+    }
+
+    private void addEntry(String key, Entry entry) {
+        m_entries.put(key, entry);
+        int refs = m_hashRefs.merge(entry.hash, 1, Integer::sum);
+        if (refs == 1) {
+            m_bytes += entry.size;
+        }
+    }
+
+    private void removeEntry(String key, List<String> unreferenced) {
+        Entry entry = m_entries.remove(key);
+        if (entry == null) return;
+
+        int refs = m_hashRefs.merge(entry.hash, -1, Integer::sum);
+        if (refs <= 0) {
+            m_hashRefs.remove(entry.hash);
+            m_bytes -= entry.size;
+            unreferenced.add(entry.hash);
+        }
+    }
+
+    /**
+     * Drop least recently used keys until the store fits, keeping `keepKey`
+     * @return hashes no longer referenced
+     */
+    private List<String> evict(String keepKey) {
+        List<String> eldest = new ArrayList<>();
+        for (String key : m_entries.keySet()) {
+            if (m_bytes <= m_maxBytes) break;
+            if (!key.equals(keepKey)) {
+                eldest.add(key);
+            }
+        }
+
+        List<String> unreferenced = new ArrayList<>();
+        for (String key : eldest) {
+            if (m_bytes <= m_maxBytes) break;
+            removeEntry(key, unreferenced);
+        }
+        return unreferenced;
+    }
+
+    // ========== Index ==========
+
+    /**
+     * Read the index once; a missing or unreadable index starts empty
+     */
+    private synchronized CompletableFuture<Void> loadIndex() {
+        if (m_indexLoad == null) {
+            m_indexLoad = m_appData.getNoteFile(pathOf(INDEX_FILE))
+                .thenCompose(noteFile -> noteFile.isFile()
+                    ? readNoteFile(noteFile)
+                    : CompletableFuture.completedFuture(new byte[0]))
+                .thenAccept(this::parseIndex)
+                .exceptionally(e -> {
+                    System.err.println("ContentAddressedStore (" + m_directory + "): could not read index: " +
+                        e.getMessage());
+                    return null;
+                });
+        }
+        return m_indexLoad;
+    }
+
+    /**
+     * Lines of hash, size and key, least recently used first
+     */
+    private synchronized void parseIndex(byte[] bytes) {
+        for (String line : new String(bytes, StandardCharsets.UTF_8).split("\n")) {
+            String[] parts = line.split("\t", 3);
+            if (parts.length < 3 || m_entries.containsKey(parts[2])) continue;
+            try {
+                addEntry(parts[2], new Entry(parts[0], Long.parseLong(parts[1])));
+            } catch (NumberFormatException e) {
+                // Skip a damaged line
+            }
+        }
+    }
+
+    /**
+     * Write the index after any pending index write
+     */
+    private CompletableFuture<Void> saveIndex() {
+        StringBuilder sb = new StringBuilder();
+        synchronized (this) {
+            for (Map.Entry<String, Entry> entry : m_entries.entrySet()) {
+                String key = entry.getKey();
+                if (key.indexOf('\n') >= 0 || key.indexOf('\t') >= 0) continue;
+                sb.append(entry.getValue().hash).append('\t')
+                  .append(entry.getValue().size).append('\t')
+                  .append(key).append('\n');
+            }
+            byte[] bytes = sb.toString().getBytes(StandardCharsets.UTF_8);
+            m_indexWrite = m_indexWrite
+                .thenCompose(_ -> m_appData.getNoteFile(pathOf(INDEX_FILE)))
+                .thenCompose(noteFile -> writeNoteFile(noteFile, bytes))
+                .thenApply(_ -> (Void) null)
+                .exceptionally(e -> {
+                    System.err.println("ContentAddressedStore (" + m_directory + "): could not write index: " +
+                        e.getMessage());
+                    return null;
+                });
+            return m_indexWrite;
+        }
+    }
+
+    // ========== Files ==========
+
+    private CompletableFuture<byte[]> readBlob(String hash) {
+        return m_appData.getNoteFile(pathOf(hash)).thenCompose(noteFile -> noteFile.isFile()
+            ? readNoteFile(noteFile)
+            : CompletableFuture.failedFuture(new IOException("Stored file missing: " + hash)));
+    }
+
+    private CompletableFuture<Void> writeBlob(String hash, byte[] bytes) {
+        return m_appData.getNoteFile(pathOf(hash))
+            .thenCompose(noteFile -> writeNoteFile(noteFile, bytes))
+            .thenApply(_ -> null);
+    }
+
+    private void deleteBlobs(List<String> hashes) {
+        for (String hash : hashes) {
+            m_appData.deleteNoteFilePath(pathOf(hash), false, null).exceptionally(e -> {
+                System.err.println("ContentAddressedStore (" + m_directory + "): could not delete " + hash + ": " +
+                    e.getMessage());
+                return null;
+            });
+        }
+    }
+
+    private CompletableFuture<byte[]> readNoteFile(NoteFile noteFile) {
+        PipedOutputStream outputStream = new PipedOutputStream();
+
+        CompletableFuture<NoteBytesObject> readFuture = noteFile.readOnly(outputStream);
+        CompletableFuture<byte[]> bytesFuture = CompletableFuture.supplyAsync(() -> {
+            try (PipedInputStream inputStream = new PipedInputStream(outputStream, StreamUtils.PIPE_BUFFER_SIZE)) {
+                return inputStream.readAllBytes();
+            } catch (IOException e) {
+                throw new CompletionException("Failed to read stored file", e);
+            }
+        }, m_execService);
+
+        return CompletableFuture.allOf(readFuture, bytesFuture)
+            .thenCompose(_ -> bytesFuture);
+    }
+
+    private CompletableFuture<NoteBytesObject> writeNoteFile(NoteFile noteFile, byte[] bytes) {
+        PipedOutputStream outputStream = new PipedOutputStream();
+
+        CompletableFuture<NoteBytesObject> writeFuture = noteFile.writeOnly(outputStream);
+        CompletableFuture<Void> copyFuture = CompletableFuture.runAsync(() -> {
+            try (outputStream) {
+                outputStream.write(bytes);
+            } catch (IOException e) {
+                throw new CompletionException("Failed to write stored file", e);
+            }
+        }, m_execService);
+
+        return CompletableFuture.allOf(copyFuture, writeFuture)
+            .thenCompose(_ -> writeFuture);
+    }
+
+    private NoteStringArrayReadOnly pathOf(String name) {
+        return new NoteStringArrayReadOnly(new NoteBytes(m_directory), new NoteBytes(name));
+    }
+
+    private static class Entry {
+        final String hash;
+        final long size;
+
+        Entry(String hash, long size) {
+            this.hash = hash;
+            this.size = size;
+        }
+    }
+}
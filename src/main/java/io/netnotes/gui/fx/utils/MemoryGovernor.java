@@ -0,0 +1,160 @@
+package io.netnotes.gui.fx.utils;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryNotificationInfo;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.lang.management.MemoryUsage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.management.Notification;
+import javax.management.NotificationEmitter;
+import javax.management.NotificationListener;
+
+/**
+ * Sheds cache memory when the heap comes under pressure.
+ *
+ * Usage thresholds are set on every heap pool that supports them
+ * (typically the old generation) at HIGH_WATER of its max. When the JVM
+ * reports a threshold crossing, the governor asks CacheRegistry to release
+ * enough bytes to bring usage back to TARGET, lowest-value caches first.
+ * Shedding runs off the notification thread and never overlaps itself.
+ */
+public class MemoryGovernor {
+    private static final MemoryGovernor INSTANCE = new MemoryGovernor();
+
+    private static final double HIGH_WATER = 0.80;
+    private static final double TARGET = 0.65;
+
+    // Published once by start(), after the thresholds are installed
+    private volatile List<MemoryPoolMXBean> monitoredPools = List.of();
+    private boolean started = false;
+    private final AtomicBoolean shedding = new AtomicBoolean(false);
+
+    private volatile long shedCount = 0;
+    private volatile long lastShedBytes = 0;
+    private volatile long totalShedBytes = 0;
+
+    private MemoryGovernor() {}
+
+    public static MemoryGovernor getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Install heap pool thresholds and start listening (idempotent)
+     */
+    public synchronized void start() {
+        if (started) return;
+        started = true;
+
+        List<MemoryPoolMXBean> pools = new ArrayList<>();
+        for (MemoryPoolMXBean pool : ManagementFactory.getMemoryPoolMXBeans()) {
+            if (pool.getType() != MemoryType.HEAP || !pool.isUsageThresholdSupported()) continue;
+
+            long max = pool.getUsage().getMax();
+            if (max <= 0) continue;
+
+            long threshold = (long) (max * HIGH_WATER);
+            pool.setUsageThreshold(threshold);
+            if (pool.isCollectionUsageThresholdSupported()) {
+                pool.setCollectionUsageThreshold(threshold);
+            }
+            pools.add(pool);
+        }
+
+        if (pools.isEmpty()) {
+            System.err.println("MemoryGovernor: no heap pool supports usage thresholds");
+            return;
+        }
+
+        NotificationEmitter emitter = (NotificationEmitter) ManagementFactory.getMemoryMXBean();
+        NotificationListener listener = (Notification notification, Object handback) -> {
+            String type = notification.getType();
+            if (MemoryNotificationInfo.MEMORY_THRESHOLD_EXCEEDED.equals(type) ||
+                MemoryNotificationInfo.MEMORY_COLLECTION_THRESHOLD_EXCEEDED.equals(type)) {
+                requestShed();
+            }
+        };
+        monitoredPools = List.copyOf(pools);
+        emitter.addNotificationListener(listener, null, null);
+    }
+
+    /**
+     * Shed now if any monitored pool is over the high-water mark
+     */
+    public void checkPressure() {
+        if (getPressure() >= HIGH_WATER) {
+            requestShed();
+        }
+    }
+
+    private void requestShed() {
+        if (!shedding.compareAndSet(false, true)) return;
+
+        TaskUtils.getVirtualExecutor().execute(() -> {
+            try {
+                long excess = getExcessBytes();
+                if (excess > 0) {
+                    long released = CacheRegistry.shed(excess);
+                    lastShedBytes = released;
+                    totalShedBytes += released;
+                    shedCount++;
+                }
+            } catch (Exception e) {
+                System.err.println("MemoryGovernor shed failed: " + e.getMessage());
+            } finally {
+                shedding.set(false);
+            }
+        });
+    }
+
+    /**
+     * Bytes above TARGET across the monitored pools
+     */
+    private long getExcessBytes() {
+        long excess = 0;
+        for (MemoryPoolMXBean pool : monitoredPools) {
+            MemoryUsage usage = pool.getUsage();
+            if (usage.getMax() > 0) {
+                excess += Math.max(0, usage.getUsed() - (long) (usage.getMax() * TARGET));
+            }
+        }
+        return excess;
+    }
+
+    /**
+     * Highest used/max ratio across the monitored pools
+     */
+    public double getPressure() {
+        double pressure = 0.0;
+        for (MemoryPoolMXBean pool : monitoredPools) {
+            MemoryUsage usage = pool.getUsage();
+            if (usage.getMax() > 0) {
+                pressure = Math.max(pressure, (double) usage.getUsed() / usage.getMax());
+            }
+        }
+        return pressure;
+    }
+
+    public long getShedCount() {
+        return shedCount;
+    }
+
+    public long getLastShedBytes() {
+        return lastShedBytes;
+    }
+
+    public long getTotalShedBytes() {
+        return totalShedBytes;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("MemoryGovernor[pools=%d, pressure=%.1f%%, sheds=%d, last=%.1fMB, total=%.1fMB]",
+            monitoredPools.size(), getPressure() * 100.0, shedCount,
+            lastShedBytes / (1024.0 * 1024.0), totalShedBytes / (1024.0 * 1024.0));
+    }
+}
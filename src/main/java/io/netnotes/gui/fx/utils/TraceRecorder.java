@@ -0,0 +1,325 @@
+package io.netnotes.gui.fx.utils;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.ref.WeakReference;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Low-overhead span tracer with Chrome trace_event export.
+ *
+ * Usage:
+ * <pre>
+ * long span = TraceRecorder.begin();
+ * try {
+ *     ...
+ * } finally {
+ *     TraceRecorder.end(TraceRecorder.LAYOUT_ENGINE, span, arg);
+ * }
+ * </pre>
+ *
+ * Each completed span is one record of (timestamp, duration, span id,
+ * name id, arg) written into primitive arrays of a per-thread ring buffer,
+ * so recording allocates nothing. Platform threads own their buffer;
+ * virtual threads are short-lived here (one per task) and share a small
+ * set of striped buffers instead. When tracing is disabled begin() returns
+ * 0 and end() returns immediately. Buffers of platform threads that have
+ * finished are dropped on the next export or clear().
+ *
+ * Tracing is toggled at runtime with setEnabled() (initially from the
+ * "netnotes.trace" system property) and exported with writeChromeTrace(),
+ * loadable in chrome://tracing or Perfetto.
+ */
+public class TraceRecorder {
+    private static final int BUFFER_CAPACITY = 1 << 13;
+    private static final int VIRTUAL_STRIPES = 8;
+    private static final int MAX_NAMES = 256;
+
+    private static final String[] spanNames = new String[MAX_NAMES];
+    private static int nameCount = 0;
+
+    // ========== Span Names ==========
+
+    public static final int LAYOUT_ENGINE = name("LayoutEngine.layout");
+    public static final int LAYOUT_CANVAS_DRAW = name("LayoutCanvas.drawContent");
+    public static final int CANVAS_UPLOAD = name("BufferedCanvasView.drawToCanvas");
+    public static final int CANVAS_EFFECT = name("BufferedCanvasView.effect");
+    public static final int CANVAS_SCALING = name("BufferedCanvasView.scaling");
+    public static final int IMAGE_DECODE = name("image.decode");
+    public static final int DEFERRED_LAYOUT = name("DeferredLayoutManager.performLayout");
+
+    private static volatile boolean enabled = Boolean.getBoolean("netnotes.trace");
+
+    private static final long origin = System.nanoTime();
+    private static final AtomicLong nextSpanId = new AtomicLong(1);
+
+    private static final List<TraceBuffer> buffers = new CopyOnWriteArrayList<>();
+    private static final ThreadLocal<TraceBuffer> threadBuffer = ThreadLocal.withInitial(() -> {
+        Thread thread = Thread.currentThread();
+        TraceBuffer buffer = new TraceBuffer(thread, thread.threadId(), thread.getName());
+        buffers.add(buffer);
+        return buffer;
+    });
+    private static final TraceBuffer[] virtualBuffers = new TraceBuffer[VIRTUAL_STRIPES];
+
+    static {
+        for (int i = 0; i < VIRTUAL_STRIPES; i++) {
+            virtualBuffers[i] = new TraceBuffer(null, -(i + 1), "virtual-" + i);
+            buffers.add(virtualBuffers[i]);
+        }
+    }
+
+    /**
+     * Register a span name
+     * @return id to pass to end()
+     */
+    public static synchronized int name(String name) {
+        for (int i = 0; i < nameCount; i++) {
+            if (spanNames[i].equals(name)) return i;
+        }
+        if (nameCount == MAX_NAMES) {
+            throw new IllegalStateException("Too many trace span names");
+        }
+        spanNames[nameCount] = name;
+        return nameCount++;
+    }
+
+    /**
+     * Names registered so far, indexed by id
+     */
+    public static synchronized List<String> getNames() {
+        List<String> names = new ArrayList<>(nameCount);
+        for (int i = 0; i < nameCount; i++) {
+            names.add(spanNames[i]);
+        }
+        return names;
+    }
+
+    public static void setEnabled(boolean enabled) {
+        TraceRecorder.enabled = enabled;
+    }
+
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    // ========== Recording ==========
+
+    /**
+     * Start a span
+     * @return start timestamp, or 0 if tracing is disabled
+     */
+    public static long begin() {
+        return enabled ? System.nanoTime() : 0L;
+    }
+
+    public static void end(int nameId, long begin) {
+        end(nameId, begin, 0L);
+    }
+
+    /**
+     * Complete a span started with begin()
+     * @param arg span argument (size, count, index...)
+     */
+    public static void end(int nameId, long begin, long arg) {
+        if (begin == 0L || !enabled) return;
+
+        long now = System.nanoTime();
+        Thread thread = Thread.currentThread();
+        TraceBuffer buffer = thread.isVirtual()
+            ? virtualBuffers[(int) (thread.threadId() % VIRTUAL_STRIPES)]
+            : threadBuffer.get();
+
+        buffer.write(begin - origin, now - begin, nextSpanId.getAndIncrement(), nameId, arg,
+            thread.threadId());
+    }
+
+    /**
+     * Discard all recorded spans
+     */
+    public static void clear() {
+        for (TraceBuffer buffer : buffers) {
+            buffer.clear();
+        }
+        pruneFinished();
+    }
+
+    /**
+     * Drop the buffers of platform threads that have finished
+     */
+    private static void pruneFinished() {
+        buffers.removeIf(TraceBuffer::isOwnerFinished);
+    }
+
+    // ========== Export ==========
+
+    /**
+     * Write the recorded spans as Chrome trace_event JSON
+     */
+    public static void writeChromeTrace(Writer writer) throws IOException {
+        String[] names;
+        synchronized (TraceRecorder.class) {
+            names = new String[nameCount];
+            System.arraycopy(spanNames, 0, names, 0, nameCount);
+        }
+
+        writer.write("{\"displayTimeUnit\":\"ms\",\"traceEvents\":[");
+        boolean first = true;
+
+        for (TraceBuffer buffer : buffers) {
+            TraceBuffer.Snapshot snapshot = buffer.snapshot();
+            if (snapshot.count == 0) continue;
+
+            if (buffer.threadId >= 0) {
+                first = writeSeparator(writer, first);
+                writer.write("{\"ph\":\"M\",\"pid\":1,\"tid\":" + buffer.threadId
+                    + ",\"name\":\"thread_name\",\"args\":{\"name\":\"" + escape(buffer.threadName) + "\"}}");
+            }
+
+            for (int i = 0; i < snapshot.count; i++) {
+                int nameId = snapshot.nameIds[i];
+                String name = nameId >= 0 && nameId < names.length ? names[nameId] : "unknown";
+
+                first = writeSeparator(writer, first);
+                writer.write("{\"ph\":\"X\",\"cat\":\"netnotes\",\"pid\":1,\"tid\":" + snapshot.threadIds[i]
+                    + ",\"name\":\"" + escape(name) + "\""
+                    + ",\"ts\":" + micros(snapshot.timestamps[i])
+                    + ",\"dur\":" + micros(snapshot.durations[i])
+                    + ",\"args\":{\"span\":" + snapshot.spanIds[i] + ",\"arg\":" + snapshot.args[i] + "}}");
+            }
+        }
+
+        writer.write("]}");
+        writer.flush();
+
+        // Spans of finished threads have been written; their buffers can go
+        pruneFinished();
+    }
+
+    /**
+     * Write the recorded spans as a Chrome trace_event JSON file
+     */
+    public static void exportChromeTrace(Path file) throws IOException {
+        try (BufferedWriter writer = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            writeChromeTrace(writer);
+        }
+    }
+
+    private static boolean writeSeparator(Writer writer, boolean first) throws IOException {
+        if (!first) writer.write(',');
+        return false;
+    }
+
+    private static String micros(long nanos) {
+        return String.format(Locale.ROOT, "%.3f", nanos / 1000.0);
+    }
+
+    private static String escape(String value) {
+        StringBuilder sb = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                default:
+                    if (c < 0x20) {
+                        sb.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        sb.append(c);
+                    }
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Fixed-size ring of span records in parallel primitive arrays
+     */
+    private static class TraceBuffer {
+        private final WeakReference<Thread> owner;
+        private final long threadId;
+        private final String threadName;
+
+        private final long[] timestamps = new long[BUFFER_CAPACITY];
+        private final long[] durations = new long[BUFFER_CAPACITY];
+        private final long[] spanIds = new long[BUFFER_CAPACITY];
+        private final long[] args = new long[BUFFER_CAPACITY];
+        private final long[] threadIds = new long[BUFFER_CAPACITY];
+        private final int[] nameIds = new int[BUFFER_CAPACITY];
+        private long written = 0;
+
+        /**
+         * @param owner owning platform thread, or null for a shared striped buffer
+         */
+        TraceBuffer(Thread owner, long threadId, String threadName) {
+            this.owner = owner != null ? new WeakReference<>(owner) : null;
+            this.threadId = threadId;
+            this.threadName = threadName;
+        }
+
+        // Uncontended for platform threads; striped buffers are shared by virtual threads
+        synchronized void write(long timestamp, long duration, long spanId, int nameId, long arg, long tid) {
+            int slot = (int) (written & (BUFFER_CAPACITY - 1));
+            timestamps[slot] = timestamp;
+            durations[slot] = duration;
+            spanIds[slot] = spanId;
+            nameIds[slot] = nameId;
+            args[slot] = arg;
+            threadIds[slot] = tid;
+            written++;
+        }
+
+        synchronized void clear() {
+            written = 0;
+        }
+
+        boolean isOwnerFinished() {
+            if (owner == null) return false;
+            Thread thread = owner.get();
+            return thread == null || !thread.isAlive();
+        }
+
+        /**
+         * Copy out the retained records, oldest first
+         */
+        synchronized Snapshot snapshot() {
+            int count = (int) Math.min(written, BUFFER_CAPACITY);
+            Snapshot snapshot = new Snapshot(count);
+            long start = written - count;
+            for (int i = 0; i < count; i++) {
+                int slot = (int) ((start + i) & (BUFFER_CAPACITY - 1));
+                snapshot.timestamps[i] = timestamps[slot];
+                snapshot.durations[i] = durations[slot];
+                snapshot.spanIds[i] = spanIds[slot];
+                snapshot.nameIds[i] = nameIds[slot];
+                snapshot.args[i] = args[slot];
+                snapshot.threadIds[i] = threadIds[slot];
+            }
+            return snapshot;
+        }
+
+        static class Snapshot {
+            final int count;
+            final long[] timestamps, durations, spanIds, args, threadIds;
+            final int[] nameIds;
+
+            Snapshot(int count) {
+                this.count = count;
+                timestamps = new long[count];
+                durations = new long[count];
+                spanIds = new long[count];
+                args = new long[count];
+                threadIds = new long[count];
+                nameIds = new int[count];
+            }
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package io.netnotes.gui.fx.app.apps.pluginManager;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * PluginDownloader against a local HttpServer stub serving one file with
+ * Range and If-Range support.
+ */
+public class PluginDownloaderTest {
+    private static final int CHUNK_SIZE = 1024;
+    private static final int FILE_SIZE = CHUNK_SIZE * 10 + 123;
+
+    @TempDir
+    Path m_directory;
+
+    private HttpServer m_server;
+    private ExecutorService m_executor;
+    private String m_url;
+
+    // Served file; guarded by this
+    private byte[] m_content;
+    private String m_etag;
+    private int m_rangesServed = 0;
+    private int m_failRangesAfter = Integer.MAX_VALUE;   // 500 for ranges once this many were served
+    private int m_replaceAfterRanges = Integer.MAX_VALUE; // new content and ETag once this many were served
+    private byte[] m_replacement;
+    private final List<String> m_rangeRequests = Collections.synchronizedList(new ArrayList<>());
+
+    @BeforeEach
+    void startServer() throws IOException {
+        m_content = randomBytes(FILE_SIZE, 1);
+        m_etag = "\"v1\"";
+
+        m_server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        m_server.createContext("/plugin.jar", this::handle);
+        m_server.start();
+        m_url = "http://127.0.0.1:" + m_server.getAddress().getPort() + "/plugin.jar";
+        m_executor = Executors.newCachedThreadPool();
+    }
+
+    @AfterEach
+    void stopServer() {
+        m_server.stop(0);
+        m_executor.shutdownNow();
+    }
+
+    // ========== Tests ==========
+
+    @Test
+    void downloadsInRangesAndVerifiesDigest() throws Exception {
+        PluginDownloader downloader = newDownloader();
+        List<PluginDownloader.Progress> progress = Collections.synchronizedList(new ArrayList<>());
+
+        PluginDownloader.Result result = downloader.download(m_url, sha256(m_content), progress::add)
+            .get(30, TimeUnit.SECONDS);
+
+        assertArrayEquals(m_content, Files.readAllBytes(result.getFile()));
+        assertEquals(FILE_SIZE, result.getSize());
+        assertEquals(sha256(m_content), result.getFileDigest());
+        assertEquals(11, m_rangeRequests.size());
+        assertEquals("bytes=0-1023", m_rangeRequests.get(0));
+        assertEquals(1.0, progress.get(progress.size() - 1).getFraction());
+    }
+
+    @Test
+    void resumesAfterLastRecordedChunk() throws Exception {
+        PluginDownloader downloader = newDownloader();
+        synchronized (this) {
+            m_failRangesAfter = 4;
+        }
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> downloader.download(m_url, sha256(m_content), null).get(30, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+
+        synchronized (this) {
+            m_failRangesAfter = Integer.MAX_VALUE;
+        }
+        m_rangeRequests.clear();
+        List<PluginDownloader.Progress> progress = Collections.synchronizedList(new ArrayList<>());
+
+        PluginDownloader.Result result = downloader.download(m_url, sha256(m_content), progress::add)
+            .get(30, TimeUnit.SECONDS);
+
+        assertArrayEquals(m_content, Files.readAllBytes(result.getFile()));
+        assertEquals("bytes=" + (4 * CHUNK_SIZE) + "-" + (5 * CHUNK_SIZE - 1), m_rangeRequests.get(0));
+        assertEquals(7, m_rangeRequests.size());
+        assertTrue(progress.get(0).isResumed());
+        assertEquals(4, progress.get(0).getChunksDone());
+    }
+
+    @Test
+    void restartsWhenIfRangeNoLongerMatches() throws Exception {
+        byte[] replacement = randomBytes(FILE_SIZE + 500, 2);
+        synchronized (this) {
+            m_replaceAfterRanges = 3;
+            m_replacement = replacement;
+        }
+
+        PluginDownloader.Result result = newDownloader().download(m_url, sha256(replacement), null)
+            .get(30, TimeUnit.SECONDS);
+
+        // The fourth range carried the old validator, got the whole new file, and the download restarted
+        assertArrayEquals(replacement, Files.readAllBytes(result.getFile()));
+        assertEquals(replacement.length, result.getSize());
+        assertEquals(4, m_rangeRequests.size());
+    }
+
+    @Test
+    void failsAndDiscardsOnDigestMismatch() throws Exception {
+        PluginDownloader downloader = newDownloader();
+        String wrongDigest = sha256(new byte[] { 1, 2, 3 });
+
+        ExecutionException failure = assertThrows(ExecutionException.class,
+            () -> downloader.download(m_url, wrongDigest, null).get(30, TimeUnit.SECONDS));
+        assertInstanceOf(IOException.class, failure.getCause());
+
+        try (var files = Files.list(m_directory)) {
+            assertFalse(files.findAny().isPresent(), "partial download should be discarded");
+        }
+    }
+
+    @Test
+    void requiresReferenceDigest() {
+        PluginDownloader downloader = newDownloader();
+
+        assertThrows(IllegalArgumentException.class, () -> downloader.download(m_url, null, null));
+        assertThrows(IllegalArgumentException.class, () -> downloader.download(m_url, "md5:abcd", null));
+    }
+
+    // ========== Stub Server ==========
+
+    private void handle(HttpExchange exchange) throws IOException {
+        byte[] content;
+        String etag;
+        synchronized (this) {
+            content = m_content;
+            etag = m_etag;
+        }
+
+        exchange.getResponseHeaders().set("Accept-Ranges", "bytes");
+        exchange.getResponseHeaders().set("ETag", etag);
+
+        if ("HEAD".equals(exchange.getRequestMethod())) {
+            exchange.getResponseHeaders().set("Content-Length", Long.toString(content.length));
+            exchange.sendResponseHeaders(200, -1);
+            exchange.close();
+            return;
+        }
+
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        String ifRange = exchange.getRequestHeaders().getFirst("If-Range");
+        if (range == null) {
+            send(exchange, 200, content, 0, content.length);
+            return;
+        }
+        m_rangeRequests.add(range);
+
+        synchronized (this) {
+            if (m_rangesServed >= m_failRangesAfter) {
+                exchange.sendResponseHeaders(500, -1);
+                exchange.close();
+                return;
+            }
+            if (m_rangesServed == m_replaceAfterRanges) {
+                m_content = m_replacement;
+                m_etag = "\"v2\"";
+                content = m_content;
+                etag = m_etag;
+                exchange.getResponseHeaders().set("ETag", etag);
+            }
+            m_rangesServed++;
+        }
+
+        if (ifRange != null && !ifRange.equals(etag)) {
+            // Changed since the client's validator: whole new representation
+            send(exchange, 200, content, 0, content.length);
+            return;
+        }
+
+        String[] bounds = range.substring("bytes=".length()).split("-");
+        int start = Integer.parseInt(bounds[0]);
+        int end = Math.min(content.length - 1, Integer.parseInt(bounds[1]));
+        exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + content.length);
+        send(exchange, 206, content, start, end - start + 1);
+    }
+
+    private static void send(HttpExchange exchange, int status, byte[] content, int offset, int length)
+        throws IOException {
+        exchange.sendResponseHeaders(status, length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(content, offset, length);
+        }
+    }
+
+    // ========== Helpers ==========
+
+    private PluginDownloader newDownloader() {
+        return new PluginDownloader(m_directory, m_executor, CHUNK_SIZE);
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+
+    private static String sha256(byte[] bytes) throws NoSuchAlgorithmException {
+        return PluginDownloader.SHA256_PREFIX +
+            HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(bytes));
+    }
+}
@@ -0,0 +1,196 @@
+package io.netnotes.gui.fx.components.layout;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import io.netnotes.engine.noteBytes.NoteBytes;
+import io.netnotes.engine.noteBytes.NoteBytesArray;
+import io.netnotes.engine.noteBytes.NoteBytesObject;
+import io.netnotes.engine.noteBytes.NoteIntegerArray;
+import io.netnotes.engine.noteBytes.collections.NoteBytesPair;
+import javafx.application.Platform;
+
+/**
+ * Compares the per-segment UPDATE path with PATCH frames for a burst of
+ * small edits (one inserted character per segment, a style change on
+ * every eighth): bytes on the wire and receiver-side apply time.
+ *
+ * A VirtualLayoutArea streams into a StreamingLayoutArea, so the receiver
+ * cost is the real inbound path: queueing, coalescing, SegmentPatch merge
+ * and splice, and canvas invalidation in one drain on the JavaFX thread.
+ * Each flush runs on the JavaFX thread, so its drain runs after it; apply
+ * time is from the end of the flush to a runLater queued behind the drain.
+ * Commands are deep-copied between the two sides, as decoding from a
+ * stream would, so the receiver never shares sender objects.
+ *
+ * Needs the JavaFX toolkit (a display, or Monocle for headless runs).
+ *
+ * Usage: LayoutPatchBenchmark [segments] [iterations]
+ */
+class LayoutPatchBenchmark {
+    private static final String SAMPLE_TEXT =
+        "The quick brown fox jumps over the lazy dog while the layout engine " +
+        "streams segment updates from the virtual side to the canvas side. ";
+    private static final long TIMEOUT_SECONDS = 60;
+
+    public static void main(String[] args) throws Exception {
+        int segments = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        Platform.startup(() -> { });
+        try {
+            Result update = run(false, segments, iterations);
+            Result patch = run(true, segments, iterations);
+
+            System.out.printf("segments=%d iterations=%d%n", segments, iterations);
+            System.out.printf("UPDATE: %,d bytes/flush, %.3f ms apply/flush%n",
+                update.bytes / iterations, update.applyNanos / 1e6 / iterations);
+            System.out.printf("PATCH:  %,d bytes/flush, %.3f ms apply/flush%n",
+                patch.bytes / iterations, patch.applyNanos / 1e6 / iterations);
+            System.out.printf("ratio:  %.1fx fewer bytes, %.1fx apply time%n",
+                (double) update.bytes / Math.max(1, patch.bytes),
+                (double) patch.applyNanos / Math.max(1, update.applyNanos));
+        } finally {
+            Platform.exit();
+        }
+    }
+
+    private static Result run(boolean patches, int segments, int iterations) throws Exception {
+        StreamingLayoutArea area = onFx(() -> new StreamingLayoutArea(800, 600));
+        VirtualLayoutArea virtual = new VirtualLayoutArea();
+        virtual.setDeltaPatchesEnabled(patches);
+
+        Result result = new Result();
+        boolean[] counting = { false };
+        virtual.connectOutboundStream(command -> {
+            NoteBytesObject wire = (NoteBytesObject) wireCopy(command);
+            if (counting[0]) result.bytes += wire.get().length;
+            area.processInboundCommand(wire);
+        });
+        area.connectOutboundStream(virtual::processInboundEvent);
+        area.setEventsEnabled(true);
+
+        String[] ids = new String[segments];
+        onFx(() -> {
+            for (int i = 0; i < segments; i++) {
+                ids[i] = virtual.addSegment(createSegment(i));
+            }
+            virtual.flush();
+            return null;
+        });
+        onFx(() -> null); // initial drain
+
+        int warmup = Math.max(1, iterations / 4);
+        for (int iter = 0; iter < warmup + iterations; iter++) {
+            boolean measure = iter >= warmup;
+            int round = iter;
+            long[] flushedAt = { 0 };
+
+            onFx(() -> {
+                for (int i = 0; i < segments; i++) {
+                    boolean restyle = i % 8 == round % 8;
+                    virtual.updateSegment(ids[i], segment -> {
+                        NoteIntegerArray content = segment.getTextContent();
+                        content.insert(content.length() / 2, "x");
+                        if (restyle) {
+                            segment.getStyle().fontSize = 12 + (round % 6);
+                        }
+                    });
+                }
+                counting[0] = measure;
+                virtual.flush();
+                counting[0] = false;
+                flushedAt[0] = System.nanoTime();
+                return null;
+            });
+            long appliedAt = onFx(System::nanoTime);
+            if (measure) result.applyNanos += appliedAt - flushedAt[0];
+        }
+
+        onFx(() -> {
+            for (int i = 0; i < segments; i++) {
+                String sent = virtual.getSegment(ids[i]).getTextContent().toString();
+                LayoutSegment received = area.getSegmentById(ids[i]);
+                if (received == null || !sent.equals(received.getTextContent().toString())) {
+                    throw new IllegalStateException("Receiver diverged at segment " + i);
+                }
+            }
+            StreamingLayoutArea.InboundStats stats = area.getInboundStats();
+            if (stats.dropped > 0) {
+                throw new IllegalStateException("Receiver dropped commands: " + stats);
+            }
+            if (patches && virtual.getLastAckedPatchSequence() != virtual.getPatchSequence()) {
+                throw new IllegalStateException("Unacknowledged patch frames");
+            }
+            return null;
+        });
+        area.shutdown();
+        return result;
+    }
+
+    private static LayoutSegment createSegment(int index) {
+        LayoutSegment segment = new LayoutSegment(LayoutSegment.SegmentType.TEXT);
+        segment.setTextContent(index + ": " + SAMPLE_TEXT);
+        segment.getStyle().fontSize = 12;
+        return segment;
+    }
+
+    /**
+     * Copy of a command as the receiver would decode it from a stream
+     */
+    private static NoteBytes wireCopy(NoteBytes value) {
+        if (value instanceof NoteBytesArray) {
+            NoteBytesArray array = (NoteBytesArray) value;
+            NoteBytesArray copy = new NoteBytesArray();
+            for (int i = 0; i < array.size(); i++) {
+                copy.add(wireCopy(array.get(i)));
+            }
+            return copy;
+        }
+        if (value instanceof NoteBytesObject) {
+            NoteBytesObject copy = new NoteBytesObject();
+            for (NoteBytesPair pair : ((NoteBytesObject) value).getAsList()) {
+                copy.add(pair.getKey().getAsString(), wireCopy(pair.getValue()));
+            }
+            return copy;
+        }
+        if (value instanceof NoteIntegerArray) {
+            return new NoteIntegerArray(value.get().clone());
+        }
+        return value;
+    }
+
+    /**
+     * Run on the JavaFX thread and wait for the result
+     */
+    private static <T> T onFx(Supplier<T> task) throws Exception {
+        CountDownLatch done = new CountDownLatch(1);
+        Object[] result = new Object[1];
+        RuntimeException[] error = new RuntimeException[1];
+
+        Platform.runLater(() -> {
+            try {
+                result[0] = task.get();
+            } catch (RuntimeException e) {
+                error[0] = e;
+            } finally {
+                done.countDown();
+            }
+        });
+        if (!done.await(TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            throw new IllegalStateException("JavaFX thread did not respond");
+        }
+        if (error[0] != null) {
+            throw error[0];
+        }
+        @SuppressWarnings("unchecked")
+        T value = (T) result[0];
+        return value;
+    }
+
+    private static class Result {
+        long bytes = 0;
+        long applyNanos = 0;
+    }
+}